@@ -0,0 +1,17 @@
+#!/bin/sh
+# Dockerfile.cds のエントリポイント。
+# ビルド時に生成したCDSアーカイブ（application.jsa）とAOT処理済みのコンテキストで起動する。
+#
+# AOT処理はビルド時の既定の構成（サーブレット版）で行っているため、
+# reactiveプロファイル（WebFlux/Netty版）で起動する場合はAOT処理済みのコンテキストを使用しない。
+# 追加のJVMオプションは JAVA_OPTS で指定する。
+set -eu
+
+aot_enabled=true
+case ",${SPRING_PROFILES_ACTIVE:-}," in
+    *,reactive,*) aot_enabled=false ;;
+esac
+
+# アーカイブを使用できない場合（JVMの差異等）は警告を出して通常どおり起動する
+exec java -XX:SharedArchiveFile=application.jsa -Xshare:auto -Dspring.aot.enabled="$aot_enabled" \
+    ${JAVA_OPTS:-} -jar application.jar "$@"
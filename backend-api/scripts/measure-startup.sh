@@ -0,0 +1,97 @@
+#!/bin/sh
+# 標準イメージ（Dockerfile）と起動最適化イメージ（Dockerfile.cds）の起動時間を計測し、
+# 結果をMarkdownの表として出力する。
+#
+# 計測値:
+#   ready   : docker run から /api/health が200を返すまでの時間（コンテナ起動を含む実測値）
+#   started : Spring Bootのログ "Started ... in X seconds" の値（JVM起動からコンテキスト起動完了まで）
+#
+# 使い方（backend-apiディレクトリで実行）:
+#   scripts/measure-startup.sh [回数] [出力ファイル]
+#   例: scripts/measure-startup.sh 10 benchmarks/startup-report.md
+#
+# Keycloakには接続しない（issuerに到達できない状態で起動し、署名鍵はバックグラウンドで取得を試みる）。
+# ミリ秒単位の時刻取得に GNU date（date +%s%3N）を使用する。
+set -eu
+
+runs="${1:-5}"
+output="${2:-benchmarks/startup-report.md}"
+cpus="${STARTUP_CPUS:-2}"
+memory="${STARTUP_MEMORY:-1g}"
+
+cd "$(dirname "$0")/.."
+
+docker build -q -f Dockerfile -t backend-api:standard . >/dev/null
+docker build -q -f Dockerfile.cds -t backend-api:cds . >/dev/null
+
+now_ms() {
+    date +%s%3N
+}
+
+# 1回分の計測。"ready(ms) started(s)" を出力する
+measure() {
+    image="$1"
+    begin=$(now_ms)
+    container=$(docker run -d -P --cpus="$cpus" --memory="$memory" \
+        -e KEYCLOAK_ISSUER_URI=http://127.0.0.1:1/realms/one-account-realm \
+        -e OIDC_SNAPSHOT_PATH= \
+        "$image")
+    port=""
+    while [ -z "$port" ]; do
+        port=$(docker port "$container" 8080/tcp 2>/dev/null | head -n 1 | sed 's/.*://')
+    done
+    until curl -sf "http://127.0.0.1:$port/api/health" >/dev/null 2>&1; do
+        if [ $(( $(now_ms) - begin )) -gt 120000 ]; then
+            docker logs "$container" >&2
+            docker rm -f "$container" >/dev/null
+            echo "timed out waiting for $image" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    ready=$(( $(now_ms) - begin ))
+    started=$(docker logs "$container" 2>&1 | sed -n 's/.*Started .* in \([0-9.]*\) seconds.*/\1/p' | head -n 1)
+    docker rm -f "$container" >/dev/null
+    echo "$ready $started"
+}
+
+# 値の一覧（1行1値）から中央値・最小値・最大値を "median min max" として出力する
+stats() {
+    sort -n | awk '{ v[NR] = $1 } END {
+        m = (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2
+        printf "%s %s %s\n", m, v[1], v[NR]
+    }'
+}
+
+results=$(mktemp)
+trap 'rm -f "$results"' EXIT
+
+for image in backend-api:standard backend-api:cds; do
+    # 1回目はイメージのページキャッシュ等の影響を受けるため計測から除外する
+    measure "$image" >/dev/null
+    i=0
+    while [ "$i" -lt "$runs" ]; do
+        echo "$image $(measure "$image")" >>"$results"
+        i=$((i + 1))
+    done
+done
+
+{
+    echo "# 起動時間の比較"
+    echo
+    echo "- 計測日時: $(date -u +%Y-%m-%dT%H:%M:%SZ)"
+    echo "- 計測回数: ${runs}回（各イメージ、初回を除く）"
+    echo "- コンテナの制限: --cpus=${cpus} --memory=${memory}"
+    echo "- Docker: $(docker version --format '{{.Server.Version}}') / $(uname -srm)"
+    echo
+    echo "| イメージ | ready 中央値 (ms) | ready 最小〜最大 (ms) | started 中央値 (s) | イメージサイズ |"
+    echo "|---|---|---|---|---|"
+    for image in backend-api:standard backend-api:cds; do
+        set -- $(grep "^$image " "$results" | awk '{ print $2 }' | stats)
+        started=$(grep "^$image " "$results" | awk '{ print $3 }' | stats | awk '{ print $1 }')
+        size=$(docker image inspect "$image" --format '{{.Size}}' | awk '{ printf "%.0f MB", $1 / 1000000 }')
+        echo "| \`$image\` | $1 | $2〜$3 | $started | $size |"
+    done
+} >"$output"
+
+cat "$output"
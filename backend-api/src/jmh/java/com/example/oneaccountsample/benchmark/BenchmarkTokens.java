@@ -0,0 +1,107 @@
+package com.example.oneaccountsample.benchmark;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * ベンチマーク用のトークンとCookieヘッダーを生成するユーティリティ。
+ */
+public final class BenchmarkTokens {
+
+    /** ベンチマークで使用するissuer */
+    public static final String ISSUER = "http://localhost:8080/realms/one-account-realm";
+
+    private BenchmarkTokens() {
+    }
+
+    /**
+     * Keycloakのアクセストークンと同等のクレームを持つトークンに署名します。
+     *
+     * @param algorithm 署名アルゴリズム
+     * @param keyId     kid
+     * @param signer    署名に使用するJWSSigner
+     * @return 署名済みトークン
+     */
+    public static String sign(JWSAlgorithm algorithm, String keyId, JWSSigner signer) {
+        return sign(algorithm, keyId, signer, keycloakClaims());
+    }
+
+    /**
+     * 指定したクレームのトークンに署名します。
+     *
+     * @param algorithm 署名アルゴリズム
+     * @param keyId     kid
+     * @param signer    署名に使用するJWSSigner
+     * @param claims    クレーム
+     * @return 署名済みトークン
+     */
+    public static String sign(JWSAlgorithm algorithm, String keyId, JWSSigner signer, JWTClaimsSet claims) {
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(algorithm)
+                    .keyID(keyId)
+                    .type(JOSEObjectType.JWT)
+                    .build(), claims);
+            jwt.sign(signer);
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keycloakのアクセストークンと同等のクレームを生成します。
+     *
+     * @return クレーム
+     */
+    public static JWTClaimsSet keycloakClaims() {
+        Instant now = Instant.now();
+        return new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject(UUID.randomUUID().toString())
+                .audience("gmo-coin-client")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("typ", "Bearer")
+                .claim("azp", "gmo-coin-client")
+                .claim("scope", "openid email profile")
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .claim("email_verified", true)
+                .claim("given_name", "Taro")
+                .claim("family_name", "Yamada")
+                .claim("name", "Taro Yamada")
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm")))
+                .claim("resource_access", Map.of("account", Map.of("roles", List.of("view-profile", "manage-account"))))
+                .build();
+    }
+
+    /**
+     * ブラウザが送信する現実的なCookieヘッダーを生成します。
+     * <p>
+     * フロントエンドが設定する user_info や計測系のCookieの後ろに access_token が続きます。
+     *
+     * @param accessToken access_token Cookieの値
+     * @return Cookieヘッダーの値
+     */
+    public static String cookieHeader(String accessToken) {
+        return "_ga=GA1.1.1234567890.1723600000; "
+                + "_ga_ABCDEF1234=GS1.1.1723600000.1.1.1723600100.0.0.0; "
+                + "NEXT_LOCALE=ja; "
+                + "user_info=%7B%22sub%22%3A%22user123%22%2C%22preferred_username%22%3A%22testuser%22%2C"
+                + "%22email%22%3A%22test%40example.com%22%2C%22name%22%3A%22Taro%20Yamada%22%7D; "
+                + "access_token=" + accessToken + "; "
+                + "theme=dark";
+    }
+}
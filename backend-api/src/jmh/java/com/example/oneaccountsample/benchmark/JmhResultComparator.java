@@ -0,0 +1,95 @@
+package com.example.oneaccountsample.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 2つのJMH結果（JSON）を比較し、リリース間の性能劣化を検出するツール。
+ * <p>
+ * ベンチマーク名とパラメータごとに、スコアとアロケーション量（gc.alloc.rate.norm）の
+ * 変化率を表示します。しきい値を超えて悪化したものがあれば終了コード1で終了します。
+ * <pre>
+ * ./gradlew jmhCompare -Pbaseline=benchmarks/jmh-result-0.0.1.json -Pcandidate=benchmarks/jmh-result-0.0.2.json
+ * </pre>
+ */
+public final class JmhResultComparator {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private JmhResultComparator() {
+    }
+
+    /**
+     * @param args [0] 基準となる結果ファイル, [1] 比較対象の結果ファイル, [2] 許容する悪化率（%、省略時10）
+     * @throws IOException 結果ファイルを読み込めない場合
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: JmhResultComparator <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> candidate = load(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %14s %14s %9s%n",
+                "Benchmark", "base", "new", "change", "base B/op", "new B/op", "change");
+        for (Map.Entry<String, JsonNode> entry : new TreeMap<>(candidate).entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s%n", entry.getKey(), "(new)");
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            // 平均時間系は小さいほど良く、スループット系は大きいほど良い
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double scoreChange = change(score(before), score(after));
+            double allocationChange = change(allocation(before), allocation(after));
+            boolean regressed = (higherIsBetter ? -scoreChange : scoreChange) > threshold
+                    || allocationChange > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %8.1f%% %14.1f %14.1f %8.1f%%%s%n",
+                    entry.getKey(), score(before), score(after), scoreChange,
+                    allocation(before), allocation(after), allocationChange, regressed ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            result.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble();
+    }
+
+    private static double change(double before, double after) {
+        if (before == 0.0) {
+            return after == 0.0 ? 0.0 : 100.0;
+        }
+        return (after - before) / before * 100.0;
+    }
+}
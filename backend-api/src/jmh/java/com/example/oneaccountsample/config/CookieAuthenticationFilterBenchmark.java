@@ -0,0 +1,153 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.oneaccountsample.benchmark.BenchmarkTokens;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * CookieAuthenticationFilterのベンチマーク。
+ * <ul>
+ *   <li>Cookie配列からのアクセストークン抽出（旧実装）とCookieヘッダーの直接走査の比較</li>
+ *   <li>ラップしたリクエストでのフィルター処理（旧実装）とリクエスト属性 + BearerTokenResolverでの処理の比較</li>
+ * </ul>
+ * 1リクエストあたりの割り当て量は {@code gc.alloc.rate.norm} で比較します。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CookieAuthenticationFilterBenchmark {
+
+    private final CookieAuthenticationFilter filter = new CookieAuthenticationFilter(new SimpleMeterRegistry());
+    private final CookieBearerTokenResolver resolver = new CookieBearerTokenResolver();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private MockHttpServletRequest request;
+    private Cookie[] cookies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JOSEException {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("rsa").generate();
+        String accessToken = BenchmarkTokens.sign(JWSAlgorithm.RS256, key.getKeyID(), new RSASSASigner(key));
+        request = new MockHttpServletRequest("GET", "/api/user");
+        request.addHeader("Cookie", BenchmarkTokens.cookieHeader(accessToken));
+        cookies = parseCookies(BenchmarkTokens.cookieHeader(accessToken));
+        request.setCookies(cookies);
+    }
+
+    /**
+     * Cookie配列からaccess_tokenを探す処理（旧実装と同じストリーム処理）。
+     */
+    @Benchmark
+    public String extractFromCookieArray() {
+        return Arrays.stream(cookies)
+                .filter(cookie -> CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME.equals(cookie.getName()))
+                .map(Cookie::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Cookieヘッダーを直接走査してaccess_tokenを探す処理（現行実装）。
+     */
+    @Benchmark
+    public String extractFromCookieHeader() {
+        return CookieAuthenticationFilter.resolveAccessToken(request);
+    }
+
+    /**
+     * 旧実装のフィルター全体。後続のフィルターがAuthorizationヘッダーを2回参照する状況を再現する。
+     */
+    @Benchmark
+    public void doFilterInternalLegacy(Blackhole blackhole) throws ServletException, IOException {
+        FilterChain chain = (req, res) -> {
+            HttpServletRequest httpRequest = (HttpServletRequest) req;
+            blackhole.consume(httpRequest.getHeader("Authorization"));
+            blackhole.consume(httpRequest.getHeaders("Authorization"));
+        };
+        legacyDoFilter(request, chain);
+    }
+
+    /**
+     * 現行実装のフィルター全体。後続のBearerTokenAuthenticationFilterがトークンを取得する処理までを含む。
+     */
+    @Benchmark
+    public void doFilterInternal(Blackhole blackhole) throws ServletException, IOException {
+        FilterChain chain = (req, res) -> blackhole.consume(resolver.resolve((HttpServletRequest) req));
+        filter.doFilterInternal(request, response, chain);
+        request.removeAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE);
+    }
+
+    /**
+     * 変更前のCookieAuthenticationFilterの処理（比較用に残している）。
+     */
+    private void legacyDoFilter(HttpServletRequest request, FilterChain filterChain) throws ServletException, IOException {
+        Cookie[] requestCookies = request.getCookies();
+        final String tokenValue = requestCookies == null ? null :
+                Arrays.stream(requestCookies)
+                        .filter(cookie -> CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME.equals(cookie.getName()))
+                        .map(Cookie::getValue)
+                        .findFirst()
+                        .orElse(null);
+        if (tokenValue != null && request.getHeader("Authorization") == null) {
+            HttpServletRequestWrapper wrappedRequest = new HttpServletRequestWrapper(request) {
+                @Override
+                public String getHeader(String name) {
+                    if ("Authorization".equalsIgnoreCase(name)) {
+                        return "Bearer " + tokenValue;
+                    }
+                    return super.getHeader(name);
+                }
+
+                @Override
+                public Enumeration<String> getHeaders(String name) {
+                    if ("Authorization".equalsIgnoreCase(name)) {
+                        return Collections.enumeration(Collections.singletonList("Bearer " + tokenValue));
+                    }
+                    return super.getHeaders(name);
+                }
+            };
+            filterChain.doFilter(wrappedRequest, response);
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static Cookie[] parseCookies(String header) {
+        String[] pairs = header.split("; ");
+        Cookie[] parsed = new Cookie[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int separator = pairs[i].indexOf('=');
+            parsed[i] = new Cookie(pairs[i].substring(0, separator), pairs[i].substring(separator + 1));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.filter.CorsFilter;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * 許可オリジンが多い場合のCORSのプリフライトのベンチマーク。
+ * <ul>
+ *   <li>{@code *Legacy}: Springの CorsConfiguration（許可オリジンとパターンを先頭から順に照合）と CorsFilter</li>
+ *   <li>{@code *Compiled}: CompiledCorsConfigurationSource（ハッシュ表で照合）と CorsPreflightFilter</li>
+ * </ul>
+ * 許可オリジンは {@code origins} 個の完全一致と、その1/10のサブドメインのワイルドカード。
+ * リクエストのオリジンは完全一致の最後の1件（{@code exact}）、ワイルドカードの最後の1件（{@code wildcard}）、
+ * 許可されていないオリジン（{@code rejected}）で計測します。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CorsPreflightBenchmark {
+
+    @Param({"10", "1000"})
+    private int origins;
+
+    @Param({"exact", "wildcard", "rejected"})
+    private String match;
+
+    private CorsConfiguration legacyConfiguration;
+    private CorsFilter legacyFilter;
+    private CompiledCorsConfigurationSource compiledSource;
+    private CorsConfiguration compiledConfiguration;
+    private CorsPreflightFilter compiledFilter;
+    private MockHttpServletRequest request;
+    private String origin;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> exactOrigins = new ArrayList<>();
+        List<String> wildcardOrigins = new ArrayList<>();
+        for (int i = 0; i < origins; i++) {
+            exactOrigins.add("https://partner-" + i + ".example.com");
+        }
+        for (int i = 0; i < Math.max(1, origins / 10); i++) {
+            wildcardOrigins.add("https://*.tenant-" + i + ".example.net");
+        }
+        origin = switch (match) {
+            case "exact" -> exactOrigins.get(exactOrigins.size() - 1);
+            case "wildcard" -> "https://app.tenant-" + (wildcardOrigins.size() - 1) + ".example.net";
+            default -> "https://unknown.example.org";
+        };
+
+        legacyConfiguration = new CorsConfiguration();
+        legacyConfiguration.setAllowedOrigins(exactOrigins);
+        legacyConfiguration.setAllowedOriginPatterns(wildcardOrigins);
+        legacyConfiguration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        legacyConfiguration.setAllowedHeaders(List.of("*"));
+        legacyConfiguration.setAllowCredentials(true);
+        legacyConfiguration.setMaxAge(3600L);
+        UrlBasedCorsConfigurationSource legacySource = new UrlBasedCorsConfigurationSource();
+        legacySource.registerCorsConfiguration("/**", legacyConfiguration);
+        legacyFilter = new CorsFilter(legacySource);
+
+        CorsProperties properties = new CorsProperties();
+        List<String> allowedOrigins = new ArrayList<>(exactOrigins);
+        allowedOrigins.addAll(wildcardOrigins);
+        properties.setAllowedOrigins(allowedOrigins);
+        compiledSource = new CompiledCorsConfigurationSource(properties);
+        compiledConfiguration = compiledSource.getCorsConfiguration(new MockHttpServletRequest());
+        compiledFilter = new CorsPreflightFilter(compiledSource);
+
+        request = new MockHttpServletRequest("OPTIONS", "/api/user");
+        request.addHeader("Origin", origin);
+        request.addHeader("Access-Control-Request-Method", "GET");
+        request.addHeader("Access-Control-Request-Headers", "authorization, content-type");
+    }
+
+    /**
+     * オリジンの照合のみ（変更前: 許可オリジン・パターンの線形走査）。
+     */
+    @Benchmark
+    public String checkOriginLegacy() {
+        return legacyConfiguration.checkOrigin(origin);
+    }
+
+    /**
+     * オリジンの照合のみ（現行実装: ハッシュ表の参照）。
+     */
+    @Benchmark
+    public String checkOriginCompiled() {
+        return compiledConfiguration.checkOrigin(origin);
+    }
+
+    /**
+     * プリフライト全体（変更前: CorsFilterとDefaultCorsProcessorによる応答ヘッダーの生成）。
+     */
+    @Benchmark
+    public MockHttpServletResponse preflightLegacy() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        legacyFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    /**
+     * プリフライト全体（現行実装: CorsPreflightFilterによる事前に生成したヘッダーでの応答）。
+     */
+    @Benchmark
+    public MockHttpServletResponse preflightCompiled() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        compiledFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.oneaccountsample.controller;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.benchmark.BenchmarkTokens;
+import com.example.oneaccountsample.config.ProfileStoreProperties;
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.example.oneaccountsample.profile.UserProfileStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * /api/user と /api/profile のレスポンス生成のベンチマーク。
+ * <ul>
+ *   <li>{@code *Legacy}: 変更前の実装（HashMap構築＋JSONシリアライズ）</li>
+ *   <li>{@code *Uncached}: レスポンスのレコード＋JSONシリアライズ（キャッシュ無効時）</li>
+ *   <li>キャッシュ有効時（同じトークンでの再リクエスト）</li>
+ * </ul>
+ * ObjectMapperはSpring Bootの既定と同じくJackson2ObjectMapperBuilderで生成します。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserInfoControllerBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final UserInfoController controller = new UserInfoController(newCache(true), newProfileStore());
+    private final UserInfoController uncachedController = new UserInfoController(newCache(false), newProfileStore());
+
+    private Jwt jwt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instant now = Instant.now();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .header("kid", "rsa")
+                .issuer(BenchmarkTokens.ISSUER)
+                .subject("8f2d6c1e-5b4a-4f7e-9c3d-2a1b0e9f8d7c")
+                .jti("2b7c9e4a-1f3d-4c5b-8a6e-0d9f7b3c1e2a")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(300))
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .claim("email_verified", true)
+                .claim("given_name", "Taro")
+                .claim("family_name", "Yamada")
+                .claim("name", "Taro Yamada")
+                .build();
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getUserInfo() {
+        return controller.getUserInfo(jwt, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getUserProfile() {
+        return controller.getUserProfile(jwt, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getUserInfoUncached() {
+        return uncachedController.getUserInfo(jwt, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getUserProfileUncached() {
+        return uncachedController.getUserProfile(jwt, null);
+    }
+
+    @Benchmark
+    public byte[] getUserInfoLegacy() throws JsonProcessingException {
+        Map<String, Object> userInfo = new HashMap<>();
+        userInfo.put("subject", jwt.getSubject());
+        userInfo.put("username", jwt.getClaimAsString("preferred_username"));
+        userInfo.put("email", jwt.getClaimAsString("email"));
+        userInfo.put("firstName", jwt.getClaimAsString("given_name"));
+        userInfo.put("lastName", jwt.getClaimAsString("family_name"));
+        userInfo.put("fullName", jwt.getClaimAsString("name"));
+        userInfo.put("emailVerified", jwt.getClaimAsBoolean("email_verified"));
+        userInfo.put("tokenIssuer", jwt.getIssuer());
+        userInfo.put("tokenIssuedAt", jwt.getIssuedAt());
+        userInfo.put("tokenExpiresAt", jwt.getExpiresAt());
+        return objectMapper.writeValueAsBytes(userInfo);
+    }
+
+    private UserResponseCache newCache(boolean enabled) {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setEnabled(enabled);
+        return new UserResponseCache(objectMapper, properties, new SimpleMeterRegistry());
+    }
+
+    private static UserProfileStore newProfileStore() {
+        return new UserProfileStore(new ProfileStoreProperties());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import com.example.oneaccountsample.benchmark.BenchmarkTokens;
+
+/**
+ * Keycloakのロールから権限への変換と認可判定のベンチマーク（1リクエストあたりの認可のオーバーヘッド）。
+ * <ul>
+ *   <li>{@code mapLegacy}: リクエストごとに対応付けの設定とロールクレームをストリームで走査する実装</li>
+ *   <li>{@code mapCompiled}: 参照用の構造に変換済みの対応付けでの変換（キャッシュなし）</li>
+ *   <li>{@code mapCached}: 同じトークンでの再リクエスト（キャッシュあり）</li>
+ *   <li>{@code authorize*}: 認証情報の生成＋hasRole('USER')の判定</li>
+ * </ul>
+ * 対応付けはapplication.ymlと同じ内容に、使用されないロール・クライアントを加えたものを使用します。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthorityMappingBenchmark {
+
+    private static final Map<String, List<String>> REALM_ROLES = Map.of(
+            "default-roles-one-account-realm", List.of("ROLE_USER"),
+            "admin", List.of("ROLE_ADMIN"),
+            "auditor", List.of("ROLE_AUDITOR"));
+    private static final Map<String, Map<String, List<String>>> CLIENT_ROLES = Map.of(
+            "account", Map.of("view-profile", List.of("PROFILE_READ"), "manage-account", List.of("PROFILE_WRITE")),
+            "backend-api", Map.of("admin", List.of("API_ADMIN")));
+
+    private final JwtGrantedAuthoritiesConverter scopeAuthorities = new JwtGrantedAuthoritiesConverter();
+    private final KeycloakAuthoritiesConverter compiled = new KeycloakAuthoritiesConverter(REALM_ROLES, CLIENT_ROLES, 0);
+    private final KeycloakAuthoritiesConverter cached = new KeycloakAuthoritiesConverter(REALM_ROLES, CLIENT_ROLES,
+            10_000);
+    private final JwtAuthenticationConverter cachedAuthentication = authenticationConverter(cached);
+    private final JwtAuthenticationConverter compiledAuthentication = authenticationConverter(compiled);
+    private final AuthorityAuthorizationManager<Object> hasUserRole = AuthorityAuthorizationManager.hasRole("USER");
+    private final Object secured = new Object();
+
+    private Jwt jwt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instant now = Instant.now();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .header("kid", "rsa")
+                .issuer(BenchmarkTokens.ISSUER)
+                .subject("8f2d6c1e-5b4a-4f7e-9c3d-2a1b0e9f8d7c")
+                .jti("2b7c9e4a-1f3d-4c5b-8a6e-0d9f7b3c1e2a")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .claim("scope", "openid email profile")
+                .claim("realm_access", Map.of("roles",
+                        List.of("default-roles-one-account-realm", "offline_access", "uma_authorization")))
+                .claim("resource_access", Map.of(
+                        "account", Map.of("roles", List.of("view-profile", "manage-account", "manage-account-links")),
+                        "broker", Map.of("roles", List.of("read-token"))))
+                .build();
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> mapLegacy() {
+        List<GrantedAuthority> authorities = new ArrayList<>(scopeAuthorities.convert(jwt));
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+            roles.stream()
+                    .map(Object::toString)
+                    .flatMap(role -> REALM_ROLES.getOrDefault(role, List.of()).stream())
+                    .map(SimpleGrantedAuthority::new)
+                    .forEach(authorities::add);
+        }
+        Map<String, Object> resourceAccess = jwt.getClaimAsMap("resource_access");
+        if (resourceAccess != null) {
+            resourceAccess.entrySet().stream()
+                    .filter(client -> CLIENT_ROLES.containsKey(client.getKey()))
+                    .flatMap(client -> client.getValue() instanceof Map<?, ?> access
+                            && access.get("roles") instanceof Collection<?> roles
+                                    ? roles.stream()
+                                            .map(Object::toString)
+                                            .map(role -> CLIENT_ROLES.get(client.getKey()).get(role))
+                                            .filter(Objects::nonNull)
+                                            .flatMap(List::stream)
+                                    : Stream.empty())
+                    .distinct()
+                    .map(SimpleGrantedAuthority::new)
+                    .forEach(authorities::add);
+        }
+        return authorities;
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> mapCompiled() {
+        return compiled.convert(jwt);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> mapCached() {
+        return cached.convert(jwt);
+    }
+
+    @Benchmark
+    public AuthorizationResult authorizeCompiled() {
+        AbstractAuthenticationToken authentication = compiledAuthentication.convert(jwt);
+        return hasUserRole.authorize(() -> authentication, secured);
+    }
+
+    @Benchmark
+    public AuthorizationResult authorizeCached() {
+        AbstractAuthenticationToken authentication = cachedAuthentication.convert(jwt);
+        return hasUserRole.authorize(() -> authentication, secured);
+    }
+
+    private static JwtAuthenticationConverter authenticationConverter(KeycloakAuthoritiesConverter authorities) {
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(authorities);
+        return converter;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.oneaccountsample.security;
+
+import java.security.Key;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.example.oneaccountsample.benchmark.BenchmarkTokens;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * JWTの署名検証とデコードのベンチマーク。
+ * <p>
+ * ローカルで生成したRS256/ES256の鍵で署名したトークンを使用します。
+ * <ul>
+ *   <li>署名検証のみ（パース済みトークン）</li>
+ *   <li>パース＋署名検証</li>
+ *   <li>アプリケーションと同じ構成のJwtDecoderによるデコード（クレーム検証を含む）</li>
+ *   <li>検証済みJWTキャッシュにヒットした場合のデコード</li>
+ *   <li>期限切れ・署名不正のトークンの拒否（事前検証あり/なし）</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtSignatureVerificationBenchmark {
+
+    @Param({ "RS256", "ES256" })
+    public String algorithm;
+
+    private String token;
+    private SignedJWT parsed;
+    private JWSVerifier verifier;
+    private JwtDecoder decoder;
+    private JwtDecoder cachingDecoder;
+    private JwtDecoder prevalidatingDecoder;
+    private String expiredToken;
+    private String forgedToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JOSEException, ParseException {
+        Key publicKey;
+        JWSAlgorithm jwsAlgorithm;
+        String keyId;
+        JWSSigner signer;
+        JWSSigner otherSigner;
+        if ("ES256".equals(algorithm)) {
+            ECKey key = new ECKeyGenerator(Curve.P_256).keyID("ec").generate();
+            jwsAlgorithm = JWSAlgorithm.ES256;
+            keyId = key.getKeyID();
+            signer = new ECDSASigner(key);
+            otherSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
+            verifier = new ECDSAVerifier(key.toECPublicKey());
+            publicKey = key.toECPublicKey();
+        } else {
+            RSAKey key = new RSAKeyGenerator(2048).keyID("rsa").generate();
+            jwsAlgorithm = JWSAlgorithm.RS256;
+            keyId = key.getKeyID();
+            signer = new RSASSASigner(key);
+            otherSigner = new RSASSASigner(new RSAKeyGenerator(2048).generate());
+            verifier = new RSASSAVerifier(key.toRSAPublicKey());
+            publicKey = key.toRSAPublicKey();
+        }
+        token = BenchmarkTokens.sign(jwsAlgorithm, keyId, signer);
+        JWTClaimsSet expiredClaims = new JWTClaimsSet.Builder(BenchmarkTokens.keycloakClaims())
+                .expirationTime(Date.from(Instant.now().minusSeconds(3600)))
+                .build();
+        expiredToken = BenchmarkTokens.sign(jwsAlgorithm, keyId, signer, expiredClaims);
+        // 正しいkidを持つが別の鍵で署名されたトークン
+        forgedToken = BenchmarkTokens.sign(jwsAlgorithm, keyId, otherSigner);
+        parsed = SignedJWT.parse(token);
+        decoder = NimbusJwtDecoders.create(BenchmarkTokens.ISSUER, (header, context) -> List.of(publicKey));
+        cachingDecoder = new CachingJwtDecoder(decoder, 1_000, 16 * 1024 * 1024);
+        prevalidatingDecoder = new PrevalidatingJwtDecoder(decoder, BenchmarkTokens.ISSUER, keyId::equals,
+                Duration.ofSeconds(60), 8192, 1_000, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public boolean verifySignature() throws JOSEException {
+        return verifier.verify(parsed.getHeader(), parsed.getSigningInput(), parsed.getSignature());
+    }
+
+    @Benchmark
+    public boolean parseAndVerify() throws JOSEException, ParseException {
+        return SignedJWT.parse(token).verify(verifier);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt decodeCached() {
+        return cachingDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Object rejectExpired() {
+        return rejected(decoder, expiredToken);
+    }
+
+    @Benchmark
+    public Object rejectExpiredPrevalidated() {
+        return rejected(prevalidatingDecoder, expiredToken);
+    }
+
+    @Benchmark
+    public Object rejectForged() {
+        return rejected(decoder, forgedToken);
+    }
+
+    @Benchmark
+    public Object rejectForgedPrevalidated() {
+        // 2回目以降は拒否済みトークンのキャッシュにヒットする
+        return rejected(prevalidatingDecoder, forgedToken);
+    }
+
+    private static Object rejected(JwtDecoder decoder, String token) {
+        try {
+            return decoder.decode(token);
+        } catch (JwtException e) {
+            return e;
+        }
+    }
+}
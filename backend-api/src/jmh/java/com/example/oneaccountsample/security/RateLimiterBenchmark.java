@@ -0,0 +1,105 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * レート制限の判定のベンチマーク（CPU数のスレッドから同時に呼び出した場合の1リクエストあたりのオーバーヘッド）。
+ * <ul>
+ *   <li>{@code resolveOnly}: エンドポイントの判定のみ（比較の基準）</li>
+ *   <li>{@code normalTraffic}: 10,000ユーザーがそれぞれ制限内でリクエストする通常時（CPU数のストライプ）</li>
+ *   <li>{@code normalTrafficSingleStripe}: 同上をストライプ1つで保持した場合</li>
+ *   <li>{@code hotSubject}: 全スレッドが同じユーザーとしてリクエストする場合（同じバケットへのCASが競合する）</li>
+ *   <li>{@code rejected}: 制限を超えたユーザーのリクエスト（拒否の判定）</li>
+ * </ul>
+ * {@code normalTraffic} と {@code resolveOnly} の差がリクエストごとのレート制限の処理時間です。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(Threads.MAX)
+public class RateLimiterBenchmark {
+
+    private static final int SUBJECTS = 10_000;
+    private static final String PATH = "/api/user";
+
+    private final String[] subjects = new String[SUBJECTS];
+
+    private RateLimiter striped;
+    private RateLimiter singleStripe;
+    private RateLimiter strict;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < SUBJECTS; i++) {
+            subjects[i] = "8f2d6c1e-5b4a-4f7e-9c3d-" + String.format("%012d", i);
+        }
+        // 計測中に制限を超えないよう、補充を十分に大きくする
+        Map<String, RateLimiter.Limit> unlimited = Map.of(PATH, new RateLimiter.Limit(1e9, 1_000_000));
+        striped = new RateLimiter(unlimited, 100_000, Duration.ofMinutes(10), RateLimiter.defaultStripes());
+        singleStripe = new RateLimiter(unlimited, 100_000, Duration.ofMinutes(10), 1);
+        strict = new RateLimiter(Map.of(PATH, new RateLimiter.Limit(0.001, 1)), 100_000, Duration.ofMinutes(10),
+                RateLimiter.defaultStripes());
+        for (String subject : subjects) {
+            striped.tryAcquire(striped.endpoint(PATH), subject);
+            singleStripe.tryAcquire(singleStripe.endpoint(PATH), subject);
+            strict.tryAcquire(strict.endpoint(PATH), subject);
+        }
+    }
+
+    /**
+     * スレッドごとのリクエストするユーザーの位置。
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().threadId() * 7919 % SUBJECTS);
+        }
+
+        int nextIndex() {
+            next = next + 1 == SUBJECTS ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Endpoint resolveOnly(Client client) {
+        client.nextIndex();
+        return striped.endpoint(PATH);
+    }
+
+    @Benchmark
+    public long normalTraffic(Client client) {
+        return striped.tryAcquire(striped.endpoint(PATH), subjects[client.nextIndex()]);
+    }
+
+    @Benchmark
+    public long normalTrafficSingleStripe(Client client) {
+        return singleStripe.tryAcquire(singleStripe.endpoint(PATH), subjects[client.nextIndex()]);
+    }
+
+    @Benchmark
+    public long hotSubject() {
+        return striped.tryAcquire(striped.endpoint(PATH), subjects[0]);
+    }
+
+    @Benchmark
+    public long rejected(Client client) {
+        return strict.tryAcquire(strict.endpoint(PATH), subjects[client.nextIndex()]);
+    }
+}
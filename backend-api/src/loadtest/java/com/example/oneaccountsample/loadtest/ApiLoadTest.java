@@ -0,0 +1,318 @@
+package com.example.oneaccountsample.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.oneaccountsample.OneAccountSampleApplication;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+/**
+ * backend-apiのスループット・レイテンシを計測する負荷テスト（性能に関する変更の検証の基準）。
+ * <p>
+ * Keycloakの代わりにテスト用のOIDCプロバイダー（{@link StubOidcIssuer}）を起動し、
+ * Keycloakと同等のクレームを持つトークンを事前に発行したうえで、
+ * {@code /api/user}・{@code /api/profile}・{@code /api/health} に指定した比率・同時実行数でリクエストを送信します。
+ * 認証はCookie（access_token）とAuthorizationヘッダーの両方を交互に使用します。
+ * <p>
+ * 既定ではアプリケーションを同じプロセスで起動します。{@code --target} を指定した場合は起動済みの
+ * アプリケーションに送信するため、アプリケーションは {@code --issuer-port} で固定したOIDCプロバイダーの
+ * issuer URI（実行時に出力）を KEYCLOAK_ISSUER_URI として起動しておきます。
+ * <p>
+ * 各ワーカーは応答を受け取ってから次のリクエストを送信するため（クローズドループ）、
+ * 計測値はサーバーが応答できる最大スループットとその時のレイテンシを表します。
+ *
+ * <pre>
+ * ./gradlew apiLoadTest -PloadTestArgs="--concurrency=200 --duration-s=60 --output=benchmarks/loadtest-result.json"
+ * </pre>
+ */
+public final class ApiLoadTest {
+
+    private static final String REALM = "loadtest-realm";
+
+    private ApiLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.println("Options: " + options.values());
+
+        try (StubOidcIssuer issuer = StubOidcIssuer.start(REALM, options.issuerPort())) {
+            System.out.println("Issuer: " + issuer.issuerUri());
+            String[] tokens = mintTokens(issuer, options);
+            ConfigurableApplicationContext context = options.target() == null ? startApplication(issuer, options) : null;
+            try {
+                URI base = URI.create(options.target() != null ? options.target()
+                        : "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port"));
+                LatencyReport report = run(base, tokens, options);
+                System.out.println();
+                report.printSummary(System.out);
+                if (options.output() != null) {
+                    report.writeJson(options.output(), options.values());
+                    System.out.println("Result: " + options.output().toAbsolutePath());
+                }
+                if (options.histogramDirectory() != null) {
+                    report.writeHistograms(options.histogramDirectory());
+                    System.out.println("Histograms: " + options.histogramDirectory().toAbsolutePath());
+                }
+                if (report.totalErrors() > 0) {
+                    System.out.println("WARNING: " + report.totalErrors() + " requests failed");
+                }
+            } finally {
+                if (context != null) {
+                    context.close();
+                }
+            }
+        }
+    }
+
+    private static String[] mintTokens(StubOidcIssuer issuer, Options options) {
+        // トークンは事前に発行する（送信側の署名処理を計測から除外する）
+        Date expiresAt = Date.from(Instant.now().plus(options.tokenTtl()));
+        String[] tokens = new String[options.tokens()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = issuer.mintToken("user-" + i, claims -> claims.expirationTime(expiresAt));
+        }
+        return tokens;
+    }
+
+    private static ConfigurableApplicationContext startApplication(StubOidcIssuer issuer, Options options) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuerUri(),
+                "jwt.provider.snapshot-path=",
+                // 送信元が1つのIPアドレスで、1ユーザーあたりのレートも本番の制限を超えるため、既定ではレート制限を無効にする
+                // （--app-properties で有効にして制限の処理を含めて計測できる）
+                "api.rate-limit.enabled=false",
+                "logging.level.org.springframework.security=WARN",
+                "logging.level.root=WARN"));
+        properties.addAll(options.applicationProperties());
+        return new SpringApplicationBuilder(OneAccountSampleApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    private static LatencyReport run(URI base, String[] tokens, Options options) throws InterruptedException {
+        LatencyReport report = new LatencyReport();
+        Request[] schedule = schedule(base, report, options);
+
+        System.out.printf(Locale.ROOT, "Warming up (%ds, concurrency %d)%n",
+                options.warmup().toSeconds(), options.concurrency());
+        execute(schedule, tokens, options.warmup(), options.concurrency());
+
+        System.out.printf(Locale.ROOT, "Measuring (%ds, concurrency %d)%n",
+                options.duration().toSeconds(), options.concurrency());
+        report.start();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        long interval = options.reportInterval().toMillis();
+        progress.scheduleAtFixedRate(() -> report.printInterval(System.out), interval, interval, TimeUnit.MILLISECONDS);
+        try {
+            execute(schedule, tokens, options.duration(), options.concurrency());
+        } finally {
+            progress.shutdownNow();
+            progress.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        report.finish();
+        return report;
+    }
+
+    /**
+     * エンドポイントの比率と認証方式から、リクエストの順序を決めた配列を生成します。
+     * ワーカーは通し番号で配列を参照するため、送信中の乱数生成や比率の計算は行いません。
+     */
+    private static Request[] schedule(URI base, LatencyReport report, Options options) {
+        List<Request> schedule = new ArrayList<>();
+        for (Map.Entry<String, Integer> endpoint : options.mix().entrySet()) {
+            URI uri = base.resolve("/api/" + endpoint.getKey());
+            // ヘルスチェックは認証不要のためトークンを付けない
+            List<Auth> auths = "health".equals(endpoint.getKey()) ? List.of(Auth.NONE) : options.auths();
+            for (Auth auth : auths) {
+                LatencyReport.Scenario scenario = report.scenario(endpoint.getKey() + "/" + auth.label());
+                for (int i = 0; i < endpoint.getValue(); i++) {
+                    schedule.add(new Request(uri, auth, scenario));
+                }
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("--mix must contain at least one endpoint with a positive weight");
+        }
+        // 同じエンドポイントへのリクエストが連続しないよう、固定のシードで並べ替える
+        Collections.shuffle(schedule, new Random(42));
+        return schedule.toArray(Request[]::new);
+    }
+
+    private static void execute(Request[] schedule, String[] tokens, Duration duration, int concurrency)
+            throws InterruptedException {
+        AtomicLong sequence = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .executor(workers)
+                        .build()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long index = sequence.getAndIncrement();
+                        Request request = schedule[(int) (index % schedule.length)];
+                        String token = tokens[(int) (index % tokens.length)];
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            HttpResponse<Void> response = client.send(request.build(token),
+                                    HttpResponse.BodyHandlers.discarding());
+                            success = response.statusCode() == 200;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            success = false;
+                        }
+                        request.scenario().record(System.nanoTime() - start, success);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * トークンの送信方法。
+     */
+    private enum Auth {
+        COOKIE("cookie"),
+        HEADER("header"),
+        NONE("none");
+
+        private final String label;
+
+        Auth(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+
+        static Auth of(String label) {
+            for (Auth auth : values()) {
+                if (auth.label.equals(label)) {
+                    return auth;
+                }
+            }
+            throw new IllegalArgumentException("Unknown auth: " + label);
+        }
+    }
+
+    /**
+     * 送信するリクエストの種類。
+     *
+     * @param uri      送信先
+     * @param auth     トークンの送信方法
+     * @param scenario 結果を記録するシナリオ
+     */
+    private record Request(URI uri, Auth auth, LatencyReport.Scenario scenario) {
+
+        HttpRequest build(String token) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET();
+            switch (auth) {
+                case COOKIE -> builder.header("Cookie", "access_token=" + token);
+                case HEADER -> builder.header("Authorization", "Bearer " + token);
+                case NONE -> {
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * コマンドライン引数（{@code --name=value} 形式）。
+     */
+    private record Options(Map<String, String> values, String target, int issuerPort, int concurrency,
+            Duration duration, Duration warmup, Duration reportInterval, Map<String, Integer> mix, List<Auth> auths,
+            int tokens, Duration tokenTtl, List<String> applicationProperties, Path output,
+            Path histogramDirectory) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put("concurrency", "200");
+            values.put("duration-s", "30");
+            values.put("warmup-s", "10");
+            values.put("report-interval-s", "5");
+            values.put("mix", "user:45,profile:45,health:10");
+            values.put("auth", "cookie,header");
+            values.put("tokens", "1000");
+            values.put("issuer-port", "0");
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                int separator = arg.indexOf('=');
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String entry : values.get("mix").split(",")) {
+                String[] parts = entry.trim().split(":");
+                String endpoint = parts[0];
+                if (!List.of("user", "profile", "health").contains(endpoint)) {
+                    throw new IllegalArgumentException("Unknown endpoint in --mix: " + endpoint);
+                }
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                if (weight > 0) {
+                    mix.put(endpoint, weight);
+                }
+            }
+            List<Auth> auths = new ArrayList<>();
+            for (String auth : values.get("auth").split(",")) {
+                auths.add(Auth.of(auth.trim()));
+            }
+            Duration duration = Duration.ofSeconds(Long.parseLong(values.get("duration-s")));
+            Duration warmup = Duration.ofSeconds(Long.parseLong(values.get("warmup-s")));
+            // 計測中に失効しないよう、既定の有効期間は計測時間に余裕を加えた長さとする
+            Duration tokenTtl = values.containsKey("token-ttl-s")
+                    ? Duration.ofSeconds(Long.parseLong(values.get("token-ttl-s")))
+                    : duration.plus(warmup).plusMinutes(10);
+            List<String> applicationProperties = values.containsKey("app-properties")
+                    ? List.of(values.get("app-properties").split(";"))
+                    : List.of();
+
+            return new Options(Collections.unmodifiableMap(values),
+                    values.get("target"),
+                    Integer.parseInt(values.get("issuer-port")),
+                    Integer.parseInt(values.get("concurrency")),
+                    duration,
+                    warmup,
+                    Duration.ofSeconds(Math.max(1, Long.parseLong(values.get("report-interval-s")))),
+                    mix,
+                    List.copyOf(auths),
+                    Integer.parseInt(values.get("tokens")),
+                    tokenTtl,
+                    applicationProperties,
+                    values.containsKey("output") ? Path.of(values.get("output")) : null,
+                    values.containsKey("histograms") ? Path.of(values.get("histograms")) : null);
+        }
+    }
+}
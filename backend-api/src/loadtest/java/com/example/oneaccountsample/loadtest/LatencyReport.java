@@ -0,0 +1,249 @@
+package com.example.oneaccountsample.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 負荷テストのシナリオ（エンドポイント×認証方式）ごとのレイテンシの記録と結果の出力。
+ * <p>
+ * レイテンシはHdrHistogramのRecorder（有効桁数3、最大1分）に記録するため、
+ * 複数のワーカーから同時に記録でき、計測中も一定間隔で途中経過を取り出せます。
+ * 最終結果はシナリオごとのスループット・エラー数・パーセンタイルの表として出力し、
+ * 必要に応じてパーセンタイル分布（.hgrm）とJSONの集計結果をファイルに保存します。
+ */
+final class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    private final Histogram intervalTotal = newHistogram();
+    private long startedAt;
+    private long lastIntervalAt;
+    private long finishedAt;
+
+    /**
+     * シナリオを登録します（計測開始前に呼び出すこと）。
+     *
+     * @param name シナリオ名（"user/cookie" 等）
+     * @return シナリオ
+     */
+    Scenario scenario(String name) {
+        return scenarios.computeIfAbsent(name, Scenario::new);
+    }
+
+    /**
+     * 計測を開始します。開始前に記録された値は破棄します。
+     */
+    void start() {
+        for (Scenario scenario : scenarios.values()) {
+            scenario.recorder.reset();
+            scenario.errors.reset();
+            scenario.total.reset();
+        }
+        startedAt = System.nanoTime();
+        lastIntervalAt = startedAt;
+    }
+
+    /**
+     * 計測を終了します。
+     */
+    void finish() {
+        finishedAt = System.nanoTime();
+        for (Scenario scenario : scenarios.values()) {
+            scenario.drainInterval();
+        }
+    }
+
+    /**
+     * 前回の呼び出し以降の途中経過（全シナリオ合計のスループットとp99）を出力します。
+     *
+     * @param out 出力先
+     */
+    void printInterval(PrintStream out) {
+        long now = System.nanoTime();
+        intervalTotal.reset();
+        for (Scenario scenario : scenarios.values()) {
+            intervalTotal.add(scenario.drainInterval());
+        }
+        double seconds = (now - lastIntervalAt) / 1_000_000_000.0;
+        lastIntervalAt = now;
+        out.printf(Locale.ROOT, "  %6.1fs %10.0f req/s  p99 %8.2f ms  max %8.2f ms%n",
+                (now - startedAt) / 1_000_000_000.0, intervalTotal.getTotalCount() / seconds,
+                millis(intervalTotal, 99), intervalTotal.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    /**
+     * シナリオごとの結果の表を出力します。
+     *
+     * @param out 出力先
+     */
+    void printSummary(PrintStream out) {
+        out.printf(Locale.ROOT, "%-16s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "scenario", "requests", "errors", "req/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Summary summary : summaries()) {
+            out.printf(Locale.ROOT, "%-16s %10d %8d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    summary.scenario(), summary.requests(), summary.errors(), summary.throughput(),
+                    summary.percentilesMillis().get("p50"), summary.percentilesMillis().get("p90"),
+                    summary.percentilesMillis().get("p99"), summary.percentilesMillis().get("p99.9"),
+                    summary.maxMillis());
+        }
+    }
+
+    /**
+     * シナリオごとのパーセンタイル分布をHdrHistogram形式（.hgrm、単位ミリ秒）で保存します。
+     *
+     * @param directory 保存先ディレクトリ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios.values()) {
+            histograms.put(scenario.name, scenario.total);
+        }
+        histograms.put("total", combined());
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Path file = directory.resolve(entry.getKey().replace('/', '-') + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                entry.getValue().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    /**
+     * 集計結果をJSONで保存します（変更前後の比較用）。
+     *
+     * @param file    保存先
+     * @param options 実行時のオプション
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeJson(Path file, Map<String, String> options) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("options", options);
+        result.put("durationSeconds", elapsedSeconds());
+        result.put("scenarios", summaries());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), result);
+    }
+
+    /**
+     * 全シナリオ合計のエラー数を返します。
+     *
+     * @return エラー数
+     */
+    long totalErrors() {
+        return scenarios.values().stream().mapToLong(scenario -> scenario.errors.sum()).sum();
+    }
+
+    private List<Summary> summaries() {
+        List<Summary> summaries = new ArrayList<>();
+        long errors = 0;
+        for (Scenario scenario : scenarios.values()) {
+            summaries.add(summary(scenario.name, scenario.total, scenario.errors.sum()));
+            errors += scenario.errors.sum();
+        }
+        summaries.add(summary("total", combined(), errors));
+        return summaries;
+    }
+
+    private Summary summary(String name, Histogram histogram, long errors) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            percentiles.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile)), millis(histogram, percentile));
+        }
+        return new Summary(name, histogram.getTotalCount(), errors, histogram.getTotalCount() / elapsedSeconds(),
+                percentiles, histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private Histogram combined() {
+        Histogram combined = newHistogram();
+        for (Scenario scenario : scenarios.values()) {
+            combined.add(scenario.total);
+        }
+        return combined;
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(1L, finishedAt - startedAt) / 1_000_000_000.0;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * 1シナリオ分の記録。
+     */
+    static final class Scenario {
+
+        private final String name;
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final Histogram total = newHistogram();
+        private Histogram interval;
+
+        private Scenario(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 1リクエストの結果を記録します（複数のスレッドから呼び出し可能）。
+         *
+         * @param latencyNanos レイテンシ（ナノ秒）
+         * @param success      期待したステータスで応答したか
+         */
+        void record(long latencyNanos, boolean success) {
+            recorder.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        private Histogram drainInterval() {
+            // 前回取り出したヒストグラムを再利用して割り当てを抑える
+            interval = interval == null ? recorder.getIntervalHistogram() : recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return interval;
+        }
+    }
+
+    /**
+     * 1シナリオ分の集計結果。
+     *
+     * @param scenario          シナリオ名
+     * @param requests          リクエスト数
+     * @param errors            期待したステータス以外の応答・通信エラーの数
+     * @param throughput        1秒あたりのリクエスト数
+     * @param percentilesMillis パーセンタイル（ミリ秒）
+     * @param maxMillis         最大レイテンシ（ミリ秒）
+     */
+    record Summary(String scenario, long requests, long errors, double throughput,
+            Map<String, Double> percentilesMillis, double maxMillis) {
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.oneaccountsample.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.oneaccountsample.OneAccountSampleApplication;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * プラットフォームスレッドと仮想スレッドでのスループット・レイテンシを比較する負荷テスト。
+ * <p>
+ * テスト用のOIDCプロバイダー（{@link StubOidcIssuer}）を起動し、同じ条件でアプリケーションを
+ * {@code spring.threads.virtual.enabled=false/true} の順に起動して {@code /api/user} に
+ * Cookie認証のリクエストを送信します。
+ * <p>
+ * 実行中は一定間隔で署名鍵をローテーションし、新しいkidのトークンに切り替えます。
+ * 切り替え直後のリクエストはJWKSの再取得（{@code --jwks-delay} で遅延させる）を待つため、
+ * リクエストスレッドがブロックされるI/O待ちの状況を再現します。
+ *
+ * <pre>
+ * ./gradlew virtualThreadLoadTest -PloadTestArgs="--concurrency=2000 --requests=200000"
+ * </pre>
+ */
+public final class VirtualThreadLoadTest {
+
+    private VirtualThreadLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.println("Options: " + options);
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : options.modes()) {
+            // モードごとに新しいOIDCプロバイダーを使い、鍵の状態を揃える
+            try (StubOidcIssuer issuer = StubOidcIssuer.start("loadtest-realm")) {
+                issuer.setJwksDelay(options.jwksDelay());
+                results.add(run(mode, issuer, options));
+            }
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s %10s%n",
+                "mode", "requests", "errors", "req/s", "p50(ms)", "p99(ms)", "max(ms)");
+        for (Result result : results) {
+            System.out.printf(Locale.ROOT, "%-10s %10d %10d %10.0f %10.2f %10.2f %10.2f%n",
+                    result.mode(), result.requests(), result.errors(), result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(100));
+        }
+    }
+
+    private static Result run(String mode, StubOidcIssuer issuer, Options options) throws Exception {
+        boolean virtual = "virtual".equals(mode);
+        // 鍵の世代ごとにトークンを事前発行する（送信側の署名処理を計測から除外する）
+        List<RSAKey> generations = new ArrayList<>();
+        List<String[]> tokens = new ArrayList<>();
+        generations.add(issuer.signingKey());
+        for (int i = 1; i < options.keyGenerations(); i++) {
+            generations.add(StubOidcIssuer.newSigningKey());
+        }
+        for (RSAKey key : generations) {
+            String[] generationTokens = new String[options.tokensPerGeneration()];
+            for (int i = 0; i < generationTokens.length; i++) {
+                generationTokens[i] = StubOidcIssuer.sign(key, issuer.keycloakClaims("user-" + i, claims -> {
+                }));
+            }
+            tokens.add(generationTokens);
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OneAccountSampleApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuerUri(),
+                        "jwt.provider.snapshot-path=",
+                        "jwt.provider.unknown-kid-refetch-interval=0s",
+                        // 1ユーザーあたりの送信レートが本番の制限を大きく超えるため、レート制限は無効にする
+                        "api.rate-limit.enabled=false",
+                        "logging.level.org.springframework.security=WARN",
+                        "logging.level.root=WARN")
+                .run();
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/user");
+            System.out.printf(Locale.ROOT, "[%s] warming up (%d requests)%n", mode, options.warmupRequests());
+            execute(mode, uri, tokens, new AtomicInteger(), options.warmupRequests(), options);
+
+            // 鍵のローテーション: 次の世代の鍵を公開してからトークンを切り替える
+            AtomicInteger generation = new AtomicInteger();
+            ScheduledExecutorService rotation = Executors.newSingleThreadScheduledExecutor();
+            if (!options.rotateEvery().isZero()) {
+                long period = options.rotateEvery().toMillis();
+                rotation.scheduleAtFixedRate(() -> {
+                    int next = generation.get() + 1;
+                    if (next < generations.size()) {
+                        issuer.publishKey(generations.get(next));
+                        generation.set(next);
+                    }
+                }, period, period, TimeUnit.MILLISECONDS);
+            }
+            System.out.printf(Locale.ROOT, "[%s] measuring (%d requests, concurrency %d)%n",
+                    mode, options.requests(), options.concurrency());
+            try {
+                return execute(mode, uri, tokens, generation, options.requests(), options);
+            } finally {
+                rotation.shutdownNow();
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result execute(String mode, URI uri, List<String[]> tokens, AtomicInteger generation,
+            int requests, Options options) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger sequence = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+
+        long started = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .executor(workers)
+                        .build()) {
+            for (int worker = 0; worker < options.concurrency(); worker++) {
+                workers.execute(() -> {
+                    int index;
+                    while ((index = sequence.getAndIncrement()) < requests) {
+                        String[] generationTokens = tokens.get(generation.get());
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .timeout(Duration.ofSeconds(30))
+                                .header("Cookie", "access_token=" + generationTokens[index % generationTokens.length])
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - start;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        Arrays.sort(latencies);
+        return new Result(mode, requests, errors.get(), requests / (elapsed / 1_000_000_000.0), latencies);
+    }
+
+    /**
+     * 1モード分の計測結果。
+     *
+     * @param mode       platform / virtual
+     * @param requests   リクエスト数
+     * @param errors     200以外の応答・通信エラーの数
+     * @param throughput 1秒あたりのリクエスト数
+     * @param latencies  昇順に並べたレイテンシ（ナノ秒）
+     */
+    private record Result(String mode, int requests, long errors, double throughput, long[] latencies) {
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * コマンドライン引数（{@code --name=value} 形式）。
+     */
+    private record Options(List<String> modes, int concurrency, int requests, int warmupRequests,
+            int tokensPerGeneration, int keyGenerations, Duration rotateEvery, Duration jwksDelay) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                int separator = arg.indexOf('=');
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+            return new Options(
+                    List.of(values.getOrDefault("modes", "platform,virtual").split(",")),
+                    Integer.parseInt(values.getOrDefault("concurrency", "1000")),
+                    Integer.parseInt(values.getOrDefault("requests", "100000")),
+                    Integer.parseInt(values.getOrDefault("warmup", "20000")),
+                    Integer.parseInt(values.getOrDefault("tokens", "1000")),
+                    Integer.parseInt(values.getOrDefault("key-generations", "5")),
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("rotate-every-ms", "2000"))),
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("jwks-delay-ms", "200"))));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.oneaccountsample.audit;
+
+import java.time.Instant;
+
+/**
+ * 監査ログの1件分のイベント（認証済みAPIへのアクセス、または認証の失敗）。
+ * <p>
+ * 監査ログのセグメントにはJSON Lines形式（1行1イベント）で書き込みます。
+ *
+ * @param timestamp     リクエストの受信時刻
+ * @param outcome       結果
+ * @param subject       トークンの sub（認証に失敗した場合はnull）
+ * @param method        HTTPメソッド
+ * @param path          リクエストパス
+ * @param status        HTTPステータス
+ * @param latencyMicros リクエストの処理時間（マイクロ秒）
+ * @param reason        認証に失敗した理由（AuthFailureReasonのタグ値。成功した場合はnull）
+ */
+public record AuditEvent(Instant timestamp, Outcome outcome, String subject, String method, String path,
+        int status, long latencyMicros, String reason) {
+
+    /**
+     * 監査イベントの結果。
+     */
+    public enum Outcome {
+        /** 認証に成功し、アクセスが許可された */
+        AUTHENTICATED,
+        /** 認証に成功したが、権限が不足していた（403） */
+        DENIED,
+        /** 認証に失敗した（401） */
+        FAILED
+    }
+}
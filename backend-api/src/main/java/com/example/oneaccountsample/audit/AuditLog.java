@@ -0,0 +1,268 @@
+package com.example.oneaccountsample.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 非同期の監査ログ。
+ * <p>
+ * リクエストスレッドは {@link #record} でイベントをリングバッファに追加するだけで、
+ * ディスクへの書き込みは専用の書き込みスレッドがまとめて行います。
+ * <ul>
+ *   <li>{@link #record} はロック・待機・I/Oを行わない。バッファが一杯の場合はイベントを破棄して件数を数える</li>
+ *   <li>書き込みスレッドはバッファから最大 batchSize 件ずつ取り出し、JSON Lines形式でセグメントに追記する</li>
+ *   <li>ディスクへの反映（force）は flushInterval ごとにまとめて行う</li>
+ *   <li>{@link #close} でバッファに残ったイベントを書き込んでから終了する</li>
+ * </ul>
+ */
+@Slf4j
+public final class AuditLog implements AutoCloseable {
+
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final AuditSegmentWriter writer;
+    private final ObjectWriter json;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Thread thread;
+    private final LineBuffer line = new LineBuffer();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    /** {@link #record} で受け付けの確認からバッファへの追加までを実行中の件数（終了時の取りこぼしの防止用） */
+    private final AtomicInteger recording = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * @param directory     セグメントの保存先ディレクトリ
+     * @param bufferSize    リングバッファの容量（2のべき乗に切り上げる）
+     * @param segmentSize   1セグメントの最大バイト数
+     * @param maxSegments   保持するセグメント数の上限
+     * @param batchSize     1回に書き込む最大件数
+     * @param flushInterval ディスクへ反映する間隔
+     * @throws IOException 保存先ディレクトリを準備できない場合
+     */
+    public AuditLog(Path directory, int bufferSize, int segmentSize, int maxSegments, int batchSize,
+            Duration flushInterval) throws IOException {
+        this(directory, bufferSize, segmentSize, maxSegments, batchSize, flushInterval, Clock.systemUTC());
+    }
+
+    AuditLog(Path directory, int bufferSize, int segmentSize, int maxSegments, int batchSize,
+            Duration flushInterval, Clock clock) throws IOException {
+        if (bufferSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("bufferSize and batchSize must be positive");
+        }
+        this.buffer = new AuditRingBuffer<>(Math.max(2, Integer.highestOneBit(bufferSize - 1) << 1));
+        this.writer = new AuditSegmentWriter(directory, segmentSize, maxSegments, clock);
+        this.json = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                // 同じ出力先を使い回すため、書き込みのたびに閉じない
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build()
+                .writerFor(AuditEvent.class);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.thread = Thread.ofPlatform().name("audit-writer").daemon().unstarted(this::run);
+        this.thread.start();
+    }
+
+    private AuditLog() {
+        this.buffer = null;
+        this.writer = null;
+        this.json = null;
+        this.batchSize = 0;
+        this.flushIntervalNanos = 0;
+        this.thread = null;
+        this.running = false;
+    }
+
+    /**
+     * 何も記録しない監査ログを返します（監査ログを無効にした場合に使用）。
+     *
+     * @return 無効な監査ログ
+     */
+    public static AuditLog disabled() {
+        return new AuditLog();
+    }
+
+    /**
+     * 監査ログが有効かを返します。
+     *
+     * @return 有効な場合true
+     */
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * イベントを記録します（ブロックしない）。
+     *
+     * @param event イベント
+     * @return バッファに追加できた場合true、一杯または終了済みで破棄した場合false
+     */
+    public boolean record(AuditEvent event) {
+        if (buffer == null) {
+            return false;
+        }
+        boolean offered;
+        recording.incrementAndGet();
+        try {
+            offered = running && buffer.offer(event);
+        } finally {
+            recording.decrementAndGet();
+        }
+        if (offered) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * これまでに記録したイベントの書き込みを待ちます（テスト・運用ツール用）。
+     *
+     * @param timeout 最大待ち時間
+     * @return 時間内に書き込みが完了した場合true
+     */
+    public boolean flush(Duration timeout) {
+        if (buffer == null) {
+            return true;
+        }
+        long target = accepted.sum();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (written.sum() + failed.sum() < target) {
+            if (!thread.isAlive() || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(MIN_IDLE_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return 書き込み・破棄・書き込み失敗の件数とバッファ内の件数
+     */
+    public Stats stats() {
+        return new Stats(written.sum(), dropped.sum(), failed.sum(), buffer == null ? 0 : buffer.size());
+    }
+
+    /**
+     * 新しいイベントの受け付けを止め、バッファに残ったイベントを書き込んでから終了します。
+     */
+    @Override
+    public void close() {
+        if (thread == null || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long lastForce = System.nanoTime();
+        long idlePark = MIN_IDLE_PARK_NANOS;
+        boolean dirty = false;
+        // 終了の直前に受け付けを確認した record() の追加が終わるまで、バッファが空でも終了しない
+        while (running || buffer.size() > 0 || recording.get() > 0) {
+            int drained = buffer.drain(this::write, batchSize);
+            long now = System.nanoTime();
+            if (drained > 0) {
+                dirty = true;
+                idlePark = MIN_IDLE_PARK_NANOS;
+            }
+            if (dirty && now - lastForce >= flushIntervalNanos) {
+                force();
+                lastForce = now;
+                dirty = false;
+            }
+            if (drained == 0) {
+                // イベントがない間は待ち時間を伸ばしてCPUを使わないようにする
+                LockSupport.parkNanos(idlePark);
+                idlePark = Math.min(idlePark * 2, MAX_IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close audit segment {}: {}", writer.currentSegment(), e.getMessage());
+        }
+    }
+
+    private void force() {
+        try {
+            writer.force();
+        } catch (RuntimeException e) {
+            // ディスクのエラー（UncheckedIOException）で書き込みスレッドが終了すると以降のイベントがすべて破棄されるため、警告のみとして書き込みを続ける
+            log.warn("Failed to force audit segment {}: {}", writer.currentSegment(), e.getMessage());
+        }
+    }
+
+    private void write(AuditEvent event) {
+        try {
+            line.reset();
+            json.writeValue(line, event);
+            line.write('\n');
+            writer.append(line.bytes(), line.size());
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Failed to write audit event to {}: {}", writer.currentSegment(), e.getMessage());
+        }
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param written  セグメントに書き込んだ件数
+     * @param dropped  バッファが一杯で破棄した件数
+     * @param failed   書き込みに失敗した件数
+     * @param buffered バッファ内の件数（概算）
+     */
+    public record Stats(long written, long dropped, long failed, long buffered) {
+    }
+
+    /**
+     * 内部配列をコピーせずに参照できるByteArrayOutputStream（1行分の書き込みに使い回す）。
+     */
+    private static final class LineBuffer extends ByteArrayOutputStream {
+
+        LineBuffer() {
+            super(256);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
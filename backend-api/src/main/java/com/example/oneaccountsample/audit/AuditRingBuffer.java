@@ -0,0 +1,115 @@
+package com.example.oneaccountsample.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 複数の生産者・単一の消費者のための固定長のロックフリーなリングバッファ。
+ * <p>
+ * 各スロットにシーケンス番号を持たせ、生産者はCASで書き込み位置を確保してから要素を格納し、
+ * シーケンス番号の更新で消費者に公開します。
+ * <ul>
+ *   <li>{@link #offer} はロック・待機を行わず、満杯の場合は即座にfalseを返す（要素は破棄される）</li>
+ *   <li>{@link #drain} は単一の消費者スレッドからのみ呼び出すこと</li>
+ * </ul>
+ *
+ * @param <E> 要素の型
+ */
+final class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity 容量（2のべき乗）
+     */
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 要素を追加します（複数のスレッドから呼び出し可能）。
+     *
+     * @param element 要素
+     * @return 追加できた場合true、満杯の場合false
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            long difference = sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // シーケンス番号の更新で消費者に公開する
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 消費者が1周前の要素をまだ取り出していない
+                return false;
+            } else {
+                // 他の生産者が先に確保した
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 公開済みの要素を先頭から取り出します（単一の消費者スレッドからのみ呼び出すこと）。
+     *
+     * @param consumer 要素を受け取る関数
+     * @param limit    取り出す最大件数
+     * @return 取り出した件数
+     */
+    int drain(Consumer<? super E> consumer, int limit) {
+        long position = head;
+        int count = 0;
+        while (count < limit) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                // 空、または確保済みで未公開
+                break;
+            }
+            E element = elements.get(index);
+            elements.lazySet(index, null);
+            // スロットを次の周回の生産者に解放する
+            sequences.set(index, position + capacity);
+            position++;
+            head = position;
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 格納中の要素数（概算）を返します。
+     *
+     * @return 要素数
+     */
+    int size() {
+        return (int) Math.max(0L, Math.min(capacity, tail.get() - head));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.oneaccountsample.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * 監査ログのセグメントを読み込み、条件に一致するイベントを検索するユーティリティ。
+ * <p>
+ * セグメントは読み取り専用でメモリマップして先頭から1行ずつ読み込みます。
+ * 書き込み中のセグメントの未使用領域（0埋め）に達した時点でそのセグメントの読み込みを終え、
+ * 解析できない行（プロセス停止時の書きかけの行等）は読み飛ばします。
+ * <p>
+ * コマンドラインからも実行できます（{@link #main} を参照）。
+ * <pre>
+ * ./gradlew auditQuery -PauditArgs="--directory=data/audit --outcome=FAILED --since=2026-01-01T00:00:00Z"
+ * </pre>
+ */
+public final class AuditSegmentReader {
+
+    private final Path directory;
+    private final ObjectReader json = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build()
+            .readerFor(AuditEvent.class);
+
+    /**
+     * @param directory セグメントの保存先ディレクトリ
+     */
+    public AuditSegmentReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * セグメントを古い順に返します。
+     *
+     * @return セグメントのパス
+     * @throws IOException ディレクトリを読み込めない場合
+     */
+    public List<Path> segments() throws IOException {
+        return AuditSegmentWriter.segments(directory);
+    }
+
+    /**
+     * 全セグメントのイベントを記録順に返します。
+     *
+     * @return イベント
+     * @throws IOException ディレクトリを読み込めない場合
+     */
+    public Stream<AuditEvent> events() throws IOException {
+        return segments().stream().flatMap(segment -> read(segment).stream());
+    }
+
+    /**
+     * 条件に一致するイベントを記録順に返します。
+     *
+     * @param query 検索条件
+     * @return イベント
+     * @throws IOException ディレクトリを読み込めない場合
+     */
+    public List<AuditEvent> query(Query query) throws IOException {
+        try (Stream<AuditEvent> events = events()) {
+            return events.filter(query).limit(query.limit()).toList();
+        }
+    }
+
+    private List<AuditEvent> read(Path segment) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return List.of();
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<AuditEvent> events = new ArrayList<>();
+            byte[] line = new byte[256];
+            int length = 0;
+            while (mapped.hasRemaining()) {
+                byte b = mapped.get();
+                if (b == 0) {
+                    // 書き込み中のセグメントの未使用領域
+                    break;
+                }
+                if (b == '\n') {
+                    parse(line, length, events);
+                    length = 0;
+                    continue;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+            return events;
+        } catch (IOException e) {
+            // ローテーションで削除されたセグメント等は読み飛ばす
+            return List.of();
+        }
+    }
+
+    private void parse(byte[] line, int length, List<AuditEvent> events) {
+        if (length == 0) {
+            return;
+        }
+        try {
+            events.add(json.readValue(line, 0, length));
+        } catch (IOException e) {
+            // 書きかけの行等は読み飛ばす
+        }
+    }
+
+    /**
+     * 検索条件。nullの項目は条件にしない。
+     *
+     * @param subject トークンの sub
+     * @param outcome 結果
+     * @param path    リクエストパス（前方一致）
+     * @param since   この時刻以降（含む）
+     * @param until   この時刻より前（含まない）
+     * @param limit   最大件数
+     */
+    public record Query(String subject, AuditEvent.Outcome outcome, String path, Instant since, Instant until,
+            long limit) implements Predicate<AuditEvent> {
+
+        /**
+         * 全件を対象とする検索条件を返します。
+         *
+         * @return 検索条件
+         */
+        public static Query all() {
+            return new Query(null, null, null, null, null, Long.MAX_VALUE);
+        }
+
+        @Override
+        public boolean test(AuditEvent event) {
+            return (subject == null || subject.equals(event.subject()))
+                    && (outcome == null || outcome == event.outcome())
+                    && (path == null || (event.path() != null && event.path().startsWith(path)))
+                    && (since == null || !event.timestamp().isBefore(since))
+                    && (until == null || event.timestamp().isBefore(until));
+        }
+    }
+
+    /**
+     * 条件に一致するイベントをJSON Lines形式で標準出力に出力します。
+     * <p>
+     * オプション: --directory（既定: data/audit）、--subject、--outcome、--path、--since、--until（ISO-8601）、--limit
+     *
+     * @param args オプション（--name=value 形式）
+     * @throws IOException セグメントを読み込めない場合
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Query query = new Query(options.get("subject"),
+                options.containsKey("outcome") ? AuditEvent.Outcome.valueOf(options.get("outcome")) : null,
+                options.get("path"),
+                options.containsKey("since") ? Instant.parse(options.get("since")) : null,
+                options.containsKey("until") ? Instant.parse(options.get("until")) : null,
+                Long.parseLong(options.getOrDefault("limit", String.valueOf(Long.MAX_VALUE))));
+        AuditSegmentReader reader = new AuditSegmentReader(Path.of(options.getOrDefault("directory", "data/audit")));
+        ObjectWriter output = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(AuditEvent.class);
+        for (AuditEvent event : reader.query(query)) {
+            System.out.println(output.writeValueAsString(event));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.oneaccountsample.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.List;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 監査ログのセグメントファイル（audit-&lt;作成時刻のエポックミリ秒&gt;.jsonl）への追記。
+ * <p>
+ * 各セグメントは作成時に固定長でメモリマップし、追記はマップしたバッファへのコピーのみで行います。
+ * <ul>
+ *   <li>セグメントが一杯になったら閉じて次のセグメントを作成する（ローテーション）</li>
+ *   <li>閉じる際に書き込んだ位置でファイルを切り詰める</li>
+ *   <li>保持するセグメント数を超えた場合は古いものから削除する</li>
+ *   <li>プロセスが停止して切り詰められなかったセグメントは、次回起動時に末尾の未使用領域（0埋め）を切り詰める</li>
+ * </ul>
+ * 単一のスレッド（{@link AuditLog} の書き込みスレッド）からのみ使用します。
+ */
+@Slf4j
+final class AuditSegmentWriter implements AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".jsonl";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Clock clock;
+
+    private Path segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * @param directory   セグメントの保存先ディレクトリ
+     * @param segmentSize 1セグメントの最大バイト数
+     * @param maxSegments 保持するセグメント数の上限
+     * @param clock       セグメント名に使用する時計
+     * @throws IOException ディレクトリの作成、前回のセグメントの修復に失敗した場合
+     */
+    AuditSegmentWriter(Path directory, int segmentSize, int maxSegments, Clock clock) throws IOException {
+        if (segmentSize <= 0 || maxSegments <= 0) {
+            throw new IllegalArgumentException("segmentSize and maxSegments must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.clock = clock;
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (!segments.isEmpty()) {
+            recover(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * 1行分のバイト列を追記します。現在のセグメントに収まらない場合はローテーションします。
+     *
+     * @param bytes  バイト列
+     * @param length 書き込むバイト数
+     * @throws IOException セグメントの作成・ローテーションに失敗した場合
+     */
+    void append(byte[] bytes, int length) throws IOException {
+        if (buffer == null || buffer.remaining() < length) {
+            rotate(length);
+        }
+        buffer.put(bytes, 0, length);
+    }
+
+    /**
+     * 書き込んだ内容をディスクに反映します。
+     */
+    void force() {
+        if (buffer != null && buffer.position() > 0) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 現在のセグメントを返します（未作成の場合はnull）。
+     *
+     * @return セグメントのパス
+     */
+    Path currentSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    /**
+     * ディレクトリ内のセグメントを古い順に返します。
+     *
+     * @param directory セグメントの保存先ディレクトリ
+     * @return セグメントのパス
+     * @throws IOException ディレクトリを読み込めない場合
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // ファイル名は作成時刻を固定桁数で含むため、名前順が作成順になる
+            return files.filter(AuditSegmentWriter::isSegment).sorted().toList();
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private void rotate(int minimumSize) throws IOException {
+        closeSegment();
+        long createdAt = clock.millis();
+        Path next = directory.resolve(segmentName(createdAt));
+        while (Files.exists(next)) {
+            next = directory.resolve(segmentName(++createdAt));
+        }
+        // 1行がセグメントの最大サイズを超える場合はその行だけのセグメントとする
+        int size = Math.max(segmentSize, minimumSize);
+        channel = FileChannel.open(next, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment = next;
+        deleteExpiredSegments();
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.truncate(buffer.position());
+        } finally {
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void deleteExpiredSegments() {
+        try {
+            List<Path> segments = segments(directory);
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete expired audit segments in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * 前回のプロセスが閉じられなかったセグメントの末尾の未使用領域を切り詰めます。
+     */
+    private static void recover(Path segment) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = file.size();
+            if (size == 0) {
+                return;
+            }
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long end = size;
+            while (end > 0 && mapped.get((int) (end - 1)) == 0) {
+                end--;
+            }
+            if (end < size) {
+                file.truncate(end);
+                log.info("Truncated unused tail of audit segment {} ({} -> {} bytes)", segment, size, end);
+            }
+        }
+    }
+
+    static String segmentName(long createdAtMillis) {
+        return String.format("%s%013d%s", SEGMENT_PREFIX, createdAtMillis, SEGMENT_SUFFIX);
+    }
+}
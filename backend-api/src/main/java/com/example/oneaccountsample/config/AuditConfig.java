@@ -0,0 +1,55 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * 監査ログの設定クラス。
+ * <p>
+ * - 認証の成功・失敗を非同期にセグメントファイルへ書き込む監査ログ
+ * - 監査ログの統計（書き込み・破棄件数、バッファ内の件数）のメトリクス
+ * <p>
+ * 監査ログへの記録はサーブレット版（AuditFilter）・リアクティブ版（AuditWebFilter）のフィルターで行う。
+ */
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.oneaccountsample.audit.AuditLog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class AuditConfig {
+
+    /**
+     * 監査ログのBean定義。
+     * 書き込みスレッドはBean生成時に開始し、終了時にバッファに残ったイベントを書き込む。
+     * @param properties 監査ログ設定
+     * @param meterRegistry 統計を公開するメーターレジストリ
+     * @return AuditLog（無効の場合は何も記録しないAuditLog）
+     * @throws IOException 保存先ディレクトリを準備できない場合
+     */
+    @Bean(destroyMethod = "close")
+    public AuditLog auditLog(AuditProperties properties, MeterRegistry meterRegistry) throws IOException {
+        if (!properties.isEnabled()) {
+            return AuditLog.disabled();
+        }
+        AuditLog auditLog = new AuditLog(Path.of(properties.getDirectory()), properties.getBufferSize(),
+                Math.toIntExact(properties.getSegmentSize().toBytes()), properties.getMaxSegments(),
+                properties.getBatchSize(), properties.getFlushInterval());
+        FunctionCounter.builder("audit.events", auditLog, log -> log.stats().written())
+                .tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.events", auditLog, log -> log.stats().dropped())
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.events", auditLog, log -> log.stats().failed())
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder("audit.buffer.size", auditLog, log -> log.stats().buffered())
+                .register(meterRegistry);
+        return auditLog;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.oneaccountsample.audit.AuditEvent;
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.security.AuthFailureReason;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * APIへのアクセスの認証結果を監査ログに記録するフィルター。
+ * <p>
+ * セキュリティフィルターチェーンのSecurityContextHolderFilterの直後に追加し、
+ * 後続のフィルター（認証・認可）とコントローラーの処理が終わった時点で結果を判定します。
+ * <ul>
+ *   <li>JWTで認証済み: AUTHENTICATED（ステータスが403の場合はDENIED）</li>
+ *   <li>エントリポイントが失敗の理由を格納した場合: FAILED</li>
+ *   <li>それ以外（認証不要のエンドポイント等）: 記録しない</li>
+ * </ul>
+ * 記録は {@link AuditLog#record} でバッファに追加するのみで、リクエストスレッドはI/Oを待ちません。
+ */
+public class AuditFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH_PREFIX = "/api/";
+
+    private final AuditLog auditLog;
+
+    /**
+     * @param auditLog 監査ログ
+     */
+    public AuditFilter(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !auditLog.isEnabled() || !request.getRequestURI().startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Instant timestamp = Instant.now();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            AuditEvent event = toEvent(request, response.getStatus(), timestamp, latencyMicros);
+            if (event != null) {
+                auditLog.record(event);
+            }
+        }
+    }
+
+    private static AuditEvent toEvent(HttpServletRequest request, int status, Instant timestamp, long latencyMicros) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            AuditEvent.Outcome outcome = status == HttpServletResponse.SC_FORBIDDEN
+                    ? AuditEvent.Outcome.DENIED : AuditEvent.Outcome.AUTHENTICATED;
+            return new AuditEvent(timestamp, outcome, jwtAuthentication.getToken().getSubject(), request.getMethod(),
+                    request.getRequestURI(), status, latencyMicros, null);
+        }
+        if (request.getAttribute(MeteredAuthenticationEntryPoint.FAILURE_REASON_ATTRIBUTE)
+                instanceof AuthFailureReason reason) {
+            return new AuditEvent(timestamp, AuditEvent.Outcome.FAILED, null, request.getMethod(),
+                    request.getRequestURI(), status, latencyMicros, reason.tagValue());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 監査ログの設定。
+ * <p>
+ * ymlの "audit" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+
+    /** 監査ログを有効にするか */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** セグメントの保存先ディレクトリ */
+    @Getter @Setter
+    private String directory = "data/audit";
+    /** 書き込み待ちのイベントを保持するバッファの容量（2のべき乗に切り上げる） */
+    @Getter @Setter
+    private int bufferSize = 8192;
+    /** 1セグメントの最大サイズ */
+    @Getter @Setter
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+    /** 保持するセグメント数の上限（超えた場合は古いものから削除） */
+    @Getter @Setter
+    private int maxSegments = 20;
+    /** 1回に書き込む最大件数 */
+    @Getter @Setter
+    private int batchSize = 512;
+    /** ディスクへ反映する間隔 */
+    @Getter @Setter
+    private Duration flushInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,92 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.example.oneaccountsample.audit.AuditEvent;
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.security.AuthFailureReason;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * AuditFilterのリアクティブ版。
+ * <p>
+ * 認証情報はReactorのコンテキストにあり、チェーンの先頭からは参照できないため、
+ * 認証の後に配置する {@link #captureAuthentication()} でexchangeの属性に格納してから判定します。
+ */
+public class AuditWebFilter implements WebFilter {
+
+    /** 認証情報を格納するexchangeの属性の名前 */
+    static final String AUTHENTICATION_ATTRIBUTE = AuditWebFilter.class.getName() + ".AUTHENTICATION";
+
+    private static final String API_PATH_PREFIX = "/api/";
+
+    private final AuditLog auditLog;
+
+    /**
+     * @param auditLog 監査ログ
+     */
+    public AuditWebFilter(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * 認証情報をexchangeの属性に格納するフィルターを返します（認証のフィルターの後に配置すること）。
+     *
+     * @return WebFilter
+     */
+    public static WebFilter captureAuthentication() {
+        return (exchange, chain) -> ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .doOnNext(authentication -> exchange.getAttributes().put(AUTHENTICATION_ATTRIBUTE, authentication))
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!auditLog.isEnabled() || !request.getPath().value().startsWith(API_PATH_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        Instant timestamp = Instant.now();
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            AuditEvent event = toEvent(exchange, timestamp, latencyMicros);
+            if (event != null) {
+                auditLog.record(event);
+            }
+        });
+    }
+
+    private static AuditEvent toEvent(ServerWebExchange exchange, Instant timestamp, long latencyMicros) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = statusCode != null ? statusCode.value() : HttpStatus.OK.value();
+        Authentication authentication = exchange.getAttribute(AUTHENTICATION_ATTRIBUTE);
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            AuditEvent.Outcome outcome = status == HttpStatus.FORBIDDEN.value()
+                    ? AuditEvent.Outcome.DENIED : AuditEvent.Outcome.AUTHENTICATED;
+            return new AuditEvent(timestamp, outcome, jwtAuthentication.getToken().getSubject(),
+                    request.getMethod().name(), request.getPath().value(), status, latencyMicros, null);
+        }
+        if (exchange.getAttribute(MeteredAuthenticationEntryPoint.FAILURE_REASON_ATTRIBUTE)
+                instanceof AuthFailureReason reason) {
+            return new AuditEvent(timestamp, AuditEvent.Outcome.FAILED, null, request.getMethod().name(),
+                    request.getPath().value(), status, latencyMicros, reason.tagValue());
+        }
+        return null;
+    }
+}
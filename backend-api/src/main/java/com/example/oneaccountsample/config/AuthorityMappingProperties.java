@@ -0,0 +1,33 @@
+package com.example.oneaccountsample.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Keycloakのロールからアプリケーションの権限（GrantedAuthority）への対応付けの設定。
+ * <p>
+ * ymlの "jwt.authorities" プレフィックスにバインドされます。
+ * 対応付けは起動時に1回だけ参照用の構造に変換し（KeycloakAuthoritiesConverter）、
+ * 設定にないロールは権限に変換しません。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.authorities")
+public class AuthorityMappingProperties {
+
+    /** realm_access.roles のロール → 付与する権限（"ROLE_USER" 等） */
+    @Getter @Setter
+    private Map<String, List<String>> realmRoles = new LinkedHashMap<>();
+    /** クライアントID → （resource_access.&lt;クライアントID&gt;.roles のロール → 付与する権限） */
+    @Getter @Setter
+    private Map<String, Map<String, List<String>>> clientRoles = new LinkedHashMap<>();
+    /** トークンごとの権限のキャッシュの最大エントリ数（0でキャッシュしない） */
+    @Getter @Setter
+    private long cacheMaxEntries = 10_000;
+}
@@ -0,0 +1,61 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * 認可の設定クラス。
+ * <p>
+ * - Keycloakのロール（realm_access / resource_access）から権限への変換
+ * - 権限を設定したJwtAuthenticationTokenを生成するJwtAuthenticationConverter
+ * - 権限のキャッシュのメトリクス
+ * <p>
+ * サーブレット版（SecurityConfig）とリアクティブ版（ReactiveSecurityConfig）で共通して使用する。
+ */
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import com.example.oneaccountsample.security.KeycloakAuthoritiesConverter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class AuthorizationConfig {
+
+    /**
+     * ロールから権限への変換のBean定義。
+     * 対応付けの設定は起動時に参照用の構造に変換する。
+     * @param properties 権限の対応付け設定
+     * @param meterRegistry キャッシュの統計を公開するメーターレジストリ
+     * @return KeycloakAuthoritiesConverter
+     */
+    @Bean
+    public KeycloakAuthoritiesConverter keycloakAuthoritiesConverter(AuthorityMappingProperties properties,
+            MeterRegistry meterRegistry) {
+        KeycloakAuthoritiesConverter converter = new KeycloakAuthoritiesConverter(properties.getRealmRoles(),
+                properties.getClientRoles(), properties.getCacheMaxEntries());
+        FunctionCounter.builder("auth.authorities.cache.requests", converter, c -> c.stats().hits())
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.authorities.cache.requests", converter, c -> c.stats().misses())
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("auth.authorities.cache.size", converter, c -> c.stats().cachedTokens())
+                .register(meterRegistry);
+        return converter;
+    }
+
+    /**
+     * JwtAuthenticationConverterのBean定義。
+     * 権限はscopeクレームに加えてKeycloakのロールから生成する。
+     * @param keycloakAuthoritiesConverter ロールから権限への変換
+     * @return JwtAuthenticationConverter
+     */
+    @Bean
+    public JwtAuthenticationConverter jwtAuthenticationConverter(
+            KeycloakAuthoritiesConverter keycloakAuthoritiesConverter) {
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(keycloakAuthoritiesConverter);
+        return converter;
+    }
+}
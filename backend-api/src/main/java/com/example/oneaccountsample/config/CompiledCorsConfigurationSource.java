@@ -0,0 +1,184 @@
+package com.example.oneaccountsample.config;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.oneaccountsample.security.CorsOriginMatcher;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * CorsPropertiesの設定を起動時に変換したCorsConfigurationSource（サーブレット版・リアクティブ版共通）。
+ * <ul>
+ *   <li>許可オリジンはハッシュ表（{@link CorsOriginMatcher}）で判定し、許可オリジンの数によらず一定の時間で照合する</li>
+ *   <li>CorsConfigurationはリクエストごとに生成・パスの照合をせず、全パスで同じインスタンスを返す</li>
+ *   <li>プリフライトの応答ヘッダーのうちリクエストによらない値（許可メソッド・Max-Age・Vary等）は起動時に生成し、
+ *       {@link CorsPreflightFilter}・{@link CorsPreflightWebFilter} はリクエストのオリジンと要求ヘッダーのみ判定して返す</li>
+ * </ul>
+ * プリフライト以外のCORSリクエストはSpringのCorsFilterがこのクラスのCorsConfigurationで処理します
+ * （オリジンの判定はCorsOriginMatcherを使用）。
+ */
+public class CompiledCorsConfigurationSource implements CorsConfigurationSource,
+        org.springframework.web.cors.reactive.CorsConfigurationSource {
+
+    private static final String ALL = "*";
+    private static final String PREFLIGHT_VARY = String.join(", ", HttpHeaders.ORIGIN,
+            HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+    private final CorsOriginMatcher originMatcher;
+    private final CorsConfiguration configuration;
+    private final Set<String> allowedMethods;
+    private final boolean anyMethod;
+    private final Set<String> allowedHeaders;
+    private final boolean anyHeader;
+    private final String allowMethodsValue;
+    private final String allowCredentialsValue;
+    private final String maxAgeValue;
+
+    /**
+     * @param properties CORSの設定
+     * @throws IllegalArgumentException 対応していない形式の許可オリジンが含まれる場合、
+     *                                  または {@code *} とCookieの送信（allow-credentials）を同時に許可する場合
+     */
+    public CompiledCorsConfigurationSource(CorsProperties properties) {
+        this.originMatcher = CorsOriginMatcher.compile(properties.getAllowedOrigins());
+        if (originMatcher.matchesAny() && properties.isAllowCredentials()) {
+            // Springと同じく、任意のオリジンからCookie付きのリクエストを許可する設定は起動時に拒否する
+            throw new IllegalArgumentException("When allow-credentials is true, allowed-origins cannot contain \"*\"; "
+                    + "list the origins explicitly or use subdomain patterns (https://*.example.com)");
+        }
+        this.allowedMethods = new LinkedHashSet<>();
+        for (String method : properties.getAllowedMethods()) {
+            if (StringUtils.hasText(method)) {
+                allowedMethods.add(method.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        this.anyMethod = allowedMethods.contains(ALL);
+        this.allowedHeaders = new HashSet<>();
+        for (String header : properties.getAllowedHeaders()) {
+            if (StringUtils.hasText(header)) {
+                allowedHeaders.add(header.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        this.anyHeader = allowedHeaders.contains(ALL);
+        this.allowMethodsValue = String.join(",", allowedMethods);
+        this.allowCredentialsValue = properties.isAllowCredentials() ? "true" : null;
+        this.maxAgeValue = Long.toString(properties.getMaxAge().toSeconds());
+
+        CorsConfiguration compiled = new CompiledCorsConfiguration(originMatcher);
+        compiled.setAllowedMethods(properties.getAllowedMethods());
+        compiled.setAllowedHeaders(properties.getAllowedHeaders());
+        compiled.setAllowCredentials(properties.isAllowCredentials());
+        compiled.setMaxAge(properties.getMaxAge());
+        this.configuration = compiled;
+    }
+
+    @Override
+    @NonNull
+    public CorsConfiguration getCorsConfiguration(@NonNull HttpServletRequest request) {
+        return configuration;
+    }
+
+    @Override
+    @NonNull
+    public CorsConfiguration getCorsConfiguration(@NonNull ServerWebExchange exchange) {
+        return configuration;
+    }
+
+    /**
+     * プリフライトリクエストを判定し、応答ヘッダーを書き込みます（SpringのDefaultCorsProcessorと同じヘッダー）。
+     * Varyヘッダーは拒否する場合も書き込みます。
+     *
+     * @param origin         Originヘッダーの値
+     * @param requestMethod  Access-Control-Request-Methodヘッダーの値
+     * @param requestHeaders Access-Control-Request-Headersヘッダーの値（ない場合はnull）
+     * @param headers        応答ヘッダーの書き込み先（ヘッダー名, 値）
+     * @return 許可する場合true、拒否する場合false
+     */
+    public boolean writePreflightHeaders(@Nullable String origin, @Nullable String requestMethod,
+            @Nullable String requestHeaders, BiConsumer<String, String> headers) {
+        headers.accept(HttpHeaders.VARY, PREFLIGHT_VARY);
+        String allowOrigin = configuration.checkOrigin(origin);
+        if (allowOrigin == null || requestMethod == null
+                || !(anyMethod || allowedMethods.contains(requestMethod))) {
+            return false;
+        }
+        String allowHeaders = allowHeaders(requestHeaders);
+        if (allowHeaders == null) {
+            return false;
+        }
+        headers.accept(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, allowOrigin);
+        headers.accept(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, anyMethod ? requestMethod : allowMethodsValue);
+        if (!allowHeaders.isEmpty()) {
+            headers.accept(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, allowHeaders);
+        }
+        if (allowCredentialsValue != null) {
+            headers.accept(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, allowCredentialsValue);
+        }
+        headers.accept(HttpHeaders.ACCESS_CONTROL_MAX_AGE, maxAgeValue);
+        return true;
+    }
+
+    /**
+     * 許可オリジンの判定器を返します。
+     *
+     * @return 許可オリジンの判定器
+     */
+    public CorsOriginMatcher originMatcher() {
+        return originMatcher;
+    }
+
+    /**
+     * 要求されたヘッダーがすべて許可されている場合に、Access-Control-Allow-Headersの値を返します。
+     *
+     * @return 許可するヘッダー（要求がない場合は空文字列）、許可しないヘッダーが含まれる場合はnull
+     */
+    private String allowHeaders(@Nullable String requestHeaders) {
+        if (!StringUtils.hasText(requestHeaders)) {
+            return "";
+        }
+        if (anyHeader) {
+            return requestHeaders.trim();
+        }
+        for (String header : StringUtils.tokenizeToStringArray(requestHeaders, ",")) {
+            if (!allowedHeaders.contains(header.toLowerCase(Locale.ROOT))) {
+                return null;
+            }
+        }
+        return requestHeaders.trim();
+    }
+
+    /**
+     * オリジンの判定のみCorsOriginMatcherで行うCorsConfiguration。
+     * 許可オリジンはCorsOriginMatcherが保持するため、allowedOrigins・allowedOriginPatternsは設定しない。
+     */
+    private static final class CompiledCorsConfiguration extends CorsConfiguration {
+
+        private final CorsOriginMatcher originMatcher;
+
+        CompiledCorsConfiguration(CorsOriginMatcher originMatcher) {
+            this.originMatcher = originMatcher;
+        }
+
+        @Override
+        @Nullable
+        public String checkOrigin(@Nullable String origin) {
+            if (!StringUtils.hasText(origin) || !originMatcher.matches(origin)) {
+                return null;
+            }
+            // Springと同じく、すべてのオリジンを許可しCookieを送信させない場合のみ * を返す
+            return originMatcher.matchesAny() && !Boolean.TRUE.equals(getAllowCredentials()) ? ALL : origin;
+        }
+    }
+}
@@ -1,35 +1,71 @@
 package com.example.oneaccountsample.config;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.example.oneaccountsample.controller.TokenRefreshController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * CookieAuthenticationFilterは、リクエストのCookieからアクセストークンを取得し、
- * Authorizationヘッダーが存在しない場合に自動的に付与するSpringのフィルターです。
+ * Authorizationヘッダーが存在しない場合にBearerトークンとして利用できるようにするSpringのフィルターです。
+ * <p>
+ * Cookie名 "access_token" の値をCookieヘッダーから直接探し、リクエスト属性
+ * {@link #ACCESS_TOKEN_ATTRIBUTE} に格納します。格納したトークンは
+ * {@link CookieBearerTokenResolver} がリソースサーバーに渡すため、
+ * リクエストのラップや "Bearer " の文字列連結は行いません。
  * <p>
- * Cookie名 "access_token" からトークンを取得し、ラップしたリクエストに
- * "Bearer {token}" 形式でAuthorizationヘッダーを追加します。
+ * Cookieからの取得に要した時間は auth.cookie.extraction として記録します。
+ * <p>
+ * トークンの更新エンドポイント（{@link TokenRefreshController#REFRESH_PATH}）では
+ * 期限切れのアクセストークンで認証に失敗しないよう、Cookieを参照しません。
  */
 public class CookieAuthenticationFilter extends OncePerRequestFilter {
 
     /** アクセストークンを格納するCookieの名前 */
     public static final String ACCESS_TOKEN_COOKIE_NAME = "access_token";
 
+    /** Cookieから取得したアクセストークンを格納するリクエスト属性の名前 */
+    public static final String ACCESS_TOKEN_ATTRIBUTE = CookieAuthenticationFilter.class.getName() + ".ACCESS_TOKEN";
+
+    private final Timer extractionTimer;
+
+    /**
+     * @param registry 取得時間を記録するメーターレジストリ
+     */
+    public CookieAuthenticationFilter(MeterRegistry registry) {
+        this.extractionTimer = Timer.builder("auth.cookie.extraction")
+                .description("Time spent extracting the access token from the Cookie header")
+                .register(registry);
+    }
+
     /**
-     * リクエストのCookieからアクセストークンを取得し、Authorizationヘッダーが
-     * 存在しない場合はヘッダーを追加してフィルターチェーンを進めます。
+     * トークンの更新エンドポイントではCookieのアクセストークンを使用しません
+     * （更新が必要な時点のアクセストークンは期限切れのため）。
+     *
+     * @param request HTTPリクエスト
+     * @return 更新エンドポイントの場合true
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return TokenRefreshController.REFRESH_PATH.equals(request.getRequestURI());
+    }
+
+    /**
+     * Authorizationヘッダーが存在しない場合、Cookieからアクセストークンを取得して
+     * リクエスト属性に格納し、フィルターチェーンを進めます。
      *
      * @param request  HTTPリクエスト
      * @param response HTTPレスポンス
@@ -41,43 +77,106 @@ public class CookieAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
 
-        // リクエストからCookie配列を取得
-        Cookie[] cookies = request.getCookies();
-
-        // "access_token" Cookieが存在する場合は値を取得
-        final String tokenValue = cookies == null ? null :
-                Arrays.stream(cookies)
-                        .filter(cookie -> ACCESS_TOKEN_COOKIE_NAME.equals(cookie.getName()))
-                        .map(Cookie::getValue)
-                        .findFirst()
-                        .orElse(null);
-
-        // Authorizationヘッダーが未設定かつトークンが存在する場合はヘッダーを追加
-        if (tokenValue != null && request.getHeader("Authorization") == null) {
-            HttpServletRequestWrapper wrappedRequest = new HttpServletRequestWrapper(request) {
-                @Override
-                public String getHeader(String name) {
-                    // Authorizationヘッダー要求時はBearerトークンを返す
-                    if ("Authorization".equalsIgnoreCase(name)) {
-                        return "Bearer " + tokenValue;
-                    }
-                    return super.getHeader(name);
+        // Authorizationヘッダーが未設定の場合のみCookieを参照する（明示的なヘッダーを優先）
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) == null) {
+            long start = System.nanoTime();
+            String tokenValue = resolveAccessToken(request);
+            extractionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (tokenValue != null) {
+                request.setAttribute(ACCESS_TOKEN_ATTRIBUTE, tokenValue);
+            }
+        }
+        // リクエストはラップせずにそのままフィルターチェーンを進める
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Cookieヘッダーから "access_token" の値を取得します。
+     *
+     * @param request HTTPリクエスト
+     * @return アクセストークン（存在しない場合はnull）
+     */
+    static String resolveAccessToken(HttpServletRequest request) {
+        return resolveCookie(request, ACCESS_TOKEN_COOKIE_NAME);
+    }
+
+    /**
+     * Cookieヘッダーから指定した名前の値を取得します。
+     * <p>
+     * コンテナによるCookie配列の生成を避けるため、Cookieヘッダーを直接走査します。
+     *
+     * @param request HTTPリクエスト
+     * @param name    Cookie名
+     * @return Cookieの値（存在しない場合はnull）
+     */
+    static String resolveCookie(HttpServletRequest request, String name) {
+        String header = request.getHeader(HttpHeaders.COOKIE);
+        if (header == null) {
+            return null;
+        }
+        String value = findCookieValue(header, name);
+        if (value != null) {
+            return value;
+        }
+        // 複数のCookieヘッダーに分かれて送信された場合（通常は1つのみ）
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.COOKIE);
+        if (headers == null) {
+            return null;
+        }
+        while (headers.hasMoreElements()) {
+            String next = headers.nextElement();
+            if (next != header) {
+                value = findCookieValue(next, name);
+                if (value != null) {
+                    return value;
                 }
+            }
+        }
+        return null;
+    }
 
-                @Override
-                public Enumeration<String> getHeaders(String name) {
-                    // Authorizationヘッダー要求時はBearerトークンのみを返す
-                    if ("Authorization".equalsIgnoreCase(name)) {
-                        return Collections.enumeration(Collections.singletonList("Bearer " + tokenValue));
-                    }
-                    return super.getHeaders(name);
+    /**
+     * Cookieヘッダー（RFC 6265の cookie-string）から指定した名前の最初の値を取得します。
+     * <p>
+     * 値の文字列以外のオブジェクトは生成しません。値が二重引用符で囲まれている場合は取り除きます。
+     *
+     * @param header Cookieヘッダーの値
+     * @param name   Cookie名
+     * @return Cookieの値（存在しない、または空の場合はnull）
+     */
+    static String findCookieValue(String header, String name) {
+        int length = header.length();
+        int nameLength = name.length();
+        int position = 0;
+        while (position < length) {
+            // ペア先頭の空白を読み飛ばす
+            while (position < length && isWhitespace(header.charAt(position))) {
+                position++;
+            }
+            int end = header.indexOf(';', position);
+            if (end < 0) {
+                end = length;
+            }
+            if (end - position > nameLength
+                    && header.charAt(position + nameLength) == '='
+                    && header.regionMatches(position, name, 0, nameLength)) {
+                int valueStart = position + nameLength + 1;
+                int valueEnd = end;
+                while (valueEnd > valueStart && isWhitespace(header.charAt(valueEnd - 1))) {
+                    valueEnd--;
+                }
+                if (valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+                    valueStart++;
+                    valueEnd--;
                 }
-            };
-            // ラップしたリクエストでフィルターチェーンを進める
-            filterChain.doFilter(wrappedRequest, response);
-        } else {
-            // そのままフィルターチェーンを進める
-            filterChain.doFilter(request, response);
+                return valueEnd > valueStart ? header.substring(valueStart, valueEnd) : null;
+            }
+            position = end + 1;
         }
+        return null;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
     }
 }
@@ -0,0 +1,34 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * AuthorizationヘッダーまたはCookieからBearerトークンを取得するBearerTokenResolver。
+ * <p>
+ * Authorizationヘッダーが存在する場合は標準のDefaultBearerTokenResolverで処理し、
+ * 存在しない場合は {@link CookieAuthenticationFilter} がCookieから取得したトークンを返します。
+ */
+public class CookieBearerTokenResolver implements BearerTokenResolver {
+
+    private final DefaultBearerTokenResolver headerResolver = new DefaultBearerTokenResolver();
+
+    /**
+     * リクエストからBearerトークンを取得します。
+     *
+     * @param request HTTPリクエスト
+     * @return トークン（存在しない場合はnull）
+     */
+    @Override
+    public String resolve(HttpServletRequest request) {
+        // 明示的なAuthorizationヘッダーを優先する
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) != null) {
+            return headerResolver.resolve(request);
+        }
+        Object token = request.getAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE);
+        return token instanceof String value ? value : null;
+    }
+}
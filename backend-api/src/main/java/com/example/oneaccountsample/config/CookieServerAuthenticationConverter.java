@@ -0,0 +1,55 @@
+package com.example.oneaccountsample.config;
+
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.web.server.authentication.ServerBearerTokenAuthenticationConverter;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * CookieAuthenticationFilterのリアクティブ版。
+ * <p>
+ * Authorizationヘッダーが存在する場合は標準のServerBearerTokenAuthenticationConverterで処理し、
+ * 存在しない場合はCookie "access_token" の値をBearerトークンとして扱います。
+ * Cookieはサーブレット版と同じくCookieヘッダーを直接走査して取得します。
+ */
+public class CookieServerAuthenticationConverter implements ServerAuthenticationConverter {
+
+    private final ServerBearerTokenAuthenticationConverter headerConverter = new ServerBearerTokenAuthenticationConverter();
+
+    /**
+     * リクエストからBearerトークンの認証情報を生成します。
+     *
+     * @param exchange リクエスト/レスポンス
+     * @return 認証情報（トークンがない場合は空）
+     */
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        // 明示的なAuthorizationヘッダーを優先する
+        if (headers.containsKey(HttpHeaders.AUTHORIZATION)) {
+            return headerConverter.convert(exchange);
+        }
+        String tokenValue = resolveAccessToken(headers.get(HttpHeaders.COOKIE));
+        return tokenValue == null ? Mono.empty() : Mono.just(new BearerTokenAuthenticationToken(tokenValue));
+    }
+
+    private static String resolveAccessToken(List<String> cookieHeaders) {
+        if (cookieHeaders == null) {
+            return null;
+        }
+        for (String header : cookieHeaders) {
+            String value = CookieAuthenticationFilter.findCookieValue(header,
+                    CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
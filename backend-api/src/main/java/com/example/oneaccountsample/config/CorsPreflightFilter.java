@@ -0,0 +1,61 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * CORSのプリフライトリクエスト（OPTIONS）に事前に生成したヘッダーで応答するフィルター。
+ * <p>
+ * セキュリティフィルターチェーンのCorsFilterの直前に追加し、プリフライトの場合は後続の処理を行わずに応答します。
+ * <ul>
+ *   <li>許可する場合: 200 とCORSのヘッダー（{@link CompiledCorsConfigurationSource#writePreflightHeaders}）</li>
+ *   <li>拒否する場合: 403（CorsFilterと同じく本文は「Invalid CORS request」）</li>
+ * </ul>
+ * プリフライト以外のリクエストはそのままCorsFilterで処理します。
+ */
+public class CorsPreflightFilter extends OncePerRequestFilter {
+
+    private static final byte[] INVALID_CORS_REQUEST = "Invalid CORS request".getBytes(StandardCharsets.UTF_8);
+
+    private final CompiledCorsConfigurationSource corsConfigurationSource;
+
+    /**
+     * @param corsConfigurationSource CORSの設定
+     */
+    public CorsPreflightFilter(CompiledCorsConfigurationSource corsConfigurationSource) {
+        this.corsConfigurationSource = corsConfigurationSource;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !CorsUtils.isPreFlightRequest(request);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        boolean allowed = corsConfigurationSource.writePreflightHeaders(
+                request.getHeader(HttpHeaders.ORIGIN),
+                request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD),
+                request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS),
+                response::setHeader);
+        if (allowed) {
+            response.setStatus(HttpStatus.OK.value());
+            return;
+        }
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.getOutputStream().write(INVALID_CORS_REQUEST);
+        response.flushBuffer();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * CorsPreflightFilterのリアクティブ版。
+ * <p>
+ * CorsWebFilterの前に配置し、プリフライトの場合は後続の処理を行わずに応答します（拒否する場合は 403）。
+ */
+public class CorsPreflightWebFilter implements WebFilter {
+
+    private final CompiledCorsConfigurationSource corsConfigurationSource;
+
+    /**
+     * @param corsConfigurationSource CORSの設定
+     */
+    public CorsPreflightWebFilter(CompiledCorsConfigurationSource corsConfigurationSource) {
+        this.corsConfigurationSource = corsConfigurationSource;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!CorsUtils.isPreFlightRequest(request)) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders requestHeaders = request.getHeaders();
+        boolean allowed = corsConfigurationSource.writePreflightHeaders(
+                requestHeaders.getOrigin(),
+                requestHeaders.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD),
+                requestHeaders.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS),
+                response.getHeaders()::set);
+        response.setStatusCode(allowed ? HttpStatus.OK : HttpStatus.FORBIDDEN);
+        return response.setComplete();
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.oneaccountsample.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,12 +14,29 @@ import lombok.Setter;
 @ConfigurationProperties(prefix = "cors") // ymlの "cors" プレフィックスを指定
 public class CorsProperties {
 
+    /**
+     * 許可オリジン（カンマ区切り）。完全一致、サブドメインのワイルドカード（https://*.example.com）、または *
+     */
+    @Getter @Setter
+    private List<String> allowedOrigins = new ArrayList<>();
+    /**
+     * 許可メソッド（カンマ区切り）
+     */
     @Getter @Setter
-    private String allowedOrigins;
+    private List<String> allowedMethods = new ArrayList<>(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+    /**
+     * 許可ヘッダー（カンマ区切り。* の場合はプリフライトで要求されたヘッダーをすべて許可）
+     */
     @Getter @Setter
-    private String allowedMethods;
+    private List<String> allowedHeaders = new ArrayList<>(List.of("*"));
+    /**
+     * Cookie送信許可
+     */
     @Getter @Setter
-    private String allowedHeaders;
+    private boolean allowCredentials = true;
+    /**
+     * ブラウザがプリフライトの結果をキャッシュする期間（Access-Control-Max-Age）
+     */
     @Getter @Setter
-    private boolean allowCredentials;
+    private Duration maxAge = Duration.ofHours(1);
 }
@@ -0,0 +1,28 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 検証済みJWTキャッシュの設定。
+ * <p>
+ * ymlの "jwt.cache" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.cache")
+public class JwtCacheProperties {
+
+    /** キャッシュを有効にするか */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** 最大エントリ数 */
+    @Getter @Setter
+    private long maxEntries = 10_000;
+    /** キャッシュ全体の推定メモリ上限 */
+    @Getter @Setter
+    private DataSize maxMemory = DataSize.ofMegabytes(16);
+}
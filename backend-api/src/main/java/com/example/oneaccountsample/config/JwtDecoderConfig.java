@@ -0,0 +1,183 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * JWT検証の設定クラス。
+ * <p>
+ * - OIDCプロバイダーの署名鍵の管理
+ * - JWTデコーダ（同時検証の集約・署名検証前の不正なトークンの拒否・検証済みJWTのキャッシュ）
+ * - 追加のissuer（レルム）のトークンの受け付け（issuerごとのデコーダは初回使用時に生成）
+ * - 検証処理のメトリクス（デコード時間・認証失敗の理由・キャッシュ等の統計）
+ * <p>
+ * サーブレット版（SecurityConfig）とリアクティブ版（ReactiveSecurityConfig）で共通して使用する。
+ */
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.util.StringUtils;
+
+import com.example.oneaccountsample.security.AuthFailureMetrics;
+import com.example.oneaccountsample.security.CachingJwtDecoder;
+import com.example.oneaccountsample.security.IssuerRoutingJwtDecoder;
+import com.example.oneaccountsample.security.JwkSetManager;
+import com.example.oneaccountsample.security.JwtDecoderMetrics;
+import com.example.oneaccountsample.security.NimbusJwtDecoders;
+import com.example.oneaccountsample.security.OidcMetadataFetcher;
+import com.example.oneaccountsample.security.OidcSnapshotStore;
+import com.example.oneaccountsample.security.PrevalidatingJwtDecoder;
+import com.example.oneaccountsample.security.SingleFlightJwtDecoder;
+import com.example.oneaccountsample.security.TimedJwtDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class JwtDecoderConfig {
+
+    /**
+     * JWTのissuer URI（application.ymlから取得）
+     */
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    /**
+     * OIDCプロバイダーのメタデータ取得クライアントのBean定義。
+     * 既定のissuerと追加のissuerで共有する。
+     * @param providerProperties OIDCプロバイダー設定
+     * @param meterRegistry 取得時間を記録するメーターレジストリ
+     * @return OidcMetadataFetcher
+     */
+    @Bean
+    public OidcMetadataFetcher oidcMetadataFetcher(OidcProviderProperties providerProperties,
+            MeterRegistry meterRegistry) {
+        return new OidcMetadataFetcher(providerProperties.getConnectTimeout(), providerProperties.getReadTimeout(),
+                meterRegistry);
+    }
+
+    /**
+     * OIDCプロバイダーの鍵管理のBean定義。
+     * スナップショットから鍵を読み込み、Keycloakからの取得はバックグラウンドで行うため、
+     * Bean生成時にネットワーク呼び出しは発生しない。
+     * 鍵は有効期間が切れる前にバックグラウンドで再取得する。
+     * spring.threads.virtual.enabled が有効な場合はバックグラウンド取得も仮想スレッドで行う。
+     * @param providerProperties OIDCプロバイダー設定
+     * @param fetcher メタデータ取得クライアント
+     * @param objectMapper スナップショットのJSON変換に使用するObjectMapper
+     * @param environment 仮想スレッドの有効/無効の判定に使用するEnvironment
+     * @return JwkSetManager
+     */
+    @Bean(destroyMethod = "close")
+    public JwkSetManager jwkSetManager(OidcProviderProperties providerProperties, OidcMetadataFetcher fetcher,
+            ObjectMapper objectMapper, Environment environment) {
+        OidcSnapshotStore snapshotStore = StringUtils.hasText(providerProperties.getSnapshotPath())
+                ? new OidcSnapshotStore(Path.of(providerProperties.getSnapshotPath()), objectMapper)
+                : null;
+        JwkSetManager manager = newJwkSetManager(issuerUri, providerProperties, fetcher, snapshotStore, environment);
+        manager.start();
+        return manager;
+    }
+
+    /**
+     * 追加のissuerのトークンを受け付けるデコーダのBean定義。
+     * issuerごとの鍵管理とデコーダは、そのissuerのトークンを最初に受け取った時に生成するため、
+     * Bean生成時の処理はissuerの数によらず一定。使用されなくなったissuerのデコーダは破棄する。
+     * 追加のissuerの鍵はスナップショットを保存せず、初回使用時にKeycloakから取得する。
+     * @param issuerProperties 追加のissuerの設定
+     * @param providerProperties OIDCプロバイダー設定
+     * @param prevalidationProperties 事前検証の設定
+     * @param fetcher メタデータ取得クライアント
+     * @param environment 仮想スレッドの有効/無効の判定に使用するEnvironment
+     * @param meterRegistry メーターレジストリ
+     * @return IssuerRoutingJwtDecoder
+     */
+    @Bean(destroyMethod = "close")
+    public IssuerRoutingJwtDecoder issuerRoutingJwtDecoder(JwtIssuerProperties issuerProperties,
+            OidcProviderProperties providerProperties, JwtPrevalidationProperties prevalidationProperties,
+            OidcMetadataFetcher fetcher, Environment environment, MeterRegistry meterRegistry) {
+        return new IssuerRoutingJwtDecoder(issuerProperties.getAdditional(), issuer -> {
+            JwkSetManager manager = newJwkSetManager(issuer, providerProperties, fetcher, null, environment);
+            JwtDecoder decoder = prevalidate(new SingleFlightJwtDecoder(NimbusJwtDecoders.create(issuer, manager)),
+                    issuer, manager, prevalidationProperties, meterRegistry);
+            return new IssuerRoutingJwtDecoder.IssuerDecoder(decoder, manager);
+        }, issuerProperties.getIdleTimeout(), issuerProperties.getMaxLoaded());
+    }
+
+    /**
+     * JWTデコーダのBean定義。
+     * issuerUriに基づきJWT検証を行う。署名鍵はJwkSetManagerが保持する鍵を使用する。
+     * 同一トークンの同時検証は1回にまとめ、事前検証が有効な場合は署名検証の前に
+     * 形式・アルゴリズム・kid・exp・issから明らかに不正なトークンを拒否する。
+     * 追加のissuerが設定されている場合は、トークンのissから既定のissuerと追加のissuerのデコーダを選択する。
+     * キャッシュが有効な場合はさらに検証済みJWTをキャッシュするデコーダでラップする（キャッシュヒット時は事前検証も省略）。
+     * 署名鍵が削除・差し替えられた場合はその鍵で検証済みのキャッシュを破棄する。
+     * 最も外側でデコード時間と失敗理由を記録し、各デコーダの統計をメトリクスとして公開する。
+     * @param cacheProperties JWTキャッシュ設定
+     * @param prevalidationProperties 事前検証の設定
+     * @param jwkSetManager 署名鍵の管理
+     * @param issuerRoutingJwtDecoder 追加のissuerのトークンを受け付けるデコーダ
+     * @param meterRegistry メーターレジストリ
+     * @param authFailureMetrics 認証失敗の理由別カウンター
+     * @return JwtDecoder
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(JwtCacheProperties cacheProperties, JwtPrevalidationProperties prevalidationProperties,
+            JwkSetManager jwkSetManager, IssuerRoutingJwtDecoder issuerRoutingJwtDecoder, MeterRegistry meterRegistry,
+            AuthFailureMetrics authFailureMetrics) {
+        SingleFlightJwtDecoder singleFlightJwtDecoder =
+                new SingleFlightJwtDecoder(NimbusJwtDecoders.create(issuerUri, jwkSetManager));
+        JwtDecoder decoder = prevalidate(singleFlightJwtDecoder, issuerUri, jwkSetManager, prevalidationProperties,
+                meterRegistry);
+        IssuerRoutingJwtDecoder routingJwtDecoder = null;
+        if (issuerRoutingJwtDecoder.hasLazyIssuers()) {
+            // 追加のissuerがある場合のみ、issの判定を挟む
+            issuerRoutingJwtDecoder.registerIssuer(issuerUri, decoder);
+            routingJwtDecoder = issuerRoutingJwtDecoder;
+            decoder = routingJwtDecoder;
+        }
+        CachingJwtDecoder cachingJwtDecoder = null;
+        if (cacheProperties.isEnabled()) {
+            CachingJwtDecoder cache = new CachingJwtDecoder(decoder, cacheProperties.getMaxEntries(),
+                    cacheProperties.getMaxMemory().toBytes());
+            jwkSetManager.addKeyRotationListener(keyIds -> cache.retainKeyIds(issuerUri, keyIds));
+            issuerRoutingJwtDecoder.addKeyRotationListener(cache::retainKeyIds);
+            cachingJwtDecoder = cache;
+            decoder = cache;
+        }
+        new JwtDecoderMetrics(jwkSetManager, singleFlightJwtDecoder, cachingJwtDecoder, routingJwtDecoder)
+                .bindTo(meterRegistry);
+        return new TimedJwtDecoder(decoder, meterRegistry, authFailureMetrics);
+    }
+
+    /**
+     * 認証失敗の理由別カウンターのBean定義。
+     * @param meterRegistry メーターレジストリ
+     * @return AuthFailureMetrics
+     */
+    @Bean
+    public AuthFailureMetrics authFailureMetrics(MeterRegistry meterRegistry) {
+        return new AuthFailureMetrics(meterRegistry);
+    }
+
+    private static JwkSetManager newJwkSetManager(String issuer, OidcProviderProperties providerProperties,
+            OidcMetadataFetcher fetcher, OidcSnapshotStore snapshotStore, Environment environment) {
+        return new JwkSetManager(issuer, fetcher, snapshotStore, providerProperties.getKeyTtl(),
+                providerProperties.getRefreshAhead(), providerProperties.getRetryInterval(),
+                providerProperties.getUnknownKidRefetchInterval(),
+                JwkSetManager.refreshThreadFactory(Threading.VIRTUAL.isActive(environment)));
+    }
+
+    private static JwtDecoder prevalidate(JwtDecoder decoder, String issuer, JwkSetManager jwkSetManager,
+            JwtPrevalidationProperties prevalidationProperties, MeterRegistry meterRegistry) {
+        if (!prevalidationProperties.isEnabled()) {
+            return decoder;
+        }
+        return new PrevalidatingJwtDecoder(decoder, issuer, jwkSetManager::mayResolveKeyId,
+                prevalidationProperties.getClockSkew(), prevalidationProperties.getMaxTokenLength(),
+                prevalidationProperties.getNegativeCacheMaxEntries(), prevalidationProperties.getNegativeCacheTtl(),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 既定のissuer（spring.security.oauth2.resourceserver.jwt.issuer-uri）以外に受け付けるissuerの設定。
+ * <p>
+ * ymlの "jwt.issuers" プレフィックスにバインドされます。
+ * 追加のissuerのデコーダと鍵管理は、そのissuerのトークンを最初に受け取った時に生成します。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.issuers")
+public class JwtIssuerProperties {
+
+    /** 追加で受け付けるissuer URI（レルムごと） */
+    @Getter @Setter
+    private List<String> additional = new ArrayList<>();
+    /** 使用されなかったissuerのデコーダを破棄するまでの期間 */
+    @Getter @Setter
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    /** 同時に保持する追加のissuerのデコーダの最大数 */
+    @Getter @Setter
+    private long maxLoaded = 100;
+}
@@ -0,0 +1,35 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 署名検証前の事前検証（不正なトークンの早期拒否）の設定。
+ * <p>
+ * ymlの "jwt.prevalidation" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.prevalidation")
+public class JwtPrevalidationProperties {
+
+    /** 事前検証を有効にするか */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** 受け付けるトークンの最大長（文字数） */
+    @Getter @Setter
+    private int maxTokenLength = 8192;
+    /** exp の判定で許容する時刻のずれ（Spring Securityの標準バリデータと同じ値） */
+    @Getter @Setter
+    private Duration clockSkew = Duration.ofSeconds(60);
+    /** 拒否したトークンのハッシュを保持する最大件数 */
+    @Getter @Setter
+    private long negativeCacheMaxEntries = 10_000;
+    /** 拒否したトークンのハッシュを保持する期間 */
+    @Getter @Setter
+    private Duration negativeCacheTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,46 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+import com.example.oneaccountsample.security.AuthFailureMetrics;
+import com.example.oneaccountsample.security.AuthFailureReason;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 認証失敗（トークンなし等）を記録してから標準のBearerTokenAuthenticationEntryPointに委譲するエントリポイント。
+ * <p>
+ * 監査ログ（AuditFilter）のため、失敗の理由をリクエスト属性 {@link #FAILURE_REASON_ATTRIBUTE} に格納します。
+ */
+public class MeteredAuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    /** 認証失敗の理由（AuthFailureReason）を格納するリクエスト属性の名前 */
+    public static final String FAILURE_REASON_ATTRIBUTE = MeteredAuthenticationEntryPoint.class.getName() + ".FAILURE_REASON";
+
+    private final AuthenticationEntryPoint delegate = new BearerTokenAuthenticationEntryPoint();
+    private final AuthFailureMetrics failureMetrics;
+
+    /**
+     * @param failureMetrics 認証失敗の理由別カウンター
+     */
+    public MeteredAuthenticationEntryPoint(AuthFailureMetrics failureMetrics) {
+        this.failureMetrics = failureMetrics;
+    }
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
+            throws IOException, ServletException {
+        AuthFailureReason reason = AuthFailureReason.ofEntryPoint(authException);
+        if (reason != null) {
+            failureMetrics.record(reason);
+        }
+        request.setAttribute(FAILURE_REASON_ATTRIBUTE, AuthFailureReason.ofAuthentication(authException));
+        delegate.commence(request, response, authException);
+    }
+}
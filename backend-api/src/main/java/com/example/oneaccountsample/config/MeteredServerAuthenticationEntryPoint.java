@@ -0,0 +1,40 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.web.server.BearerTokenServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.oneaccountsample.security.AuthFailureMetrics;
+import com.example.oneaccountsample.security.AuthFailureReason;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * MeteredAuthenticationEntryPointのリアクティブ版。
+ * <p>
+ * 失敗の理由はexchangeの属性 {@link MeteredAuthenticationEntryPoint#FAILURE_REASON_ATTRIBUTE} に格納します。
+ */
+public class MeteredServerAuthenticationEntryPoint implements ServerAuthenticationEntryPoint {
+
+    private final ServerAuthenticationEntryPoint delegate = new BearerTokenServerAuthenticationEntryPoint();
+    private final AuthFailureMetrics failureMetrics;
+
+    /**
+     * @param failureMetrics 認証失敗の理由別カウンター
+     */
+    public MeteredServerAuthenticationEntryPoint(AuthFailureMetrics failureMetrics) {
+        this.failureMetrics = failureMetrics;
+    }
+
+    @Override
+    public Mono<Void> commence(ServerWebExchange exchange, AuthenticationException ex) {
+        AuthFailureReason reason = AuthFailureReason.ofEntryPoint(ex);
+        if (reason != null) {
+            failureMetrics.record(reason);
+        }
+        exchange.getAttributes().put(MeteredAuthenticationEntryPoint.FAILURE_REASON_ATTRIBUTE,
+                AuthFailureReason.ofAuthentication(ex));
+        return delegate.commence(exchange, ex);
+    }
+}
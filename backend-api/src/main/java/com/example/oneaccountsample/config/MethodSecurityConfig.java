@@ -0,0 +1,18 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * メソッドセキュリティの設定クラス。
+ * <p>
+ * コントローラーの@PreAuthorizeによる権限の確認を有効にする。
+ * リアクティブ版のメソッドセキュリティは戻り値がPublisherのメソッドのみ対象とするため、
+ * WebFlux/Netty版（ReactiveSecurityConfig）では同じ規則をパスごとの認可ルールとして適用する。
+ */
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+
+@Configuration
+@EnableMethodSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MethodSecurityConfig {
+}
@@ -0,0 +1,43 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * OIDCプロバイダー（Keycloak）のメタデータ取得設定。
+ * <p>
+ * ymlの "jwt.provider" プレフィックスにバインドされます。
+ * 起動時はスナップショットファイルから鍵を読み込み、Keycloakへの問い合わせは
+ * バックグラウンドで行います。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.provider")
+public class OidcProviderProperties {
+
+    /** ディスカバリー文書とJWKSのスナップショットを保存するファイル（空の場合は保存しない） */
+    @Getter @Setter
+    private String snapshotPath = "data/oidc-snapshot.json";
+    /** 取得した鍵を最新とみなす期間 */
+    @Getter @Setter
+    private Duration keyTtl = Duration.ofMinutes(10);
+    /** 鍵の有効期間が切れるどれだけ前にバックグラウンドで再取得するか */
+    @Getter @Setter
+    private Duration refreshAhead = Duration.ofMinutes(2);
+    /** 取得失敗時の再試行間隔 */
+    @Getter @Setter
+    private Duration retryInterval = Duration.ofSeconds(10);
+    /** 未知のkidを受け取った場合にJWKSを再取得する最小間隔 */
+    @Getter @Setter
+    private Duration unknownKidRefetchInterval = Duration.ofSeconds(30);
+    /** 接続タイムアウト */
+    @Getter @Setter
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    /** 読み取りタイムアウト */
+    @Getter @Setter
+    private Duration readTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,49 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Keycloakのイベントによるプロフィールの更新の設定。
+ * <p>
+ * ymlの "profile.feed" プレフィックスにバインドされます。
+ * Keycloakの管理APIからユーザーの管理イベント・ユーザーイベントを定期的に取得するため、
+ * レルムでイベントの保存を有効にし、サービスアカウント（view-events・view-usersのロール）を持つクライアントが必要です。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "profile.feed")
+public class ProfileFeedProperties {
+
+    /** イベントの取得を有効にするか */
+    @Getter @Setter
+    private boolean enabled = false;
+    /** レルムの管理APIのURI（空の場合はissuer URIの /realms/ を /admin/realms/ に置き換えたもの） */
+    @Getter @Setter
+    private String adminUri = "";
+    /** サービスアカウントのクライアントID */
+    @Getter @Setter
+    private String clientId = "backend-api";
+    /** サービスアカウントのクライアントシークレット */
+    @Getter @Setter
+    private String clientSecret = "";
+    /** イベントの取得間隔 */
+    @Getter @Setter
+    private Duration pollInterval = Duration.ofSeconds(5);
+    /** Keycloakとの時計のずれとして許容する時間（起動時刻からこの時間だけ遡ったイベントから反映する） */
+    @Getter @Setter
+    private Duration clockSkew = Duration.ofSeconds(60);
+    /** 1回の要求で取得するイベントの最大数 */
+    @Getter @Setter
+    private int pageSize = 100;
+    /** 接続タイムアウト */
+    @Getter @Setter
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    /** 読み取りタイムアウト */
+    @Getter @Setter
+    private Duration readTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,21 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * ユーザーのプロフィールのストアの設定。
+ * <p>
+ * ymlの "profile.store" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "profile.store")
+public class ProfileStoreProperties {
+
+    /** 保持するユーザー（sub）の最大数 */
+    @Getter @Setter
+    private long maxEntries = 10_000;
+}
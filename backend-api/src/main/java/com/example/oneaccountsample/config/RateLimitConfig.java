@@ -0,0 +1,57 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * APIのレート制限の設定クラス。
+ * <p>
+ * - エンドポイントごと・クライアントごとのレート制限
+ * - エンドポイントごとの許可・拒否件数、保持しているバケット数のメトリクス
+ * <p>
+ * 制限の適用はサーブレット版（RateLimitFilter）・リアクティブ版（RateLimitWebFilter）のフィルターで行う。
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.oneaccountsample.security.RateLimiter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class RateLimitConfig {
+
+    /**
+     * レート制限のBean定義。
+     * @param properties レート制限設定
+     * @param meterRegistry 統計を公開するメーターレジストリ
+     * @return RateLimiter（無効の場合は何も制限しないRateLimiter）
+     */
+    @Bean
+    public RateLimiter rateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        if (!properties.isEnabled()) {
+            return RateLimiter.disabled();
+        }
+        Map<String, RateLimiter.Limit> limits = new LinkedHashMap<>();
+        properties.getEndpoints().forEach((pattern, limit) ->
+                limits.put(pattern, new RateLimiter.Limit(limit.getPermitsPerSecond(), limit.getBurst())));
+        RateLimiter rateLimiter = new RateLimiter(limits, properties.getMaxKeys(), properties.getIdleTimeout(),
+                properties.getStripes() > 0 ? properties.getStripes() : RateLimiter.defaultStripes());
+        for (RateLimiter.Endpoint endpoint : rateLimiter.endpoints()) {
+            FunctionCounter.builder("api.rate.limit.requests", endpoint, e -> e.stats().allowed())
+                    .tag("endpoint", endpoint.pattern())
+                    .tag("result", "allowed")
+                    .register(meterRegistry);
+            FunctionCounter.builder("api.rate.limit.requests", endpoint, e -> e.stats().rejected())
+                    .tag("endpoint", endpoint.pattern())
+                    .tag("result", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("api.rate.limit.keys", endpoint, e -> e.stats().keys())
+                    .tag("endpoint", endpoint.pattern())
+                    .register(meterRegistry);
+        }
+        return rateLimiter;
+    }
+}
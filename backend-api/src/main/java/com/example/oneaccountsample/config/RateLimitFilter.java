@@ -0,0 +1,79 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.oneaccountsample.security.RateLimiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * APIへのリクエストにエンドポイントごと・クライアントごとのレート制限を適用するフィルター。
+ * <p>
+ * セキュリティフィルターチェーンのBearerTokenAuthenticationFilterの直後に追加し、
+ * 認証の結果からクライアントを判定します。
+ * <ul>
+ *   <li>JWTで認証済み: トークンの sub ごとに制限する</li>
+ *   <li>未認証（/api/health 等の認証不要のエンドポイント、トークンなし）: クライアントのIPアドレスごとに制限する</li>
+ * </ul>
+ * 制限を超えたリクエストは後続の処理（認可・コントローラー）を行わずに
+ * 429 Too Many Requests とRetry-Afterヘッダー（秒）を返します。
+ * 不正なトークンのリクエストは認証のフィルターで拒否されるため、このフィルターには到達しません。
+ * <p>
+ * プロキシ経由の場合のクライアントのIPアドレスは server.forward-headers-strategy の設定に従います。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH_PREFIX = "/api/";
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param rateLimiter レート制限
+     */
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !rateLimiter.isEnabled() || !request.getRequestURI().startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.Endpoint endpoint = rateLimiter.endpoint(request.getRequestURI());
+        if (endpoint != null) {
+            long waitNanos = rateLimiter.tryAcquire(endpoint, client(request));
+            if (waitNanos > 0) {
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER,
+                        Long.toString(RateLimiter.retryAfterSeconds(waitNanos)));
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            String subject = jwtAuthentication.getToken().getSubject();
+            if (subject != null) {
+                return subject;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * APIのレート制限の設定。
+ * <p>
+ * ymlの "api.rate-limit" プレフィックスにバインドされます。
+ * 制限はエンドポイント（パスのパターン）ごとに指定し、認証済みのリクエストはトークンの sub、
+ * 未認証のリクエスト（/api/health 等）はクライアントのIPアドレスごとに適用します。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "api.rate-limit")
+public class RateLimitProperties {
+
+    /** レート制限を有効にするか */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** パスのパターン（完全一致、または "/**" で終わる前方一致） → 制限 */
+    @Getter @Setter
+    private Map<String, Limit> endpoints = new LinkedHashMap<>();
+    /** エンドポイントごとに保持するクライアントのバケットの最大数 */
+    @Getter @Setter
+    private long maxKeys = 100_000;
+    /** リクエストのなかったクライアントのバケットを破棄するまでの期間 */
+    @Getter @Setter
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    /** エンドポイントごとのストライプ数（0の場合はCPU数） */
+    @Getter @Setter
+    private int stripes = 0;
+
+    /**
+     * エンドポイントの制限。
+     */
+    public static class Limit {
+
+        /** 1秒あたりに補充するリクエスト数 */
+        @Getter @Setter
+        private double permitsPerSecond;
+        /** 連続して許可するリクエスト数 */
+        @Getter @Setter
+        private int burst;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.oneaccountsample.config;
+
+import java.net.InetSocketAddress;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.example.oneaccountsample.security.RateLimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * RateLimitFilterのリアクティブ版。
+ * <p>
+ * 認証情報はReactorのコンテキストから取得するため、認証のフィルターの後に配置します。
+ */
+public class RateLimitWebFilter implements WebFilter {
+
+    private static final String API_PATH_PREFIX = "/api/";
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param rateLimiter レート制限
+     */
+    public RateLimitWebFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!rateLimiter.isEnabled() || !path.startsWith(API_PATH_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        RateLimiter.Endpoint endpoint = rateLimiter.endpoint(path);
+        if (endpoint == null) {
+            return chain.filter(exchange);
+        }
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .mapNotNull(authentication -> ((JwtAuthenticationToken) authentication).getToken().getSubject())
+                .switchIfEmpty(Mono.fromSupplier(() -> remoteAddress(exchange)))
+                .flatMap(client -> {
+                    long waitNanos = rateLimiter.tryAcquire(endpoint, client);
+                    if (waitNanos > 0) {
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                                Long.toString(RateLimiter.retryAfterSeconds(waitNanos)));
+                        return response.setComplete();
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    private static String remoteAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        if (address == null) {
+            return UNKNOWN_CLIENT;
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * Spring Securityの設定クラス（WebFlux/Netty版）。
+ * <p>
+ * spring.main.web-application-type=reactive（reactiveプロファイル）で起動した場合に使用し、
+ * サーブレット版のSecurityConfigと同じ規則を適用する。
+ * - CORS設定
+ * - CSRF保護の一部無効化
+ * - セッション管理（ステートレス）
+ * - CookieまたはAuthorizationヘッダーからのトークン取得
+ * - APIエンドポイントの認証/認可
+ * - JWTデコーダの設定
+ * - JWTのロールから権限への変換
+ * - 認証結果の監査ログへの記録
+ * - エンドポイントごと・クライアントごとのレート制限
+ * <p>
+ * リアクティブ版のメソッドセキュリティは戻り値がPublisherのメソッドのみ対象とするため、
+ * コントローラーの@PreAuthorizeと同じ規則をパスごとの認可ルールとして適用する。
+ */
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.csrf.CsrfWebFilter;
+import org.springframework.security.web.server.util.matcher.AndServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.security.AuthFailureMetrics;
+import com.example.oneaccountsample.security.RateLimiter;
+import com.example.oneaccountsample.security.ReactiveJwtDecoderAdapter;
+
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    /**
+     * Spring Securityのフィルターチェーンを構成（SecurityConfig.filterChainと同じ規則）。
+     * @param http ServerHttpSecurity
+     * @param reactiveJwtDecoder JWTデコーダ
+     * @param jwtAuthenticationConverter JWTから認証情報（権限を含む）への変換
+     * @param authFailureMetrics 認証失敗の理由別カウンター
+     * @param auditLog 監査ログ
+     * @param rateLimiter レート制限
+     * @param reactiveCorsConfigurationSource CORSの設定
+     * @return SecurityWebFilterChain
+     */
+    @Bean
+    public SecurityWebFilterChain springSecurityWebFilterChain(ServerHttpSecurity http,
+            ReactiveJwtDecoder reactiveJwtDecoder, JwtAuthenticationConverter jwtAuthenticationConverter,
+            AuthFailureMetrics authFailureMetrics, AuditLog auditLog, RateLimiter rateLimiter,
+            CompiledCorsConfigurationSource reactiveCorsConfigurationSource) {
+        http
+            // 認証結果の監査ログ（認証情報は認証の後でexchangeの属性に格納する）
+            .addFilterAt(new AuditWebFilter(auditLog), SecurityWebFiltersOrder.FIRST)
+            .addFilterAfter(AuditWebFilter.captureAuthentication(), SecurityWebFiltersOrder.AUTHENTICATION)
+            // レート制限（認証の後、認可の前に制限する）
+            .addFilterAfter(new RateLimitWebFilter(rateLimiter), SecurityWebFiltersOrder.AUTHENTICATION)
+            // CORS設定（プリフライトはCorsWebFilterの処理を行わずに応答する）
+            .addFilterBefore(new CorsPreflightWebFilter(reactiveCorsConfigurationSource), SecurityWebFiltersOrder.CORS)
+            .cors(cors -> cors.configurationSource(reactiveCorsConfigurationSource))
+            // APIエンドポイントではCSRF保護を無効に
+            .csrf(csrf -> csrf.requireCsrfProtectionMatcher(new AndServerWebExchangeMatcher(
+                    CsrfWebFilter.DEFAULT_CSRF_MATCHER,
+                    new NegatedServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers("/api/**")))))
+            // セッション管理（ステートレス）
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            // 認可ルール
+            .authorizeExchange(authz -> authz
+                .pathMatchers("/actuator/**").permitAll()
+                .pathMatchers("/api/health", "/api/health/**").permitAll() // ヘルスチェックエンドポイントは認証不要
+                // UserInfoControllerの@PreAuthorizeと同じ規則
+                .pathMatchers("/api/user").hasRole("USER")
+                .pathMatchers("/api/profile").hasAuthority("PROFILE_READ")
+                .pathMatchers("/api/**").authenticated()
+                .anyExchange().permitAll()
+            )
+            // JWTリソースサーバ設定（CookieまたはAuthorizationヘッダーからトークンを取得）
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .bearerTokenConverter(new CookieServerAuthenticationConverter())
+                .authenticationEntryPoint(new MeteredServerAuthenticationEntryPoint(authFailureMetrics))
+                .jwt(jwt -> jwt
+                    .jwtDecoder(reactiveJwtDecoder)
+                    .jwtAuthenticationConverter(new ReactiveJwtAuthenticationConverterAdapter(jwtAuthenticationConverter)))
+            );
+
+        return http.build();
+    }
+
+    /**
+     * CORSの設定を生成（SecurityConfigと同じ設定）。
+     * @param corsProperties CORSの設定
+     * @return CompiledCorsConfigurationSource
+     */
+    @Bean
+    public CompiledCorsConfigurationSource reactiveCorsConfigurationSource(CorsProperties corsProperties) {
+        return new CompiledCorsConfigurationSource(corsProperties);
+    }
+
+    /**
+     * リアクティブ版のJWTデコーダのBean定義。
+     * サーブレット版と同じJwtDecoder（署名鍵の管理・キャッシュ）を共有する。
+     * @param jwtDecoder JWTデコーダ
+     * @return ReactiveJwtDecoder
+     */
+    @Bean
+    public ReactiveJwtDecoder reactiveJwtDecoder(JwtDecoder jwtDecoder) {
+        return new ReactiveJwtDecoderAdapter(jwtDecoder);
+    }
+
+    /**
+     * Nettyで起動するためのWebサーバーファクトリ。
+     * クラスパスにTomcatも存在するため、明示的にNettyを指定する。
+     * @return NettyReactiveWebServerFactory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
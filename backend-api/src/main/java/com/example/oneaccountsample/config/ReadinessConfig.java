@@ -0,0 +1,105 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * 準備状態（readiness）の設定クラス。
+ * <p>
+ * - 署名鍵の保持とissuerのメタデータ取得のバックグラウンドプローブ
+ * - プローブ結果のヘルスインジケーター（/actuator/health/readiness に含める）
+ * - 終了時の振り分け停止（DRAININGに切り替えてからgraceful shutdown）
+ * <p>
+ * プローブ結果は /api/health/ready（HealthCheckController）で返す。
+ */
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.oneaccountsample.health.ReadinessMonitor;
+import com.example.oneaccountsample.health.ReadinessProbes;
+import com.example.oneaccountsample.security.JwkSetManager;
+import com.example.oneaccountsample.security.OidcMetadataFetcher;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Configuration
+public class ReadinessConfig {
+
+    private static final String KEYS_PROBE = "signingKeys";
+    private static final String ISSUER_PROBE = "issuer";
+
+    /**
+     * JWTのissuer URI（application.ymlから取得）
+     */
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    /**
+     * 準備状態のモニターのBean定義。
+     * プローブは専用のスレッドで実行し、ヘルスチェックのリクエストスレッドでは実行しない。
+     * @param properties 準備状態の設定
+     * @param jwkSetManager 既定のissuerの鍵管理
+     * @param fetcher メタデータ取得クライアント
+     * @param meterRegistry 準備状態を公開するメーターレジストリ
+     * @return ReadinessMonitor
+     */
+    @Bean(destroyMethod = "close")
+    public ReadinessMonitor readinessMonitor(ReadinessProperties properties, JwkSetManager jwkSetManager,
+            OidcMetadataFetcher fetcher, MeterRegistry meterRegistry) {
+        Clock clock = Clock.systemUTC();
+        Map<String, ReadinessMonitor.Probe> probes = new LinkedHashMap<>();
+        probes.put(KEYS_PROBE, ReadinessProbes.signingKeys(jwkSetManager, properties.getMaxKeyAge(),
+                properties.isRequireFreshKeys(), clock));
+        probes.put(ISSUER_PROBE, ReadinessProbes.issuerMetadata(fetcher, issuerUri, clock));
+        Set<String> required = properties.isRequireIssuer() ? Set.of(KEYS_PROBE, ISSUER_PROBE) : Set.of(KEYS_PROBE);
+        ReadinessMonitor monitor = new ReadinessMonitor(probes, required, properties.getProbeInterval(),
+                ready -> log.info("Readiness changed to {}", ready ? "READY" : "NOT READY"));
+        Gauge.builder("health.readiness", monitor, m -> m.current().ready() ? 1 : 0)
+                .description("1 if the application is ready to receive traffic")
+                .register(meterRegistry);
+        monitor.start();
+        return monitor;
+    }
+
+    /**
+     * プローブ結果のヘルスインジケーターのBean定義（プローブは実行せず、保持している結果を返す）。
+     * @param readinessMonitor 準備状態のモニター
+     * @return HealthIndicator
+     */
+    @Bean
+    public HealthIndicator oidcReadinessHealthIndicator(ReadinessMonitor readinessMonitor) {
+        return () -> {
+            ReadinessMonitor.Readiness readiness = readinessMonitor.current();
+            Health.Builder builder = readiness.ready() ? Health.up() : Health.outOfService();
+            readiness.checks().forEach((name, check) -> builder.withDetail(name, check));
+            return builder.build();
+        };
+    }
+
+    /**
+     * 終了時の振り分け停止のBean定義。
+     * Webサーバーを起動しない場合（MockMvcのテスト等）は待たずにDRAININGへの切り替えのみ行う。
+     * @param readinessMonitor 準備状態のモニター
+     * @param properties 準備状態の設定
+     * @param applicationContext Webサーバーの有無の判定に使用するApplicationContext
+     * @return ReadinessDrainLifecycle
+     */
+    @Bean
+    public ReadinessDrainLifecycle readinessDrainLifecycle(ReadinessMonitor readinessMonitor,
+            ReadinessProperties properties, ApplicationContext applicationContext) {
+        return new ReadinessDrainLifecycle(readinessMonitor,
+                applicationContext instanceof WebServerApplicationContext ? properties.getDrainDelay()
+                        : Duration.ZERO);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.context.SmartLifecycle;
+
+import com.example.oneaccountsample.health.ReadinessMonitor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 終了時に準備状態を DRAINING に切り替え、ロードバランサーが振り分けを止めるまで待つライフサイクル。
+ * <p>
+ * Webサーバーのgraceful shutdown（新しいリクエストの受け付け停止と処理中のリクエストの完了待ち）より
+ * 先に停止するフェーズで実行するため、待っている間に届いたリクエストは通常どおり処理されます。
+ */
+@Slf4j
+public class ReadinessDrainLifecycle implements SmartLifecycle {
+
+    private final ReadinessMonitor readinessMonitor;
+    private final Duration drainDelay;
+    private volatile boolean running;
+
+    /**
+     * @param readinessMonitor 準備状態のモニター
+     * @param drainDelay       DRAININGに切り替えてから停止処理を続けるまでの待ち時間
+     */
+    public ReadinessDrainLifecycle(ReadinessMonitor readinessMonitor, Duration drainDelay) {
+        this.readinessMonitor = readinessMonitor;
+        this.drainDelay = drainDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        readinessMonitor.startDraining();
+        if (drainDelay.isZero() || drainDelay.isNegative()) {
+            return;
+        }
+        log.info("Waiting {} for load balancers to stop routing traffic", drainDelay);
+        try {
+            Thread.sleep(drainDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Webサーバーのgraceful shutdown（SmartLifecycle.DEFAULT_PHASE - 1024）より先に停止するフェーズ。
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 準備状態（readiness）のプローブと終了時の振り分け停止の設定。
+ * <p>
+ * ymlの "health.readiness" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "health.readiness")
+public class ReadinessProperties {
+
+    /** プローブの実行間隔（ヘルスチェックの呼び出し回数によらず、issuerへの問い合わせはこの間隔ごとに1回） */
+    @Getter @Setter
+    private Duration probeInterval = Duration.ofSeconds(15);
+    /** 署名鍵を最新とみなす最大の経過時間（超えた場合はプローブの詳細に記録する） */
+    @Getter @Setter
+    private Duration maxKeyAge = Duration.ofHours(1);
+    /** 署名鍵が maxKeyAge を超えた場合に準備未完了とするか（falseの場合、保持している鍵で検証を続ける） */
+    @Getter @Setter
+    private boolean requireFreshKeys = false;
+    /** issuerに到達できない場合も準備未完了とするか（falseの場合、保持している鍵で検証を続ける） */
+    @Getter @Setter
+    private boolean requireIssuer = false;
+    /** 終了時に準備未完了に切り替えてから、受け付けの停止（graceful shutdown）を始めるまでの待ち時間 */
+    @Getter @Setter
+    private Duration drainDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,24 @@
+package com.example.oneaccountsample.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * エンコード済みAPIレスポンスのキャッシュ設定。
+ * <p>
+ * ymlの "api.response-cache" プレフィックスにバインドされます。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "api.response-cache")
+public class ResponseCacheProperties {
+
+    /** キャッシュを有効にするか（無効でもETagによる304応答は行う） */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** 最大エントリ数 */
+    @Getter @Setter
+    private long maxEntries = 10_000;
+}
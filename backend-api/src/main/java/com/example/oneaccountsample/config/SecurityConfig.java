@@ -3,122 +3,132 @@ package com.example.oneaccountsample.config;
 /**
  * Spring Securityの設定クラス。
  * <p>
- * - CORS設定
+ * - CORS設定（許可オリジンは事前にハッシュ表へ変換し、プリフライトは事前に生成したヘッダーで応答）
  * - CSRF保護の一部無効化
  * - セッション管理（ステートレス）
  * - CookieAuthenticationFilterの追加
+ * - Cookieのアクセストークンの期限切れ時の透過的な更新（auth.refresh.transparent=true の場合）
  * - APIエンドポイントの認証/認可
  * - JWTデコーダの設定
+ * - JWTのロールから権限への変換（エンドポイントごとの権限はコントローラーの@PreAuthorizeで指定）
+ * - 認証結果の監査ログへの記録
+ * - エンドポイントごと・クライアントごとのレート制限
  */
-import java.util.Arrays;
-import java.util.List;
-
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.web.cors.CorsConfiguration;
-import org.springframework.web.cors.CorsConfigurationSource;
-import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+import org.springframework.web.filter.CorsFilter;
+
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.controller.TokenRefreshController;
+import com.example.oneaccountsample.security.AuthFailureMetrics;
+import com.example.oneaccountsample.security.RateLimiter;
+import com.example.oneaccountsample.security.TokenRefresher;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig {
 
-    /**
-     * CORSで許可するオリジン（application.ymlから取得）
-     */
-    @Value("${cors.allowed-origins}")
-    private String allowedOrigins;
-
-    /**
-     * JWTのissuer URI（application.ymlから取得）
-     */
-    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
-    private String issuerUri;
-
     /**
      * Spring Securityのフィルターチェーンを構成。
      * <ul>
      *   <li>CORS設定</li>
+     *   <li>CorsPreflightFilterをCorsFilterの前に追加（プリフライトへの応答）</li>
      *   <li>APIエンドポイントのCSRF保護無効化</li>
      *   <li>セッション管理をステートレスに</li>
      *   <li>CookieAuthenticationFilterをBearerTokenAuthenticationFilterの前に追加</li>
+     *   <li>透過的な更新が有効な場合、TokenRefreshFilterをCookieAuthenticationFilterの後・BearerTokenAuthenticationFilterの前に追加</li>
+     *   <li>CookieまたはAuthorizationヘッダーからトークンを取得するBearerTokenResolver</li>
      *   <li>API認証/認可ルール</li>
      *   <li>JWTデコーダ設定</li>
+     *   <li>JWTのロールから権限への変換</li>
+     *   <li>認証失敗（トークンなし等）の記録</li>
+     *   <li>AuditFilterをSecurityContextHolderFilterの後に追加（認証結果の監査ログ）</li>
+     *   <li>RateLimitFilterをBearerTokenAuthenticationFilterの後に追加（認証結果のsubまたはIPアドレスごとのレート制限）</li>
      * </ul>
      * @param http HttpSecurity
+     * @param jwtDecoder JWTデコーダ
+     * @param jwtAuthenticationConverter JWTから認証情報（権限を含む）への変換
+     * @param meterRegistry メーターレジストリ
+     * @param authFailureMetrics 認証失敗の理由別カウンター
+     * @param auditLog 監査ログ
+     * @param rateLimiter レート制限
+     * @param corsConfigurationSource CORSの設定
+     * @param tokenRefresher トークンの更新
+     * @param tokenCookies 更新したトークンのCookieの生成
+     * @param tokenRefreshProperties トークンの更新の設定
      * @return SecurityFilterChain
      * @throws Exception 設定例外
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtDecoder jwtDecoder,
+            JwtAuthenticationConverter jwtAuthenticationConverter, MeterRegistry meterRegistry,
+            AuthFailureMetrics authFailureMetrics, AuditLog auditLog, RateLimiter rateLimiter,
+            CompiledCorsConfigurationSource corsConfigurationSource, TokenRefresher tokenRefresher,
+            TokenCookies tokenCookies, TokenRefreshProperties tokenRefreshProperties) throws Exception {
         http
             // CORS設定
-            .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+            .cors(cors -> cors.configurationSource(corsConfigurationSource))
+            // CorsPreflightFilterを追加（プリフライトはCorsFilterの処理を行わずに応答する）
+            .addFilterBefore(new CorsPreflightFilter(corsConfigurationSource), CorsFilter.class)
             // APIエンドポイントではCSRF保護を無効に
             .csrf(csrf -> csrf.ignoringRequestMatchers("/api/**"))
             // セッション管理（ステートレス）
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             // CookieAuthenticationFilterを追加
-            .addFilterBefore(new CookieAuthenticationFilter(), BearerTokenAuthenticationFilter.class)
+            .addFilterBefore(new CookieAuthenticationFilter(meterRegistry), BearerTokenAuthenticationFilter.class)
+            // AuditFilterを追加（後続の認証・認可の結果を記録）
+            .addFilterAfter(new AuditFilter(auditLog), SecurityContextHolderFilter.class)
+            // RateLimitFilterを追加（認証の後、認可・コントローラーの処理の前に制限する）
+            .addFilterAfter(new RateLimitFilter(rateLimiter), BearerTokenAuthenticationFilter.class)
             // 認可ルール
             .authorizeHttpRequests(authz -> authz
                 .requestMatchers("/actuator/**").permitAll()
-                .requestMatchers("/api/health").permitAll() // ヘルスチェックエンドポイントは認証不要
+                .requestMatchers("/api/health", "/api/health/**").permitAll() // ヘルスチェックエンドポイントは認証不要
+                .requestMatchers(TokenRefreshController.REFRESH_PATH).permitAll() // アクセストークンの期限切れ後に呼び出すため認証不要
                 .requestMatchers("/api/**").authenticated()
                 .anyRequest().permitAll()
             )
-            // JWTリソースサーバ設定
+            // JWTリソースサーバ設定（Cookieのトークンはリクエストをラップせずに渡す）
             .oauth2ResourceServer(oauth2 -> oauth2
-                .jwt(jwt -> jwt.decoder(jwtDecoder()))
+                .bearerTokenResolver(new CookieBearerTokenResolver())
+                .authenticationEntryPoint(new MeteredAuthenticationEntryPoint(authFailureMetrics))
+                .jwt(jwt -> jwt
+                    .decoder(jwtDecoder)
+                    .jwtAuthenticationConverter(jwtAuthenticationConverter))
             );
 
+        if (tokenRefreshProperties.isTransparent() && tokenRefresher.isEnabled()) {
+            // TokenRefreshFilterを追加（同じ位置のフィルターは追加順のため、CookieAuthenticationFilterの後になる）
+            http.addFilterBefore(new TokenRefreshFilter(tokenRefresher, tokenCookies,
+                    tokenRefreshProperties.getRefreshAhead()), BearerTokenAuthenticationFilter.class);
+        }
         return http.build();
     }
 
     /**
      * CORSの設定を生成。
      * <ul>
-     *   <li>許可オリジンはapplication.ymlから取得</li>
-     *   <li>全メソッド・全ヘッダー許可</li>
-     *   <li>Cookie送信許可</li>
-     *   <li>キャッシュ有効期間: 3600秒</li>
+     *   <li>許可オリジン・メソッド・ヘッダー、Cookie送信許可、キャッシュ有効期間はapplication.ymlから取得（CorsProperties）</li>
+     *   <li>許可オリジンは起動時にハッシュ表へ変換する（完全一致とサブドメインのワイルドカード）</li>
+     *   <li>プリフライトの応答ヘッダーは起動時に生成する</li>
      * </ul>
-     * @return CorsConfigurationSource
-     */
-    @Bean
-    public CorsConfigurationSource corsConfigurationSource() {
-        CorsConfiguration configuration = new CorsConfiguration();
-        // 許可オリジンを設定
-        configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
-        // 許可メソッド
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        // 許可ヘッダー
-        configuration.setAllowedHeaders(List.of("*"));
-        // Cookie送信許可
-        configuration.setAllowCredentials(true);
-        // キャッシュ有効期間
-        configuration.setMaxAge(3600L);
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", configuration);
-        return source;
-    }
-
-    /**
-     * JWTデコーダのBean定義。
-     * issuerUriに基づきJWT検証を行う。
-     * @return JwtDecoder
+     * @param corsProperties CORSの設定
+     * @return CompiledCorsConfigurationSource
      */
     @Bean
-    public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withIssuerLocation(issuerUri).build();
+    public CompiledCorsConfigurationSource corsConfigurationSource(CorsProperties corsProperties) {
+        return new CompiledCorsConfigurationSource(corsProperties);
     }
 }
@@ -0,0 +1,72 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.ResponseCookie;
+
+import com.example.oneaccountsample.security.TokenRefresher;
+
+/**
+ * アクセストークン・リフレッシュトークンのCookieを生成するクラス。
+ * <p>
+ * フロントエンド（gmo-coin-app）のログイン時と同じ属性（HttpOnly・SameSite=Lax・Path=/）で、
+ * 有効期間はトークンエンドポイントの expires_in・refresh_expires_in に合わせます。
+ */
+public class TokenCookies {
+
+    /** リフレッシュトークンを格納するCookieの名前 */
+    public static final String REFRESH_TOKEN_COOKIE_NAME = "refresh_token";
+
+    private final boolean secure;
+
+    /**
+     * @param secure Secure属性を付与するか（HTTPSで配信する場合true）
+     */
+    public TokenCookies(boolean secure) {
+        this.secure = secure;
+    }
+
+    /**
+     * 更新したトークンのCookieを生成します。
+     * <p>
+     * 新しいリフレッシュトークンが返されなかった場合、リフレッシュトークンのCookieは変更しません。
+     *
+     * @param tokens 更新したトークン
+     * @return Set-Cookieに設定するCookie
+     */
+    public List<ResponseCookie> issue(TokenRefresher.Tokens tokens) {
+        List<ResponseCookie> cookies = new ArrayList<>(2);
+        cookies.add(cookie(CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME, tokens.accessToken(),
+                Duration.ofSeconds(tokens.expiresIn())));
+        if (tokens.refreshToken() != null) {
+            // refresh_expires_in が0（オフライントークン等）の場合はブラウザのセッション中のみ保持する
+            cookies.add(cookie(REFRESH_TOKEN_COOKIE_NAME, tokens.refreshToken(),
+                    tokens.refreshExpiresIn() > 0 ? Duration.ofSeconds(tokens.refreshExpiresIn()) : null));
+        }
+        return cookies;
+    }
+
+    /**
+     * アクセストークン・リフレッシュトークンのCookieを削除するCookieを生成します。
+     *
+     * @return Set-Cookieに設定するCookie
+     */
+    public List<ResponseCookie> clear() {
+        return List.of(cookie(CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME, "", Duration.ZERO),
+                cookie(REFRESH_TOKEN_COOKIE_NAME, "", Duration.ZERO));
+    }
+
+    private ResponseCookie cookie(String name, String value, Duration maxAge) {
+        ResponseCookie.ResponseCookieBuilder builder = ResponseCookie.from(name, value)
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .path("/");
+        if (maxAge != null) {
+            builder.maxAge(maxAge);
+        }
+        return builder.build();
+    }
+}
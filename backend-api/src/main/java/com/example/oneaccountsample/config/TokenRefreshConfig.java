@@ -0,0 +1,74 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * リフレッシュトークンによるトークンの更新の設定クラス。
+ * <p>
+ * - トークンエンドポイントでの交換（同じリフレッシュトークンの同時の交換は1回にまとめ、結果を短時間保持）
+ * - 更新したトークンのCookieの生成
+ * - 交換の件数（呼び出し・相乗り・保持した結果の使用・拒否・失敗）のメトリクス
+ * <p>
+ * 更新はトークン更新API（TokenRefreshController）と、auth.refresh.transparent=true の場合は
+ * TokenRefreshFilter（SecurityConfig）で行う。
+ */
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.oneaccountsample.security.TokenRefresher;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class TokenRefreshConfig {
+
+    /**
+     * JWTのissuer URI（application.ymlから取得）
+     */
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    /**
+     * トークンの更新のBean定義。
+     * @param properties トークンの更新の設定
+     * @param meterRegistry 統計を公開するメーターレジストリ
+     * @return TokenRefresher（無効の場合は更新を行わないTokenRefresher）
+     */
+    @Bean
+    public TokenRefresher tokenRefresher(TokenRefreshProperties properties, MeterRegistry meterRegistry) {
+        if (!properties.isEnabled()) {
+            return TokenRefresher.disabled();
+        }
+        String tokenUri = properties.getTokenUri().isEmpty()
+                ? issuerUri + "/protocol/openid-connect/token" : properties.getTokenUri();
+        TokenRefresher refresher = new TokenRefresher(tokenUri, properties.getClientId(),
+                properties.getClientSecret(), properties.getResultTtl(), properties.getMaxEntries(),
+                properties.getConnectTimeout(), properties.getReadTimeout());
+        FunctionCounter.builder("auth.refresh.requests", refresher, r -> r.stats().exchanges())
+                .tag("result", "exchanged")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.refresh.requests", refresher, r -> r.stats().coalesced())
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.refresh.requests", refresher, r -> r.stats().cached())
+                .tag("result", "cached")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.refresh.failures", refresher, r -> r.stats().rejected())
+                .tag("reason", "rejected")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.refresh.failures", refresher, r -> r.stats().failures())
+                .tag("reason", "unavailable")
+                .register(meterRegistry);
+        return refresher;
+    }
+
+    /**
+     * 更新したトークンのCookieの生成のBean定義。
+     * @param properties トークンの更新の設定
+     * @return TokenCookies
+     */
+    @Bean
+    public TokenCookies tokenCookies(TokenRefreshProperties properties) {
+        return new TokenCookies(properties.isCookieSecure());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.oneaccountsample.config;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.oneaccountsample.controller.TokenRefreshController;
+import com.example.oneaccountsample.security.TokenRefreshException;
+import com.example.oneaccountsample.security.TokenRefresher;
+import com.nimbusds.jwt.JWTParser;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Cookieのアクセストークンの期限切れ時に、リフレッシュトークンのCookieで透過的にトークンを更新するフィルター
+ * （auth.refresh.transparent=true の場合）。
+ * <p>
+ * セキュリティフィルターチェーンのCookieAuthenticationFilterの後、BearerTokenAuthenticationFilterの前に追加します。
+ * Authorizationヘッダーがなく、Cookieのアクセストークンがない（ブラウザで期限切れ）または
+ * 期限切れ間近の場合に、Cookie "refresh_token" でトークンを更新します。
+ * <ul>
+ *   <li>更新に成功した場合: 新しいアクセストークンをリクエスト属性 {@link CookieAuthenticationFilter#ACCESS_TOKEN_ATTRIBUTE}
+ *       に格納して認証に使用し、レスポンスで新しいCookieを返す</li>
+ *   <li>リフレッシュトークンが拒否された場合: Cookieを削除し、元のトークンのまま処理を進める（認証の失敗は401）</li>
+ *   <li>Keycloakに接続できない場合: Cookieは変更せず、元のトークンのまま処理を進める</li>
+ * </ul>
+ * 同じリフレッシュトークンでの同時の更新は {@link TokenRefresher} が1回の呼び出しにまとめます。
+ * アクセストークンの exp は署名を検証せずに読み取り、更新の要否の判定のみに使用します（検証は後続のJwtDecoderで行う）。
+ */
+public class TokenRefreshFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH_PREFIX = "/api/";
+
+    private final TokenRefresher refresher;
+    private final TokenCookies cookies;
+    private final Duration refreshAhead;
+    private final Clock clock;
+
+    /**
+     * @param refresher    トークンの更新
+     * @param cookies      更新したトークンのCookieの生成
+     * @param refreshAhead 期限切れの前に更新を始める時間
+     */
+    public TokenRefreshFilter(TokenRefresher refresher, TokenCookies cookies, Duration refreshAhead) {
+        this(refresher, cookies, refreshAhead, Clock.systemUTC());
+    }
+
+    TokenRefreshFilter(TokenRefresher refresher, TokenCookies cookies, Duration refreshAhead, Clock clock) {
+        this.refresher = refresher;
+        this.cookies = cookies;
+        this.refreshAhead = refreshAhead;
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !refresher.isEnabled() || !path.startsWith(API_PATH_PREFIX)
+                || TokenRefreshController.REFRESH_PATH.equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) == null
+                && needsRefresh((String) request.getAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE))) {
+            String refreshToken = CookieAuthenticationFilter.resolveCookie(request,
+                    TokenCookies.REFRESH_TOKEN_COOKIE_NAME);
+            if (refreshToken != null) {
+                refresh(refreshToken, request, response);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void refresh(String refreshToken, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            TokenRefresher.Tokens tokens = refresher.refresh(refreshToken);
+            request.setAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE, tokens.accessToken());
+            setCookies(response, cookies.issue(tokens));
+        } catch (TokenRefreshException e) {
+            if (e.rejected()) {
+                // 再送しても更新できないリフレッシュトークンは削除し、フロントエンドに再ログインを促す
+                setCookies(response, cookies.clear());
+            }
+        }
+    }
+
+    /**
+     * アクセストークンの更新が必要かを判定します。
+     *
+     * @param accessToken Cookieのアクセストークン（ない場合はnull）
+     * @return トークンがない、または期限切れ・期限切れ間近の場合true（形式が不正な場合は更新せず検証で拒否する）
+     */
+    private boolean needsRefresh(String accessToken) {
+        if (accessToken == null) {
+            return true;
+        }
+        try {
+            Date expiresAt = JWTParser.parse(accessToken).getJWTClaimsSet().getExpirationTime();
+            return expiresAt != null && !expiresAt.toInstant().isAfter(clock.instant().plus(refreshAhead));
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+
+    private static void setCookies(HttpServletResponse response, Iterable<ResponseCookie> values) {
+        for (ResponseCookie cookie : values) {
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+    }
+}
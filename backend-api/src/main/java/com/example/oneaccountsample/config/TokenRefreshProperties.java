@@ -0,0 +1,55 @@
+package com.example.oneaccountsample.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * リフレッシュトークンによるトークンの更新の設定。
+ * <p>
+ * ymlの "auth.refresh" プレフィックスにバインドされます。
+ * リフレッシュトークンはフロントエンドのログイン時のクライアント（gmo-coin-client）に発行されるため、
+ * 同じクライアントID・シークレットで交換します。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "auth.refresh")
+public class TokenRefreshProperties {
+
+    /** トークン更新API（/api/auth/refresh）を有効にするか */
+    @Getter @Setter
+    private boolean enabled = true;
+    /** Cookieのアクセストークンの期限切れ時に、APIのリクエスト中に透過的に更新するか */
+    @Getter @Setter
+    private boolean transparent = false;
+    /** トークンエンドポイントのURI（空の場合はissuer URIの /protocol/openid-connect/token） */
+    @Getter @Setter
+    private String tokenUri = "";
+    /** クライアントID */
+    @Getter @Setter
+    private String clientId = "gmo-coin-client";
+    /** クライアントシークレット（パブリッククライアントの場合は空） */
+    @Getter @Setter
+    private String clientSecret = "";
+    /** 更新結果を保持し、同じリフレッシュトークンの要求に返す期間 */
+    @Getter @Setter
+    private Duration resultTtl = Duration.ofSeconds(10);
+    /** 更新結果を保持する最大件数 */
+    @Getter @Setter
+    private long maxEntries = 10_000;
+    /** 透過的な更新で、アクセストークンの期限切れの前に更新を始める時間 */
+    @Getter @Setter
+    private Duration refreshAhead = Duration.ofSeconds(5);
+    /** CookieにSecure属性を付与するか（HTTPSで配信する場合true） */
+    @Getter @Setter
+    private boolean cookieSecure = false;
+    /** 接続タイムアウト */
+    @Getter @Setter
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    /** 読み取りタイムアウト */
+    @Getter @Setter
+    private Duration readTimeout = Duration.ofSeconds(5);
+}
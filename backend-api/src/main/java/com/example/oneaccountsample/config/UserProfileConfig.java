@@ -0,0 +1,88 @@
+package com.example.oneaccountsample.config;
+
+/**
+ * ユーザーのプロフィールのストアの設定クラス。
+ * <p>
+ * - Keycloakのイベントを定期的に取得してストアに反映するフィード（profile.feed.enabled=true の場合）
+ * - ストアの変更時のエンコード済みレスポンスのキャッシュ（UserResponseCache）の破棄
+ * - ストア・フィードの統計のメトリクス
+ */
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.oneaccountsample.controller.UserResponseCache;
+import com.example.oneaccountsample.profile.KeycloakEventFeed;
+import com.example.oneaccountsample.profile.UserProfileStore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class UserProfileConfig {
+
+    /**
+     * JWTのissuer URI（application.ymlから取得）
+     */
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    /**
+     * KeycloakのイベントのフィードのBean定義。
+     * イベントの取得は専用のスレッドで行い、リクエストスレッドではKeycloakへ問い合わせない。
+     * @param properties フィードの設定
+     * @param store 反映先のストア
+     * @param responseCache ストアの変更時に破棄するレスポンスのキャッシュ
+     * @param meterRegistry 統計を公開するメーターレジストリ
+     * @return KeycloakEventFeed
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "profile.feed", name = "enabled", havingValue = "true")
+    public KeycloakEventFeed keycloakEventFeed(ProfileFeedProperties properties, UserProfileStore store,
+            UserResponseCache responseCache, MeterRegistry meterRegistry) {
+        // 変更前の内容でエンコードしたレスポンスを返さないよう、変更されたユーザーのキャッシュを破棄する
+        store.addChangeListener(responseCache::invalidateSubject);
+        String adminUri = properties.getAdminUri().isEmpty()
+                ? KeycloakEventFeed.adminUriOf(issuerUri) : properties.getAdminUri();
+        KeycloakEventFeed feed = new KeycloakEventFeed(issuerUri, adminUri,
+                issuerUri + "/protocol/openid-connect/token", properties.getClientId(), properties.getClientSecret(),
+                properties.getPageSize(), properties.getPollInterval(), properties.getClockSkew(),
+                properties.getConnectTimeout(), properties.getReadTimeout(), store);
+        FunctionCounter.builder("profile.feed.polls", feed, f -> f.stats().polls())
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.feed.polls", feed, f -> f.stats().failures())
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.feed.events", feed, f -> f.stats().applied())
+                .tag("result", "applied")
+                .register(meterRegistry);
+        FunctionCounter.builder("profile.feed.events", feed, f -> f.stats().ignored())
+                .tag("result", "ignored")
+                .register(meterRegistry);
+        feed.start();
+        return feed;
+    }
+
+    /**
+     * ストアの統計（保持しているユーザー数、トークンからの登録・イベントによる更新の件数）のメトリクス。
+     * @param store ユーザーのプロフィールのストア
+     * @return MeterBinder
+     */
+    @Bean
+    public MeterBinder userProfileStoreMetrics(UserProfileStore store) {
+        return registry -> {
+            Gauge.builder("profile.store.size", store, s -> s.stats().size())
+                    .register(registry);
+            FunctionCounter.builder("profile.store.loads", store, s -> s.stats().tokenLoads())
+                    .tag("source", "token")
+                    .register(registry);
+            FunctionCounter.builder("profile.store.loads", store, s -> s.stats().eventUpdates())
+                    .tag("source", "event")
+                    .register(registry);
+        };
+    }
+}
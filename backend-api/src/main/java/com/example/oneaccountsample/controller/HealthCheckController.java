@@ -5,25 +5,57 @@ package com.example.oneaccountsample.controller;
  * <p>
  * /api/health エンドポイントでシステムの稼働状況を確認できます。
  * 認証不要でアクセス可能です。
+ * <ul>
+ *   <li>/api/health, /api/health/live: 稼働状態（liveness）。外部サービスの状態によらず "OK" を返す</li>
+ *   <li>/api/health/ready: 準備状態（readiness）。バックグラウンドのプローブ結果を返す</li>
+ * </ul>
  */
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.oneaccountsample.health.ReadinessMonitor;
+
 @RestController
 @RequestMapping("/api")
 public class HealthCheckController {
 
+    private final ReadinessMonitor readinessMonitor;
+
+    /**
+     * @param readinessMonitor 準備状態のモニター
+     */
+    public HealthCheckController(ReadinessMonitor readinessMonitor) {
+        this.readinessMonitor = readinessMonitor;
+    }
+
     /**
      * ヘルスチェックAPI。
      * <p>
      * システムが正常稼働している場合 "OK" を返します。
      * @return "OK" の文字列レスポンス
      */
-    @GetMapping("/health")
+    @GetMapping({ "/health", "/health/live" })
     public ResponseEntity<String> healthCheck() {
         // ヘルスチェック結果を返却
         return ResponseEntity.ok("OK");
     }
+
+    /**
+     * 準備状態API。
+     * <p>
+     * 署名鍵の鮮度・issuerへの到達性のプローブ結果（バックグラウンドで定期的に更新）を返します。
+     * リクエストごとにプローブは実行しないため、呼び出し回数によらずKeycloakへの負荷は増えません。
+     * @return 準備完了の場合は200、それ以外（起動直後・鍵が古い・終了処理中）は503とプローブ結果のJSON
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<String> readiness() {
+        ReadinessMonitor.Readiness readiness = readinessMonitor.current();
+        return ResponseEntity.status(readiness.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(readiness.body());
+    }
 }
@@ -0,0 +1,89 @@
+package com.example.oneaccountsample.controller;
+
+/**
+ * トークン更新APIコントローラー。
+ * <p>
+ * /api/auth/refresh でCookie "refresh_token" のリフレッシュトークンをKeycloakで新しいトークンに交換し、
+ * アクセストークン・リフレッシュトークンのCookieを更新する。
+ * アクセストークンの期限切れ後に呼び出すため認証不要で、Cookieのアクセストークンは参照しない。
+ * <p>
+ * 画面表示時の並列のAPI呼び出しがそれぞれ更新を要求しても、同じリフレッシュトークンの交換は
+ * TokenRefresherが1回にまとめ、全員に同じトークンを返す（Keycloakのリフレッシュトークンの再使用の検知を避ける）。
+ * <p>
+ * サーブレット版のみ（交換はリクエストのスレッドでKeycloakの応答を待つため）。
+ */
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.oneaccountsample.config.TokenCookies;
+import com.example.oneaccountsample.security.TokenRefreshException;
+import com.example.oneaccountsample.security.TokenRefresher;
+
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TokenRefreshController {
+
+    /** トークン更新APIのパス */
+    public static final String REFRESH_PATH = "/api/auth/refresh";
+
+    private final TokenRefresher refresher;
+    private final TokenCookies cookies;
+
+    /**
+     * @param refresher トークンの更新
+     * @param cookies   更新したトークンのCookieの生成
+     */
+    public TokenRefreshController(TokenRefresher refresher, TokenCookies cookies) {
+        this.refresher = refresher;
+        this.cookies = cookies;
+    }
+
+    /**
+     * トークン更新API。
+     * <p>
+     * 新しいトークンはレスポンスボディには含めず、HttpOnlyのCookieでのみ返します。
+     * @param refreshToken Cookieのリフレッシュトークン
+     * @return 更新した場合は204とSet-Cookie、リフレッシュトークンがない・拒否された場合は401とCookieの削除、
+     *         Keycloakに接続できない場合は503、更新が無効の場合は404
+     */
+    @PostMapping("/auth/refresh")
+    public ResponseEntity<Void> refresh(
+            @CookieValue(name = TokenCookies.REFRESH_TOKEN_COOKIE_NAME, required = false) String refreshToken) {
+        if (!refresher.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return respond(HttpStatus.UNAUTHORIZED, cookies.clear());
+        }
+        try {
+            return respond(HttpStatus.NO_CONTENT, cookies.issue(refresher.refresh(refreshToken)));
+        } catch (TokenRefreshException e) {
+            // 拒否された場合は再ログインが必要なためCookieを削除し、一時的な失敗の場合はCookieを残して再試行させる
+            return e.rejected()
+                    ? respond(HttpStatus.UNAUTHORIZED, cookies.clear())
+                    : respond(HttpStatus.SERVICE_UNAVAILABLE, List.of());
+        }
+    }
+
+    private static ResponseEntity<Void> respond(HttpStatus status, List<ResponseCookie> values) {
+        HttpHeaders headers = new HttpHeaders();
+        for (ResponseCookie cookie : values) {
+            headers.add(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+        return ResponseEntity.status(status)
+                .cacheControl(CacheControl.noStore())
+                .headers(headers)
+                .build();
+    }
+}
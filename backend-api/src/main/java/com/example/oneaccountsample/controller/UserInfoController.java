@@ -5,68 +5,68 @@ package com.example.oneaccountsample.controller;
  * <p>
  * /api/user でJWTから取得したユーザー情報を返却。
  * /api/profile でプロフィール情報のみ返却。
- * いずれも認証済みユーザーのみアクセス可能。
+ * いずれも認証済みユーザーのみアクセス可能で、/api/user はROLE_USER、
+ * /api/profile はPROFILE_READの権限が必要（権限はKeycloakのロールから生成）。
+ * <p>
+ * ユーザー属性（ユーザー名・メールアドレス・氏名）はプロフィールのストア（UserProfileStore）から取得し、
+ * ログイン後にKeycloakで変更された内容もリクエストごとのKeycloakへの問い合わせなしに返す。
+ * <p>
+ * レスポンスはトークンごとにエンコード済みのJSONとしてキャッシュし（UserResponseCache）、
+ * ETag/If-None-Matchによる304応答に対応する。
  */
-import java.util.HashMap;
-import java.util.Map;
-
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.oneaccountsample.profile.UserProfileStore;
+
 @RestController
 @RequestMapping("/api")
 public class UserInfoController {
 
+    private final UserResponseCache responseCache;
+    private final UserProfileStore profileStore;
+
+    public UserInfoController(UserResponseCache responseCache, UserProfileStore profileStore) {
+        this.responseCache = responseCache;
+        this.profileStore = profileStore;
+    }
+
     /**
      * 認証済みユーザーの詳細情報を返却するAPI。
      * <p>
-     * JWTから取得したユーザー属性やトークン情報を返します。
+     * プロフィールのストアのユーザー属性とJWTのトークン情報を返します。
      * @param jwt 認証済みユーザーのJWTトークン
-     * @return ユーザー情報のMap
+     * @param ifNoneMatch If-None-Matchヘッダー（前回のETag）
+     * @return ユーザー情報（UserInfoResponse）のJSON、またはETagが一致する場合は304
      */
     @GetMapping("/user")
-    public ResponseEntity<Map<String, Object>> getUserInfo(@AuthenticationPrincipal Jwt jwt) {
-        Map<String, Object> userInfo = new HashMap<>();
-        
-        // JWTからユーザー情報を取得
-        userInfo.put("subject", jwt.getSubject()); // ユーザーID
-        userInfo.put("username", jwt.getClaimAsString("preferred_username")); // ユーザー名
-        userInfo.put("email", jwt.getClaimAsString("email")); // メールアドレス
-        userInfo.put("firstName", jwt.getClaimAsString("given_name")); // 名
-        userInfo.put("lastName", jwt.getClaimAsString("family_name")); // 姓
-        userInfo.put("fullName", jwt.getClaimAsString("name")); // フルネーム
-        userInfo.put("emailVerified", jwt.getClaimAsBoolean("email_verified")); // メール認証済みか
-        
-        // トークンの有効性情報
-        userInfo.put("tokenIssuer", jwt.getIssuer()); // トークン発行者
-        userInfo.put("tokenIssuedAt", jwt.getIssuedAt()); // トークン発行日時
-        userInfo.put("tokenExpiresAt", jwt.getExpiresAt()); // トークン有効期限
-        
-        return ResponseEntity.ok(userInfo);
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<byte[]> getUserInfo(@AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responseCache.respond("user", jwt, ifNoneMatch,
+                token -> UserInfoResponse.from(token, profileStore.get(token)));
     }
 
     /**
      * 認証済みユーザーのプロフィール情報のみを返却するAPI。
      * <p>
-     * JWTから取得した基本属性のみ返します。
+     * プロフィールのストアの基本属性のみ返します。
      * @param jwt 認証済みユーザーのJWTトークン
-     * @return プロフィール情報のMap
+     * @param ifNoneMatch If-None-Matchヘッダー（前回のETag）
+     * @return プロフィール情報（UserProfileResponse）のJSON、またはETagが一致する場合は304
      */
     @GetMapping("/profile")
-    public ResponseEntity<Map<String, Object>> getUserProfile(@AuthenticationPrincipal Jwt jwt) {
-        Map<String, Object> profile = new HashMap<>();
-        
-        // プロフィール情報のみを返す
-        profile.put("username", jwt.getClaimAsString("preferred_username")); // ユーザー名
-        profile.put("email", jwt.getClaimAsString("email")); // メールアドレス
-        profile.put("firstName", jwt.getClaimAsString("given_name")); // 名
-        profile.put("lastName", jwt.getClaimAsString("family_name")); // 姓
-        profile.put("fullName", jwt.getClaimAsString("name")); // フルネーム
-        
-        return ResponseEntity.ok(profile);
+    @PreAuthorize("hasAuthority('PROFILE_READ')")
+    public ResponseEntity<byte[]> getUserProfile(@AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responseCache.respond("profile", jwt, ifNoneMatch,
+                token -> UserProfileResponse.from(profileStore.get(token)));
     }
 }
@@ -0,0 +1,66 @@
+package com.example.oneaccountsample.controller;
+
+import java.net.URL;
+import java.time.Instant;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.profile.UserProfile;
+
+/**
+ * /api/user のレスポンス。
+ *
+ * @param subject        ユーザーID
+ * @param username       ユーザー名
+ * @param email          メールアドレス
+ * @param firstName      名
+ * @param lastName       姓
+ * @param fullName       フルネーム
+ * @param emailVerified  メール認証済みか
+ * @param tokenIssuer    トークン発行者
+ * @param tokenIssuedAt  トークン発行日時
+ * @param tokenExpiresAt トークン有効期限
+ */
+public record UserInfoResponse(
+        String subject,
+        String username,
+        String email,
+        String firstName,
+        String lastName,
+        String fullName,
+        Boolean emailVerified,
+        URL tokenIssuer,
+        Instant tokenIssuedAt,
+        Instant tokenExpiresAt) {
+
+    /**
+     * JWTからレスポンスを生成します。
+     *
+     * @param jwt 認証済みユーザーのJWTトークン
+     * @return ユーザー情報
+     */
+    public static UserInfoResponse from(Jwt jwt) {
+        return from(jwt, UserProfile.from(jwt));
+    }
+
+    /**
+     * プロフィールのストアのユーザー属性とJWTのトークン情報からレスポンスを生成します。
+     *
+     * @param jwt     認証済みユーザーのJWTトークン
+     * @param profile ユーザーのプロフィール
+     * @return ユーザー情報
+     */
+    public static UserInfoResponse from(Jwt jwt, UserProfile profile) {
+        return new UserInfoResponse(
+                jwt.getSubject(),
+                profile.username(),
+                profile.email(),
+                profile.firstName(),
+                profile.lastName(),
+                profile.fullName(),
+                profile.emailVerified(),
+                jwt.getIssuer(),
+                jwt.getIssuedAt(),
+                jwt.getExpiresAt());
+    }
+}
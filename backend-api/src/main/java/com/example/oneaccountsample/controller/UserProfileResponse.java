@@ -0,0 +1,47 @@
+package com.example.oneaccountsample.controller;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.profile.UserProfile;
+
+/**
+ * /api/profile のレスポンス。
+ *
+ * @param username  ユーザー名
+ * @param email     メールアドレス
+ * @param firstName 名
+ * @param lastName  姓
+ * @param fullName  フルネーム
+ */
+public record UserProfileResponse(
+        String username,
+        String email,
+        String firstName,
+        String lastName,
+        String fullName) {
+
+    /**
+     * JWTからレスポンスを生成します。
+     *
+     * @param jwt 認証済みユーザーのJWTトークン
+     * @return プロフィール情報
+     */
+    public static UserProfileResponse from(Jwt jwt) {
+        return from(UserProfile.from(jwt));
+    }
+
+    /**
+     * プロフィールのストアの内容からレスポンスを生成します。
+     *
+     * @param profile ユーザーのプロフィール
+     * @return プロフィール情報
+     */
+    public static UserProfileResponse from(UserProfile profile) {
+        return new UserProfileResponse(
+                profile.username(),
+                profile.email(),
+                profile.firstName(),
+                profile.lastName(),
+                profile.fullName());
+    }
+}
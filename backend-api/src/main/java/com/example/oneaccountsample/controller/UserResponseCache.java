@@ -0,0 +1,233 @@
+package com.example.oneaccountsample.controller;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.stereotype.Component;
+
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.example.oneaccountsample.security.ExpiresAtExpiry;
+import com.example.oneaccountsample.security.TokenHashes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * トークンから決まるAPIレスポンスをエンコード済みのJSONとしてキャッシュするコンポーネント。
+ * <p>
+ * レスポンスの内容はトークンのクレームだけで決まるため、トークンの識別子（jti、なければ
+ * トークンのハッシュ値）をキーとしてJSONのバイト列とETagを保持し、トークンの exp まで再利用します。
+ * <ul>
+ *   <li>同じトークンでの再リクエストはキャッシュしたバイト列をそのまま返す（Jacksonを通さない）</li>
+ *   <li>If-None-MatchがETagと一致する場合は本文なしの304を返す</li>
+ * </ul>
+ * エンコード中に {@link #invalidateSubject(String, String)} が呼び出された場合、変更前の内容でエンコードした可能性があるため
+ * そのレスポンスはキャッシュに残しません。
+ * <p>
+ * レスポンス生成の所要時間は api.response（endpoint=種類、outcome=hit/miss/not_modified）として記録します。
+ */
+@Component
+public class UserResponseCache {
+
+    /** ブラウザに保存させたうえで毎回ETagで再検証させる */
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, EncodedResponse> cache;
+    private final MeterRegistry registry;
+    private final Map<String, ViewTimers> timers = new ConcurrentHashMap<>();
+    private final Clock clock;
+    /** {@link #invalidateSubject(String, String)} の呼び出し回数（エンコード中の破棄の検知に使用） */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserResponseCache(ObjectMapper objectMapper, ResponseCacheProperties properties, MeterRegistry registry) {
+        this(objectMapper, properties, registry, Clock.systemUTC());
+    }
+
+    UserResponseCache(ObjectMapper objectMapper, ResponseCacheProperties properties, MeterRegistry registry,
+            Clock clock) {
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.clock = clock;
+        this.cache = properties.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(properties.getMaxEntries())
+                        .expireAfter(new ExpiresAtExpiry<String, EncodedResponse>(EncodedResponse::expiresAt, clock))
+                        .build()
+                : null;
+    }
+
+    /**
+     * レスポンスを返します。
+     *
+     * @param view        レスポンスの種類（"user"、"profile" 等。キャッシュキーの一部）
+     * @param jwt         認証済みユーザーのJWTトークン
+     * @param ifNoneMatch If-None-Matchヘッダーの値（ない場合はnull）
+     * @param factory     JWTからレスポンスを生成する関数
+     * @return JSONのバイト列、またはETagが一致する場合は304
+     */
+    public ResponseEntity<byte[]> respond(String view, Jwt jwt, String ifNoneMatch, Function<Jwt, ?> factory) {
+        long start = System.nanoTime();
+        ViewTimers viewTimers = timers.computeIfAbsent(view, this::newTimers);
+        EncodedResponse response = lookup(view, jwt, factory);
+        if (ifNoneMatch != null && matches(ifNoneMatch, response.etag())) {
+            viewTimers.notModified().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(response.etag())
+                    .cacheControl(CACHE_CONTROL)
+                    .build();
+        }
+        Timer timer = response.cached() ? viewTimers.hit() : viewTimers.miss();
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(response.etag())
+                .cacheControl(CACHE_CONTROL)
+                .body(response.body());
+    }
+
+    /**
+     * 指定したユーザー（iss と sub の組）のキャッシュを破棄します。
+     *
+     * @param issuer  iss クレーム
+     * @param subject sub クレーム
+     */
+    public void invalidateSubject(String issuer, String subject) {
+        if (cache != null) {
+            // 破棄より前に読み取った内容でエンコード中のレスポンスが、破棄の後に格納されないようにする
+            invalidations.incrementAndGet();
+            cache.asMap().values().removeIf(
+                    response -> subject.equals(response.subject()) && Objects.equals(issuer, response.issuer()));
+        }
+    }
+
+    /**
+     * キャッシュの件数（概算）を返します。
+     *
+     * @return エントリ数
+     */
+    public long size() {
+        return cache == null ? 0L : cache.estimatedSize();
+    }
+
+    private EncodedResponse lookup(String view, Jwt jwt, Function<Jwt, ?> factory) {
+        Instant expiresAt = jwt.getExpiresAt();
+        String identity = TokenHashes.identityOf(jwt);
+        // exp またはトークンの識別子がない場合はキャッシュしない
+        if (cache == null || expiresAt == null || identity == null || !expiresAt.isAfter(clock.instant())) {
+            return encode(jwt, expiresAt, factory);
+        }
+        String key = view + ':' + identity;
+        EncodedResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long invalidationsBefore = invalidations.get();
+        EncodedResponse encoded = encode(jwt, expiresAt, factory);
+        // キャッシュには取得済みの印を付けたエントリを格納する（ヒット時に再生成しないため）
+        cache.put(key, encoded.asCached());
+        if (invalidations.get() != invalidationsBefore) {
+            // エンコード中に破棄された（変更前のプロフィールでエンコードした可能性がある）ため、次回は再生成する。
+            // 格納の後に確認するため、確認より後の破棄は格納したエントリを削除する
+            cache.invalidate(key);
+        }
+        return encoded;
+    }
+
+    private ViewTimers newTimers(String view) {
+        return new ViewTimers(timer(view, "hit"), timer(view, "miss"), timer(view, "not_modified"));
+    }
+
+    private Timer timer(String view, String outcome) {
+        return Timer.builder("api.response")
+                .description("Time spent producing user API responses")
+                .tag("endpoint", view)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private EncodedResponse encode(Jwt jwt, Instant expiresAt, Function<Jwt, ?> factory) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(factory.apply(jwt));
+            return new EncodedResponse(body, etagOf(body), jwt.getClaimAsString(JwtClaimNames.ISS), jwt.getSubject(),
+                    expiresAt, false);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+
+    private static String etagOf(byte[] body) {
+        return "\"" + TokenHashes.sha256(body) + "\"";
+    }
+
+    /**
+     * If-None-Matchの値（カンマ区切り、弱いETag、"*"）がETagに一致するかを判定します。
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        int start = 0;
+        int length = ifNoneMatch.length();
+        while (start < length) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(ifNoneMatch.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(ifNoneMatch.charAt(to - 1))) {
+                to--;
+            }
+            if (ifNoneMatch.startsWith("W/", from)) {
+                from += 2;
+            }
+            if ((to - from == 1 && ifNoneMatch.charAt(from) == '*')
+                    || (to - from == etag.length() && ifNoneMatch.regionMatches(from, etag, 0, etag.length()))) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * エンコード済みのレスポンス。
+     *
+     * @param body      JSONのバイト列
+     * @param etag      ETag（引用符付き）
+     * @param issuer    トークンの iss（破棄に使用）
+     * @param subject   トークンの sub（破棄に使用）
+     * @param expiresAt トークンの有効期限
+     * @param cached    キャッシュから取得したか（メトリクス用）
+     */
+    private record EncodedResponse(byte[] body, String etag, String issuer, String subject, Instant expiresAt,
+            boolean cached) {
+
+        EncodedResponse asCached() {
+            return new EncodedResponse(body, etag, issuer, subject, expiresAt, true);
+        }
+    }
+
+    /**
+     * レスポンスの種類ごとのタイマー。
+     */
+    private record ViewTimers(Timer hit, Timer miss, Timer notModified) {
+    }
+}
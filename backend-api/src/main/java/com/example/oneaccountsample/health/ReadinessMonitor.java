@@ -0,0 +1,247 @@
+package com.example.oneaccountsample.health;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * バックグラウンドのプローブ結果を保持する準備状態（readiness）のモニター。
+ * <p>
+ * プローブ（署名鍵の鮮度、issuerのメタデータ取得等）は専用のスケジューラーで一定間隔ごとに実行し、
+ * 結果は応答用のJSONまで生成して保持します。
+ * <ul>
+ *   <li>{@link #current()} は保持している結果を返すのみで、ヘルスチェックの呼び出し回数にかかわらず
+ *       プローブ（Keycloakへの問い合わせ）の回数は変わらない</li>
+ *   <li>必須のプローブがすべてUPの場合のみ準備完了とする（必須でないプローブは結果の表示のみ）</li>
+ *   <li>初回のプローブが完了するまでは準備未完了（UNKNOWN）とする</li>
+ *   <li>{@link #startDraining()} の後は常に準備未完了（DRAINING）とし、ロードバランサーに振り分けの停止を促す</li>
+ * </ul>
+ */
+@Slf4j
+public class ReadinessMonitor implements AutoCloseable {
+
+    private static final String PROBE_THREAD_NAME = "readiness-probe";
+
+    private final Map<String, Probe> probes;
+    private final Set<String> required;
+    private final Duration interval;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<Boolean> readinessListener;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Check> checks = new LinkedHashMap<>();
+    private volatile Readiness current;
+    private volatile boolean draining;
+
+    /**
+     * @param probes            プローブ（名前 → プローブ。結果はこの順に表示する）
+     * @param required          準備完了の判定に使用するプローブの名前
+     * @param interval          プローブの実行間隔
+     * @param readinessListener 準備状態が変わった場合に呼び出すリスナー（準備完了の場合true）
+     */
+    public ReadinessMonitor(Map<String, Probe> probes, Set<String> required, Duration interval,
+            Consumer<Boolean> readinessListener) {
+        this(probes, required, interval, readinessListener,
+                Thread.ofPlatform().name(PROBE_THREAD_NAME).daemon(true).factory(), Clock.systemUTC());
+    }
+
+    ReadinessMonitor(Map<String, Probe> probes, Set<String> required, Duration interval,
+            Consumer<Boolean> readinessListener, ThreadFactory threadFactory, Clock clock) {
+        if (!probes.keySet().containsAll(required)) {
+            throw new IllegalArgumentException("Unknown required probes: " + required);
+        }
+        this.probes = new LinkedHashMap<>(probes);
+        this.required = Set.copyOf(required);
+        this.interval = interval;
+        this.readinessListener = readinessListener;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        probes.keySet().forEach(name -> checks.put(name, Check.UNKNOWN));
+        this.current = evaluate(null);
+    }
+
+    /**
+     * プローブのバックグラウンド実行を開始します（初回は即座に実行）。
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::probeAll, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 保持している最新の準備状態を返します（プローブは実行しない）。
+     *
+     * @return 準備状態
+     */
+    public Readiness current() {
+        return current;
+    }
+
+    /**
+     * 終了に向けて準備未完了（DRAINING）に切り替えます。以降のプローブ結果は準備状態に反映しません。
+     */
+    public void startDraining() {
+        synchronized (checks) {
+            draining = true;
+            publish(evaluate(clock.instant()));
+        }
+        log.info("Readiness switched to DRAINING");
+    }
+
+    /**
+     * プローブのバックグラウンド実行を停止します。
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * すべてのプローブを順に実行し、1件ごとに結果を反映します
+     * （ネットワークを使うプローブの完了を待たずに、他のプローブの結果を反映するため）。
+     */
+    void probeAll() {
+        for (Map.Entry<String, Probe> probe : probes.entrySet()) {
+            Check check;
+            try {
+                check = probe.getValue().check();
+            } catch (RuntimeException e) {
+                check = Check.down(e.getMessage());
+            }
+            synchronized (checks) {
+                Check previous = checks.put(probe.getKey(), check);
+                if (!previous.status().equals(check.status())) {
+                    log.info("Readiness probe {} changed to {}: {}", probe.getKey(), check.status(), check.detail());
+                }
+                publish(evaluate(clock.instant()));
+            }
+        }
+    }
+
+    private void publish(Readiness next) {
+        Readiness previous = current;
+        current = next;
+        if (previous.ready() != next.ready()) {
+            readinessListener.accept(next.ready());
+        }
+    }
+
+    private Readiness evaluate(Instant checkedAt) {
+        String status;
+        if (draining) {
+            status = Readiness.DRAINING;
+        } else if (required.stream().anyMatch(name -> checks.get(name) == Check.UNKNOWN)) {
+            status = Check.UNKNOWN.status();
+        } else {
+            status = required.stream().allMatch(name -> checks.get(name).up()) ? Check.UP : Check.DOWN;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status);
+        if (checkedAt != null) {
+            body.put("checkedAt", checkedAt.toString());
+        }
+        Map<String, Object> details = new LinkedHashMap<>();
+        checks.forEach((name, check) -> {
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("status", check.status());
+            detail.put("required", required.contains(name));
+            if (check.detail() != null) {
+                detail.put("detail", check.detail());
+            }
+            details.put(name, detail);
+        });
+        body.put("checks", details);
+        try {
+            return new Readiness(Check.UP.equals(status), status, Collections.unmodifiableMap(new LinkedHashMap<>(checks)),
+                    objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode readiness", e);
+        }
+    }
+
+    /**
+     * プローブ。スケジューラーのスレッドで実行する。
+     */
+    @FunctionalInterface
+    public interface Probe {
+
+        /**
+         * 状態を確認します。
+         *
+         * @return 確認結果（例外を送出した場合はDOWNとする）
+         */
+        Check check();
+    }
+
+    /**
+     * プローブ1件分の確認結果。
+     *
+     * @param status 状態（UP/DOWN/UNKNOWN）
+     * @param detail 詳細（任意）
+     */
+    public record Check(String status, String detail) {
+
+        static final String UP = "UP";
+        static final String DOWN = "DOWN";
+
+        /** 未実行 */
+        static final Check UNKNOWN = new Check("UNKNOWN", null);
+
+        /**
+         * UPの確認結果を返します。
+         *
+         * @param detail 詳細
+         * @return 確認結果
+         */
+        public static Check up(String detail) {
+            return new Check(UP, detail);
+        }
+
+        /**
+         * DOWNの確認結果を返します。
+         *
+         * @param detail 詳細
+         * @return 確認結果
+         */
+        public static Check down(String detail) {
+            return new Check(DOWN, detail);
+        }
+
+        /**
+         * UPかを返します。
+         *
+         * @return UPの場合true
+         */
+        public boolean up() {
+            return UP.equals(status);
+        }
+    }
+
+    /**
+     * 準備状態。
+     *
+     * @param ready  準備完了の場合true
+     * @param status 状態（UP/DOWN/UNKNOWN/DRAINING）
+     * @param checks プローブごとの確認結果
+     * @param body   応答用のJSON
+     */
+    public record Readiness(boolean ready, String status, Map<String, Check> checks, String body) {
+
+        /** 終了に向けて振り分けの停止を待っている */
+        public static final String DRAINING = "DRAINING";
+    }
+}
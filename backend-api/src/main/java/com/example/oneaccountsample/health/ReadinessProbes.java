@@ -0,0 +1,65 @@
+package com.example.oneaccountsample.health;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import com.example.oneaccountsample.health.ReadinessMonitor.Check;
+import com.example.oneaccountsample.health.ReadinessMonitor.Probe;
+import com.example.oneaccountsample.security.JwkSetManager;
+import com.example.oneaccountsample.security.OidcMetadataFetcher;
+
+/**
+ * {@link ReadinessMonitor} で使用するプローブ。
+ */
+public final class ReadinessProbes {
+
+    private ReadinessProbes() {
+    }
+
+    /**
+     * 署名鍵を保持していることを確認するプローブを返します。
+     * <p>
+     * 保持している鍵を参照するのみで、ネットワーク呼び出しは行いません。
+     * スナップショットから読み込んだ鍵は、スナップショットの取得日時で鍵の経過時間を判定します。
+     * 最後の取得から maxAge を超えた鍵は詳細に記録しますが、requireFresh がfalseの場合は準備完了のままとします
+     * （Keycloakの停止中やオフラインでの起動時も、保持している鍵で検証を続けられるため）。
+     *
+     * @param keys         署名鍵の管理
+     * @param maxAge       鍵を最新とみなす最大の経過時間
+     * @param requireFresh maxAge を超えた場合に準備未完了とするか
+     * @param clock        時計
+     * @return プローブ
+     */
+    public static Probe signingKeys(JwkSetManager keys, Duration maxAge, boolean requireFresh, Clock clock) {
+        return () -> {
+            JwkSetManager.Stats stats = keys.stats();
+            if (stats.keyCount() == 0 || stats.fetchedAt() == null) {
+                return Check.down("No signing keys loaded");
+            }
+            Duration age = Duration.between(stats.fetchedAt(), clock.instant());
+            String detail = stats.keyCount() + " keys fetched at " + stats.fetchedAt();
+            if (age.compareTo(maxAge) <= 0) {
+                return Check.up(detail);
+            }
+            String stale = detail + " (older than " + maxAge + ")";
+            return requireFresh ? Check.down(stale) : Check.up(stale);
+        };
+    }
+
+    /**
+     * issuerのディスカバリー文書を取得できることを確認するプローブを返します。
+     *
+     * @param fetcher メタデータ取得クライアント
+     * @param issuer  issuer URI
+     * @param clock   時計
+     * @return プローブ
+     */
+    public static Probe issuerMetadata(OidcMetadataFetcher fetcher, String issuer, Clock clock) {
+        return () -> {
+            Instant start = clock.instant();
+            fetcher.fetchDiscovery(issuer);
+            return Check.up(issuer + " responded in " + Duration.between(start, clock.instant()).toMillis() + "ms");
+        };
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.oneaccountsample.profile;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keycloakの管理APIからユーザーの変更イベントを定期的に取得し、{@link UserProfileStore} に反映するフィード。
+ * <p>
+ * Keycloakの標準の管理API（Webhookの拡張は不要）を専用のスレッドからポーリングします。
+ * <ul>
+ *   <li>管理イベント（admin-events）: 管理コンソール・管理APIによるユーザーの作成・更新・削除。
+ *       イベントにユーザーの内容（representation）が含まれる場合はそれを反映し、
+ *       含まれない場合はユーザーを1回取得する</li>
+ *   <li>ユーザーイベント（events）: アカウントコンソールでの本人によるプロフィール・メールアドレスの更新等。
+ *       イベントごとにユーザーを1回取得する</li>
+ * </ul>
+ * 前回までに反映した最新のイベントの時刻以降のイベントのみ反映します。同じ時刻のイベントは再度取得されることがありますが、
+ * 反映はイベントの時刻による上書きのため重複しても結果は変わりません。
+ * 1回の取得で読み取るページ数には上限があり、上限に達した場合は残り（読み取ったイベントより古いイベント）を
+ * 次回の取得で続きのページから読み取ります。すべて読み取るまで、反映済みの時刻（watermark）は進めません。
+ * イベントの時刻はKeycloakの時計によるため、最初の watermark は起動時刻から許容する時刻のずれを差し引いた時刻とし、
+ * このサーバーの時計が進んでいる場合も起動直後のイベントを取りこぼさないようにします。
+ * 管理APIの呼び出しにはサービスアカウントのトークン（client_credentials）を使用し、有効期限まで再利用します。
+ * ストアへはポーリングするレルムの発行元（iss）とユーザーID（sub）の組で反映します。
+ */
+@Slf4j
+public class KeycloakEventFeed implements AutoCloseable {
+
+    private static final String FEED_THREAD_NAME = "keycloak-event-feed";
+    private static final String USERS_PATH = "users/";
+    private static final List<String> USER_EVENT_TYPES = List.of("UPDATE_PROFILE", "UPDATE_EMAIL", "VERIFY_EMAIL");
+    private static final int MAX_PAGES = 100;
+    private static final Duration TOKEN_EXPIRY_MARGIN = Duration.ofSeconds(30);
+
+    private final String issuer;
+    private final String adminUri;
+    private final String tokenUri;
+    private final String clientId;
+    private final String clientSecret;
+    private final int pageSize;
+    private final Duration pollInterval;
+    private final UserProfileStore store;
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+
+    private volatile long watermark;
+    /** ページ数の上限で読み取りを中断した場合の、次回の読み取りの開始位置（中断していない場合は0） */
+    private int adminEventsOffset;
+    private int userEventsOffset;
+    /** 読み取りを中断している間に反映した最新のイベントの時刻 */
+    private long pendingWatermark;
+    private String accessToken;
+    private Instant accessTokenExpiresAt = Instant.MIN;
+
+    /**
+     * @param issuer         レルムの発行元（トークンの iss）
+     * @param adminUri       レルムの管理APIのURI（例: http://keycloak:8080/admin/realms/one-account-realm）
+     * @param tokenUri       トークンエンドポイントのURI
+     * @param clientId       サービスアカウントのクライアントID
+     * @param clientSecret   サービスアカウントのクライアントシークレット
+     * @param pageSize       1回の要求で取得するイベントの最大数
+     * @param pollInterval   イベントの取得間隔
+     * @param clockSkew      Keycloakとの時計のずれとして許容する時間（起動時刻より前のイベントを読み取る範囲）
+     * @param connectTimeout 接続タイムアウト
+     * @param readTimeout    読み取りタイムアウト
+     * @param store          反映先のストア
+     */
+    public KeycloakEventFeed(String issuer, String adminUri, String tokenUri, String clientId, String clientSecret,
+            int pageSize, Duration pollInterval, Duration clockSkew, Duration connectTimeout, Duration readTimeout,
+            UserProfileStore store) {
+        this(issuer, adminUri, tokenUri, clientId, clientSecret, pageSize, pollInterval, clockSkew, connectTimeout,
+                readTimeout, store, Thread.ofPlatform().name(FEED_THREAD_NAME).daemon(true).factory(),
+                Clock.systemUTC());
+    }
+
+    KeycloakEventFeed(String issuer, String adminUri, String tokenUri, String clientId, String clientSecret,
+            int pageSize, Duration pollInterval, Duration clockSkew, Duration connectTimeout, Duration readTimeout,
+            UserProfileStore store, ThreadFactory threadFactory, Clock clock) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.issuer = issuer;
+        this.adminUri = adminUri.endsWith("/") ? adminUri.substring(0, adminUri.length() - 1) : adminUri;
+        this.tokenUri = tokenUri;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.pageSize = pageSize;
+        this.pollInterval = pollInterval;
+        this.store = store;
+        this.clock = clock;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) connectTimeout.toMillis());
+        requestFactory.setReadTimeout((int) readTimeout.toMillis());
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        // 起動前のイベントは反映しない（起動直後のストアは空のため）。
+        // ただしイベントの時刻はKeycloakの時計によるため、時計のずれの分だけ遡って読み取る（重複して反映しても結果は変わらない）
+        this.watermark = clock.millis() - clockSkew.toMillis();
+    }
+
+    /**
+     * レルムの管理APIのURIをissuer URIから求めます（Keycloakの /realms/&lt;レルム&gt; → /admin/realms/&lt;レルム&gt;）。
+     *
+     * @param issuerUri issuer URI
+     * @return 管理APIのURI
+     * @throws IllegalArgumentException KeycloakのレルムのURIでない場合
+     */
+    public static String adminUriOf(String issuerUri) {
+        int index = issuerUri.lastIndexOf("/realms/");
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a Keycloak realm issuer: " + issuerUri);
+        }
+        return issuerUri.substring(0, index) + "/admin" + issuerUri.substring(index);
+    }
+
+    /**
+     * イベントの定期的な取得を開始します。
+     */
+    public void start() {
+        long interval = pollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 前回以降のイベントを取得してストアに反映します（スケジューラーのスレッドから呼び出す）。
+     */
+    void poll() {
+        try {
+            long since = watermark;
+            List<Change> changes = new ArrayList<>();
+            int nextAdminEventsOffset = collect("admin-events", builder -> builder
+                    .queryParam("resourceTypes", "USER")
+                    .queryParam("operationTypes", "CREATE", "UPDATE", "DELETE"), since, adminEventsOffset,
+                    this::adminEventChange, changes);
+            int nextUserEventsOffset = collect("events", builder -> builder
+                    .queryParam("type", USER_EVENT_TYPES.toArray()), since, userEventsOffset,
+                    this::userEventChange, changes);
+            changes.sort(Comparator.comparingLong(Change::time));
+            long newest = pendingWatermark;
+            for (Change change : changes) {
+                apply(change);
+                newest = Math.max(newest, change.time());
+            }
+            adminEventsOffset = nextAdminEventsOffset;
+            userEventsOffset = nextUserEventsOffset;
+            if (nextAdminEventsOffset == 0 && nextUserEventsOffset == 0) {
+                watermark = Math.max(watermark, newest);
+                pendingWatermark = 0L;
+            } else {
+                // 未読のイベントは反映したイベントより古いため、すべて読み取るまで watermark を進めない
+                pendingWatermark = newest;
+            }
+            polls.increment();
+        } catch (RestClientException | IllegalStateException e) {
+            failures.increment();
+            log.warn("Failed to poll Keycloak events from {}: {}", adminUri, e.getMessage());
+        } catch (RuntimeException e) {
+            // 例外が伝播するとスケジューラーが以降の実行を止めるため、ここで記録して次回の取得を続ける
+            failures.increment();
+            log.error("Unexpected error while polling Keycloak events from {}", adminUri, e);
+        }
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return 取得の成功・失敗の回数、反映・無視したイベントの件数、反映した最新のイベントの時刻
+     */
+    public Stats stats() {
+        return new Stats(polls.sum(), failures.sum(), applied.sum(), ignored.sum(), watermark);
+    }
+
+    /**
+     * イベントの定期的な取得を停止します。
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 指定した時刻以降のイベントを新しい順にページ単位で取得します（Keycloakのイベントは新しい順に返る）。
+     * <p>
+     * 前回の読み取りの後に発生したイベントは先頭に追加されるため、続きの位置から読み取っても
+     * 未読のイベントを飛ばすことはありません（一部のイベントを重複して読み取ることがある）。
+     *
+     * @return ページ数の上限で中断した場合は次回の読み取りの開始位置、指定した時刻まで読み取った場合は0
+     */
+    private int collect(String path, Function<UriComponentsBuilder, UriComponentsBuilder> query, long since,
+            int first, Function<JsonNode, Change> mapper, List<Change> changes) {
+        // dateFrom は日単位のため、タイムゾーンの差を考慮して前日から取得し、時刻で絞り込む
+        String dateFrom = LocalDate.ofInstant(Instant.ofEpochMilli(since), ZoneOffset.UTC).minusDays(1).toString();
+        for (int page = 0; page < MAX_PAGES; page++) {
+            URI uri = query.apply(UriComponentsBuilder.fromUriString(adminUri).path("/" + path))
+                    .queryParam("dateFrom", dateFrom)
+                    .queryParam("first", first + page * pageSize)
+                    .queryParam("max", pageSize)
+                    .build()
+                    .toUri();
+            JsonNode events = get(uri);
+            boolean reachedOlder = false;
+            for (JsonNode event : events) {
+                if (event.path("time").asLong() < since) {
+                    reachedOlder = true;
+                    continue;
+                }
+                Change change = mapper.apply(event);
+                if (change != null) {
+                    changes.add(change);
+                } else {
+                    ignored.increment();
+                }
+            }
+            if (reachedOlder || events.size() < pageSize) {
+                return 0;
+            }
+        }
+        int next = first + MAX_PAGES * pageSize;
+        log.warn("Stopped reading Keycloak {} after {} pages; older events are read from offset {} in the next poll",
+                path, MAX_PAGES, next);
+        return next;
+    }
+
+    private Change adminEventChange(JsonNode event) {
+        String resourcePath = event.path("resourcePath").asText("");
+        String subject = resourcePath.startsWith(USERS_PATH) ? resourcePath.substring(USERS_PATH.length()) : "";
+        if (subject.isEmpty() || subject.contains("/")) {
+            // ユーザー自体以外（ロール・グループの割り当て等）の変更
+            return null;
+        }
+        long time = event.path("time").asLong();
+        if ("DELETE".equals(event.path("operationType").asText())) {
+            return new Change(time, subject, null, true);
+        }
+        JsonNode representation = parse(event.path("representation").asText(null));
+        UserProfile profile = representation != null && representation.hasNonNull("username")
+                ? toProfile(representation, time) : null;
+        return new Change(time, subject, profile, false);
+    }
+
+    private Change userEventChange(JsonNode event) {
+        String subject = event.path("userId").asText("");
+        if (subject.isEmpty()) {
+            return null;
+        }
+        return new Change(event.path("time").asLong(), subject, null, false);
+    }
+
+    private void apply(Change change) {
+        if (change.deleted()) {
+            store.remove(issuer, change.subject());
+            applied.increment();
+            return;
+        }
+        UserProfile profile = change.profile() != null ? change.profile() : fetchUser(change.subject(), change.time());
+        if (profile == null) {
+            store.remove(issuer, change.subject());
+            applied.increment();
+        } else if (store.update(issuer, change.subject(), profile)) {
+            applied.increment();
+        } else {
+            ignored.increment();
+        }
+    }
+
+    /**
+     * ユーザーを取得します（削除済みの場合はnull）。
+     */
+    private UserProfile fetchUser(String subject, long time) {
+        URI uri = UriComponentsBuilder.fromUriString(adminUri).path("/users/{id}").buildAndExpand(subject).toUri();
+        try {
+            return toProfile(get(uri), time);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+
+    private static UserProfile toProfile(JsonNode user, long time) {
+        return UserProfile.of(
+                user.path("username").asText(null),
+                user.path("email").asText(null),
+                user.hasNonNull("emailVerified") ? user.get("emailVerified").asBoolean() : null,
+                user.path("firstName").asText(null),
+                user.path("lastName").asText(null),
+                time);
+    }
+
+    private JsonNode get(URI uri) {
+        try {
+            JsonNode body = restClient.get()
+                    .uri(uri)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken())
+                    .retrieve()
+                    .body(JsonNode.class);
+            if (body == null) {
+                throw new IllegalStateException("Empty response from " + uri);
+            }
+            return body;
+        } catch (HttpClientErrorException.Unauthorized | HttpClientErrorException.Forbidden e) {
+            // 失効・権限変更に備えて次回はトークンを取得し直す
+            accessToken = null;
+            throw e;
+        }
+    }
+
+    private String accessToken() {
+        Instant now = clock.instant();
+        if (accessToken != null && now.isBefore(accessTokenExpiresAt)) {
+            return accessToken;
+        }
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "client_credentials");
+        form.add("client_id", clientId);
+        form.add("client_secret", clientSecret);
+        JsonNode response = restClient.post()
+                .uri(URI.create(tokenUri))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(form)
+                .retrieve()
+                .body(JsonNode.class);
+        if (response == null || !response.hasNonNull("access_token")) {
+            throw new IllegalStateException("No access_token in the response from " + tokenUri);
+        }
+        accessToken = response.get("access_token").asText();
+        accessTokenExpiresAt = now.plusSeconds(response.path("expires_in").asLong(60)).minus(TOKEN_EXPIRY_MARGIN);
+        return accessToken;
+    }
+
+    private JsonNode parse(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param polls     取得に成功した回数
+     * @param failures  取得に失敗した回数
+     * @param applied   ストアに反映したイベントの件数
+     * @param ignored   対象外、またはストアの内容の方が新しく反映しなかったイベントの件数
+     * @param watermark 反映した最新のイベントの時刻（エポックミリ秒）
+     */
+    public record Stats(long polls, long failures, long applied, long ignored, long watermark) {
+    }
+
+    /**
+     * ユーザー1件の変更。
+     *
+     * @param time    イベントの時刻（エポックミリ秒）
+     * @param subject ユーザーID（sub）
+     * @param profile イベントに含まれていたプロフィール（含まれない場合はnull）
+     * @param deleted ユーザーが削除されたか
+     */
+    private record Change(long time, String subject, UserProfile profile, boolean deleted) {
+    }
+}
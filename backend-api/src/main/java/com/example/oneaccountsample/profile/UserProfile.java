@@ -0,0 +1,66 @@
+package com.example.oneaccountsample.profile;
+
+import java.time.Instant;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * ストアに保持するユーザーのプロフィール（トークンのクレームのMapは保持せず、必要な属性のみ）。
+ *
+ * @param username      ユーザー名
+ * @param email         メールアドレス
+ * @param emailVerified メール認証済みか
+ * @param firstName     名
+ * @param lastName      姓
+ * @param fullName      フルネーム
+ * @param updatedAt     この内容の時点（トークンの iat またはイベントの時刻、エポックミリ秒）
+ */
+public record UserProfile(
+        String username,
+        String email,
+        Boolean emailVerified,
+        String firstName,
+        String lastName,
+        String fullName,
+        long updatedAt) {
+
+    /**
+     * トークンのクレームからプロフィールを生成します。
+     *
+     * @param jwt 認証済みユーザーのJWTトークン
+     * @return プロフィール（時点はトークンの iat）
+     */
+    public static UserProfile from(Jwt jwt) {
+        Instant issuedAt = jwt.getIssuedAt();
+        return new UserProfile(
+                jwt.getClaimAsString("preferred_username"),
+                jwt.getClaimAsString("email"),
+                jwt.getClaimAsBoolean("email_verified"),
+                jwt.getClaimAsString("given_name"),
+                jwt.getClaimAsString("family_name"),
+                jwt.getClaimAsString("name"),
+                issuedAt != null ? issuedAt.toEpochMilli() : 0L);
+    }
+
+    /**
+     * Keycloakのユーザーの属性からプロフィールを生成します（フルネームはKeycloakの name クレームと同じく「名 姓」）。
+     *
+     * @param username      ユーザー名
+     * @param email         メールアドレス
+     * @param emailVerified メール認証済みか
+     * @param firstName     名
+     * @param lastName      姓
+     * @param updatedAt     この内容の時点（エポックミリ秒）
+     * @return プロフィール
+     */
+    public static UserProfile of(String username, String email, Boolean emailVerified, String firstName,
+            String lastName, long updatedAt) {
+        String fullName;
+        if (firstName == null || lastName == null) {
+            fullName = firstName != null ? firstName : lastName;
+        } else {
+            fullName = firstName + " " + lastName;
+        }
+        return new UserProfile(username, email, emailVerified, firstName, lastName, fullName, updatedAt);
+    }
+}
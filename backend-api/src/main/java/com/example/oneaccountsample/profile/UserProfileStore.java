@@ -0,0 +1,156 @@
+package com.example.oneaccountsample.profile;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.stereotype.Component;
+
+import com.example.oneaccountsample.config.ProfileStoreProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * ユーザーのプロフィールをトークンの iss と sub の組ごとにメモリ上に保持するストア。
+ * <p>
+ * /api/user・/api/profile はリクエストごとにKeycloakへ問い合わせず、このストアのプロフィールを返します。
+ * <ul>
+ *   <li>ストアにないユーザーは、最初のリクエストのトークンのクレームから登録する</li>
+ *   <li>Keycloakのイベント（{@link KeycloakEventFeed}）で変更を反映する（次回のログインを待たない）</li>
+ *   <li>内容ごとに時点（トークンの iat またはイベントの時刻）を持ち、より新しい内容のみで置き換える
+ *       （変更より後に発行されたトークンはストアの内容より優先する）</li>
+ *   <li>保持するユーザー数に上限を設け、超えた場合は使用頻度の低いものから破棄する</li>
+ * </ul>
+ * sub は発行元（レルム）ごとに一意なため、複数の発行元を受け入れる場合も別のレルムの同じ sub のユーザーとは区別します。
+ * イベントによる変更・削除は登録したリスナーに通知します（エンコード済みレスポンスのキャッシュの破棄等）。
+ */
+@Component
+public class UserProfileStore {
+
+    private final Cache<Key, UserProfile> profiles;
+    private final List<BiConsumer<String, String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder tokenLoads = new LongAdder();
+    private final LongAdder eventUpdates = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+
+    /**
+     * @param properties ストアの設定
+     */
+    @Autowired
+    public UserProfileStore(ProfileStoreProperties properties) {
+        this(properties.getMaxEntries());
+    }
+
+    UserProfileStore(long maxEntries) {
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                // 追い出しの処理を呼び出し元のスレッドで行い、共通のスレッドプールを使用しない
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * 認証済みユーザーのプロフィールを返します。
+     * ストアにない場合、またはストアの内容がトークンより古い場合はトークンのクレームから登録します。
+     *
+     * @param jwt 認証済みユーザーのJWTトークン
+     * @return プロフィール
+     */
+    public UserProfile get(Jwt jwt) {
+        String subject = jwt.getSubject();
+        if (subject == null) {
+            return UserProfile.from(jwt);
+        }
+        Key key = new Key(jwt.getClaimAsString(JwtClaimNames.ISS), subject);
+        UserProfile stored = profiles.getIfPresent(key);
+        long issuedAt = jwt.getIssuedAt() != null ? jwt.getIssuedAt().toEpochMilli() : 0L;
+        if (stored != null && stored.updatedAt() >= issuedAt) {
+            return stored;
+        }
+        tokenLoads.increment();
+        return profiles.asMap().merge(key, UserProfile.from(jwt), UserProfileStore::newer);
+    }
+
+    /**
+     * イベントで取得したプロフィールを反映します（ストアにないユーザーも登録する）。
+     *
+     * @param issuer  ユーザーのレルムの発行元（iss）
+     * @param subject ユーザーID（sub）
+     * @param profile プロフィール
+     * @return 反映した場合true、ストアの内容の方が新しく反映しなかった場合false
+     */
+    public boolean update(String issuer, String subject, UserProfile profile) {
+        UserProfile result = profiles.asMap().merge(new Key(issuer, subject), profile, UserProfileStore::newer);
+        if (result != profile) {
+            return false;
+        }
+        eventUpdates.increment();
+        notifyChanged(issuer, subject);
+        return true;
+    }
+
+    /**
+     * 削除されたユーザーのプロフィールを破棄します。
+     *
+     * @param issuer  ユーザーのレルムの発行元（iss）
+     * @param subject ユーザーID（sub）
+     */
+    public void remove(String issuer, String subject) {
+        profiles.invalidate(new Key(issuer, subject));
+        removals.increment();
+        notifyChanged(issuer, subject);
+    }
+
+    /**
+     * イベントによる変更・削除を通知するリスナーを登録します。
+     *
+     * @param listener 変更されたユーザーの発行元（iss）とID（sub）を受け取るリスナー
+     */
+    public void addChangeListener(BiConsumer<String, String> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return トークンからの登録・イベントによる更新・削除の件数と保持しているユーザー数
+     */
+    public Stats stats() {
+        return new Stats(tokenLoads.sum(), eventUpdates.sum(), removals.sum(), profiles.estimatedSize());
+    }
+
+    private void notifyChanged(String issuer, String subject) {
+        for (BiConsumer<String, String> listener : changeListeners) {
+            listener.accept(issuer, subject);
+        }
+    }
+
+    private static UserProfile newer(UserProfile current, UserProfile candidate) {
+        return candidate.updatedAt() >= current.updatedAt() ? candidate : current;
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param tokenLoads   トークンのクレームから登録した件数
+     * @param eventUpdates イベントで更新した件数
+     * @param removals     ユーザーの削除で破棄した件数
+     * @param size         保持しているユーザー数（概算）
+     */
+    public record Stats(long tokenLoads, long eventUpdates, long removals, long size) {
+    }
+
+    /**
+     * ストアのキー。
+     *
+     * @param issuer  発行元（iss）
+     * @param subject ユーザーID（sub）
+     */
+    private record Key(String issuer, String subject) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.oneaccountsample.security;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 認証失敗の理由別カウンター（auth.failures）。
+ * <p>
+ * カウンターは理由ごとに事前に登録し、記録時にレジストリの検索やタグの生成を行いません。
+ */
+public class AuthFailureMetrics {
+
+    private final Map<AuthFailureReason, Counter> counters = new EnumMap<>(AuthFailureReason.class);
+
+    /**
+     * @param registry メーターレジストリ
+     */
+    public AuthFailureMetrics(MeterRegistry registry) {
+        for (AuthFailureReason reason : AuthFailureReason.values()) {
+            counters.put(reason, Counter.builder("auth.failures")
+                    .description("Authentication failures by reason")
+                    .tag("reason", reason.tagValue())
+                    .register(registry));
+        }
+    }
+
+    /**
+     * 認証失敗を記録します。
+     *
+     * @param reason 失敗の理由
+     */
+    public void record(AuthFailureReason reason) {
+        counters.get(reason).increment();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.oneaccountsample.security;
+
+import java.util.Locale;
+
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+/**
+ * 認証失敗の理由（メトリクスのタグ値）。
+ */
+public enum AuthFailureReason {
+
+    /** トークンがない（CookieにもAuthorizationヘッダーにもない） */
+    MISSING_TOKEN,
+    /** 有効期限切れ */
+    EXPIRED,
+    /** 署名が不正 */
+    BAD_SIGNATURE,
+    /** 署名鍵（kid）が見つからない */
+    UNKNOWN_KID,
+    /** issuer等のクレームが不正 */
+    INVALID_CLAIMS,
+    /** JWTとして解析できない */
+    MALFORMED,
+    /** その他（鍵の取得失敗等） */
+    OTHER;
+
+    private final String tagValue = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * メトリクスのタグ値（小文字）を返します。
+     *
+     * @return タグ値
+     */
+    public String tagValue() {
+        return tagValue;
+    }
+
+    /**
+     * JwtDecoderの例外から失敗の理由を判定します。
+     * <p>
+     * 署名検証の前に拒否された場合は {@link RejectedJwtException} が保持する理由を返します。
+     * Spring Security/Nimbusは理由ごとの例外型を持たないため、それ以外は検証エラーの内容と
+     * 例外メッセージから判定します。
+     *
+     * @param exception デコード時の例外
+     * @return 失敗の理由
+     */
+    public static AuthFailureReason of(JwtException exception) {
+        if (exception instanceof RejectedJwtException rejected) {
+            return rejected.reason();
+        }
+        if (exception instanceof JwtValidationException validation) {
+            boolean expired = validation.getErrors().stream()
+                    .anyMatch(error -> error.getDescription() != null && error.getDescription().contains("expired"));
+            return expired ? EXPIRED : INVALID_CLAIMS;
+        }
+        String message = exception.getMessage() == null ? "" : exception.getMessage();
+        if (message.contains("Invalid signature")) {
+            return BAD_SIGNATURE;
+        }
+        if (message.contains("no matching key")) {
+            return UNKNOWN_KID;
+        }
+        return exception instanceof BadJwtException ? MALFORMED : OTHER;
+    }
+
+    /**
+     * AuthenticationEntryPointに渡された例外から失敗の理由を判定します。
+     * <p>
+     * デコード時の失敗は {@link TimedJwtDecoder} で記録済みのため対象外とし、
+     * トークンがない場合と、デコード前に拒否された不正な形式のトークンのみを判定します。
+     *
+     * @param exception 認証例外
+     * @return 失敗の理由（記録済みまたは対象外の場合はnull）
+     */
+    public static AuthFailureReason ofEntryPoint(AuthenticationException exception) {
+        if (exception instanceof InsufficientAuthenticationException
+                || exception instanceof AuthenticationCredentialsNotFoundException) {
+            return MISSING_TOKEN;
+        }
+        if (exception instanceof OAuth2AuthenticationException
+                && !(exception.getCause() instanceof JwtException)) {
+            return MALFORMED;
+        }
+        return null;
+    }
+
+    /**
+     * 認証例外から失敗の理由を判定します（監査ログ用）。
+     * <p>
+     * {@link #ofEntryPoint} と異なり、デコード時の失敗も含めてすべての認証例外を判定します。
+     *
+     * @param exception 認証例外
+     * @return 失敗の理由
+     */
+    public static AuthFailureReason ofAuthentication(AuthenticationException exception) {
+        if (exception.getCause() instanceof JwtException jwtException) {
+            return of(jwtException);
+        }
+        AuthFailureReason reason = ofEntryPoint(exception);
+        return reason != null ? reason : OTHER;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.oneaccountsample.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * 検証済みJWTのキャッシュをブロックせずに参照するためのインターフェース。
+ * <p>
+ * リアクティブ版（{@link ReactiveJwtDecoderAdapter}）がキャッシュヒットをイベントループ上で返し、
+ * JWKSの取得や同時検証の待ち合わせでブロックする可能性のあるキャッシュミスのみ別スレッドで検証するために使用します。
+ */
+public interface CachedJwtLookup {
+
+    /**
+     * キャッシュに有効な検証済みJwtがあれば返します。
+     * <p>
+     * 委譲先での検証・ネットワーク呼び出し・ロックの待ち合わせは行いません。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt（キャッシュにない、または期限切れの場合はnull）
+     */
+    Jwt getIfPresent(String token);
+}
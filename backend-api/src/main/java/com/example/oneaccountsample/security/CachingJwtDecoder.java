@@ -0,0 +1,183 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 検証済みJWTをキャッシュするJwtDecoder。
+ * <p>
+ * 同一トークンに対する署名検証・パースを省略するため、委譲先で検証に成功した
+ * Jwtをトークンのハッシュ値をキーとして保持します。
+ * <ul>
+ *   <li>エントリ数と推定メモリ量の両方で上限を設ける</li>
+ *   <li>各エントリはトークンの exp 時刻で失効する</li>
+ *   <li>署名鍵のローテーション時は {@link #retainKeyIds(Collection)} で該当エントリを破棄する
+ *       （複数のissuerを受け付ける場合は {@link #retainKeyIds(String, Collection)} でissuerごとに破棄する）</li>
+ * </ul>
+ */
+public class CachingJwtDecoder implements JwtDecoder, CachedJwtLookup {
+
+    /** トークン文字列以外（ヘッダー/クレームのMap等）の推定オーバーヘッド（バイト） */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+    private final JwtDecoder delegate;
+    private final Cache<String, CachedJwt> cache;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate       実際の検証を行うJwtDecoder
+     * @param maxEntries     最大エントリ数
+     * @param maxMemoryBytes キャッシュ全体の推定メモリ上限（バイト）
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, long maxEntries, long maxMemoryBytes) {
+        this(delegate, maxEntries, maxMemoryBytes, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, long maxEntries, long maxMemoryBytes, Clock clock) {
+        if (maxEntries <= 0 || maxMemoryBytes <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxMemoryBytes must be positive");
+        }
+        this.delegate = delegate;
+        this.clock = clock;
+        // 1エントリの重みを「メモリ上限 / 最大エントリ数」以上とすることで、
+        // maximumWeight だけでエントリ数とメモリ量の両方を制限する
+        int minimumWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (maxMemoryBytes + maxEntries - 1) / maxEntries));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, CachedJwt value) -> Math.max(minimumWeight, value.estimatedBytes()))
+                .expireAfter(new ExpiresAtExpiry<String, CachedJwt>(CachedJwt::expiresAt, clock))
+                .evictionListener((key, value, cause) -> evictions.increment())
+                // 上限超過時の追い出しを呼び出しスレッドで即時に行う
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * トークンをデコードします。
+     * <p>
+     * キャッシュに有効なエントリがあればそれを返し、なければ委譲先で検証して
+     * 結果をキャッシュします。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt
+     * @throws JwtException 検証に失敗した場合
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = TokenHashes.sha256(token);
+        Jwt hit = lookup(key);
+        if (hit != null) {
+            return hit;
+        }
+        misses.increment();
+
+        Jwt jwt = delegate.decode(token);
+        Instant expiresAt = jwt.getExpiresAt();
+        // exp を持たない、または既に期限切れのトークンはキャッシュしない
+        if (expiresAt != null && expiresAt.isAfter(clock.instant())) {
+            Object keyId = jwt.getHeaders().get("kid");
+            cache.put(key, new CachedJwt(jwt, jwt.getClaimAsString("iss"), keyId == null ? null : keyId.toString(),
+                    expiresAt, ENTRY_OVERHEAD_BYTES + token.length() * 2));
+        }
+        return jwt;
+    }
+
+    /**
+     * キャッシュに有効なエントリがあれば返します（委譲先での検証は行いません）。
+     * <p>
+     * ヒットした場合のみ件数に数え、ミスは後続の {@link #decode(String)} で数えます。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt（キャッシュにない、または期限切れの場合はnull）
+     */
+    @Override
+    public Jwt getIfPresent(String token) {
+        return lookup(TokenHashes.sha256(token));
+    }
+
+    /**
+     * 現在有効な署名鍵のkid一覧を受け取り、それ以外の鍵で検証されたエントリを破棄します。
+     * <p>
+     * 鍵ローテーションや失効により検証鍵が取り除かれた場合に呼び出します。
+     * kidを持たないエントリは検証鍵を特定できないため、常に破棄します。
+     *
+     * @param activeKeyIds 有効な署名鍵のkid一覧
+     */
+    public void retainKeyIds(Collection<String> activeKeyIds) {
+        cache.asMap().values().removeIf(cached -> cached.keyId() == null || !activeKeyIds.contains(cached.keyId()));
+    }
+
+    /**
+     * 指定したissuerのエントリのうち、有効な署名鍵以外の鍵で検証されたエントリを破棄します。
+     * <p>
+     * 他のissuerのエントリには影響しません。issuerの鍵管理を破棄する場合は空の一覧を渡します。
+     *
+     * @param issuer       issuer URI
+     * @param activeKeyIds 有効な署名鍵のkid一覧
+     */
+    public void retainKeyIds(String issuer, Collection<String> activeKeyIds) {
+        cache.asMap().values().removeIf(cached -> issuer.equals(cached.issuer())
+                && (cached.keyId() == null || !activeKeyIds.contains(cached.keyId())));
+    }
+
+    /**
+     * すべてのエントリを破棄します。
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * キャッシュの統計情報を返します。
+     *
+     * @return ヒット/ミス/追い出し件数と現在のエントリ数
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), cache.estimatedSize());
+    }
+
+    private Jwt lookup(String key) {
+        CachedJwt cached = cache.getIfPresent(key);
+        if (cached != null && cached.expiresAt().isAfter(clock.instant())) {
+            hits.increment();
+            return cached.jwt();
+        }
+        return null;
+    }
+
+    /**
+     * キャッシュの統計情報。
+     *
+     * @param hits      ヒット件数
+     * @param misses    ミス件数
+     * @param evictions 上限超過・期限切れによる追い出し件数
+     * @param size      現在のエントリ数（概算）
+     */
+    public record Stats(long hits, long misses, long evictions, long size) {
+    }
+
+    /**
+     * キャッシュエントリ。
+     *
+     * @param jwt            検証済みJwt
+     * @param issuer         トークンのissuer（iss クレームがない場合はnull）
+     * @param keyId          検証に使われた署名鍵のkid（ヘッダーにない場合はnull）
+     * @param expiresAt      トークンの有効期限
+     * @param estimatedBytes 推定メモリ使用量（バイト）
+     */
+    private record CachedJwt(Jwt jwt, String issuer, String keyId, Instant expiresAt, int estimatedBytes) {
+    }
+}
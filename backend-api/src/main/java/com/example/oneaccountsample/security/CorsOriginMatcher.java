@@ -0,0 +1,143 @@
+package com.example.oneaccountsample.security;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * CORSの許可オリジンを事前にハッシュ表へ変換した判定器。
+ * <p>
+ * Springの CorsConfiguration は許可オリジン（パターンは正規表現）をリクエストごとに先頭から順に照合するため、
+ * 許可オリジンの数に比例して時間がかかります。この判定器は照合の時間が許可オリジンの数によらず、
+ * 次のいずれかの形式のオリジンを許可します。
+ * <ul>
+ *   <li>完全一致: {@code https://app.example.com}、{@code http://localhost:3000}（1回のハッシュ表の参照）</li>
+ *   <li>サブドメインのワイルドカード: {@code https://*.example.com}、{@code https://*.example.com:8443}
+ *       （オリジンのホストのラベルを先頭から1つずつ取り除いた値で参照。ラベル数の回数まで）。
+ *       {@code https://example.com} 自体には一致しない</li>
+ *   <li>{@code *}: すべてのオリジン</li>
+ * </ul>
+ * スキーム・ホストの大文字・小文字は区別せず、末尾の「/」は無視します。
+ */
+public final class CorsOriginMatcher {
+
+    private static final String ANY_ORIGIN = "*";
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String SUBDOMAIN_WILDCARD = "*.";
+
+    private final Set<String> origins;
+    private final Set<String> subdomainParents;
+    private final boolean any;
+
+    private CorsOriginMatcher(Set<String> origins, Set<String> subdomainParents, boolean any) {
+        this.origins = Set.copyOf(origins);
+        this.subdomainParents = Set.copyOf(subdomainParents);
+        this.any = any;
+    }
+
+    /**
+     * 許可オリジンのリストから判定器を生成します。
+     *
+     * @param patterns 許可オリジン（完全一致、{@code スキーム://*.ドメイン[:ポート]}、または {@code *}）
+     * @return 判定器
+     * @throws IllegalArgumentException 対応していない形式のオリジンが含まれる場合
+     */
+    public static CorsOriginMatcher compile(Collection<String> patterns) {
+        Set<String> origins = new HashSet<>();
+        Set<String> subdomainParents = new HashSet<>();
+        boolean any = false;
+        for (String pattern : patterns) {
+            String origin = normalize(pattern);
+            if (origin.isEmpty()) {
+                continue;
+            }
+            if (ANY_ORIGIN.equals(origin)) {
+                any = true;
+                continue;
+            }
+            int schemeEnd = origin.indexOf(SCHEME_SEPARATOR);
+            if (schemeEnd <= 0) {
+                throw new IllegalArgumentException("Invalid CORS origin: " + pattern);
+            }
+            int hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+            if (origin.startsWith(SUBDOMAIN_WILDCARD, hostStart)) {
+                // https://*.example.com → https://example.com（オリジンから先頭のラベルを取り除いた値と照合する）
+                String parent = origin.substring(0, hostStart) + origin.substring(hostStart + SUBDOMAIN_WILDCARD.length());
+                if (parent.indexOf('*') >= 0 || parent.length() == hostStart) {
+                    throw new IllegalArgumentException("Unsupported CORS origin pattern: " + pattern);
+                }
+                subdomainParents.add(parent);
+            } else if (origin.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Unsupported CORS origin pattern: " + pattern);
+            } else {
+                origins.add(origin);
+            }
+        }
+        return new CorsOriginMatcher(origins, subdomainParents, any);
+    }
+
+    /**
+     * オリジンが許可されているかを判定します。
+     *
+     * @param origin リクエストのOriginヘッダーの値
+     * @return 許可されている場合true
+     */
+    public boolean matches(String origin) {
+        if (origin == null || origin.isEmpty()) {
+            return false;
+        }
+        if (any) {
+            return true;
+        }
+        // ブラウザは小文字で送信するため、通常は変換なし（同じインスタンス）で参照する
+        String normalized = origin.toLowerCase(Locale.ROOT);
+        if (origins.contains(normalized)) {
+            return true;
+        }
+        return !subdomainParents.isEmpty() && matchesSubdomain(normalized);
+    }
+
+    /**
+     * すべてのオリジンを許可するか（{@code *} が含まれるか）を返します。
+     *
+     * @return すべてのオリジンを許可する場合true
+     */
+    public boolean matchesAny() {
+        return any;
+    }
+
+    /**
+     * 許可オリジンの数を返します。
+     *
+     * @return 完全一致のオリジンとワイルドカードのパターンの数
+     */
+    public int size() {
+        return origins.size() + subdomainParents.size();
+    }
+
+    private boolean matchesSubdomain(String origin) {
+        int schemeEnd = origin.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0) {
+            return false;
+        }
+        int hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+        int hostEnd = origin.indexOf(':', hostStart);
+        if (hostEnd < 0) {
+            hostEnd = origin.length();
+        }
+        String scheme = origin.substring(0, hostStart);
+        // a.b.example.com:8443 → b.example.com:8443 → example.com:8443 → com:8443 の順に参照する
+        for (int dot = origin.indexOf('.', hostStart); dot > 0 && dot < hostEnd; dot = origin.indexOf('.', dot + 1)) {
+            if (dot > hostStart && subdomainParents.contains(scheme + origin.substring(dot + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String origin) {
+        String trimmed = origin.trim().toLowerCase(Locale.ROOT);
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
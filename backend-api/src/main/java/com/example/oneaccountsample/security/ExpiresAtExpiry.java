@@ -0,0 +1,57 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * エントリごとの有効期限をトークンの exp に合わせるCaffeineのExpiry実装。
+ * <p>
+ * トークンごとのキャッシュ（検証済みJwt・権限・エンコード済みレスポンス）で共通して使用します。
+ * 参照・更新では有効期限を延長せず、exp を過ぎたエントリは返しません。
+ *
+ * @param <K> キーの型
+ * @param <V> 値の型
+ */
+public final class ExpiresAtExpiry<K, V> implements Expiry<K, V> {
+
+    private final Function<? super V, Instant> expiresAt;
+    private final Clock clock;
+
+    /**
+     * @param expiresAt 値からトークンの有効期限を取り出す関数
+     * @param clock     時計
+     */
+    public ExpiresAtExpiry(Function<? super V, Instant> expiresAt, Clock clock) {
+        this.expiresAt = expiresAt;
+        this.clock = clock;
+    }
+
+    @Override
+    public long expireAfterCreate(K key, V value, long currentTime) {
+        Duration ttl = Duration.between(clock.instant(), expiresAt.apply(value));
+        if (ttl.isNegative()) {
+            return 0L;
+        }
+        try {
+            return ttl.toNanos();
+        } catch (ArithmeticException e) {
+            // 極端に遠い exp はナノ秒で表現できないため上限値とする
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+        // 参照によって有効期限は延長しない
+        return currentDuration;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.oneaccountsample.security;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * トークンの（未検証の）iss クレームから検証に使用するJwtDecoderを選択するJwtDecoder。
+ * <p>
+ * 複数のレルム（issuer）のトークンを1つのバックエンドで受け付けるために使用します。
+ * <ul>
+ *   <li>issuerの判定はペイロードのBase64URLデコードとJSONの解析のみで行い、Mapの参照で委譲先を選択する</li>
+ *   <li>既定のissuerのデコーダは起動時に {@link #registerIssuer} で登録し、常に保持する</li>
+ *   <li>追加のissuerのデコーダ（鍵管理を含む）は最初のトークンを受け取った時に生成する
+ *       （起動時の処理はissuerの数によらず一定）</li>
+ *   <li>一定期間使用されなかった追加のissuerのデコーダは破棄し、鍵管理を停止する</li>
+ * </ul>
+ * 受け付けるissuer以外のトークンはネットワーク呼び出しを行わずに拒否します。
+ * 署名・クレームの検証は選択したデコーダで行うため、iss を偽ったトークンは委譲先の検証で拒否されます。
+ */
+@Slf4j
+public class IssuerRoutingJwtDecoder implements JwtDecoder, AutoCloseable {
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, JwtDecoder> registeredDecoders = new ConcurrentHashMap<>();
+    private final Set<String> lazyIssuers;
+    private final Function<String, IssuerDecoder> factory;
+    private final Cache<String, IssuerDecoder> loaded;
+    private final List<BiConsumer<String, Collection<String>>> rotationListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder untrustedIssuers = new LongAdder();
+
+    /**
+     * @param lazyIssuers 初回使用時にデコーダを生成するissuer
+     * @param factory     issuerのデコーダを生成するファクトリ（鍵の取得は行わずに即座に戻ること）
+     * @param idleTimeout 使用されなかったデコーダを破棄するまでの期間
+     * @param maxLoaded   同時に保持するデコーダの最大数
+     */
+    public IssuerRoutingJwtDecoder(Collection<String> lazyIssuers, Function<String, IssuerDecoder> factory,
+            Duration idleTimeout, long maxLoaded) {
+        this(lazyIssuers, factory, idleTimeout, maxLoaded, Ticker.systemTicker());
+    }
+
+    IssuerRoutingJwtDecoder(Collection<String> lazyIssuers, Function<String, IssuerDecoder> factory,
+            Duration idleTimeout, long maxLoaded, Ticker ticker) {
+        if (maxLoaded <= 0) {
+            throw new IllegalArgumentException("maxLoaded must be positive");
+        }
+        this.lazyIssuers = Set.copyOf(lazyIssuers);
+        this.factory = factory;
+        this.loaded = Caffeine.newBuilder()
+                .maximumSize(maxLoaded)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .removalListener((String issuer, IssuerDecoder decoder, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                    release(issuer, decoder);
+                })
+                // 破棄したデコーダの鍵管理を呼び出しスレッドで即時に停止する
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * トークンのissuerに対応するデコーダでデコードします。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt
+     * @throws JwtException issuerを判定できない、受け付けないissuerである、または検証に失敗した場合
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String issuer = unverifiedIssuer(token);
+        JwtDecoder decoder = registeredDecoders.get(issuer);
+        if (decoder == null) {
+            if (!lazyIssuers.contains(issuer)) {
+                untrustedIssuers.increment();
+                throw new RejectedJwtException(AuthFailureReason.INVALID_CLAIMS, "Untrusted issuer");
+            }
+            // 同じissuerの初回の同時リクエストではデコーダの生成は1回のみ行われる
+            decoder = loaded.get(issuer, this::build).decoder();
+        }
+        return decoder.decode(token);
+    }
+
+    /**
+     * 常に保持するissuerのデコーダを登録します（既定のissuer等）。
+     *
+     * @param issuer  issuer URI
+     * @param decoder JwtDecoder
+     */
+    public void registerIssuer(String issuer, JwtDecoder decoder) {
+        registeredDecoders.put(issuer, decoder);
+    }
+
+    /**
+     * 初回使用時にデコーダを生成するissuerがあるかを返します。
+     *
+     * @return 追加のissuerがある場合true
+     */
+    public boolean hasLazyIssuers() {
+        return !lazyIssuers.isEmpty();
+    }
+
+    /**
+     * 追加のissuerの鍵の変更を通知するリスナーを登録します。
+     * <p>
+     * リスナーにはissuerと、変更後も同じ鍵で検証できるkidの一覧が渡されます。
+     * デコーダを破棄した場合は空の一覧が渡されます。
+     *
+     * @param listener リスナー
+     */
+    public void addKeyRotationListener(BiConsumer<String, Collection<String>> listener) {
+        rotationListeners.add(listener);
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return 生成済みのデコーダ数と生成/破棄/拒否の件数
+     */
+    public Stats stats() {
+        loaded.cleanUp();
+        return new Stats(loaded.estimatedSize(), builds.sum(), evictions.sum(), untrustedIssuers.sum());
+    }
+
+    /**
+     * 生成済みの追加のissuerのデコーダをすべて破棄します。
+     */
+    @Override
+    public void close() {
+        loaded.invalidateAll();
+        loaded.cleanUp();
+    }
+
+    private IssuerDecoder build(String issuer) {
+        log.info("Building JWT decoder for issuer {}", issuer);
+        builds.increment();
+        IssuerDecoder built = factory.apply(issuer);
+        built.keys().addKeyRotationListener(keyIds -> notifyRotation(issuer, keyIds));
+        built.keys().start();
+        return built;
+    }
+
+    private void release(String issuer, IssuerDecoder decoder) {
+        if (decoder == null) {
+            return;
+        }
+        decoder.keys().close();
+        // 破棄したissuerの鍵で検証済みの結果を保持しないよう、空の一覧を通知する
+        notifyRotation(issuer, List.of());
+    }
+
+    private void notifyRotation(String issuer, Collection<String> keyIds) {
+        for (BiConsumer<String, Collection<String>> listener : rotationListeners) {
+            listener.accept(issuer, keyIds);
+        }
+    }
+
+    private static String unverifiedIssuer(String token) {
+        int firstDot = token == null ? -1 : token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0) {
+            throw new RejectedJwtException(AuthFailureReason.MALFORMED, "Malformed token");
+        }
+        try {
+            Map<String, Object> claims = JSONObjectUtils.parse(
+                    new String(DECODER.decode(token.substring(firstDot + 1, secondDot)), StandardCharsets.UTF_8));
+            if (claims.get("iss") instanceof String issuer) {
+                return issuer;
+            }
+        } catch (IllegalArgumentException | ParseException e) {
+            throw new RejectedJwtException(AuthFailureReason.MALFORMED, "Malformed token");
+        }
+        throw new RejectedJwtException(AuthFailureReason.INVALID_CLAIMS, "Missing iss claim");
+    }
+
+    /**
+     * issuerごとのデコーダ。
+     *
+     * @param decoder JwtDecoder
+     * @param keys    デコーダが使用する署名鍵の管理（未開始の状態で渡し、生成時に開始・破棄時に停止する）
+     */
+    public record IssuerDecoder(JwtDecoder decoder, JwkSetManager keys) {
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param loaded           生成済みの追加のissuerのデコーダ数
+     * @param builds           デコーダの生成件数
+     * @param evictions        未使用期間・上限超過によるデコーダの破棄件数
+     * @param untrustedIssuers 受け付けないissuerのトークンを拒否した件数
+     */
+    public record Stats(long loaded, long builds, long evictions, long untrustedIssuers) {
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.oneaccountsample.security;
+
+import java.io.IOException;
+import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * OIDCプロバイダーの署名鍵を管理するJWSKeySelector。
+ * <p>
+ * 公開鍵はkidをキーとしたMapにパース済みの状態で保持し、リクエスト処理中に
+ * JWKのパースやネットワーク呼び出しは行いません。
+ * <ul>
+ *   <li>起動時はスナップショットファイルから鍵を読み込み、Keycloakからの取得はバックグラウンドで行う</li>
+ *   <li>鍵の有効期間（keyTtl）が切れる前（refreshAhead）にバックグラウンドで再取得する</li>
+ *   <li>未知のkidを受け取った場合のみリクエストスレッドでJWKSを再取得する（最小間隔で制限）</li>
+ *   <li>鍵の追加・削除・差し替えを検知した場合はリスナーに有効なkid一覧を通知する</li>
+ *   <li>バックグラウンドの再取得と未知のkidによる再取得が重なった場合は、後に開始した取得の結果を優先する
+ *       （遅れて完了した古い取得の結果で新しい鍵を削除しない）</li>
+ * </ul>
+ * 仮想スレッド上で呼び出されることを想定し、排他制御には {@code synchronized} ではなく
+ * ReentrantLockを使用します（キャリアスレッドの固定を避けるため）。
+ */
+@Slf4j
+public class JwkSetManager implements JWSKeySelector<SecurityContext>, AutoCloseable {
+
+    /** 署名検証で受け付けるアルゴリズム */
+    public static final Set<JWSAlgorithm> SUPPORTED_ALGORITHMS = Set.of(
+            JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512,
+            JWSAlgorithm.PS256, JWSAlgorithm.PS384, JWSAlgorithm.PS512,
+            JWSAlgorithm.ES256, JWSAlgorithm.ES384, JWSAlgorithm.ES512);
+
+    private static final String REFRESH_THREAD_NAME = "oidc-metadata-refresh";
+
+    private final String issuer;
+    private final OidcMetadataFetcher fetcher;
+    private final OidcSnapshotStore snapshotStore;
+    private final Duration keyTtl;
+    private final Duration refreshAhead;
+    private final Duration retryInterval;
+    private final Duration unknownKeyIdRefetchInterval;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<Collection<String>>> rotationListeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock refetchLock = new ReentrantLock();
+    private final ReentrantLock applyLock = new ReentrantLock();
+
+    private final LongAdder unknownKeyIdRefetches = new LongAdder();
+    private final LongAdder unknownKeyIdRejections = new LongAdder();
+
+    private volatile OidcProviderSnapshot snapshot;
+    private volatile KeyIndex keyIndex = KeyIndex.EMPTY;
+    private volatile Instant lastUnknownKeyIdRefetch = Instant.EPOCH;
+
+    /**
+     * @param issuer                      issuer URI
+     * @param fetcher                     メタデータ取得クライアント
+     * @param snapshotStore               スナップショットストア（保存しない場合はnull）
+     * @param keyTtl                      取得した鍵を最新とみなす期間
+     * @param refreshAhead                keyTtlが切れるどれだけ前に再取得するか
+     * @param retryInterval               取得失敗時の再試行間隔
+     * @param unknownKeyIdRefetchInterval 未知のkidによる再取得の最小間隔
+     */
+    public JwkSetManager(String issuer, OidcMetadataFetcher fetcher, OidcSnapshotStore snapshotStore,
+            Duration keyTtl, Duration refreshAhead, Duration retryInterval, Duration unknownKeyIdRefetchInterval) {
+        this(issuer, fetcher, snapshotStore, keyTtl, refreshAhead, retryInterval, unknownKeyIdRefetchInterval,
+                defaultThreadFactory(), Clock.systemUTC());
+    }
+
+    /**
+     * @param issuer                      issuer URI
+     * @param fetcher                     メタデータ取得クライアント
+     * @param snapshotStore               スナップショットストア（保存しない場合はnull）
+     * @param keyTtl                      取得した鍵を最新とみなす期間
+     * @param refreshAhead                keyTtlが切れるどれだけ前に再取得するか
+     * @param retryInterval               取得失敗時の再試行間隔
+     * @param unknownKeyIdRefetchInterval 未知のkidによる再取得の最小間隔
+     * @param threadFactory               バックグラウンド取得に使用するスレッドのファクトリ（仮想スレッド等）
+     */
+    public JwkSetManager(String issuer, OidcMetadataFetcher fetcher, OidcSnapshotStore snapshotStore,
+            Duration keyTtl, Duration refreshAhead, Duration retryInterval, Duration unknownKeyIdRefetchInterval,
+            ThreadFactory threadFactory) {
+        this(issuer, fetcher, snapshotStore, keyTtl, refreshAhead, retryInterval, unknownKeyIdRefetchInterval,
+                threadFactory, Clock.systemUTC());
+    }
+
+    JwkSetManager(String issuer, OidcMetadataFetcher fetcher, OidcSnapshotStore snapshotStore,
+            Duration keyTtl, Duration refreshAhead, Duration retryInterval, Duration unknownKeyIdRefetchInterval,
+            Clock clock) {
+        this(issuer, fetcher, snapshotStore, keyTtl, refreshAhead, retryInterval, unknownKeyIdRefetchInterval,
+                defaultThreadFactory(), clock);
+    }
+
+    JwkSetManager(String issuer, OidcMetadataFetcher fetcher, OidcSnapshotStore snapshotStore,
+            Duration keyTtl, Duration refreshAhead, Duration retryInterval, Duration unknownKeyIdRefetchInterval,
+            ThreadFactory threadFactory, Clock clock) {
+        this.issuer = issuer;
+        this.fetcher = fetcher;
+        this.snapshotStore = snapshotStore;
+        this.keyTtl = keyTtl;
+        this.refreshAhead = refreshAhead;
+        this.retryInterval = retryInterval;
+        this.unknownKeyIdRefetchInterval = unknownKeyIdRefetchInterval;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * バックグラウンド取得用のスレッドファクトリを返します。
+     *
+     * @param virtual 仮想スレッドを使用する場合はtrue
+     * @return スレッドファクトリ
+     */
+    public static ThreadFactory refreshThreadFactory(boolean virtual) {
+        return virtual ? Thread.ofVirtual().name(REFRESH_THREAD_NAME).factory() : defaultThreadFactory();
+    }
+
+    private static ThreadFactory defaultThreadFactory() {
+        return Thread.ofPlatform().name(REFRESH_THREAD_NAME).daemon(true).factory();
+    }
+
+    /**
+     * スナップショットから鍵を読み込み、バックグラウンドでの取得を開始します。
+     * <p>
+     * このメソッドはネットワーク呼び出しを行わずに即座に戻ります。
+     */
+    public void start() {
+        if (snapshotStore != null) {
+            snapshotStore.load()
+                    .filter(loaded -> issuer.equals(loaded.issuer()))
+                    .ifPresent(loaded -> {
+                        try {
+                            apply(loaded);
+                            log.info("Loaded OIDC snapshot for {} fetched at {}", issuer, loaded.fetchedAt());
+                        } catch (IllegalStateException e) {
+                            log.warn("Ignoring invalid OIDC snapshot for {}: {}", issuer, e.getMessage());
+                        }
+                    });
+        }
+        scheduler.execute(this::refreshAndReschedule);
+    }
+
+    /**
+     * 鍵の変更を通知するリスナーを登録します。
+     * <p>
+     * リスナーには変更後も同じ鍵で検証できるkidの一覧が渡されます
+     * （削除されたkidと、同じkidで鍵が差し替えられたものは含まれません）。
+     *
+     * @param listener リスナー
+     */
+    public void addKeyRotationListener(Consumer<Collection<String>> listener) {
+        rotationListeners.add(listener);
+    }
+
+    /**
+     * ディスカバリー文書とJWKSを取得し、保持中の鍵とスナップショットを更新します。
+     *
+     * @return 取得したスナップショット
+     */
+    public OidcProviderSnapshot refresh() {
+        Instant startedAt = clock.instant();
+        Map<String, Object> discovery = fetcher.fetchDiscovery(issuer);
+        return update(discovery, fetcher.fetchJwkSet((String) discovery.get("jwks_uri")), startedAt);
+    }
+
+    /**
+     * JWSヘッダーのkidとアルゴリズムに一致する公開鍵を返します。
+     * <p>
+     * kidが未知の場合のみ、最小間隔を空けてJWKSを再取得します。
+     * 間隔内に再度未知のkidを受け取った場合は再取得せずに空のリストを返します。
+     */
+    @Override
+    public List<? extends Key> selectJWSKeys(JWSHeader header, SecurityContext context) {
+        JWSAlgorithm algorithm = header.getAlgorithm();
+        if (!SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            return List.of();
+        }
+        String keyId = header.getKeyID();
+        List<Key> keys = keyIndex.select(keyId, algorithm);
+        if (!keys.isEmpty() || keyId == null) {
+            return keys;
+        }
+        return refetchForUnknownKeyId(keyId, algorithm);
+    }
+
+    /**
+     * 指定したkidの鍵を保持しているかを返します（ネットワーク呼び出しは行いません）。
+     *
+     * @param keyId kid
+     * @return 保持している場合true
+     */
+    public boolean hasKey(String keyId) {
+        return keyIndex.keyIds().contains(keyId);
+    }
+
+    /**
+     * 指定したkidのトークンを検証できる見込みがあるかを返します（ネットワーク呼び出しは行いません）。
+     * <p>
+     * 保持している鍵のkidであるか、未知のkidでも最小間隔が経過しており再取得が可能な場合にtrueを返します。
+     * kidを持たないトークンはkidなしの鍵を保持している場合のみtrueです。
+     *
+     * @param keyId kid（ヘッダーにない場合はnull）
+     * @return 検証できる見込みがある場合true
+     */
+    public boolean mayResolveKeyId(String keyId) {
+        KeyIndex current = keyIndex;
+        if (keyId == null) {
+            return !current.withoutKeyId().isEmpty();
+        }
+        return current.keyIds().contains(keyId)
+                || !clock.instant().isBefore(lastUnknownKeyIdRefetch.plus(unknownKeyIdRefetchInterval));
+    }
+
+    /**
+     * 現在保持しているスナップショットを返します。
+     *
+     * @return スナップショット（一度も取得・読み込みできていない場合は空）
+     */
+    public Optional<OidcProviderSnapshot> snapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * 鍵管理の統計情報を返します。
+     *
+     * @return 統計情報
+     */
+    public Stats stats() {
+        OidcProviderSnapshot current = snapshot;
+        return new Stats(keyIndex.keyIds().size(), current == null ? null : current.fetchedAt(),
+                unknownKeyIdRefetches.sum(), unknownKeyIdRejections.sum());
+    }
+
+    /**
+     * バックグラウンドでの取得を停止します。
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private List<Key> refetchForUnknownKeyId(String keyId, JWSAlgorithm algorithm) {
+        refetchLock.lock();
+        try {
+            // 待機中に他のスレッドが再取得済みであればその結果を使う
+            List<Key> keys = keyIndex.select(keyId, algorithm);
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+            Instant now = clock.instant();
+            if (now.isBefore(lastUnknownKeyIdRefetch.plus(unknownKeyIdRefetchInterval))) {
+                unknownKeyIdRejections.increment();
+                return List.of();
+            }
+            lastUnknownKeyIdRefetch = now;
+            unknownKeyIdRefetches.increment();
+            try {
+                OidcProviderSnapshot current = snapshot;
+                if (current == null) {
+                    refresh();
+                } else {
+                    update(current.discovery(), fetcher.fetchJwkSet(current.jwksUri()), now);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to refetch JWK set of {} for unknown kid {}: {}", issuer, keyId, e.getMessage());
+            }
+            return keyIndex.select(keyId, algorithm);
+        } finally {
+            refetchLock.unlock();
+        }
+    }
+
+    /**
+     * 取得した鍵を適用してスナップショットを保存します。
+     * 取得日時には取得の開始日時を使用し、適用済みの鍵より前に開始した取得の結果は適用しません。
+     *
+     * @return 適用したスナップショット、または古い結果のため適用しなかった場合は保持中のスナップショット
+     */
+    private OidcProviderSnapshot update(Map<String, Object> discovery, JWKSet fetched, Instant startedAt) {
+        OidcProviderSnapshot refreshed = new OidcProviderSnapshot(issuer, discovery, fetched.toJSONObject(true),
+                startedAt);
+        applyLock.lock();
+        try {
+            if (!apply(refreshed)) {
+                log.debug("Ignoring JWK set of {} fetched at {}; newer keys are already applied", issuer, startedAt);
+                return snapshot;
+            }
+            if (snapshotStore != null) {
+                try {
+                    snapshotStore.save(refreshed);
+                } catch (IOException e) {
+                    // 保存に失敗しても取得した鍵は利用できるため警告のみとする
+                    log.warn("Failed to save OIDC snapshot for {}: {}", issuer, e.getMessage());
+                }
+            }
+            return refreshed;
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    /**
+     * スナップショットの鍵を適用します。
+     *
+     * @return 適用した場合true、保持中のスナップショットより古いため適用しなかった場合false
+     */
+    private boolean apply(OidcProviderSnapshot applied) {
+        applyLock.lock();
+        try {
+            OidcProviderSnapshot current = snapshot;
+            if (current != null && applied.fetchedAt().isBefore(current.fetchedAt())) {
+                return false;
+            }
+            applyKeys(applied);
+            return true;
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    private void applyKeys(OidcProviderSnapshot applied) {
+        KeyIndex previous = keyIndex;
+        KeyIndex next = KeyIndex.of(applied.jwkSet());
+        this.keyIndex = next;
+        this.snapshot = applied;
+
+        if (previous != KeyIndex.EMPTY && !previous.jwks().equals(next.jwks())) {
+            Set<String> unchanged = new HashSet<>();
+            for (Map.Entry<String, JWK> entry : next.jwks().entrySet()) {
+                if (entry.getValue().equals(previous.jwks().get(entry.getKey()))) {
+                    unchanged.add(entry.getKey());
+                }
+            }
+            log.info("Signing keys of {} changed: {} -> {}", issuer, previous.keyIds(), next.keyIds());
+            for (Consumer<Collection<String>> listener : rotationListeners) {
+                listener.accept(Set.copyOf(unchanged));
+            }
+        }
+    }
+
+    private void refreshAndReschedule() {
+        Duration delay = keyTtl.minus(refreshAhead);
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh OIDC metadata for {}, retrying in {}: {}", issuer, retryInterval, e.getMessage());
+            delay = retryInterval;
+        }
+        try {
+            scheduler.schedule(this::refreshAndReschedule, Math.max(0L, delay.toMillis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // close()後は再スケジュールしない
+        }
+    }
+
+    /**
+     * 鍵管理の統計情報。
+     *
+     * @param keyCount               保持している鍵の数
+     * @param fetchedAt              最後に鍵を取得した日時（未取得の場合はnull）
+     * @param unknownKeyIdRefetches  未知のkidによる再取得回数
+     * @param unknownKeyIdRejections 最小間隔内のため再取得せずに拒否した回数
+     */
+    public record Stats(int keyCount, Instant fetchedAt, long unknownKeyIdRefetches, long unknownKeyIdRejections) {
+    }
+
+    /**
+     * パース済み公開鍵のインデックス。
+     *
+     * @param byKeyId      kidごとの公開鍵
+     * @param withoutKeyId kidを持たない公開鍵
+     * @param jwks         変更検知用の元のJWK（kidごと）
+     */
+    private record KeyIndex(Map<String, List<SigningKey>> byKeyId, List<SigningKey> withoutKeyId,
+            Map<String, JWK> jwks) {
+
+        static final KeyIndex EMPTY = new KeyIndex(Map.of(), List.of(), Map.of());
+
+        static KeyIndex of(JWKSet jwkSet) {
+            Map<String, List<SigningKey>> byKeyId = new HashMap<>();
+            List<SigningKey> withoutKeyId = new ArrayList<>();
+            Map<String, JWK> jwks = new HashMap<>();
+            for (JWK jwk : jwkSet.getKeys()) {
+                if (jwk.getKeyUse() != null && !KeyUse.SIGNATURE.equals(jwk.getKeyUse())) {
+                    continue;
+                }
+                SigningKey signingKey = SigningKey.of(jwk);
+                if (signingKey == null) {
+                    continue;
+                }
+                if (jwk.getKeyID() == null) {
+                    withoutKeyId.add(signingKey);
+                } else {
+                    byKeyId.computeIfAbsent(jwk.getKeyID(), keyId -> new ArrayList<>()).add(signingKey);
+                    jwks.put(jwk.getKeyID(), jwk);
+                }
+            }
+            byKeyId.replaceAll((keyId, keys) -> List.copyOf(keys));
+            return new KeyIndex(Map.copyOf(byKeyId), List.copyOf(withoutKeyId), Map.copyOf(jwks));
+        }
+
+        Set<String> keyIds() {
+            return byKeyId.keySet();
+        }
+
+        List<Key> select(String keyId, JWSAlgorithm algorithm) {
+            List<SigningKey> candidates = keyId == null ? withoutKeyId : byKeyId.getOrDefault(keyId, List.of());
+            List<Key> keys = new ArrayList<>(candidates.size());
+            for (SigningKey candidate : candidates) {
+                if (candidate.supports(algorithm)) {
+                    keys.add(candidate.publicKey());
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * パース済みの公開鍵。
+     *
+     * @param publicKey パース済み公開鍵
+     * @param family    鍵の種類に対応するアルゴリズム群
+     * @param algorithm JWKで指定されたアルゴリズム（指定なしの場合はnull）
+     */
+    private record SigningKey(Key publicKey, Set<JWSAlgorithm> family, JWSAlgorithm algorithm) {
+
+        static SigningKey of(JWK jwk) {
+            JWSAlgorithm algorithm = jwk.getAlgorithm() == null ? null : JWSAlgorithm.parse(jwk.getAlgorithm().getName());
+            try {
+                if (jwk instanceof RSAKey rsaKey) {
+                    return new SigningKey(rsaKey.toRSAPublicKey(), JWSAlgorithm.Family.RSA, algorithm);
+                }
+                if (jwk instanceof ECKey ecKey) {
+                    return new SigningKey(ecKey.toECPublicKey(), JWSAlgorithm.Family.EC, algorithm);
+                }
+            } catch (JOSEException e) {
+                log.warn("Skipping unusable JWK {}: {}", jwk.getKeyID(), e.getMessage());
+            }
+            return null;
+        }
+
+        boolean supports(JWSAlgorithm requested) {
+            return family.contains(requested) && (algorithm == null || algorithm.equals(requested));
+        }
+    }
+}
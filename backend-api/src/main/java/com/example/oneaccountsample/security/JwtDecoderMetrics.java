@@ -0,0 +1,102 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * JWT検証の各コンポーネントの統計情報をメトリクスとして公開するMeterBinder。
+ * <ul>
+ *   <li>検証済みJWTキャッシュのヒット/ミス/追い出し件数とエントリ数</li>
+ *   <li>同時デコードの集約件数</li>
+ *   <li>署名鍵の数、最終取得からの経過時間、未知のkidによる再取得/拒否の件数</li>
+ *   <li>追加のissuerのデコーダの生成数と生成/破棄件数、受け付けないissuerの拒否件数</li>
+ * </ul>
+ * 値はスクレイプ時に各コンポーネントのstats()から読み取るため、リクエスト処理への影響はありません。
+ */
+public class JwtDecoderMetrics implements MeterBinder {
+
+    private final JwkSetManager jwkSetManager;
+    private final SingleFlightJwtDecoder singleFlightJwtDecoder;
+    private final CachingJwtDecoder cachingJwtDecoder;
+    private final IssuerRoutingJwtDecoder issuerRoutingJwtDecoder;
+
+    /**
+     * @param jwkSetManager           署名鍵の管理
+     * @param singleFlightJwtDecoder  同時デコードを集約するデコーダ
+     * @param cachingJwtDecoder       キャッシュするデコーダ（キャッシュ無効の場合はnull）
+     * @param issuerRoutingJwtDecoder issuerごとにデコーダを選択するデコーダ（追加のissuerがない場合はnull）
+     */
+    public JwtDecoderMetrics(JwkSetManager jwkSetManager, SingleFlightJwtDecoder singleFlightJwtDecoder,
+            CachingJwtDecoder cachingJwtDecoder, IssuerRoutingJwtDecoder issuerRoutingJwtDecoder) {
+        this.jwkSetManager = jwkSetManager;
+        this.singleFlightJwtDecoder = singleFlightJwtDecoder;
+        this.cachingJwtDecoder = cachingJwtDecoder;
+        this.issuerRoutingJwtDecoder = issuerRoutingJwtDecoder;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cachingJwtDecoder != null) {
+            FunctionCounter.builder("auth.jwt.cache.requests", cachingJwtDecoder, decoder -> decoder.stats().hits())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("auth.jwt.cache.requests", cachingJwtDecoder, decoder -> decoder.stats().misses())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("auth.jwt.cache.evictions", cachingJwtDecoder,
+                    decoder -> decoder.stats().evictions())
+                    .register(registry);
+            Gauge.builder("auth.jwt.cache.size", cachingJwtDecoder, decoder -> decoder.stats().size())
+                    .register(registry);
+        }
+
+        FunctionCounter.builder("auth.jwt.singleflight", singleFlightJwtDecoder,
+                decoder -> decoder.stats().leaders())
+                .tag("role", "leader")
+                .register(registry);
+        FunctionCounter.builder("auth.jwt.singleflight", singleFlightJwtDecoder,
+                decoder -> decoder.stats().coalesced())
+                .tag("role", "coalesced")
+                .register(registry);
+        Gauge.builder("auth.jwt.singleflight.in.flight", singleFlightJwtDecoder, decoder -> decoder.stats().inFlight())
+                .register(registry);
+
+        Gauge.builder("auth.jwks.keys", jwkSetManager, manager -> manager.stats().keyCount())
+                .register(registry);
+        Gauge.builder("auth.jwks.age", jwkSetManager, JwtDecoderMetrics::secondsSinceFetch)
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("auth.jwks.unknown.kid", jwkSetManager,
+                manager -> manager.stats().unknownKeyIdRefetches())
+                .tag("result", "refetched")
+                .register(registry);
+        FunctionCounter.builder("auth.jwks.unknown.kid", jwkSetManager,
+                manager -> manager.stats().unknownKeyIdRejections())
+                .tag("result", "rejected")
+                .register(registry);
+
+        if (issuerRoutingJwtDecoder != null) {
+            Gauge.builder("auth.jwt.issuers.loaded", issuerRoutingJwtDecoder, decoder -> decoder.stats().loaded())
+                    .register(registry);
+            FunctionCounter.builder("auth.jwt.issuers.builds", issuerRoutingJwtDecoder,
+                    decoder -> decoder.stats().builds())
+                    .register(registry);
+            FunctionCounter.builder("auth.jwt.issuers.evictions", issuerRoutingJwtDecoder,
+                    decoder -> decoder.stats().evictions())
+                    .register(registry);
+            FunctionCounter.builder("auth.jwt.issuers.untrusted", issuerRoutingJwtDecoder,
+                    decoder -> decoder.stats().untrustedIssuers())
+                    .register(registry);
+        }
+    }
+
+    private static double secondsSinceFetch(JwkSetManager manager) {
+        Instant fetchedAt = manager.stats().fetchedAt();
+        return fetchedAt == null ? Double.NaN : Duration.between(fetchedAt, Instant.now()).toMillis() / 1000.0;
+    }
+}
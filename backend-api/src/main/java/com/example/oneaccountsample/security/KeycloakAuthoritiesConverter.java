@@ -0,0 +1,173 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Keycloakのロールクレーム（realm_access.roles、resource_access.&lt;クライアントID&gt;.roles）から
+ * 権限を生成するConverter。
+ * <p>
+ * JwtAuthenticationConverterの権限変換として使用します。
+ * <ul>
+ *   <li>ロールと権限の対応付けは生成時に変換不要なMap（ロール → 生成済みの権限の一覧）にしておき、
+ *       リクエストごとの処理はトークンのロールごとのMap参照のみとする</li>
+ *   <li>対応付けのないクライアントの resource_access は参照しない</li>
+ *   <li>scope クレームの権限（SCOPE_xxx）は従来どおり付与する</li>
+ *   <li>生成した権限はトークンの識別子をキーとしてトークンの exp まで保持する</li>
+ * </ul>
+ */
+public class KeycloakAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    private final Map<String, List<GrantedAuthority>> realmRoles;
+    private final Map<String, Map<String, List<GrantedAuthority>>> clientRoles;
+    private final JwtGrantedAuthoritiesConverter scopeAuthorities = new JwtGrantedAuthoritiesConverter();
+    private final Cache<String, CachedAuthorities> cache;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param realmRoles      レルムロール → 付与する権限
+     * @param clientRoles     クライアントID → （クライアントロール → 付与する権限）
+     * @param cacheMaxEntries キャッシュの最大エントリ数（0でキャッシュしない）
+     */
+    public KeycloakAuthoritiesConverter(Map<String, List<String>> realmRoles,
+            Map<String, Map<String, List<String>>> clientRoles, long cacheMaxEntries) {
+        this(realmRoles, clientRoles, cacheMaxEntries, Clock.systemUTC());
+    }
+
+    KeycloakAuthoritiesConverter(Map<String, List<String>> realmRoles,
+            Map<String, Map<String, List<String>>> clientRoles, long cacheMaxEntries, Clock clock) {
+        if (cacheMaxEntries < 0) {
+            throw new IllegalArgumentException("cacheMaxEntries must not be negative");
+        }
+        this.realmRoles = compile(realmRoles);
+        Map<String, Map<String, List<GrantedAuthority>>> compiledClients = new HashMap<>();
+        clientRoles.forEach((clientId, roles) -> {
+            Map<String, List<GrantedAuthority>> compiled = compile(roles);
+            if (!compiled.isEmpty()) {
+                compiledClients.put(clientId, compiled);
+            }
+        });
+        this.clientRoles = Map.copyOf(compiledClients);
+        this.clock = clock;
+        this.cache = cacheMaxEntries > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(cacheMaxEntries)
+                        .expireAfter(
+                                new ExpiresAtExpiry<String, CachedAuthorities>(CachedAuthorities::expiresAt, clock))
+                        .build()
+                : null;
+    }
+
+    /**
+     * トークンの権限を返します。
+     *
+     * @param jwt 検証済みJwt
+     * @return 権限（変更不可）
+     */
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        String identity = TokenHashes.identityOf(jwt);
+        // exp またはトークンの識別子がない場合はキャッシュしない
+        if (cache == null || expiresAt == null || identity == null || !expiresAt.isAfter(clock.instant())) {
+            return authoritiesOf(jwt);
+        }
+        CachedAuthorities cached = cache.getIfPresent(identity);
+        if (cached != null) {
+            hits.increment();
+            return cached.authorities();
+        }
+        misses.increment();
+        Set<GrantedAuthority> authorities = authoritiesOf(jwt);
+        cache.put(identity, new CachedAuthorities(authorities, expiresAt));
+        return authorities;
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return キャッシュのエントリ数とヒット/ミス件数
+     */
+    public Stats stats() {
+        return new Stats(cache == null ? 0L : cache.estimatedSize(), hits.sum(), misses.sum());
+    }
+
+    private Set<GrantedAuthority> authoritiesOf(Jwt jwt) {
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>(scopeAuthorities.convert(jwt));
+        Map<String, Object> claims = jwt.getClaims();
+        if (!realmRoles.isEmpty()) {
+            addMapped(claims.get("realm_access"), realmRoles, authorities);
+        }
+        if (!clientRoles.isEmpty() && claims.get("resource_access") instanceof Map<?, ?> resourceAccess) {
+            for (Map.Entry<String, Map<String, List<GrantedAuthority>>> client : clientRoles.entrySet()) {
+                addMapped(resourceAccess.get(client.getKey()), client.getValue(), authorities);
+            }
+        }
+        return Collections.unmodifiableSet(authorities);
+    }
+
+    private static void addMapped(Object access, Map<String, List<GrantedAuthority>> mapping,
+            Set<GrantedAuthority> authorities) {
+        if (access instanceof Map<?, ?> accessMap && accessMap.get("roles") instanceof Collection<?> roles) {
+            for (Object role : roles) {
+                List<GrantedAuthority> granted = role instanceof String name ? mapping.get(name) : null;
+                if (granted != null) {
+                    authorities.addAll(granted);
+                }
+            }
+        }
+    }
+
+    private static Map<String, List<GrantedAuthority>> compile(Map<String, List<String>> mapping) {
+        Map<String, List<GrantedAuthority>> compiled = new HashMap<>();
+        mapping.forEach((role, authorities) -> {
+            if (authorities != null && !authorities.isEmpty()) {
+                compiled.put(role, authorities.stream()
+                        .map(String::trim)
+                        .filter(authority -> !authority.isEmpty())
+                        .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                        .toList());
+            }
+        });
+        return Map.copyOf(compiled);
+    }
+
+    /**
+     * キャッシュした権限。
+     *
+     * @param authorities 権限（変更不可）
+     * @param expiresAt   トークンの有効期限
+     */
+    private record CachedAuthorities(Set<GrantedAuthority> authorities, Instant expiresAt) {
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param cachedTokens キャッシュのエントリ数（概算）
+     * @param hits         キャッシュヒット件数
+     * @param misses       キャッシュミス件数
+     */
+    public record Stats(long cachedTokens, long hits, long misses) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.oneaccountsample.security;
+
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+/**
+ * 署名鍵の選択をアプリケーション側で行うNimbusJwtDecoderを生成するファクトリ。
+ */
+public final class NimbusJwtDecoders {
+
+    private NimbusJwtDecoders() {
+    }
+
+    /**
+     * 指定したissuerのトークンを検証するNimbusJwtDecoderを生成します。
+     * <p>
+     * クレームの検証（exp/nbf/iss）はSpring Securityの標準バリデータで行います。
+     *
+     * @param issuer      issuer URI
+     * @param keySelector 署名鍵の選択
+     * @return NimbusJwtDecoder
+     */
+    public static NimbusJwtDecoder create(String issuer, JWSKeySelector<SecurityContext> keySelector) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(keySelector);
+        // クレームの検証はSpring Security側のバリデータで行う
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+        return decoder;
+    }
+}
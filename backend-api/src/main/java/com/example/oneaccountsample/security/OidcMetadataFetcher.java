@@ -0,0 +1,100 @@
+package com.example.oneaccountsample.security;
+
+import java.net.URI;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * OIDCプロバイダーからディスカバリー文書とJWKSを取得するクライアント。
+ * <p>
+ * 取得の所要時間は auth.oidc.fetch（type=discovery/jwks、outcome=success/failure）として記録します。
+ */
+public class OidcMetadataFetcher {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT = new ParameterizedTypeReference<>() {
+    };
+
+    private final RestClient restClient;
+    private final MeterRegistry registry;
+
+    /**
+     * @param connectTimeout 接続タイムアウト
+     * @param readTimeout    読み取りタイムアウト
+     * @param registry       取得時間を記録するメーターレジストリ
+     */
+    public OidcMetadataFetcher(Duration connectTimeout, Duration readTimeout, MeterRegistry registry) {
+        this.registry = registry;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) connectTimeout.toMillis());
+        requestFactory.setReadTimeout((int) readTimeout.toMillis());
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    /**
+     * ディスカバリー文書を取得します。
+     * <p>
+     * 文書内の issuer が要求した issuer と一致しない場合はエラーとします。
+     *
+     * @param issuer issuer URI
+     * @return ディスカバリー文書
+     * @throws IllegalStateException issuerが一致しない場合
+     */
+    public Map<String, Object> fetchDiscovery(String issuer) {
+        String location = (issuer.endsWith("/") ? issuer : issuer + "/") + ".well-known/openid-configuration";
+        Map<String, Object> discovery = timed("discovery",
+                () -> restClient.get().uri(URI.create(location)).retrieve().body(JSON_OBJECT));
+        if (discovery == null || !issuer.equals(discovery.get("issuer"))) {
+            throw new IllegalStateException("The issuer in the discovery document does not match " + issuer);
+        }
+        if (!(discovery.get("jwks_uri") instanceof String)) {
+            throw new IllegalStateException("The discovery document of " + issuer + " has no jwks_uri");
+        }
+        return discovery;
+    }
+
+    /**
+     * JWKSを取得します。
+     *
+     * @param jwksUri JWKSのURI
+     * @return JWKSet
+     * @throws IllegalStateException JWKSの形式が不正な場合
+     */
+    public JWKSet fetchJwkSet(String jwksUri) {
+        String body = timed("jwks", () -> restClient.get().uri(URI.create(jwksUri)).retrieve().body(String.class));
+        if (body == null) {
+            throw new IllegalStateException("Empty JWK set response from " + jwksUri);
+        }
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JWK set from " + jwksUri, e);
+        }
+    }
+
+    private <T> T timed(String type, Supplier<T> fetch) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "failure";
+        try {
+            T result = fetch.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("auth.oidc.fetch")
+                    .description("Time spent fetching OIDC discovery documents and JWK sets")
+                    .tag("type", type)
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+}
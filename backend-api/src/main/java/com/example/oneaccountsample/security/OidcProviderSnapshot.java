@@ -0,0 +1,45 @@
+package com.example.oneaccountsample.security;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Map;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * OIDCプロバイダーのディスカバリー文書とJWKSのスナップショット。
+ * <p>
+ * 最後に取得に成功した内容をファイルに保存し、次回起動時に
+ * Keycloakへ問い合わせることなく鍵を利用できるようにします。
+ *
+ * @param issuer    issuer URI
+ * @param discovery ディスカバリー文書（/.well-known/openid-configuration）
+ * @param jwks      公開鍵セット（JWKS）のJSON
+ * @param fetchedAt 取得日時
+ */
+public record OidcProviderSnapshot(String issuer, Map<String, Object> discovery, Map<String, Object> jwks,
+        Instant fetchedAt) {
+
+    /**
+     * ディスカバリー文書に含まれるJWKSのURIを返します。
+     *
+     * @return jwks_uri
+     */
+    public String jwksUri() {
+        return (String) discovery.get("jwks_uri");
+    }
+
+    /**
+     * 保存されたJWKSをパースして返します。
+     *
+     * @return JWKSet
+     * @throws IllegalStateException JWKSの形式が不正な場合
+     */
+    public JWKSet jwkSet() {
+        try {
+            return JWKSet.parse(jwks);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JWK set in snapshot for " + issuer, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.oneaccountsample.security;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link OidcProviderSnapshot} をJSONファイルとして読み書きするストア。
+ * <p>
+ * 書き込みは一時ファイルに出力してから置き換えるため、書き込み途中で
+ * プロセスが停止しても既存のスナップショットは壊れません。
+ */
+@Slf4j
+public class OidcSnapshotStore {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param path         スナップショットファイルのパス
+     * @param objectMapper JSON変換に使用するObjectMapper
+     */
+    public OidcSnapshotStore(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * スナップショットを読み込みます。
+     * <p>
+     * ファイルが存在しない、または読み込めない場合は空を返します。
+     *
+     * @return スナップショット
+     */
+    public Optional<OidcProviderSnapshot> load() {
+        if (!Files.isReadable(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(path.toFile(), OidcProviderSnapshot.class));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable OIDC snapshot {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * スナップショットを保存します。
+     *
+     * @param snapshot 保存するスナップショット
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void save(OidcProviderSnapshot snapshot) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            objectMapper.writeValue(temporary.toFile(), snapshot);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.oneaccountsample.security;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 署名検証の前に明らかに不正なトークンを拒否するJwtDecoder。
+ * <p>
+ * ヘッダーとペイロードのBase64URLデコードとJSONの解析のみを行い、以下のトークンは
+ * 委譲先（Nimbusによるパース・署名検証）を呼び出さずに拒否します。
+ * <ul>
+ *   <li>JWS Compact Serialization（3セグメント）として解析できない、または上限を超える長さのトークン</li>
+ *   <li>受け付けないアルゴリズム（none、HS256等）のトークン</li>
+ *   <li>保持していないkidで、再取得も最小間隔により行えないトークン</li>
+ *   <li>（未検証の）exp が時刻のずれの許容範囲を超えて過去、または iss が一致しないトークン</li>
+ * </ul>
+ * 拒否したトークンのうち、時間が経っても有効にならないもの（不正な形式・署名不正・期限切れ・issuer不一致）は
+ * ハッシュ値を上限付きのキャッシュに保持し、同じトークンの再送をハッシュの照合のみで拒否します。
+ * 拒否件数は理由別に auth.prevalidation.rejections として記録します。
+ * <p>
+ * 検証済みJWTキャッシュ（{@link CachingJwtDecoder}）の内側に配置し、キャッシュヒット時には処理を行いません。
+ */
+public class PrevalidatingJwtDecoder implements JwtDecoder {
+
+    /**
+     * 委譲先で検証に失敗した場合に、拒否をキャッシュする理由。
+     * クレーム不正は nbf のように時間が経つと有効になるものを含むため対象外とする。
+     */
+    private static final Set<AuthFailureReason> PERMANENT_REASONS = Set.of(
+            AuthFailureReason.MALFORMED, AuthFailureReason.BAD_SIGNATURE, AuthFailureReason.EXPIRED);
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final JwtDecoder delegate;
+    private final String issuer;
+    private final Predicate<String> keyIdResolver;
+    private final Duration clockSkew;
+    private final int maxTokenLength;
+    private final Cache<String, AuthFailureReason> rejected;
+    private final Clock clock;
+
+    private final Map<AuthFailureReason, Counter> checkRejections = new EnumMap<>(AuthFailureReason.class);
+    private final Map<AuthFailureReason, Counter> cachedRejections = new EnumMap<>(AuthFailureReason.class);
+
+    /**
+     * @param delegate                実際の検証を行うJwtDecoder
+     * @param issuer                  受け付ける issuer URI
+     * @param keyIdResolver           kidのトークンを検証できる見込みがあるかの判定（{@link JwkSetManager#mayResolveKeyId}）
+     * @param clockSkew               exp の判定で許容する時刻のずれ
+     * @param maxTokenLength          受け付けるトークンの最大長
+     * @param negativeCacheMaxEntries 拒否したトークンを保持する最大件数
+     * @param negativeCacheTtl        拒否したトークンを保持する期間
+     * @param registry                メーターレジストリ
+     */
+    public PrevalidatingJwtDecoder(JwtDecoder delegate, String issuer, Predicate<String> keyIdResolver,
+            Duration clockSkew, int maxTokenLength, long negativeCacheMaxEntries, Duration negativeCacheTtl,
+            MeterRegistry registry) {
+        this(delegate, issuer, keyIdResolver, clockSkew, maxTokenLength, negativeCacheMaxEntries, negativeCacheTtl,
+                registry, Clock.systemUTC());
+    }
+
+    PrevalidatingJwtDecoder(JwtDecoder delegate, String issuer, Predicate<String> keyIdResolver,
+            Duration clockSkew, int maxTokenLength, long negativeCacheMaxEntries, Duration negativeCacheTtl,
+            MeterRegistry registry, Clock clock) {
+        if (maxTokenLength <= 0 || negativeCacheMaxEntries <= 0) {
+            throw new IllegalArgumentException("maxTokenLength and negativeCacheMaxEntries must be positive");
+        }
+        this.delegate = delegate;
+        this.issuer = issuer;
+        this.keyIdResolver = keyIdResolver;
+        this.clockSkew = clockSkew;
+        this.maxTokenLength = maxTokenLength;
+        this.clock = clock;
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(negativeCacheMaxEntries)
+                .expireAfterWrite(negativeCacheTtl)
+                .executor(Runnable::run)
+                .build();
+        for (AuthFailureReason reason : AuthFailureReason.values()) {
+            checkRejections.put(reason, counter(registry, reason, "check"));
+            cachedRejections.put(reason, counter(registry, reason, "negative_cache"));
+        }
+    }
+
+    /**
+     * トークンを事前検証し、通過した場合のみ委譲先でデコードします。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt
+     * @throws JwtException 事前検証または委譲先での検証に失敗した場合
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        // ハッシュ計算より前に、長さとセグメント数だけで判定できるものを拒否する
+        if (token == null || token.length() > maxTokenLength) {
+            throw reject(AuthFailureReason.MALFORMED, "Malformed token", null);
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || secondDot == token.length() - 1
+                || token.indexOf('.', secondDot + 1) >= 0) {
+            throw reject(AuthFailureReason.MALFORMED, "Malformed token", null);
+        }
+
+        String key = TokenHashes.sha256(token);
+        AuthFailureReason cached = rejected.getIfPresent(key);
+        if (cached != null) {
+            cachedRejections.get(cached).increment();
+            throw new RejectedJwtException(cached, "Token was recently rejected: " + cached.tagValue());
+        }
+
+        prevalidate(token.substring(0, firstDot), token.substring(firstDot + 1, secondDot), key);
+        try {
+            return delegate.decode(token);
+        } catch (JwtException e) {
+            AuthFailureReason reason = AuthFailureReason.of(e);
+            if (PERMANENT_REASONS.contains(reason)) {
+                rejected.put(key, reason);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 拒否したトークンの保持件数を返します。
+     *
+     * @return 保持件数（概算）
+     */
+    public long negativeCacheSize() {
+        return rejected.estimatedSize();
+    }
+
+    private void prevalidate(String encodedHeader, String encodedPayload, String key) {
+        Map<String, Object> header = parseSegment(encodedHeader, key);
+        if (!(header.get("alg") instanceof String alg)
+                || !JwkSetManager.SUPPORTED_ALGORITHMS.contains(JWSAlgorithm.parse(alg))) {
+            throw reject(AuthFailureReason.MALFORMED, "Unsupported algorithm", key);
+        }
+        Object keyId = header.get("kid");
+        if (keyId != null && !(keyId instanceof String)) {
+            throw reject(AuthFailureReason.MALFORMED, "Malformed kid", key);
+        }
+        if (!keyIdResolver.test((String) keyId)) {
+            // 鍵の再取得で検証できるようになる可能性があるため、キャッシュには保持しない
+            throw reject(AuthFailureReason.UNKNOWN_KID, "No matching key for kid", null);
+        }
+
+        Map<String, Object> claims = parseSegment(encodedPayload, key);
+        Object expiresAt = claims.get("exp");
+        if (expiresAt != null) {
+            if (!(expiresAt instanceof Number seconds)) {
+                throw reject(AuthFailureReason.MALFORMED, "Malformed exp claim", key);
+            }
+            if (clock.instant().minus(clockSkew).isAfter(Instant.ofEpochSecond(seconds.longValue()))) {
+                throw reject(AuthFailureReason.EXPIRED, "Jwt expired", key);
+            }
+        }
+        if (!issuer.equals(claims.get("iss"))) {
+            throw reject(AuthFailureReason.INVALID_CLAIMS, "The iss claim is not valid", key);
+        }
+    }
+
+    private Map<String, Object> parseSegment(String segment, String key) {
+        try {
+            return JSONObjectUtils.parse(new String(DECODER.decode(segment), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | ParseException e) {
+            throw reject(AuthFailureReason.MALFORMED, "Malformed token", key);
+        }
+    }
+
+    private RejectedJwtException reject(AuthFailureReason reason, String message, String key) {
+        if (key != null) {
+            rejected.put(key, reason);
+        }
+        checkRejections.get(reason).increment();
+        return new RejectedJwtException(reason, message);
+    }
+
+    private static Counter counter(MeterRegistry registry, AuthFailureReason reason, String source) {
+        return Counter.builder("auth.prevalidation.rejections")
+                .description("Tokens rejected before signature verification")
+                .tag("reason", reason.tagValue())
+                .tag("source", source)
+                .register(registry);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.oneaccountsample.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * エンドポイントごと・クライアント（トークンの sub またはIPアドレス）ごとのレート制限。
+ * <p>
+ * トークンバケットをGCRA（Generic Cell Rate Algorithm）で実装し、1クライアントのバケットの状態を
+ * 1つのAtomicLong（次のリクエストが補充済みとみなされる理論上の時刻）で表します。
+ * <ul>
+ *   <li>判定はAtomicLongのCAS1回で行い、ロックを使用しない（競合するのは同じクライアントの同時リクエストのみ）</li>
+ *   <li>バケットはキーのハッシュでストライプ（Caffeineのキャッシュ）に分けて保持し、
+ *       新しいクライアントの追加・追い出しの処理を分散する</li>
+ *   <li>エンドポイントごとのバケット数に上限を設け、一定期間リクエストのなかったバケットは破棄する
+ *       （破棄されたクライアントは次のリクエストで満杯のバケットから再開する）</li>
+ * </ul>
+ * エンドポイントは完全一致のパス、または "/**" で終わる前方一致のパターンで指定し、
+ * 完全一致、長いパターンの順に最初に一致したものを適用します。
+ */
+public final class RateLimiter {
+
+    private static final String WILDCARD_SUFFIX = "/**";
+    private static final long MAX_NANOS = Long.MAX_VALUE / 4;
+
+    private final Map<String, Endpoint> exactEndpoints = new HashMap<>();
+    private final List<Endpoint> prefixEndpoints = new ArrayList<>();
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final Ticker ticker;
+
+    /**
+     * @param limits      パスのパターン → 制限
+     * @param maxKeys     エンドポイントごとに保持するバケットの最大数
+     * @param idleTimeout リクエストのなかったバケットを破棄するまでの期間
+     * @param stripes     エンドポイントごとのストライプ数（2のべき乗に切り上げる）
+     */
+    public RateLimiter(Map<String, Limit> limits, long maxKeys, Duration idleTimeout, int stripes) {
+        this(limits, maxKeys, idleTimeout, stripes, Ticker.systemTicker());
+    }
+
+    RateLimiter(Map<String, Limit> limits, long maxKeys, Duration idleTimeout, int stripes, Ticker ticker) {
+        if (maxKeys <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("maxKeys and stripes must be positive");
+        }
+        this.ticker = ticker;
+        int stripeCount = Math.max(1, Integer.highestOneBit(stripes - 1) << 1);
+        limits.forEach((pattern, limit) -> {
+            Endpoint endpoint = new Endpoint(pattern, limit, maxKeys, idleTimeout, stripeCount, ticker);
+            endpoints.add(endpoint);
+            if (pattern.endsWith(WILDCARD_SUFFIX)) {
+                prefixEndpoints.add(endpoint);
+            } else {
+                exactEndpoints.put(pattern, endpoint);
+            }
+        });
+        prefixEndpoints.sort(Comparator.comparingInt((Endpoint endpoint) -> endpoint.prefix.length()).reversed());
+    }
+
+    /**
+     * 何も制限しないレート制限を返します（レート制限を無効にした場合に使用）。
+     *
+     * @return 無効なレート制限
+     */
+    public static RateLimiter disabled() {
+        return new RateLimiter(Map.of(), 1, Duration.ofMinutes(1), 1);
+    }
+
+    /**
+     * 既定のストライプ数（CPU数）を返します。
+     *
+     * @return ストライプ数
+     */
+    public static int defaultStripes() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * レート制限が有効か（制限するエンドポイントがあるか）を返します。
+     *
+     * @return 有効な場合true
+     */
+    public boolean isEnabled() {
+        return !endpoints.isEmpty();
+    }
+
+    /**
+     * パスに適用するエンドポイントを返します。
+     *
+     * @param path リクエストパス
+     * @return エンドポイント（制限しないパスの場合はnull）
+     */
+    public Endpoint endpoint(String path) {
+        Endpoint endpoint = exactEndpoints.get(path);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        for (Endpoint candidate : prefixEndpoints) {
+            if (candidate.matchesPrefix(path)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 1リクエスト分の許可を取得します（ブロックしない）。
+     *
+     * @param endpoint エンドポイント
+     * @param client   クライアントのキー（sub またはIPアドレス）
+     * @return 許可した場合0、制限を超えた場合は次のリクエストが許可されるまでのナノ秒
+     */
+    public long tryAcquire(Endpoint endpoint, String client) {
+        return endpoint.tryAcquire(client, ticker.read());
+    }
+
+    /**
+     * {@link #tryAcquire} の待ち時間をRetry-Afterヘッダーの秒数（切り上げ、1以上）に変換します。
+     *
+     * @param waitNanos 次のリクエストが許可されるまでのナノ秒
+     * @return 秒数
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1L, waitNanos / second + (waitNanos % second == 0 ? 0 : 1));
+    }
+
+    /**
+     * 制限するエンドポイントを返します。
+     *
+     * @return エンドポイント
+     */
+    public List<Endpoint> endpoints() {
+        return List.copyOf(endpoints);
+    }
+
+    /**
+     * エンドポイントの制限。
+     *
+     * @param permitsPerSecond 1秒あたりに補充するリクエスト数
+     * @param burst            連続して許可するリクエスト数（バケットの容量）
+     */
+    public record Limit(double permitsPerSecond, int burst) {
+
+        public Limit {
+            if (!(permitsPerSecond > 0) || burst <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+            }
+        }
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param allowed  許可したリクエスト数
+     * @param rejected 制限を超えて拒否したリクエスト数
+     * @param keys     保持しているバケット数（概算）
+     */
+    public record Stats(long allowed, long rejected, long keys) {
+    }
+
+    /**
+     * 制限するエンドポイント（パスのパターンごとのバケットの集合）。
+     */
+    public static final class Endpoint {
+
+        private final String pattern;
+        private final String prefix;
+        private final Limit limit;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final Cache<String, AtomicLong>[] stripes;
+        private final int mask;
+
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        @SuppressWarnings("unchecked")
+        Endpoint(String pattern, Limit limit, long maxKeys, Duration idleTimeout, int stripeCount, Ticker ticker) {
+            this.pattern = pattern;
+            this.prefix = pattern.endsWith(WILDCARD_SUFFIX)
+                    ? pattern.substring(0, pattern.length() - WILDCARD_SUFFIX.length()) : pattern;
+            this.limit = limit;
+            // 時刻の加算が桁あふれしないよう、間隔・許容範囲はMAX_NANOSで打ち切る
+            this.intervalNanos = Math.min(MAX_NANOS,
+                    Math.max(1L, Math.round(TimeUnit.SECONDS.toNanos(1) / limit.permitsPerSecond())));
+            this.toleranceNanos = intervalNanos > MAX_NANOS / limit.burst()
+                    ? MAX_NANOS : intervalNanos * limit.burst();
+            this.stripes = new Cache[stripeCount];
+            this.mask = stripeCount - 1;
+            long maxKeysPerStripe = Math.max(1L, (maxKeys + stripeCount - 1) / stripeCount);
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = Caffeine.newBuilder()
+                        .maximumSize(maxKeysPerStripe)
+                        .expireAfterAccess(idleTimeout)
+                        .ticker(ticker)
+                        // 追い出しの処理をリクエストスレッドで行い、共通のスレッドプールを使用しない
+                        .executor(Runnable::run)
+                        .build();
+            }
+        }
+
+        /**
+         * パスのパターンを返します。
+         *
+         * @return パターン（メトリクスのタグにも使用する）
+         */
+        public String pattern() {
+            return pattern;
+        }
+
+        /**
+         * 制限を返します。
+         *
+         * @return 制限
+         */
+        public Limit limit() {
+            return limit;
+        }
+
+        /**
+         * 統計情報を返します。
+         *
+         * @return 許可・拒否したリクエスト数と保持しているバケット数
+         */
+        public Stats stats() {
+            long keys = 0;
+            for (Cache<String, AtomicLong> stripe : stripes) {
+                keys += stripe.estimatedSize();
+            }
+            return new Stats(allowed.sum(), rejected.sum(), keys);
+        }
+
+        boolean matchesPrefix(String path) {
+            return path.startsWith(prefix)
+                    && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+        }
+
+        long tryAcquire(String client, long now) {
+            AtomicLong bucket = stripes[spread(client.hashCode()) & mask].get(client, key -> new AtomicLong(now));
+            while (true) {
+                long theoreticalArrival = bucket.get();
+                long next = Math.max(theoreticalArrival, now) + intervalNanos;
+                // バケットが空（補充済みとみなされる時刻が許容範囲より先）の場合は拒否する
+                long wait = next - now - toleranceNanos;
+                if (wait > 0) {
+                    rejected.increment();
+                    return wait;
+                }
+                if (bucket.compareAndSet(theoreticalArrival, next)) {
+                    allowed.increment();
+                    return 0;
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            // Caffeineの内部のハッシュと異なるビットでストライプを選択する
+            return (hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.oneaccountsample.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * JwtDecoderをReactiveJwtDecoderとして利用するためのアダプター。
+ * <p>
+ * サーブレット版と同じデコーダ（署名鍵の管理・同時検証の集約・キャッシュ）を共有します。
+ * 委譲先が {@link CachedJwtLookup} の場合、キャッシュヒットはスレッドを切り替えずにイベントループ上で返します。
+ * キャッシュミスは未知のkidによるJWKSの再取得や同時検証の待ち合わせでブロックする可能性があるため、
+ * イベントループではなく指定したスケジューラ上でデコードします。
+ */
+public class ReactiveJwtDecoderAdapter implements ReactiveJwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Scheduler scheduler;
+
+    /**
+     * @param delegate 実際の検証を行うJwtDecoder
+     */
+    public ReactiveJwtDecoderAdapter(JwtDecoder delegate) {
+        this(delegate, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param delegate  実際の検証を行うJwtDecoder
+     * @param scheduler デコードを実行するスケジューラ
+     */
+    public ReactiveJwtDecoderAdapter(JwtDecoder delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * トークンをデコードします。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt（検証に失敗した場合はJwtExceptionでエラー終了）
+     * @throws JwtException 発生しない（エラーはMonoで通知）
+     */
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        return Mono.defer(() -> {
+            Jwt cached = delegate instanceof CachedJwtLookup lookup ? lookup.getIfPresent(token) : null;
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return Mono.fromCallable(() -> delegate.decode(token)).subscribeOn(scheduler);
+        });
+    }
+}
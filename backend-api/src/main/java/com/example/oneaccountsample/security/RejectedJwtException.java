@@ -0,0 +1,31 @@
+package com.example.oneaccountsample.security;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+/**
+ * 署名検証の前に拒否されたトークンを表す例外。
+ * <p>
+ * 拒否の理由を保持し、{@link AuthFailureReason#of} がメッセージに頼らずに判定できるようにします。
+ */
+public class RejectedJwtException extends BadJwtException {
+
+    private final AuthFailureReason reason;
+
+    /**
+     * @param reason  拒否の理由
+     * @param message メッセージ
+     */
+    public RejectedJwtException(AuthFailureReason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * 拒否の理由を返します。
+     *
+     * @return 拒否の理由
+     */
+    public AuthFailureReason reason() {
+        return reason;
+    }
+}
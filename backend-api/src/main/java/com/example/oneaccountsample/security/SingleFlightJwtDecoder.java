@@ -0,0 +1,102 @@
+package com.example.oneaccountsample.security;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * 同一トークンの同時デコードを1回の検証にまとめるJwtDecoder。
+ * <p>
+ * 画面表示時にフロントエンドが同じCookieで並列にAPIを呼び出すと、
+ * 同じJWTの署名検証が複数スレッドで同時に走ります。
+ * 最初に到着したリクエスト（リーダー）だけが委譲先で検証を行い、
+ * 検証中に到着した後続リクエストはその結果（成功/失敗とも）を共有します。
+ */
+public class SingleFlightJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final ConcurrentHashMap<String, CompletableFuture<Jwt>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param delegate 実際の検証を行うJwtDecoder
+     */
+    public SingleFlightJwtDecoder(JwtDecoder delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * トークンをデコードします。
+     * <p>
+     * 同じトークンの検証が進行中であればその完了を待って結果を返します。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt
+     * @throws JwtException 検証に失敗した場合
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        CompletableFuture<Jwt> flight = new CompletableFuture<>();
+        CompletableFuture<Jwt> existing = inFlight.putIfAbsent(token, flight);
+        if (existing != null) {
+            // 進行中の検証に相乗りする
+            coalesced.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            Jwt jwt = delegate.decode(token);
+            flight.complete(jwt);
+            return jwt;
+        } catch (RuntimeException | Error e) {
+            // Error（StackOverflowError等）でも完了させ、待機中の後続が止まったままにならないようにする
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 完了後は次のリクエストが新たに検証できるよう登録を解除する
+            inFlight.remove(token, flight);
+        }
+    }
+
+    /**
+     * リーダーとして検証した件数と相乗りした件数を返します。
+     *
+     * @return 統計情報
+     */
+    public Stats stats() {
+        return new Stats(leaders.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private static Jwt await(CompletableFuture<Jwt> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // リーダーが受け取った例外をそのまま後続にも伝える
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new JwtException("An error occurred while attempting to decode the Jwt", e.getCause());
+        }
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param leaders   委譲先で実際に検証した件数
+     * @param coalesced 進行中の検証結果を共有した件数
+     * @param inFlight  現在進行中の検証数
+     */
+    public record Stats(long leaders, long coalesced, int inFlight) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.oneaccountsample.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * デコード処理の所要時間（auth.jwt.decode）と失敗理由を記録するJwtDecoder。
+ * <p>
+ * JwtDecoder Beanの最も外側に配置し、キャッシュヒットを含むデコード全体を計測します。
+ * 委譲先がキャッシュの場合は {@link #getIfPresent(String)} によるブロックしない参照のヒットも同じく記録します。
+ */
+public class TimedJwtDecoder implements JwtDecoder, CachedJwtLookup {
+
+    private final JwtDecoder delegate;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final AuthFailureMetrics failureMetrics;
+
+    /**
+     * @param delegate       実際の検証を行うJwtDecoder
+     * @param registry       メーターレジストリ
+     * @param failureMetrics 認証失敗の理由別カウンター
+     */
+    public TimedJwtDecoder(JwtDecoder delegate, MeterRegistry registry, AuthFailureMetrics failureMetrics) {
+        this.delegate = delegate;
+        this.successTimer = timer(registry, "success");
+        this.failureTimer = timer(registry, "failure");
+        this.failureMetrics = failureMetrics;
+    }
+
+    /**
+     * トークンをデコードし、所要時間を記録します。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt
+     * @throws JwtException 検証に失敗した場合
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        try {
+            Jwt jwt = delegate.decode(token);
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return jwt;
+        } catch (JwtException e) {
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            failureMetrics.record(AuthFailureReason.of(e));
+            throw e;
+        }
+    }
+
+    /**
+     * 委譲先のキャッシュに有効な検証済みJwtがあれば返し、所要時間を成功として記録します。
+     *
+     * @param token JWT文字列
+     * @return 検証済みJwt（委譲先がキャッシュでない、またはキャッシュにない場合はnull）
+     */
+    @Override
+    public Jwt getIfPresent(String token) {
+        if (!(delegate instanceof CachedJwtLookup lookup)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Jwt jwt = lookup.getIfPresent(token);
+        if (jwt != null) {
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return jwt;
+    }
+
+    private static Timer timer(MeterRegistry registry, String outcome) {
+        return Timer.builder("auth.jwt.decode")
+                .description("Time spent decoding and verifying access tokens")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
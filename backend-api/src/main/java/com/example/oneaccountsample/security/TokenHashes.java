@@ -0,0 +1,64 @@
+package com.example.oneaccountsample.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * トークンからキャッシュキー用のハッシュ値・識別子を生成するユーティリティ。
+ * <p>
+ * 生のトークンをそのままキーとして保持しないよう、SHA-256ダイジェストを
+ * Base64URL（パディングなし）で表現した文字列を返します。
+ */
+public final class TokenHashes {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private TokenHashes() {
+    }
+
+    /**
+     * トークンのSHA-256ハッシュを返します。
+     *
+     * @param token 生のトークン文字列
+     * @return Base64URL形式のハッシュ値（43文字）
+     */
+    public static String sha256(String token) {
+        return sha256(token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * バイト列のSHA-256ハッシュを返します（レスポンス本文のETag等）。
+     *
+     * @param bytes バイト列
+     * @return Base64URL形式のハッシュ値（43文字）
+     */
+    public static String sha256(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ENCODER.encodeToString(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256はすべてのJava実装で必須のため到達しない
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * トークンごとのキャッシュキーに使用する識別子を返します。
+     * <p>
+     * jti は発行者ごとに一意のため、jti があれば発行者と組み合わせた値を、
+     * なければトークンのハッシュ値を返します。
+     *
+     * @param jwt 検証済みJwt
+     * @return 識別子（jti もトークン文字列もない場合はnull）
+     */
+    public static String identityOf(Jwt jwt) {
+        if (jwt.getId() != null) {
+            return jwt.getIssuer() + "#" + jwt.getId();
+        }
+        return jwt.getTokenValue() == null ? null : sha256(jwt.getTokenValue());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.oneaccountsample.security;
+
+/**
+ * リフレッシュトークンによるトークンの更新に失敗したことを表す例外。
+ * <p>
+ * リフレッシュトークンが失効・使用済み等でKeycloakに拒否された場合（{@link #rejected()} がtrue）と、
+ * Keycloakに接続できない等で更新できなかった場合（false）を区別します。
+ * 拒否された場合は再試行しても更新できないため、呼び出し元はCookieを削除して再ログインを促します。
+ */
+public class TokenRefreshException extends RuntimeException {
+
+    private final boolean rejected;
+
+    /**
+     * @param rejected Keycloakに拒否された場合true
+     * @param message  メッセージ
+     * @param cause    原因（ない場合はnull）
+     */
+    public TokenRefreshException(boolean rejected, String message, Throwable cause) {
+        super(message, cause);
+        this.rejected = rejected;
+    }
+
+    /**
+     * リフレッシュトークンがKeycloakに拒否されたかを返します。
+     *
+     * @return 拒否された場合true、Keycloakに接続できない等の一時的な失敗の場合false
+     */
+    public boolean rejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.oneaccountsample.security;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * リフレッシュトークンをKeycloakのトークンエンドポイントで新しいトークンに交換するクライアント。
+ * <p>
+ * 画面表示時にフロントエンドが並列にAPIを呼び出すと、アクセストークンの期限切れに対して
+ * 同じリフレッシュトークンでの更新が同時に発生します。Keycloakはリフレッシュトークンのローテーション
+ * （revokeRefreshToken）が有効な場合、2回目以降の使用を拒否してセッションを無効にするため、
+ * 同じリフレッシュトークンの更新は次のように1回の呼び出しにまとめます。
+ * <ul>
+ *   <li>最初に到着した要求（リーダー）だけがトークンエンドポイントを呼び出し、
+ *       呼び出し中に到着した後続の要求はその結果（成功/拒否とも）を共有する</li>
+ *   <li>呼び出しの完了後も結果を短時間（resultTtl）保持し、少し遅れて到着した要求
+ *       （別タブや古いCookieで送信されたリクエスト）にも同じトークンを返す</li>
+ *   <li>Keycloakに接続できない等の一時的な失敗は保持せず、次の要求で再度呼び出す</li>
+ * </ul>
+ * リフレッシュトークンはSHA-256ハッシュをキーとして扱い、生の値は保持しません。
+ */
+public class TokenRefresher {
+
+    private final String tokenUri;
+    private final String clientId;
+    private final String clientSecret;
+    private final RestClient restClient;
+    private final Cache<String, CompletableFuture<Tokens>> results;
+    private final ConcurrentHashMap<String, CompletableFuture<Tokens>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param tokenUri       トークンエンドポイントのURI
+     * @param clientId       クライアントID
+     * @param clientSecret   クライアントシークレット（パブリッククライアントの場合は空）
+     * @param resultTtl      更新結果を保持する期間
+     * @param maxEntries     更新結果を保持する最大件数
+     * @param connectTimeout 接続タイムアウト
+     * @param readTimeout    読み取りタイムアウト
+     */
+    public TokenRefresher(String tokenUri, String clientId, String clientSecret, Duration resultTtl,
+            long maxEntries, Duration connectTimeout, Duration readTimeout) {
+        this(tokenUri, clientId, clientSecret, resultTtl, maxEntries, connectTimeout, readTimeout,
+                Ticker.systemTicker());
+    }
+
+    TokenRefresher(String tokenUri, String clientId, String clientSecret, Duration resultTtl, long maxEntries,
+            Duration connectTimeout, Duration readTimeout, Ticker ticker) {
+        this.tokenUri = tokenUri;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) connectTimeout.toMillis());
+        requestFactory.setReadTimeout((int) readTimeout.toMillis());
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(resultTtl)
+                .maximumSize(maxEntries)
+                .ticker(ticker)
+                // 追い出しの処理をリクエストのスレッドで行い、共通のスレッドプールを使用しない
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * トークンの更新を行わないTokenRefresherを返します（auth.refresh.enabled=false の場合）。
+     *
+     * @return 無効なTokenRefresher
+     */
+    public static TokenRefresher disabled() {
+        return new TokenRefresher(null, null, null, Duration.ofSeconds(1), 1, Duration.ofSeconds(1),
+                Duration.ofSeconds(1));
+    }
+
+    /**
+     * トークンの更新が有効かを返します。
+     *
+     * @return 有効な場合true
+     */
+    public boolean isEnabled() {
+        return tokenUri != null;
+    }
+
+    /**
+     * リフレッシュトークンを新しいトークンに交換します。
+     * <p>
+     * 同じリフレッシュトークンの交換が進行中であればその完了を待ち、
+     * 直前に交換済みであればその結果を返します。
+     *
+     * @param refreshToken リフレッシュトークン
+     * @return 新しいトークン
+     * @throws TokenRefreshException 交換に失敗した場合
+     * @throws IllegalStateException 無効なTokenRefresherの場合
+     */
+    public Tokens refresh(String refreshToken) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Token refresh is disabled");
+        }
+        String key = TokenHashes.sha256(refreshToken);
+        CompletableFuture<Tokens> result = results.getIfPresent(key);
+        if (result != null) {
+            cached.increment();
+            return await(result);
+        }
+        CompletableFuture<Tokens> flight = new CompletableFuture<>();
+        CompletableFuture<Tokens> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            // 進行中の交換に相乗りする
+            coalesced.increment();
+            return await(existing);
+        }
+
+        boolean exchanged = false;
+        try {
+            // 直前のリーダーが結果を保持してから登録を解除するまでの間に到着した場合は、その結果を返す
+            result = results.getIfPresent(key);
+            Tokens tokens;
+            if (result != null) {
+                cached.increment();
+                tokens = await(result);
+            } else {
+                exchanges.increment();
+                exchanged = true;
+                tokens = exchange(refreshToken);
+                results.put(key, flight);
+            }
+            flight.complete(tokens);
+            return tokens;
+        } catch (TokenRefreshException e) {
+            if (exchanged && e.rejected()) {
+                // 拒否されたリフレッシュトークンは再度送信されても結果が変わらないため保持する
+                // （保持していた結果の再利用では格納し直さず、保持期間を延長しない）
+                results.put(key, flight);
+            }
+            flight.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // Error（StackOverflowError等）でも完了させ、待機中の後続が止まったままにならないようにする
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 結果を保持した後に登録を解除し、後続の要求がどちらかを必ず参照できるようにする
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 統計情報を返します。
+     *
+     * @return トークンエンドポイントの呼び出し・相乗り・保持した結果の使用・拒否・失敗の件数
+     */
+    public Stats stats() {
+        return new Stats(exchanges.sum(), coalesced.sum(), cached.sum(), rejected.sum(), failures.sum(),
+                inFlight.size());
+    }
+
+    private Tokens exchange(String refreshToken) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "refresh_token");
+        form.add("refresh_token", refreshToken);
+        form.add("client_id", clientId);
+        if (clientSecret != null && !clientSecret.isEmpty()) {
+            form.add("client_secret", clientSecret);
+        }
+        JsonNode response;
+        try {
+            response = restClient.post()
+                    .uri(URI.create(tokenUri))
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(form)
+                    .retrieve()
+                    .body(JsonNode.class);
+        } catch (HttpClientErrorException.BadRequest e) {
+            // invalid_grant（失効・使用済み・セッション終了）等
+            rejected.increment();
+            throw new TokenRefreshException(true, "The refresh token was rejected by " + tokenUri, e);
+        } catch (RestClientException e) {
+            failures.increment();
+            throw new TokenRefreshException(false, "Failed to refresh the token at " + tokenUri, e);
+        }
+        if (response == null || !response.hasNonNull("access_token")) {
+            failures.increment();
+            throw new TokenRefreshException(false, "No access_token in the response from " + tokenUri, null);
+        }
+        return new Tokens(response.get("access_token").asText(),
+                response.hasNonNull("refresh_token") ? response.get("refresh_token").asText() : null,
+                response.path("expires_in").asLong(0),
+                response.path("refresh_expires_in").asLong(0));
+    }
+
+    private static Tokens await(CompletableFuture<Tokens> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // リーダーが受け取った例外をそのまま後続にも伝える
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new TokenRefreshException(false, "Failed to refresh the token", e.getCause());
+        }
+    }
+
+    /**
+     * トークンエンドポイントから受け取ったトークン。
+     *
+     * @param accessToken      アクセストークン
+     * @param refreshToken     新しいリフレッシュトークン（ローテーションしない設定で返されない場合はnull）
+     * @param expiresIn        アクセストークンの有効期間（秒）
+     * @param refreshExpiresIn リフレッシュトークンの有効期間（秒、0の場合は期限なし）
+     */
+    public record Tokens(String accessToken, String refreshToken, long expiresIn, long refreshExpiresIn) {
+    }
+
+    /**
+     * 統計情報。
+     *
+     * @param exchanges トークンエンドポイントを呼び出した件数
+     * @param coalesced 進行中の交換の結果を共有した件数
+     * @param cached    保持していた交換の結果を返した件数
+     * @param rejected  リフレッシュトークンが拒否された件数
+     * @param failures  Keycloakに接続できない等で交換できなかった件数
+     * @param inFlight  現在進行中の交換数
+     */
+    public record Stats(long exchanges, long coalesced, long cached, long rejected, long failures, int inFlight) {
+    }
+}
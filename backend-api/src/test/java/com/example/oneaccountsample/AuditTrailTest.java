@@ -0,0 +1,126 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.audit.AuditEvent;
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.audit.AuditSegmentReader;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * APIへのアクセスの認証結果が監査ログのセグメントに記録されることを確認するテスト。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuditTrailTest {
+
+    private static StubOidcIssuer issuer;
+    private static Path auditDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        issuer = StubOidcIssuer.start("audit-realm");
+        auditDirectory = Files.createTempDirectory("audit");
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("jwt.provider.snapshot-path", () -> "");
+        registry.add("audit.directory", auditDirectory::toString);
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @Test
+    void recordsAuthenticatedAccess() throws Exception {
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", issuer.mintToken("audit-user"))))
+                .andExpect(status().isOk());
+
+        List<AuditEvent> events = eventsOf("audit-user");
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.outcome()).isEqualTo(AuditEvent.Outcome.AUTHENTICATED);
+            assertThat(event.method()).isEqualTo("GET");
+            assertThat(event.path()).isEqualTo("/api/user");
+            assertThat(event.status()).isEqualTo(200);
+            assertThat(event.latencyMicros()).isPositive();
+            assertThat(event.reason()).isNull();
+        });
+    }
+
+    @Test
+    void recordsDeniedAccess() throws Exception {
+        String token = issuer.mintToken("audit-denied", claims -> claims.claim("resource_access", Map.of()));
+
+        mockMvc.perform(get("/api/profile").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        assertThat(eventsOf("audit-denied")).singleElement().satisfies(event -> {
+            assertThat(event.outcome()).isEqualTo(AuditEvent.Outcome.DENIED);
+            assertThat(event.status()).isEqualTo(403);
+        });
+    }
+
+    @Test
+    void recordsFailuresWithReason() throws Exception {
+        mockMvc.perform(get("/api/profile"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/profile").cookie(new Cookie("access_token", issuer.mintToken("audit-expired", claims -> claims
+                .issueTime(Date.from(Instant.now().minusSeconds(600)))
+                .expirationTime(Date.from(Instant.now().minusSeconds(300)))))))
+                .andExpect(status().isUnauthorized());
+        assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+
+        List<AuditEvent> failures = new AuditSegmentReader(auditDirectory).query(new AuditSegmentReader.Query(
+                null, AuditEvent.Outcome.FAILED, "/api/profile", null, null, Long.MAX_VALUE));
+
+        assertThat(failures).extracting(AuditEvent::reason).contains("missing_token", "expired");
+        assertThat(failures).allSatisfy(event -> {
+            assertThat(event.subject()).isNull();
+            assertThat(event.status()).isEqualTo(401);
+        });
+    }
+
+    @Test
+    void doesNotRecordPublicEndpoints() throws Exception {
+        mockMvc.perform(get("/api/health"))
+                .andExpect(status().isOk());
+        assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(new AuditSegmentReader(auditDirectory).query(AuditSegmentReader.Query.all()))
+                .extracting(AuditEvent::path).doesNotContain("/api/health");
+    }
+
+    private List<AuditEvent> eventsOf(String subject) throws Exception {
+        assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+        return new AuditSegmentReader(auditDirectory).query(
+                new AuditSegmentReader.Query(subject, null, null, null, null, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Instant;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+/**
+ * 認証処理の各段階のメトリクスが記録され、Prometheus形式で公開されることを確認するテスト。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTest {
+
+    private static StubOidcIssuer issuer;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        issuer = StubOidcIssuer.start("metrics-realm");
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("jwt.provider.snapshot-path", () -> "");
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @Test
+    void recordsStagesAndFailureReasons() throws Exception {
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", issuer.mintToken("metrics-user"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/user"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", issuer.mintToken("metrics-user", claims -> claims
+                .issueTime(Date.from(Instant.now().minusSeconds(600)))
+                .expirationTime(Date.from(Instant.now().minusSeconds(300)))))))
+                .andExpect(status().isUnauthorized());
+
+        assertThat(meterRegistry.get("auth.cookie.extraction").timer().count()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("auth.jwt.decode").tag("outcome", "success").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("auth.oidc.fetch").tag("type", "jwks").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("api.response").tag("endpoint", "user").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("auth.failures").tag("reason", "missing_token").counter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("auth.failures").tag("reason", "expired").counter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("auth.jwks.keys").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void exposesPrometheusHistograms() throws Exception {
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", issuer.mintToken("metrics-user"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("auth_jwt_decode_seconds_bucket")))
+                .andExpect(content().string(containsString("auth_failures_total")))
+                .andExpect(content().string(containsString("auth_jwt_cache_requests_total")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.security.IssuerRoutingJwtDecoder;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * 複数のレルム（issuer）のトークンを受け付けることを確認するテスト。
+ * <p>
+ * 既定のissuerと2つの追加のissuer、設定にないissuerをローカルのOIDCプロバイダーで起動します。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MultiIssuerTest {
+
+    private static StubOidcIssuer primary;
+    private static StubOidcIssuer brandA;
+    private static StubOidcIssuer brandB;
+    private static StubOidcIssuer unlisted;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IssuerRoutingJwtDecoder issuerRoutingJwtDecoder;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        primary = StubOidcIssuer.start("one-account-realm");
+        brandA = StubOidcIssuer.start("brand-a-realm");
+        brandB = StubOidcIssuer.start("brand-b-realm");
+        unlisted = StubOidcIssuer.start("unlisted-realm");
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", primary::issuerUri);
+        registry.add("jwt.issuers.additional", () -> brandA.issuerUri() + "," + brandB.issuerUri());
+        registry.add("jwt.provider.snapshot-path", () -> "");
+    }
+
+    @AfterAll
+    static void stopIssuers() {
+        primary.close();
+        brandA.close();
+        brandB.close();
+        unlisted.close();
+    }
+
+    @Test
+    void acceptsTokensFromConfiguredIssuers() throws Exception {
+        // 追加のissuerの鍵は起動時には取得しない
+        assertThat(brandB.discoveryRequests()).isZero();
+
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", primary.mintToken("primary-user"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("primary-user"));
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", brandA.mintToken("brand-a-user"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("brand-a-user"));
+        mockMvc.perform(get("/api/profile")
+                .header("Authorization", "Bearer " + brandB.mintToken("brand-b-user")))
+                .andExpect(status().isOk());
+
+        assertThat(issuerRoutingJwtDecoder.stats().loaded()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsTokensFromUnlistedIssuer() throws Exception {
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", unlisted.mintToken("user"))))
+                .andExpect(status().isUnauthorized());
+
+        assertThat(unlisted.discoveryRequests()).isZero();
+    }
+}
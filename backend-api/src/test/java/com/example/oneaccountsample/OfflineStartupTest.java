@@ -0,0 +1,111 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.health.ReadinessMonitor;
+import com.example.oneaccountsample.security.JwkSetManager;
+import com.example.oneaccountsample.security.OidcProviderSnapshot;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * issuerに到達できない状態でもスナップショットから起動し、
+ * トークンを検証できることを確認するテスト。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OfflineStartupTest {
+
+    /** 接続できないissuer（ポート1は待ち受けていない） */
+    private static final String UNREACHABLE_ISSUER = "http://127.0.0.1:1/realms/offline-realm";
+
+    private static RSAKey signingKey;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwkSetManager jwkSetManager;
+
+    @Autowired
+    private ReadinessMonitor readinessMonitor;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException, JOSEException {
+        signingKey = new RSAKeyGenerator(2048).keyID("snapshot-key").generate();
+        Path snapshotPath = Files.createTempDirectory("oidc-snapshot").resolve("snapshot.json");
+        OidcProviderSnapshot snapshot = new OidcProviderSnapshot(UNREACHABLE_ISSUER,
+                Map.of("issuer", UNREACHABLE_ISSUER, "jwks_uri", UNREACHABLE_ISSUER + "/protocol/openid-connect/certs"),
+                new JWKSet(signingKey.toPublicJWK()).toJSONObject(true), Instant.now());
+        new ObjectMapper().findAndRegisterModules().writeValue(snapshotPath.toFile(), snapshot);
+
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", () -> UNREACHABLE_ISSUER);
+        registry.add("jwt.provider.snapshot-path", snapshotPath::toString);
+    }
+
+    @Test
+    void contextStartsWithKeysFromSnapshot() {
+        assertThat(jwkSetManager.snapshot()).get().extracting(OidcProviderSnapshot::issuer).isEqualTo(UNREACHABLE_ISSUER);
+    }
+
+    @Test
+    void healthCheck_isServedWithoutIssuer() throws Exception {
+        mockMvc.perform(get("/api/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void readiness_isReadyWithSnapshotKeysWhileIssuerIsDown() throws Exception {
+        // プローブはバックグラウンドで実行されるため、両方の結果が反映されるまで待つ
+        for (int i = 0; i < 50 && readinessMonitor.current().checks().containsValue(
+                new ReadinessMonitor.Check("UNKNOWN", null)); i++) {
+            Thread.sleep(100);
+        }
+
+        mockMvc.perform(get("/api/health/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"))
+                .andExpect(jsonPath("$.checks.signingKeys.status").value("UP"))
+                .andExpect(jsonPath("$.checks.issuer.status").value("DOWN"))
+                .andExpect(jsonPath("$.checks.issuer.required").value(false));
+    }
+
+    @Test
+    void getUserInfo_acceptsTokenSignedWithSnapshotKey() throws Exception {
+        String token = StubOidcIssuer.sign(signingKey, new JWTClaimsSet.Builder()
+                .issuer(UNREACHABLE_ISSUER)
+                .subject("user123")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .claim("preferred_username", "testuser")
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm")))
+                .build());
+
+        mockMvc.perform(get("/api/user").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("user123"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.ImageFromDockerfile;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * 起動最適化イメージ（Dockerfile.cds: Spring AOT・CDSアーカイブ・レイヤー展開）が
+ * 正しく起動し、APIを提供することを確認するテスト。
+ * <p>
+ * イメージのビルドに時間がかかるため、環境変数 STARTUP_IMAGE_TEST=true の場合のみ実行します。
+ * STARTUP_IMAGE にイメージ名を指定した場合はビルド済みのイメージを使用します。
+ * <pre>
+ * STARTUP_IMAGE_TEST=true ./gradlew test --tests '*OptimizedImageTest'
+ * </pre>
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfEnvironmentVariable(named = "STARTUP_IMAGE_TEST", matches = "true")
+class OptimizedImageTest {
+
+    @Container
+    private static final GenericContainer<?> APPLICATION = new GenericContainer<>(image())
+            // Keycloakに到達できない状態でも起動し、認証不要のエンドポイントは応答する
+            .withEnv("KEYCLOAK_ISSUER_URI", "http://127.0.0.1:1/realms/one-account-realm")
+            .withEnv("OIDC_SNAPSHOT_PATH", "")
+            .withExposedPorts(8080)
+            .waitingFor(Wait.forHttp("/api/health").forStatusCode(200))
+            .withStartupTimeout(Duration.ofMinutes(2));
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void health_returnsOk() throws Exception {
+        HttpResponse<String> response = get("/api/health");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("OK");
+    }
+
+    @Test
+    void user_requiresToken() throws Exception {
+        assertThat(get("/api/user").statusCode()).isEqualTo(401);
+    }
+
+    @Test
+    void startsWithAotProcessedContextAndCdsArchive() throws Exception {
+        assertThat(APPLICATION.getLogs()).contains("Starting AOT-processed OneAccountSampleApplication");
+        // アーカイブを使用できない場合、JVMは起動時にcdsの警告を出力する
+        assertThat(APPLICATION.getLogs()).doesNotContainPattern("\\[warning\\]\\[cds");
+        assertThat(APPLICATION.execInContainer("test", "-s", "/app/application.jsa").getExitCode()).isZero();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        URI uri = URI.create("http://" + APPLICATION.getHost() + ":" + APPLICATION.getMappedPort(8080) + path);
+        return client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Future<String> image() {
+        String image = System.getenv("STARTUP_IMAGE");
+        if (image != null && !image.isBlank()) {
+            return CompletableFuture.completedFuture(image);
+        }
+        // backend-apiをビルドコンテキストとしてDockerfile.cdsからビルドする
+        return new ImageFromDockerfile("backend-api-cds-test", false)
+                .withFileFromPath(".", Path.of("").toAbsolutePath())
+                .withDockerfile(Path.of("Dockerfile.cds").toAbsolutePath());
+    }
+}
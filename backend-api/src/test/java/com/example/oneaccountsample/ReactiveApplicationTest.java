@@ -0,0 +1,187 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.oneaccountsample.audit.AuditEvent;
+import com.example.oneaccountsample.audit.AuditLog;
+import com.example.oneaccountsample.audit.AuditSegmentReader;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+/**
+ * reactiveプロファイルでNetty上に起動し、サーブレット版と同じセキュリティ規則が
+ * 適用されることを確認するテスト。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveApplicationTest {
+
+    private static StubOidcIssuer issuer;
+    private static Path auditDirectory;
+
+    @Autowired
+    private ReactiveWebServerApplicationContext context;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        issuer = StubOidcIssuer.start("reactive-realm");
+        auditDirectory = Files.createTempDirectory("audit");
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("jwt.provider.snapshot-path", () -> "");
+        registry.add("audit.directory", auditDirectory::toString);
+        registry.add("health.readiness.drain-delay", () -> "0s");
+        // レート制限の確認用（他のテストが使用しないエンドポイントのみ制限を厳しくする）
+        registry.add("api.rate-limit.endpoints.[/api/health/live].permits-per-second", () -> "0.01");
+        registry.add("api.rate-limit.endpoints.[/api/health/live].burst", () -> "2");
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @Test
+    void runsOnNetty() {
+        assertThat(context.getWebServer()).isInstanceOf(NettyWebServer.class);
+    }
+
+    @Test
+    void health_isPermittedWithoutToken() {
+        webTestClient.get().uri("/api/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("OK");
+    }
+
+    @Test
+    void user_requiresToken() {
+        webTestClient.get().uri("/api/user")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void user_acceptsTokenFromCookie() {
+        webTestClient.get().uri("/api/user")
+                .cookie("access_token", issuer.mintToken("cookie-user"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.subject").isEqualTo("cookie-user")
+                .jsonPath("$.username").isEqualTo("testuser");
+    }
+
+    @Test
+    void profile_acceptsTokenFromAuthorizationHeader() {
+        webTestClient.get().uri("/api/profile")
+                .header("Authorization", "Bearer " + issuer.mintToken("header-user"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("test@example.com");
+    }
+
+    @Test
+    void profile_requiresProfileReadAuthority() {
+        String token = issuer.mintToken("no-client-roles", claims -> claims.claim("resource_access", Map.of()));
+
+        webTestClient.get().uri("/api/profile")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isForbidden();
+        webTestClient.get().uri("/api/user")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void user_rejectsInvalidToken() {
+        webTestClient.get().uri("/api/user")
+                .cookie("access_token", "not-a-jwt")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void corsPreflight_isAnsweredForAllowedOriginOnly() {
+        webTestClient.options().uri("/api/user")
+                .header("Origin", "http://localhost:3000")
+                .header("Access-Control-Request-Method", "GET")
+                .header("Access-Control-Request-Headers", "authorization")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Access-Control-Allow-Origin", "http://localhost:3000")
+                .expectHeader().valueEquals("Access-Control-Allow-Headers", "authorization")
+                .expectHeader().valueEquals("Access-Control-Allow-Credentials", "true");
+        webTestClient.options().uri("/api/user")
+                .header("Origin", "http://evil.example.com")
+                .header("Access-Control-Request-Method", "GET")
+                .exchange()
+                .expectStatus().isForbidden()
+                .expectHeader().doesNotExist("Access-Control-Allow-Origin");
+    }
+
+    @Test
+    void rateLimit_rejectsRequestsOverLimitWithRetryAfter() {
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get().uri("/api/health/live")
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+        webTestClient.get().uri("/api/health/live")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().value("Retry-After", retryAfter -> assertThat(Long.parseLong(retryAfter)).isPositive());
+    }
+
+    @Test
+    void recordsAuditEvents() throws Exception {
+        webTestClient.get().uri("/api/user")
+                .cookie("access_token", issuer.mintToken("reactive-audit-user"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/profile")
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        // 記録はレスポンスの送信後に行われるため、書き込まれるまで待つ
+        AuditSegmentReader reader = new AuditSegmentReader(auditDirectory);
+        List<AuditEvent> events = List.of();
+        for (int i = 0; i < 50 && events.size() < 2; i++) {
+            assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+            events = reader.query(AuditSegmentReader.Query.all()).stream()
+                    .filter(event -> "reactive-audit-user".equals(event.subject())
+                            || (event.outcome() == AuditEvent.Outcome.FAILED && "/api/profile".equals(event.path())))
+                    .toList();
+            Thread.sleep(100);
+        }
+
+        assertThat(events).extracting(AuditEvent::outcome)
+                .containsExactlyInAnyOrder(AuditEvent.Outcome.AUTHENTICATED, AuditEvent.Outcome.FAILED);
+        assertThat(events).filteredOn(event -> event.outcome() == AuditEvent.Outcome.FAILED)
+                .extracting(AuditEvent::reason).containsExactly("missing_token");
+    }
+}
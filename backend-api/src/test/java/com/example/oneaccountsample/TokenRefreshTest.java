@@ -0,0 +1,193 @@
+package com.example.oneaccountsample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.config.CookieAuthenticationFilter;
+import com.example.oneaccountsample.config.TokenRefreshFilter;
+import com.example.oneaccountsample.security.TokenRefresher;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+import com.example.oneaccountsample.support.StubTokenEndpoint;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.Cookie;
+
+/**
+ * トークン更新API（/api/auth/refresh）と透過的な更新（auth.refresh.transparent=true）のテスト。
+ * <p>
+ * トークンエンドポイントはKeycloakと同じくリフレッシュトークンをローテーションし、再使用を検知するとセッションを無効にします。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRefreshTest {
+
+    private static final int CALLERS = 16;
+
+    private static StubOidcIssuer issuer;
+    private static StubTokenEndpoint tokenEndpoint;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenRefresher refresher;
+
+    @Autowired
+    private SecurityFilterChain filterChain;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        issuer = StubOidcIssuer.start("refresh-realm");
+        tokenEndpoint = StubTokenEndpoint.attach(issuer);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("jwt.provider.snapshot-path", () -> "");
+        registry.add("api.rate-limit.enabled", () -> "false");
+        registry.add("auth.refresh.transparent", () -> "true");
+        registry.add("auth.refresh.client-id", () -> StubTokenEndpoint.CLIENT_ID);
+        registry.add("auth.refresh.client-secret", () -> StubTokenEndpoint.CLIENT_SECRET);
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        tokenEndpoint.release();
+        issuer.close();
+    }
+
+    @Test
+    void refresh_rotatesCookies() throws Exception {
+        String refreshToken = tokenEndpoint.login("user123");
+
+        MockHttpServletResponse response = mockMvc.perform(post("/api/auth/refresh")
+                        .cookie(new Cookie("refresh_token", refreshToken)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(cookie().httpOnly("access_token", true))
+                .andExpect(cookie().maxAge("access_token", 300))
+                .andExpect(cookie().sameSite("refresh_token", "Lax"))
+                .andExpect(cookie().maxAge("refresh_token", 1800))
+                .andReturn().getResponse();
+
+        assertThat(response.getCookie("refresh_token").getValue()).isNotEqualTo(refreshToken);
+        mockMvc.perform(get("/api/user").cookie(response.getCookie("access_token")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("user123"));
+    }
+
+    @Test
+    void refresh_concurrentRequestsShareOneExchange() throws Exception {
+        String refreshToken = tokenEndpoint.login("user456");
+        int requestsBefore = tokenEndpoint.refreshRequests();
+        long coalescedBefore = refresher.stats().coalesced();
+        tokenEndpoint.hold();
+
+        List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> mockMvc.perform(post("/api/auth/refresh")
+                        .cookie(new Cookie("refresh_token", refreshToken), new Cookie("access_token", "expired")))
+                        .andReturn().getResponse()));
+            }
+            // 全員がリーダーの交換待ちに入るまで待ってから応答させる
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (refresher.stats().coalesced() - coalescedBefore < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            tokenEndpoint.release();
+        } finally {
+            executor.shutdown();
+        }
+
+        String rotated = null;
+        for (Future<MockHttpServletResponse> result : results) {
+            MockHttpServletResponse response = result.get(10, TimeUnit.SECONDS);
+            assertThat(response.getStatus()).isEqualTo(204);
+            String value = response.getCookie("refresh_token").getValue();
+            assertThat(rotated == null || rotated.equals(value)).isTrue();
+            rotated = value;
+        }
+        assertThat(tokenEndpoint.refreshRequests() - requestsBefore).isEqualTo(1);
+        assertThat(tokenEndpoint.isSessionActive(rotated)).isTrue();
+    }
+
+    @Test
+    void refresh_withoutOrWithRejectedCookieClearsCookies() throws Exception {
+        mockMvc.perform(post("/api/auth/refresh"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(cookie().maxAge("access_token", 0))
+                .andExpect(cookie().maxAge("refresh_token", 0));
+        mockMvc.perform(post("/api/auth/refresh").cookie(new Cookie("refresh_token", "unknown")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(cookie().maxAge("refresh_token", 0));
+    }
+
+    @Test
+    void transparentRefresh_authenticatesWithRefreshedTokenWhenAccessCookieIsMissingOrExpired() throws Exception {
+        String refreshToken = tokenEndpoint.login("user789");
+        MockHttpServletResponse response = mockMvc.perform(get("/api/user")
+                        .cookie(new Cookie("refresh_token", refreshToken)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("user789"))
+                .andExpect(cookie().exists("access_token"))
+                .andReturn().getResponse();
+
+        String expired = issuer.mintToken("user789", claims -> claims
+                .issueTime(Date.from(Instant.now().minusSeconds(600)))
+                .expirationTime(Date.from(Instant.now().minusSeconds(300))));
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", expired), response.getCookie("refresh_token")))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists("refresh_token"));
+    }
+
+    @Test
+    void transparentRefresh_keepsValidAccessToken() throws Exception {
+        int requestsBefore = tokenEndpoint.refreshRequests();
+
+        mockMvc.perform(get("/api/user").cookie(new Cookie("access_token", issuer.mintToken("user123")),
+                        new Cookie("refresh_token", tokenEndpoint.login("user123"))))
+                .andExpect(status().isOk())
+                .andExpect(cookie().doesNotExist("access_token"));
+
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(requestsBefore);
+    }
+
+    @Test
+    void tokenRefreshFilterRunsAfterCookieFilterAndBeforeAuthentication() {
+        List<Filter> filters = filterChain.getFilters();
+
+        assertThat(indexOf(filters, TokenRefreshFilter.class))
+                .isGreaterThan(indexOf(filters, CookieAuthenticationFilter.class))
+                .isLessThan(indexOf(filters, BearerTokenAuthenticationFilter.class));
+    }
+
+    private static int indexOf(List<Filter> filters, Class<? extends Filter> type) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (type.isInstance(filters.get(i))) {
+                return i;
+            }
+        }
+        throw new AssertionError(type.getSimpleName() + " is not in the filter chain");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.oneaccountsample;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.profile.KeycloakEventFeed;
+import com.example.oneaccountsample.support.StubKeycloakAdmin;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Keycloakでのプロフィールの変更が、再ログインせずに（同じトークンのまま）/api/profile に反映されることを確認するテスト。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserProfileFeedTest {
+
+    private static StubOidcIssuer issuer;
+    private static StubKeycloakAdmin admin;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private KeycloakEventFeed feed;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        issuer = StubOidcIssuer.start("profile-realm");
+        admin = StubKeycloakAdmin.attach(issuer);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuerUri);
+        registry.add("jwt.provider.snapshot-path", () -> "");
+        registry.add("profile.feed.enabled", () -> "true");
+        registry.add("profile.feed.client-id", () -> StubKeycloakAdmin.CLIENT_ID);
+        registry.add("profile.feed.client-secret", () -> StubKeycloakAdmin.CLIENT_SECRET);
+        registry.add("profile.feed.poll-interval", () -> "100ms");
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @Test
+    void profileReflectsKeycloakChangesWithoutNewToken() throws Exception {
+        admin.putUser("feed-user", "testuser", "test@example.com", "Taro", "Yamada");
+        Cookie token = new Cookie("access_token", issuer.mintToken("feed-user"));
+        mockMvc.perform(get("/api/profile").cookie(token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullName").value("Taro Yamada"));
+
+        long applied = feed.stats().applied();
+        admin.updateUserByAdmin("feed-user", System.currentTimeMillis(), "Taro", "Suzuki", "suzuki@example.com");
+        for (int i = 0; i < 50 && feed.stats().applied() == applied; i++) {
+            Thread.sleep(100);
+        }
+
+        mockMvc.perform(get("/api/profile").cookie(token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullName").value("Taro Suzuki"))
+                .andExpect(jsonPath("$.email").value("suzuki@example.com"));
+        mockMvc.perform(get("/api/user").cookie(token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Suzuki"));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.oneaccountsample.audit;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AuditLogTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void record_writesJsonLinesReadableByReader() throws Exception {
+        try (AuditLog auditLog = newAuditLog(64 * 1024, 10)) {
+            assertThat(auditLog.record(authenticated("user-1", "/api/user", 0))).isTrue();
+            assertThat(auditLog.record(failed("/api/profile", 1))).isTrue();
+            assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+
+            List<AuditEvent> events = new AuditSegmentReader(directory).query(AuditSegmentReader.Query.all());
+
+            assertThat(events).containsExactly(authenticated("user-1", "/api/user", 0), failed("/api/profile", 1));
+            assertThat(auditLog.stats().written()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void close_truncatesSegmentToWrittenLines() throws Exception {
+        AuditLog auditLog = newAuditLog(64 * 1024, 10);
+        auditLog.record(authenticated("user-1", "/api/user", 0));
+        auditLog.close();
+
+        List<Path> segments = new AuditSegmentReader(directory).segments();
+
+        assertThat(segments).hasSize(1);
+        String content = Files.readString(segments.get(0));
+        assertThat(content).endsWith("\n").doesNotContain("\0");
+        assertThat(content).contains("\"subject\":\"user-1\"").doesNotContain("\"reason\"");
+        assertThat(auditLog.record(authenticated("user-1", "/api/user", 1))).isFalse();
+    }
+
+    @Test
+    void append_rotatesSegmentsAndDeletesOldest() throws Exception {
+        try (AuditLog auditLog = newAuditLog(512, 3)) {
+            for (int i = 0; i < 40; i++) {
+                auditLog.record(authenticated("user-" + i, "/api/user", i));
+                // 1件ずつ書き込んでセグメントの作成順を確定させる
+                assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+            }
+
+            AuditSegmentReader reader = new AuditSegmentReader(directory);
+            List<AuditEvent> events = reader.query(AuditSegmentReader.Query.all());
+
+            assertThat(reader.segments()).hasSize(3);
+            assertThat(events).isNotEmpty().hasSizeLessThan(40);
+            // 残っているのは新しいイベント
+            assertThat(events.get(events.size() - 1).subject()).isEqualTo("user-39");
+        }
+    }
+
+    @Test
+    void query_filtersBySubjectOutcomePathAndTime() throws Exception {
+        try (AuditLog auditLog = newAuditLog(64 * 1024, 10)) {
+            auditLog.record(authenticated("user-1", "/api/user", 0));
+            auditLog.record(authenticated("user-2", "/api/profile", 10));
+            auditLog.record(failed("/api/user", 20));
+            auditLog.record(authenticated("user-1", "/api/profile", 30));
+            assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+        }
+        AuditSegmentReader reader = new AuditSegmentReader(directory);
+
+        assertThat(reader.query(new AuditSegmentReader.Query("user-1", null, null, null, null, Long.MAX_VALUE)))
+                .extracting(AuditEvent::path).containsExactly("/api/user", "/api/profile");
+        assertThat(reader.query(new AuditSegmentReader.Query(null, AuditEvent.Outcome.FAILED, null, null, null,
+                Long.MAX_VALUE))).extracting(AuditEvent::reason).containsExactly("missing_token");
+        assertThat(reader.query(new AuditSegmentReader.Query(null, null, "/api/profile", NOW.plusSeconds(10),
+                NOW.plusSeconds(30), Long.MAX_VALUE))).extracting(AuditEvent::subject).containsExactly("user-2");
+        assertThat(reader.query(new AuditSegmentReader.Query(null, null, null, null, null, 1))).hasSize(1);
+    }
+
+    @Test
+    void constructor_truncatesUnusedTailOfSegmentLeftByStoppedProcess() throws Exception {
+        // プロセスが停止して切り詰められなかったセグメント（書きかけの行と0埋めの未使用領域）
+        Path segment = directory.resolve(AuditSegmentWriter.segmentName(NOW.toEpochMilli()));
+        String line = "{\"timestamp\":\"2026-01-01T00:00:00Z\",\"outcome\":\"AUTHENTICATED\",\"subject\":\"user-1\"}\n";
+        Files.write(segment, (line + "{\"timestamp\":").getBytes(StandardCharsets.UTF_8));
+        Files.write(segment, new byte[1024], StandardOpenOption.APPEND);
+
+        assertThat(new AuditSegmentReader(directory).query(AuditSegmentReader.Query.all()))
+                .extracting(AuditEvent::subject).containsExactly("user-1");
+
+        try (AuditLog auditLog = newAuditLog(64 * 1024, 10)) {
+            assertThat(Files.readString(segment)).doesNotContain("\0").startsWith(line);
+            auditLog.record(authenticated("user-2", "/api/user", 1));
+            assertThat(auditLog.flush(Duration.ofSeconds(5))).isTrue();
+
+            assertThat(new AuditSegmentReader(directory).query(AuditSegmentReader.Query.all()))
+                    .extracting(AuditEvent::subject).containsExactly("user-1", "user-2");
+        }
+    }
+
+    @Test
+    void close_writesEveryEventAcceptedWhileClosing() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AuditLog auditLog = newAuditLog(directory.resolve("round-" + round), 64 * 1024, 10);
+            AtomicLong acceptedEvents = new AtomicLong();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 1000; i++) {
+                        if (auditLog.record(authenticated("user-" + i, "/api/user", 0))) {
+                            acceptedEvents.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            started.await();
+            auditLog.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // 終了と同時に受け付けたイベントも書き込まれ、書き込まれないイベントは破棄として数える
+            assertThat(auditLog.stats().written()).isEqualTo(acceptedEvents.get());
+            assertThat(auditLog.stats().written() + auditLog.stats().dropped()).isEqualTo(4000);
+        }
+    }
+
+    @Test
+    void disabled_recordsNothing() {
+        AuditLog auditLog = AuditLog.disabled();
+
+        assertThat(auditLog.isEnabled()).isFalse();
+        assertThat(auditLog.record(authenticated("user-1", "/api/user", 0))).isFalse();
+        assertThat(auditLog.flush(Duration.ZERO)).isTrue();
+        auditLog.close();
+    }
+
+    private AuditLog newAuditLog(int segmentSize, int maxSegments) throws IOException {
+        return newAuditLog(directory, segmentSize, maxSegments);
+    }
+
+    private static AuditLog newAuditLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        // ミリ秒ごとに進む時計（セグメント名の重複を避ける）
+        Clock clock = new Clock() {
+            private long millis = NOW.toEpochMilli();
+
+            @Override
+            public synchronized long millis() {
+                return millis++;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis());
+            }
+
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+        };
+        return new AuditLog(directory, 16, segmentSize, maxSegments, 8, Duration.ofMillis(10), clock);
+    }
+
+    private static AuditEvent authenticated(String subject, String path, int secondsAfter) {
+        return new AuditEvent(NOW.plusSeconds(secondsAfter), AuditEvent.Outcome.AUTHENTICATED, subject, "GET", path,
+                200, 120, null);
+    }
+
+    private static AuditEvent failed(String path, int secondsAfter) {
+        return new AuditEvent(NOW.plusSeconds(secondsAfter), AuditEvent.Outcome.FAILED, null, "GET", path, 401, 80,
+                "missing_token");
+    }
+}
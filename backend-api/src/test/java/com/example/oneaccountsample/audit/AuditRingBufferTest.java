@@ -0,0 +1,92 @@
+package com.example.oneaccountsample.audit;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AuditRingBufferTest {
+
+    @Test
+    void offer_returnsFalseWhenFull() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+    }
+
+    @Test
+    void drain_returnsElementsInOrderAndFreesSlots() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer(round * 4 + i)).isTrue();
+            }
+            assertThat(buffer.drain(drained::add, 2)).isEqualTo(2);
+            assertThat(buffer.drain(drained::add, 10)).isEqualTo(2);
+        }
+
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        assertThat(buffer.size()).isZero();
+        assertThat(buffer.drain(drained::add, 10)).isZero();
+    }
+
+    @Test
+    void constructor_rejectsCapacityNotPowerOfTwo() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new AuditRingBuffer<>(6));
+    }
+
+    @Test
+    void offer_concurrentProducersLoseNothing() throws Exception {
+        int producers = 8;
+        int perProducer = 20_000;
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        Set<Integer> drained = new HashSet<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        // 満杯の間は消費者が空けるまで再試行する
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (drained.size() < producers * perProducer && System.nanoTime() < deadline) {
+                buffer.drain(drained::add, 256);
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(drained).hasSize(producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
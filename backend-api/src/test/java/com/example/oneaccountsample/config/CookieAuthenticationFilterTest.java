@@ -1,5 +1,6 @@
 package com.example.oneaccountsample.config;
 
+import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -7,39 +8,78 @@ import java.io.IOException;
 
 import org.junit.jupiter.api.Test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 class CookieAuthenticationFilterTest {
     @Test
-    void doFilterInternal_addsAuthorizationHeaderIfAccessTokenCookieExists() throws ServletException, IOException {
-        CookieAuthenticationFilter filter = new CookieAuthenticationFilter();
+    void doFilterInternal_storesAccessTokenIfAccessTokenCookieExists() throws ServletException, IOException {
+        CookieAuthenticationFilter filter = new CookieAuthenticationFilter(new SimpleMeterRegistry());
         HttpServletRequest request = mock(HttpServletRequest.class);
         HttpServletResponse response = mock(HttpServletResponse.class);
         FilterChain chain = mock(FilterChain.class);
 
-        Cookie[] cookies = { new Cookie(CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME, "dummy-token") };
-        when(request.getCookies()).thenReturn(cookies);
+        when(request.getHeader("Cookie")).thenReturn(CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME + "=dummy-token");
         when(request.getHeader("Authorization")).thenReturn(null);
 
         filter.doFilterInternal(request, response, chain);
-        verify(chain, times(1)).doFilter(any(HttpServletRequest.class), eq(response));
+        verify(request).setAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE, "dummy-token");
+        // リクエストはラップせずにそのまま渡す
+        verify(chain, times(1)).doFilter(request, response);
     }
 
     @Test
-    void doFilterInternal_doesNotAddAuthorizationHeaderIfNoAccessTokenCookie() throws ServletException, IOException {
-        CookieAuthenticationFilter filter = new CookieAuthenticationFilter();
+    void doFilterInternal_doesNotStoreAccessTokenIfNoAccessTokenCookie() throws ServletException, IOException {
+        CookieAuthenticationFilter filter = new CookieAuthenticationFilter(new SimpleMeterRegistry());
         HttpServletRequest request = mock(HttpServletRequest.class);
         HttpServletResponse response = mock(HttpServletResponse.class);
         FilterChain chain = mock(FilterChain.class);
 
-        when(request.getCookies()).thenReturn(null);
+        when(request.getHeader("Cookie")).thenReturn(null);
         when(request.getHeader("Authorization")).thenReturn(null);
 
         filter.doFilterInternal(request, response, chain);
+        verify(request, never()).setAttribute(anyString(), any());
+        verify(chain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_ignoresCookieIfAuthorizationHeaderExists() throws ServletException, IOException {
+        CookieAuthenticationFilter filter = new CookieAuthenticationFilter(new SimpleMeterRegistry());
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        when(request.getHeader("Cookie")).thenReturn(CookieAuthenticationFilter.ACCESS_TOKEN_COOKIE_NAME + "=dummy-token");
+        when(request.getHeader("Authorization")).thenReturn("Bearer header-token");
+
+        filter.doFilterInternal(request, response, chain);
+        verify(request, never()).setAttribute(anyString(), any());
         verify(chain, times(1)).doFilter(request, response);
     }
+
+    @Test
+    void findCookieValue_findsValueAmongOtherCookies() {
+        String header = "_ga=GA1.1.1; xaccess_token=wrong; access_token_old=wrong;  access_token=token-value ; theme=dark";
+
+        assertThat(CookieAuthenticationFilter.findCookieValue(header, "access_token")).isEqualTo("token-value");
+    }
+
+    @Test
+    void findCookieValue_stripsQuotesAndReturnsFirstOccurrence() {
+        assertThat(CookieAuthenticationFilter.findCookieValue("access_token=\"quoted\"; access_token=second", "access_token"))
+                .isEqualTo("quoted");
+    }
+
+    @Test
+    void findCookieValue_returnsNullForMissingOrEmptyValue() {
+        assertThat(CookieAuthenticationFilter.findCookieValue("theme=dark", "access_token")).isNull();
+        assertThat(CookieAuthenticationFilter.findCookieValue("access_token=; theme=dark", "access_token")).isNull();
+        assertThat(CookieAuthenticationFilter.findCookieValue("access_token", "access_token")).isNull();
+        assertThat(CookieAuthenticationFilter.findCookieValue("", "access_token")).isNull();
+    }
 }
@@ -0,0 +1,49 @@
+package com.example.oneaccountsample.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CookieBearerTokenResolverTest {
+
+    private final CookieBearerTokenResolver resolver = new CookieBearerTokenResolver();
+
+    @Test
+    void resolve_returnsTokenFromAuthorizationHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer header-token");
+        request.setAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE, "cookie-token");
+
+        // Authorizationヘッダーを優先する
+        assertThat(resolver.resolve(request)).isEqualTo("header-token");
+    }
+
+    @Test
+    void resolve_returnsTokenFromCookie() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Cookie", "theme=dark; access_token=cookie-token");
+
+        new CookieAuthenticationFilter(new SimpleMeterRegistry()).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(resolver.resolve(request)).isEqualTo("cookie-token");
+    }
+
+    @Test
+    void resolve_returnsNullWithoutToken() {
+        assertThat(resolver.resolve(new MockHttpServletRequest())).isNull();
+    }
+
+    @Test
+    void resolve_ignoresNonBearerAuthorizationHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Basic dXNlcjpwYXNz");
+        request.setAttribute(CookieAuthenticationFilter.ACCESS_TOKEN_ATTRIBUTE, "cookie-token");
+
+        assertThat(resolver.resolve(request)).isNull();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.oneaccountsample.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+class CookieServerAuthenticationConverterTest {
+
+    private final CookieServerAuthenticationConverter converter = new CookieServerAuthenticationConverter();
+
+    @Test
+    void convert_returnsTokenFromAuthorizationHeader() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user")
+                .header("Authorization", "Bearer header-token")
+                .header("Cookie", "access_token=cookie-token"));
+
+        // Authorizationヘッダーを優先する
+        assertThat(tokenOf(converter.convert(exchange).block())).isEqualTo("header-token");
+    }
+
+    @Test
+    void convert_returnsTokenFromCookie() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user")
+                .header("Cookie", "theme=dark; access_token=cookie-token"));
+
+        assertThat(tokenOf(converter.convert(exchange).block())).isEqualTo("cookie-token");
+    }
+
+    @Test
+    void convert_returnsEmptyWithoutToken() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user")
+                .header("Cookie", "theme=dark"));
+
+        assertThat(converter.convert(exchange).block()).isNull();
+    }
+
+    private static String tokenOf(Authentication authentication) {
+        return ((BearerTokenAuthenticationToken) authentication).getToken();
+    }
+}
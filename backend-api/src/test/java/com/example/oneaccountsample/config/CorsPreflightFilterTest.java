@@ -0,0 +1,125 @@
+package com.example.oneaccountsample.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.filter.CorsFilter;
+
+class CorsPreflightFilterTest {
+
+    private final CompiledCorsConfigurationSource source = new CompiledCorsConfigurationSource(properties());
+    private final CorsPreflightFilter filter = new CorsPreflightFilter(source);
+
+    private static CorsProperties properties() {
+        CorsProperties properties = new CorsProperties();
+        properties.setAllowedOrigins(List.of("http://localhost:3000", "https://*.partner.example.com"));
+        return properties;
+    }
+
+    @Test
+    void constructor_rejectsAnyOriginWithCredentials() {
+        CorsProperties properties = properties();
+        properties.setAllowedOrigins(List.of("http://localhost:3000", "*"));
+        properties.setAllowCredentials(true);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new CompiledCorsConfigurationSource(properties))
+                .withMessageContaining("allow-credentials");
+
+        properties.setAllowCredentials(false);
+        CompiledCorsConfigurationSource anyOrigin = new CompiledCorsConfigurationSource(properties);
+        assertThat(anyOrigin.getCorsConfiguration(new MockHttpServletRequest()).checkOrigin("https://anything.example.org"))
+                .isEqualTo("*");
+    }
+
+    @Test
+    void preflight_returnsPrecomputedHeadersWithoutContinuingChain() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(preflight("https://a.partner.example.com", "POST", "content-type, x-requested-with"),
+                response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Access-Control-Allow-Origin")).isEqualTo("https://a.partner.example.com");
+        assertThat(response.getHeader("Access-Control-Allow-Methods")).isEqualTo("GET,POST,PUT,DELETE,OPTIONS");
+        assertThat(response.getHeader("Access-Control-Allow-Headers")).isEqualTo("content-type, x-requested-with");
+        assertThat(response.getHeader("Access-Control-Allow-Credentials")).isEqualTo("true");
+        assertThat(response.getHeader("Access-Control-Max-Age")).isEqualTo("3600");
+        assertThat(response.getHeader("Vary"))
+                .isEqualTo("Origin, Access-Control-Request-Method, Access-Control-Request-Headers");
+    }
+
+    @Test
+    void preflight_rejectsUnknownOriginAndMethod() throws Exception {
+        MockHttpServletResponse unknownOrigin = new MockHttpServletResponse();
+        filter.doFilter(preflight("https://evil.example.com", "GET", null), unknownOrigin, new MockFilterChain());
+        MockHttpServletResponse unknownMethod = new MockHttpServletResponse();
+        filter.doFilter(preflight("http://localhost:3000", "PATCH", null), unknownMethod, new MockFilterChain());
+
+        assertThat(unknownOrigin.getStatus()).isEqualTo(403);
+        assertThat(unknownOrigin.getContentAsString()).isEqualTo("Invalid CORS request");
+        assertThat(unknownOrigin.getHeader("Access-Control-Allow-Origin")).isNull();
+        assertThat(unknownMethod.getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    void preflight_matchesSpringCorsFilter() throws Exception {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(List.of("http://localhost:3000"));
+        configuration.setAllowedOriginPatterns(List.of("https://*.partner.example.com"));
+        configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedHeaders(List.of("*"));
+        configuration.setAllowCredentials(true);
+        configuration.setMaxAge(3600L);
+        UrlBasedCorsConfigurationSource springSource = new UrlBasedCorsConfigurationSource();
+        springSource.registerCorsConfiguration("/**", configuration);
+        CorsFilter springFilter = new CorsFilter(springSource);
+
+        for (String origin : List.of("http://localhost:3000", "https://a.partner.example.com",
+                "https://partner.example.com", "http://localhost:3001")) {
+            MockHttpServletResponse expected = new MockHttpServletResponse();
+            springFilter.doFilter(preflight(origin, "PUT", "authorization"), expected, new MockFilterChain());
+            MockHttpServletResponse actual = new MockHttpServletResponse();
+            filter.doFilter(preflight(origin, "PUT", "authorization"), actual, new MockFilterChain());
+
+            assertThat(actual.getStatus()).as(origin).isEqualTo(expected.getStatus());
+            assertThat(actual.getHeader("Access-Control-Allow-Origin")).as(origin)
+                    .isEqualTo(expected.getHeader("Access-Control-Allow-Origin"));
+            assertThat(actual.getHeader("Access-Control-Allow-Headers")).as(origin)
+                    .isEqualTo(expected.getHeader("Access-Control-Allow-Headers"));
+        }
+    }
+
+    @Test
+    void actualRequest_isHandledByCorsFilterWithCompiledOriginCheck() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user");
+        request.addHeader("Origin", "https://a.partner.example.com");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+        new CorsFilter(source).doFilter(request, response, new MockFilterChain());
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(response.getHeader("Access-Control-Allow-Origin")).isEqualTo("https://a.partner.example.com");
+        assertThat(response.getHeader("Access-Control-Allow-Credentials")).isEqualTo("true");
+    }
+
+    private static MockHttpServletRequest preflight(String origin, String method, String headers) {
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/api/user");
+        request.addHeader("Origin", origin);
+        request.addHeader("Access-Control-Request-Method", method);
+        if (headers != null) {
+            request.addHeader("Access-Control-Request-Headers", headers);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.oneaccountsample.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.example.oneaccountsample.security.RateLimiter;
+
+class RateLimitFilterTest {
+
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimiter());
+
+    private static RateLimiter rateLimiter() {
+        Map<String, RateLimiter.Limit> limits = new LinkedHashMap<>();
+        limits.put("/api/user", new RateLimiter.Limit(0.5, 2));
+        limits.put("/api/health/**", new RateLimiter.Limit(0.5, 1));
+        return new RateLimiter(limits, 100, Duration.ofMinutes(10), 1);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void rejectsAuthenticatedSubjectOverLimitWithRetryAfter() throws Exception {
+        authenticate("user-1");
+        assertThat(request("/api/user", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(request("/api/user", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        // 同じ sub であればIPアドレスが異なっても同じ制限を適用する
+        MockHttpServletResponse rejected = request("/api/user", "10.0.0.3");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+
+        authenticate("user-2");
+        assertThat(request("/api/user", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void limitsUnauthenticatedHealthChecksByRemoteAddress() throws Exception {
+        assertThat(request("/api/health", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(request("/api/health/ready", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(request("/api/health", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void ignoresPathsWithoutLimit() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(request("/api/other", "10.0.0.1").getStatus()).isEqualTo(200);
+            assertThat(request("/actuator/health", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse request(String path, String remoteAddress) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        // 拒否したリクエストは後続の処理に渡さない
+        assertThat(chain.getRequest() != null).isEqualTo(response.getStatus() != 429);
+        return response;
+    }
+
+    private static void authenticate(String subject) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+}
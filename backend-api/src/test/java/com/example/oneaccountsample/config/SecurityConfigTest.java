@@ -2,11 +2,18 @@ package com.example.oneaccountsample.config;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationContext;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.web.filter.CorsFilter;
+
+import jakarta.servlet.Filter;
 
 @SpringBootTest
 class SecurityConfigTest {
@@ -22,7 +29,14 @@ class SecurityConfigTest {
     @Test
     void corsConfigurationSourceBeanExists() {
         Object corsSource = context.getBean("corsConfigurationSource");
-        assertThat(corsSource).isNotNull();
+        assertThat(corsSource).isInstanceOf(CompiledCorsConfigurationSource.class);
+    }
+
+    @Test
+    void corsPreflightFilterRunsBeforeCorsFilter() {
+        List<Filter> filters = context.getBean(SecurityFilterChain.class).getFilters();
+
+        assertThat(indexOf(filters, CorsPreflightFilter.class)).isLessThan(indexOf(filters, CorsFilter.class));
     }
 
     @Test
@@ -30,4 +44,23 @@ class SecurityConfigTest {
         Object jwtDecoder = context.getBean("jwtDecoder");
         assertThat(jwtDecoder).isNotNull();
     }
+
+    @Test
+    void rateLimitFilterRunsAfterAuthenticationAndBeforeAuthorization() {
+        List<Filter> filters = context.getBean(SecurityFilterChain.class).getFilters();
+        int authentication = indexOf(filters, BearerTokenAuthenticationFilter.class);
+        int rateLimit = indexOf(filters, RateLimitFilter.class);
+        int authorization = indexOf(filters, AuthorizationFilter.class);
+
+        assertThat(rateLimit).isGreaterThan(authentication).isLessThan(authorization);
+    }
+
+    private static int indexOf(List<Filter> filters, Class<? extends Filter> type) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (type.isInstance(filters.get(i))) {
+                return i;
+            }
+        }
+        throw new AssertionError(type.getSimpleName() + " is not in the filter chain");
+    }
 }
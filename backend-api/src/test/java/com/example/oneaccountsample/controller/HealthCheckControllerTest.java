@@ -1,18 +1,28 @@
 package com.example.oneaccountsample.controller;
 
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.example.oneaccountsample.health.ReadinessMonitor;
+
 @WebMvcTest(HealthCheckController.class)
 class HealthCheckControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @MockitoBean
+    private ReadinessMonitor readinessMonitor;
+
     @Test
     @org.springframework.security.test.context.support.WithMockUser
     void healthCheck_ReturnsOk() throws Exception {
@@ -20,4 +30,36 @@ class HealthCheckControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("OK"));
     }
+
+    @Test
+    @org.springframework.security.test.context.support.WithMockUser
+    void liveness_ReturnsOk() throws Exception {
+        mockMvc.perform(get("/api/health/live"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("OK"));
+        verifyNoInteractions(readinessMonitor);
+    }
+
+    @Test
+    @org.springframework.security.test.context.support.WithMockUser
+    void readiness_ReturnsCachedResult() throws Exception {
+        when(readinessMonitor.current()).thenReturn(new ReadinessMonitor.Readiness(true, "UP", Map.of(),
+                "{\"status\":\"UP\"}"));
+
+        mockMvc.perform(get("/api/health/ready"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+
+    @Test
+    @org.springframework.security.test.context.support.WithMockUser
+    void readiness_ReturnsServiceUnavailableWhenNotReady() throws Exception {
+        when(readinessMonitor.current()).thenReturn(new ReadinessMonitor.Readiness(false, "DRAINING", Map.of(),
+                "{\"status\":\"DRAINING\"}"));
+
+        mockMvc.perform(get("/api/health/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("DRAINING"));
+    }
 }
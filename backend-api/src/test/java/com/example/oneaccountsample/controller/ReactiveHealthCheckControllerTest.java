@@ -0,0 +1,47 @@
+package com.example.oneaccountsample.controller;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.oneaccountsample.health.ReadinessMonitor;
+
+/**
+ * HealthCheckControllerTestと同じ内容をWebFlux上で確認するテスト。
+ */
+@WebFluxTest(HealthCheckController.class)
+class ReactiveHealthCheckControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReadinessMonitor readinessMonitor;
+
+    @Test
+    @WithMockUser
+    void healthCheck_ReturnsOk() {
+        webTestClient.get().uri("/api/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("OK");
+    }
+
+    @Test
+    @WithMockUser
+    void readiness_ReturnsServiceUnavailableWhenNotReady() {
+        when(readinessMonitor.current()).thenReturn(new ReadinessMonitor.Readiness(false, "UNKNOWN", Map.of(),
+                "{\"status\":\"UNKNOWN\"}"));
+
+        webTestClient.get().uri("/api/health/ready")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody().jsonPath("$.status").isEqualTo("UNKNOWN");
+    }
+}
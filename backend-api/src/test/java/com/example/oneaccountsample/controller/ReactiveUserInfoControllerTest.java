@@ -0,0 +1,106 @@
+package com.example.oneaccountsample.controller;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.*;
+
+import java.net.URL;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.oneaccountsample.config.ProfileStoreProperties;
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.example.oneaccountsample.profile.UserProfileStore;
+
+/**
+ * UserInfoControllerTestと同じ内容をWebFlux上で確認するテスト。
+ */
+@WebFluxTest(UserInfoController.class)
+@Import({ UserResponseCache.class, ResponseCacheProperties.class, UserProfileStore.class, ProfileStoreProperties.class })
+class ReactiveUserInfoControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void getUserInfo_ReturnsUserInfo() throws Exception {
+        Jwt jwt = mock(Jwt.class);
+        when(jwt.getSubject()).thenReturn("user123");
+        when(jwt.getClaimAsString("preferred_username")).thenReturn("testuser");
+        when(jwt.getClaimAsString("email")).thenReturn("test@example.com");
+        when(jwt.getClaimAsString("given_name")).thenReturn("Taro");
+        when(jwt.getClaimAsString("family_name")).thenReturn("Yamada");
+        when(jwt.getClaimAsString("name")).thenReturn("Taro Yamada");
+        when(jwt.getClaimAsBoolean("email_verified")).thenReturn(true);
+        when(jwt.getIssuer()).thenReturn(new URL("https://issuer.example.com"));
+        when(jwt.getIssuedAt()).thenReturn(Instant.now());
+        when(jwt.getExpiresAt()).thenReturn(Instant.now().plusSeconds(3600));
+
+
+        webTestClient.mutateWith(mockJwt().jwt(jwt).authorities())
+                .get().uri("/api/user")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.subject").isEqualTo("user123")
+                .jsonPath("$.username").isEqualTo("testuser")
+                .jsonPath("$.email").isEqualTo("test@example.com")
+                .jsonPath("$.firstName").isEqualTo("Taro")
+                .jsonPath("$.lastName").isEqualTo("Yamada")
+                .jsonPath("$.fullName").isEqualTo("Taro Yamada")
+                .jsonPath("$.emailVerified").isEqualTo(true);
+    }
+
+    @Test
+    void getUserProfile_ReturnsProfile() throws Exception {
+        Jwt jwt = mock(Jwt.class);
+        when(jwt.getClaimAsString("preferred_username")).thenReturn("testuser");
+        when(jwt.getClaimAsString("email")).thenReturn("test@example.com");
+        when(jwt.getClaimAsString("given_name")).thenReturn("Taro");
+        when(jwt.getClaimAsString("family_name")).thenReturn("Yamada");
+        when(jwt.getClaimAsString("name")).thenReturn("Taro Yamada");
+
+
+        webTestClient.mutateWith(mockJwt().jwt(jwt).authorities())
+                .get().uri("/api/profile")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.username").isEqualTo("testuser")
+                .jsonPath("$.email").isEqualTo("test@example.com")
+                .jsonPath("$.firstName").isEqualTo("Taro")
+                .jsonPath("$.lastName").isEqualTo("Yamada")
+                .jsonPath("$.fullName").isEqualTo("Taro Yamada");
+    }
+
+    @Test
+    void getUserInfo_ReturnsNotModifiedForMatchingETag() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user123")
+                .jti("jti-1")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .claim("preferred_username", "testuser")
+                .build();
+
+        String etag = webTestClient.mutateWith(mockJwt().jwt(jwt))
+                .get().uri("/api/user")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(byte[].class)
+                .getResponseHeaders().getETag();
+
+        webTestClient.mutateWith(mockJwt().jwt(jwt))
+                .get().uri("/api/user")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+    }
+}
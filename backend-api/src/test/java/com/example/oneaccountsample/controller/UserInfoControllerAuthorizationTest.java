@@ -0,0 +1,56 @@
+package com.example.oneaccountsample.controller;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.oneaccountsample.config.MethodSecurityConfig;
+import com.example.oneaccountsample.config.ProfileStoreProperties;
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.example.oneaccountsample.profile.UserProfileStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * UserInfoControllerの@PreAuthorizeによる権限の確認のテスト。
+ */
+@WebMvcTest(UserInfoController.class)
+@Import({ UserResponseCache.class, ResponseCacheProperties.class, UserProfileStore.class, ProfileStoreProperties.class,
+        MethodSecurityConfig.class, SimpleMeterRegistry.class })
+class UserInfoControllerAuthorizationTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final Jwt jwt = Jwt.withTokenValue("token")
+            .header("alg", "RS256")
+            .subject("user123")
+            .expiresAt(Instant.now().plusSeconds(300))
+            .build();
+
+    @Test
+    void getUserInfo_RequiresUserRole() throws Exception {
+        mockMvc.perform(get("/api/user").with(jwt().jwt(jwt).authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("user123"));
+        mockMvc.perform(get("/api/user").with(jwt().jwt(jwt).authorities(new SimpleGrantedAuthority("PROFILE_READ"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getUserProfile_RequiresProfileReadAuthority() throws Exception {
+        mockMvc.perform(get("/api/profile").with(jwt().jwt(jwt).authorities(new SimpleGrantedAuthority("PROFILE_READ"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/profile").with(jwt().jwt(jwt).authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+    }
+}
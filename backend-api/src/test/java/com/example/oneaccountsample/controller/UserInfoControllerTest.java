@@ -11,11 +11,20 @@ import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.example.oneaccountsample.config.ProfileStoreProperties;
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.example.oneaccountsample.profile.UserProfileStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @WebMvcTest(UserInfoController.class)
+@Import({ UserResponseCache.class, ResponseCacheProperties.class, UserProfileStore.class, ProfileStoreProperties.class,
+        SimpleMeterRegistry.class })
 class UserInfoControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -74,4 +83,31 @@ class UserInfoControllerTest {
                 .andExpect(jsonPath("$.lastName").value("Yamada"))
                 .andExpect(jsonPath("$.fullName").value("Taro Yamada"));
     }
+
+    @Test
+    @WithMockUser
+    void getUserInfo_ReturnsNotModifiedForMatchingETag() throws Exception {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user123")
+                .jti("jti-1")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .claim("preferred_username", "testuser")
+                .build();
+
+        String etag = mockMvc.perform(get("/api/user").with(jwt().jwt(jwt)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/user").with(jwt().jwt(jwt)).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().bytes(new byte[0]));
+
+        mockMvc.perform(get("/api/user").with(jwt().jwt(jwt)).header("If-None-Match", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subject").value("user123"));
+    }
 }
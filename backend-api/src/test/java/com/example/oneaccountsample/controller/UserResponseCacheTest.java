@@ -0,0 +1,153 @@
+package com.example.oneaccountsample.controller;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.config.ResponseCacheProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserResponseCacheTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+    private static final String ISSUER = "http://localhost/realms/one-account-realm";
+    private static final String OTHER_ISSUER = "http://localhost/realms/other-realm";
+
+    private final AtomicInteger encodes = new AtomicInteger();
+    private final Function<Jwt, ?> factory = jwt -> {
+        encodes.incrementAndGet();
+        return UserProfileResponse.from(jwt);
+    };
+
+    @Test
+    void respond_reusesEncodedBytesForSameToken() {
+        UserResponseCache cache = newCache(true);
+        Jwt jwt = jwt("jti-1", "user-1", NOW.plusSeconds(300));
+
+        ResponseEntity<byte[]> first = cache.respond("profile", jwt, null, factory);
+        ResponseEntity<byte[]> second = cache.respond("profile", jwt, null, factory);
+
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(second.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+        assertThat(encodes).hasValue(1);
+        // 種類（view）が異なればキーも異なる
+        cache.respond("user", jwt, null, UserInfoResponse::from);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void respond_returnsNotModifiedForMatchingETag() {
+        UserResponseCache cache = newCache(true);
+        Jwt jwt = jwt("jti-1", "user-1", NOW.plusSeconds(300));
+        String etag = cache.respond("profile", jwt, null, factory).getHeaders().getETag();
+
+        ResponseEntity<byte[]> notModified = cache.respond("profile", jwt, "W/\"other\", " + etag, factory);
+
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    @Test
+    void respond_doesNotCacheExpiredTokenOrWhenDisabled() {
+        UserResponseCache cache = newCache(true);
+        cache.respond("profile", jwt("jti-1", "user-1", NOW.minusSeconds(1)), null, factory);
+        assertThat(cache.size()).isZero();
+
+        UserResponseCache disabled = newCache(false);
+        Jwt jwt = jwt("jti-2", "user-1", NOW.plusSeconds(300));
+        String etag = disabled.respond("profile", jwt, null, factory).getHeaders().getETag();
+        assertThat(disabled.respond("profile", jwt, etag, factory).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(encodes).hasValue(3);
+    }
+
+    @Test
+    void invalidateSubject_removesEntriesOfSubject() {
+        UserResponseCache cache = newCache(true);
+        cache.respond("profile", jwt("jti-1", "user-1", NOW.plusSeconds(300)), null, factory);
+        cache.respond("profile", jwt("jti-2", "user-2", NOW.plusSeconds(300)), null, factory);
+
+        cache.invalidateSubject(ISSUER, "user-1");
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateSubject_keepsSameSubjectOfAnotherIssuer() {
+        UserResponseCache cache = newCache(true);
+        Jwt jwt = jwt(ISSUER, "jti-1", "user-1", NOW.plusSeconds(300));
+        Jwt otherIssuer = jwt(OTHER_ISSUER, "jti-1", "user-1", NOW.plusSeconds(300));
+        cache.respond("profile", jwt, null, factory);
+        cache.respond("profile", otherIssuer, null, factory);
+
+        cache.invalidateSubject(OTHER_ISSUER, "user-1");
+
+        assertThat(cache.size()).isEqualTo(1);
+        cache.respond("profile", jwt, null, factory);
+        assertThat(encodes).hasValue(2);
+    }
+
+    @Test
+    void respond_doesNotKeepResponseEncodedWhileSubjectWasInvalidated() {
+        UserResponseCache cache = newCache(true);
+        Jwt jwt = jwt("jti-1", "user-1", NOW.plusSeconds(300));
+        // 変更前のプロフィールを読み取った後に、イベントによる変更で破棄された場合
+        Function<Jwt, ?> racingFactory = token -> {
+            Object response = factory.apply(token);
+            cache.invalidateSubject(ISSUER, "user-1");
+            return response;
+        };
+
+        cache.respond("profile", jwt, null, racingFactory);
+        assertThat(cache.size()).isZero();
+
+        cache.respond("profile", jwt, null, factory);
+        cache.respond("profile", jwt, null, factory);
+        assertThat(encodes).hasValue(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_handlesListsWeakTagsAndWildcard() {
+        assertThat(UserResponseCache.matches("\"a\"", "\"a\"")).isTrue();
+        assertThat(UserResponseCache.matches(" \"b\" , W/\"a\" ", "\"a\"")).isTrue();
+        assertThat(UserResponseCache.matches("*", "\"a\"")).isTrue();
+        assertThat(UserResponseCache.matches("\"b\"", "\"a\"")).isFalse();
+        assertThat(UserResponseCache.matches("", "\"a\"")).isFalse();
+    }
+
+    private static UserResponseCache newCache(boolean enabled) {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setEnabled(enabled);
+        return new UserResponseCache(new ObjectMapper().findAndRegisterModules(), properties,
+                new SimpleMeterRegistry(), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static Jwt jwt(String jti, String subject, Instant expiresAt) {
+        return jwt(ISSUER, jti, subject, expiresAt);
+    }
+
+    private static Jwt jwt(String issuer, String jti, String subject, Instant expiresAt) {
+        return Jwt.withTokenValue("token-" + jti)
+                .header("alg", "RS256")
+                .issuer(issuer)
+                .jti(jti)
+                .subject(subject)
+                .issuedAt(expiresAt.minusSeconds(300))
+                .expiresAt(expiresAt)
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.oneaccountsample.health;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.oneaccountsample.health.ReadinessMonitor.Check;
+import com.example.oneaccountsample.health.ReadinessMonitor.Probe;
+import com.example.oneaccountsample.security.JwkSetManager;
+
+class ReadinessMonitorTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private final List<Boolean> transitions = new ArrayList<>();
+
+    @Test
+    void current_isNotReadyUntilFirstProbe() {
+        ReadinessMonitor monitor = newMonitor(probes(() -> Check.up("keys"), () -> Check.up("issuer")), Set.of("keys"));
+
+        assertThat(monitor.current().ready()).isFalse();
+        assertThat(monitor.current().status()).isEqualTo("UNKNOWN");
+        assertThat(transitions).isEmpty();
+    }
+
+    @Test
+    void probeAll_readyWhenRequiredProbesAreUp() {
+        ReadinessMonitor monitor = newMonitor(
+                probes(() -> Check.up("2 keys"), () -> Check.down("Connection refused")), Set.of("keys"));
+
+        monitor.probeAll();
+
+        assertThat(monitor.current().ready()).isTrue();
+        assertThat(monitor.current().status()).isEqualTo("UP");
+        assertThat(monitor.current().body())
+                .contains("\"status\":\"UP\"")
+                .contains("\"issuer\":{\"status\":\"DOWN\",\"required\":false,\"detail\":\"Connection refused\"}");
+        assertThat(transitions).containsExactly(true);
+    }
+
+    @Test
+    void probeAll_notReadyWhenRequiredProbeIsDown() {
+        ReadinessMonitor monitor = newMonitor(
+                probes(() -> Check.up("2 keys"), () -> Check.down("Connection refused")), Set.of("keys", "issuer"));
+
+        monitor.probeAll();
+
+        assertThat(monitor.current().ready()).isFalse();
+        assertThat(monitor.current().status()).isEqualTo("DOWN");
+        assertThat(transitions).isEmpty();
+    }
+
+    @Test
+    void probeAll_treatsExceptionAsDown() {
+        AtomicReference<RuntimeException> failure = new AtomicReference<>(new IllegalStateException("boom"));
+        ReadinessMonitor monitor = newMonitor(probes(() -> {
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return Check.up("keys");
+        }, () -> Check.up("issuer")), Set.of("keys"));
+
+        monitor.probeAll();
+        assertThat(monitor.current().checks().get("keys")).isEqualTo(Check.down("boom"));
+        assertThat(monitor.current().ready()).isFalse();
+
+        failure.set(null);
+        monitor.probeAll();
+        assertThat(monitor.current().ready()).isTrue();
+        assertThat(transitions).containsExactly(true);
+    }
+
+    @Test
+    void current_doesNotRunProbes() {
+        AtomicInteger calls = new AtomicInteger();
+        ReadinessMonitor monitor = newMonitor(probes(() -> {
+            calls.incrementAndGet();
+            return Check.up("keys");
+        }, () -> Check.up("issuer")), Set.of("keys"));
+        monitor.probeAll();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(monitor.current().ready()).isTrue();
+        }
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void startDraining_overridesProbeResults() {
+        ReadinessMonitor monitor = newMonitor(probes(() -> Check.up("keys"), () -> Check.up("issuer")), Set.of("keys"));
+        monitor.probeAll();
+
+        monitor.startDraining();
+        monitor.probeAll();
+
+        assertThat(monitor.current().ready()).isFalse();
+        assertThat(monitor.current().status()).isEqualTo(ReadinessMonitor.Readiness.DRAINING);
+        assertThat(transitions).containsExactly(true, false);
+    }
+
+    @Test
+    void signingKeys_downWhenNoKeysOrTooOldAndFreshKeysRequired() {
+        JwkSetManager keys = mock(JwkSetManager.class);
+        Probe probe = ReadinessProbes.signingKeys(keys, Duration.ofHours(1), true, CLOCK);
+
+        when(keys.stats()).thenReturn(new JwkSetManager.Stats(0, null, 0, 0));
+        assertThat(probe.check().up()).isFalse();
+
+        when(keys.stats()).thenReturn(new JwkSetManager.Stats(2, NOW.minus(Duration.ofMinutes(59)), 0, 0));
+        assertThat(probe.check().up()).isTrue();
+
+        when(keys.stats()).thenReturn(new JwkSetManager.Stats(2, NOW.minus(Duration.ofMinutes(61)), 0, 0));
+        assertThat(probe.check().up()).isFalse();
+    }
+
+    @Test
+    void signingKeys_oldSnapshotWithIssuerDownIsReadyByDefault() {
+        // Keycloakの停止中に、1時間以上前のスナップショットの鍵で起動した場合
+        JwkSetManager keys = mock(JwkSetManager.class);
+        when(keys.stats()).thenReturn(new JwkSetManager.Stats(2, NOW.minus(Duration.ofDays(3)), 0, 0));
+        ReadinessMonitor monitor = newMonitor(probes(ReadinessProbes.signingKeys(keys, Duration.ofHours(1), false, CLOCK),
+                () -> Check.down("Connection refused")), Set.of("keys"));
+
+        monitor.probeAll();
+
+        assertThat(monitor.current().ready()).isTrue();
+        assertThat(monitor.current().checks().get("keys").detail()).contains("(older than PT1H)");
+        assertThat(transitions).containsExactly(true);
+    }
+
+    private ReadinessMonitor newMonitor(Map<String, Probe> probes, Set<String> required) {
+        return new ReadinessMonitor(probes, required, Duration.ofSeconds(15), transitions::add,
+                Thread.ofPlatform().daemon(true).factory(), CLOCK);
+    }
+
+    private static Map<String, Probe> probes(Probe keys, Probe issuer) {
+        Map<String, Probe> probes = new LinkedHashMap<>();
+        probes.put("keys", keys);
+        probes.put("issuer", issuer);
+        return probes;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.oneaccountsample.profile;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.support.StubKeycloakAdmin;
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+class KeycloakEventFeedTest {
+
+    private static final Instant NOW = Instant.now();
+    private static final long START = NOW.toEpochMilli();
+
+    private StubOidcIssuer issuer;
+    private StubKeycloakAdmin admin;
+    private UserProfileStore store;
+    private final List<String> changed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        issuer = StubOidcIssuer.start("feed-realm");
+        admin = StubKeycloakAdmin.attach(issuer);
+        admin.putUser("user-1", "testuser", "test@example.com", "Taro", "Yamada");
+        store = new UserProfileStore(100);
+        store.addChangeListener((iss, subject) -> changed.add(subject));
+    }
+
+    @AfterEach
+    void tearDown() {
+        issuer.close();
+    }
+
+    @Test
+    void poll_appliesAdminEventRepresentationWithoutFetchingUser() {
+        Jwt jwt = jwt("user-1");
+        store.get(jwt);
+        admin.updateUserByAdmin("user-1", START + 1_000, "Taro", "Suzuki", "suzuki@example.com");
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+
+            assertThat(feed.stats().applied()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START + 1_000);
+        }
+        UserProfile profile = store.get(jwt);
+        assertThat(profile.fullName()).isEqualTo("Taro Suzuki");
+        assertThat(profile.email()).isEqualTo("suzuki@example.com");
+        assertThat(changed).containsExactly("user-1");
+        assertThat(admin.userRequests()).isZero();
+    }
+
+    @Test
+    void poll_doesNotApplyEventsToSameSubjectOfAnotherRealm() {
+        Jwt otherRealm = jwt("http://localhost/realms/other-realm", "user-1");
+        store.get(jwt("user-1"));
+        store.get(otherRealm);
+        admin.updateUserByAdmin("user-1", START + 1_000, "Taro", "Suzuki", "suzuki@example.com");
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+        }
+
+        assertThat(store.get(jwt("user-1")).lastName()).isEqualTo("Suzuki");
+        assertThat(store.get(otherRealm).lastName()).isEqualTo("Yamada");
+    }
+
+    @Test
+    void poll_fetchesUserWhenEventHasNoRepresentation() {
+        admin.setAdminEventsDetails(false);
+        admin.updateUserByAdmin("user-1", START + 1_000, "Jiro", "Yamada", "test@example.com");
+        admin.updateProfile("user-1", START + 2_000, "Jiro", "Sato", "sato@example.com");
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+        }
+
+        // ストアにないユーザーも登録する（最新の内容をイベントごとに取得する）
+        UserProfile profile = store.get(jwt("user-1"));
+        assertThat(profile.fullName()).isEqualTo("Jiro Sato");
+        assertThat(profile.updatedAt()).isEqualTo(START + 2_000);
+        assertThat(admin.userRequests()).isEqualTo(2);
+        assertThat(admin.tokenRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void poll_removesDeletedUser() {
+        store.get(jwt("user-1"));
+        admin.deleteUser("user-1", START + 1_000);
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+        }
+
+        assertThat(store.stats().size()).isZero();
+        assertThat(changed).containsExactly("user-1");
+    }
+
+    @Test
+    void poll_skipsEventsBeforeStartAndOtherResources() {
+        admin.updateUserByAdmin("user-1", START - 60_000, "Taro", "Old", "old@example.com");
+        admin.addRoleMapping("user-1", START + 1_000);
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+
+            assertThat(feed.stats().applied()).isZero();
+            assertThat(feed.stats().ignored()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START);
+        }
+        assertThat(store.stats().size()).isZero();
+    }
+
+    @Test
+    void poll_appliesEventsWithinClockSkewBeforeStart() {
+        // このサーバーの時計がKeycloakより進んでいる場合、起動後のイベントも起動時刻より前の時刻になる
+        admin.updateUserByAdmin("user-1", START - 30_000, "Taro", "Suzuki", "suzuki@example.com");
+        admin.putUser("user-2", "hanako", "hanako@example.com", "Hanako", "Sato");
+        admin.updateUserByAdmin("user-2", START - 120_000, "Hanako", "Old", "old@example.com");
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100, Duration.ofSeconds(60))) {
+            assertThat(feed.stats().watermark()).isEqualTo(START - 60_000);
+            feed.poll();
+
+            assertThat(feed.stats().applied()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START - 30_000);
+        }
+        assertThat(store.get(jwt("user-1")).lastName()).isEqualTo("Suzuki");
+        assertThat(store.stats().size()).isEqualTo(1);
+    }
+
+    @Test
+    void poll_readsAllPagesAndAppliesInOrder() {
+        for (int i = 1; i <= 5; i++) {
+            admin.updateUserByAdmin("user-1", START + i * 1_000, "Taro", "Name" + i, "test@example.com");
+        }
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 2)) {
+            feed.poll();
+
+            assertThat(feed.stats().watermark()).isEqualTo(START + 5_000);
+        }
+        assertThat(store.get(jwt("user-1")).lastName()).isEqualTo("Name5");
+    }
+
+    @Test
+    void poll_resumesOlderEventsAfterPageLimitBeforeAdvancingWatermark() {
+        admin.putUser("user-2", "hanako", "hanako@example.com", "Hanako", "Tanaka");
+        admin.updateUserByAdmin("user-2", START + 1_000, "Hanako", "Suzuki", "hanako@example.com");
+        for (int i = 2; i <= 150; i++) {
+            admin.updateUserByAdmin("user-1", START + i * 1_000, "Taro", "Name" + i, "test@example.com");
+        }
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 1)) {
+            // 1ページ1件・上限100ページのため、最も古いuser-2のイベントまで読み取れない
+            feed.poll();
+            assertThat(changed).doesNotContain("user-2");
+            assertThat(feed.stats().watermark()).isEqualTo(START);
+
+            // 中断した位置から読み取る（その間に発生したイベントは次回に読み取る）
+            admin.updateUserByAdmin("user-1", START + 200_000, "Taro", "Latest", "test@example.com");
+            feed.poll();
+            assertThat(changed).contains("user-2");
+            assertThat(feed.stats().watermark()).isEqualTo(START + 150_000);
+
+            feed.poll();
+            assertThat(feed.stats().watermark()).isEqualTo(START + 200_000);
+            assertThat(feed.stats().failures()).isZero();
+        }
+        assertThat(store.get(jwt("user-2")).lastName()).isEqualTo("Suzuki");
+        assertThat(store.get(jwt("user-1")).lastName()).isEqualTo("Latest");
+    }
+
+    @Test
+    void poll_countsUnexpectedExceptionAsFailureAndRetries() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        store.addChangeListener((iss, subject) -> {
+            if (failing.get()) {
+                throw new UnsupportedOperationException("listener failed");
+            }
+        });
+        admin.updateUserByAdmin("user-1", START + 1_000, "Taro", "Suzuki", "test@example.com");
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            assertThatCode(feed::poll).doesNotThrowAnyException();
+            assertThat(feed.stats().failures()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START);
+
+            failing.set(false);
+            feed.poll();
+            assertThat(feed.stats().polls()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START + 1_000);
+        }
+    }
+
+    @Test
+    void poll_countsFailuresAndRenewsRevokedToken() {
+        admin.updateUserByAdmin("user-1", START + 1_000, "Taro", "Suzuki", "test@example.com");
+
+        try (KeycloakEventFeed feed = newFeed("wrong-secret", 100)) {
+            feed.poll();
+
+            assertThat(feed.stats().failures()).isEqualTo(1);
+            assertThat(feed.stats().watermark()).isEqualTo(START);
+        }
+
+        try (KeycloakEventFeed feed = newFeed(StubKeycloakAdmin.CLIENT_SECRET, 100)) {
+            feed.poll();
+            admin.revokeTokens();
+            admin.updateUserByAdmin("user-1", START + 2_000, "Taro", "Sato", "test@example.com");
+            feed.poll();
+            feed.poll();
+
+            assertThat(feed.stats().polls()).isEqualTo(2);
+            assertThat(feed.stats().failures()).isEqualTo(1);
+        }
+        assertThat(store.get(jwt("user-1")).lastName()).isEqualTo("Sato");
+        assertThat(admin.tokenRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void adminUriOf_derivesAdminUriFromIssuer() {
+        assertThat(KeycloakEventFeed.adminUriOf("http://keycloak:8080/realms/one-account-realm"))
+                .isEqualTo("http://keycloak:8080/admin/realms/one-account-realm");
+        assertThat(KeycloakEventFeed.adminUriOf(issuer.issuerUri())).isEqualTo(issuer.adminUri());
+        assertThatIllegalArgumentException().isThrownBy(() -> KeycloakEventFeed.adminUriOf("http://localhost/issuer"));
+    }
+
+    private KeycloakEventFeed newFeed(String clientSecret, int pageSize) {
+        return newFeed(clientSecret, pageSize, Duration.ZERO);
+    }
+
+    private KeycloakEventFeed newFeed(String clientSecret, int pageSize, Duration clockSkew) {
+        return new KeycloakEventFeed(issuer.issuerUri(), issuer.adminUri(),
+                issuer.issuerUri() + "/protocol/openid-connect/token", StubKeycloakAdmin.CLIENT_ID, clientSecret,
+                pageSize, Duration.ofSeconds(1), clockSkew, Duration.ofSeconds(2), Duration.ofSeconds(5), store,
+                Thread::new, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    /** フィードの開始前に発行されたトークン */
+    private Jwt jwt(String subject) {
+        return jwt(issuer.issuerUri(), subject);
+    }
+
+    private static Jwt jwt(String issuerUri, String subject) {
+        Instant issuedAt = NOW.minusSeconds(60);
+        return Jwt.withTokenValue("token-" + subject)
+                .header("alg", "RS256")
+                .issuer(issuerUri)
+                .subject(subject)
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(300))
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .claim("given_name", "Taro")
+                .claim("family_name", "Yamada")
+                .claim("name", "Taro Yamada")
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.oneaccountsample.profile;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+class UserProfileStoreTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+    private static final String ISSUER = "http://localhost/realms/one-account-realm";
+    private static final String OTHER_ISSUER = "http://localhost/realms/other-realm";
+
+    @Test
+    void get_seedsProfileFromTokenOnce() {
+        UserProfileStore store = new UserProfileStore(100);
+        Jwt jwt = jwt("user-1", NOW, "Yamada");
+
+        UserProfile first = store.get(jwt);
+        UserProfile second = store.get(jwt);
+
+        assertThat(first.username()).isEqualTo("testuser");
+        assertThat(first.fullName()).isEqualTo("Taro Yamada");
+        assertThat(first.updatedAt()).isEqualTo(NOW.toEpochMilli());
+        assertThat(second).isSameAs(first);
+        assertThat(store.stats().tokenLoads()).isEqualTo(1);
+    }
+
+    @Test
+    void get_replacesProfileWithNewerToken() {
+        UserProfileStore store = new UserProfileStore(100);
+        store.get(jwt("user-1", NOW, "Yamada"));
+
+        UserProfile profile = store.get(jwt("user-1", NOW.plusSeconds(60), "Suzuki"));
+
+        assertThat(profile.lastName()).isEqualTo("Suzuki");
+        // 古いトークンではストアの内容を置き換えない
+        assertThat(store.get(jwt("user-1", NOW, "Yamada")).lastName()).isEqualTo("Suzuki");
+    }
+
+    @Test
+    void update_overridesClaimsOfOlderTokenAndNotifiesListeners() {
+        UserProfileStore store = new UserProfileStore(100);
+        List<String> changed = new ArrayList<>();
+        store.addChangeListener((issuer, subject) -> changed.add(subject));
+        Jwt jwt = jwt("user-1", NOW, "Yamada");
+        store.get(jwt);
+
+        boolean updated = store.update(ISSUER, "user-1",
+                UserProfile.of("testuser", "new@example.com", true, "Taro", "Suzuki", NOW.plusSeconds(10).toEpochMilli()));
+
+        assertThat(updated).isTrue();
+        assertThat(changed).containsExactly("user-1");
+        // 同じトークンでも、ストアの内容（変更後）を返す
+        UserProfile profile = store.get(jwt);
+        assertThat(profile.email()).isEqualTo("new@example.com");
+        assertThat(profile.fullName()).isEqualTo("Taro Suzuki");
+        assertThat(store.stats().tokenLoads()).isEqualTo(1);
+        assertThat(store.stats().eventUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void update_ignoresProfileOlderThanStored() {
+        UserProfileStore store = new UserProfileStore(100);
+        List<String> changed = new ArrayList<>();
+        store.addChangeListener((issuer, subject) -> changed.add(subject));
+        store.get(jwt("user-1", NOW, "Yamada"));
+
+        boolean updated = store.update(ISSUER, "user-1",
+                UserProfile.of("testuser", "old@example.com", true, "Taro", "Old", NOW.minusSeconds(10).toEpochMilli()));
+
+        assertThat(updated).isFalse();
+        assertThat(changed).isEmpty();
+        assertThat(store.get(jwt("user-1", NOW, "Yamada")).lastName()).isEqualTo("Yamada");
+    }
+
+    @Test
+    void remove_discardsProfileAndNotifiesListeners() {
+        UserProfileStore store = new UserProfileStore(100);
+        List<String> changed = new ArrayList<>();
+        store.addChangeListener((issuer, subject) -> changed.add(subject));
+        store.get(jwt("user-1", NOW, "Yamada"));
+
+        store.remove(ISSUER, "user-1");
+
+        assertThat(changed).containsExactly("user-1");
+        assertThat(store.stats().size()).isZero();
+        assertThat(store.stats().removals()).isEqualTo(1);
+    }
+
+    @Test
+    void update_keepsSameSubjectOfAnotherIssuerSeparate() {
+        UserProfileStore store = new UserProfileStore(100);
+        List<String> changed = new ArrayList<>();
+        store.addChangeListener((issuer, subject) -> changed.add(issuer + " " + subject));
+        Jwt jwt = jwt("user-1", NOW, "Yamada");
+        Jwt otherIssuer = jwt(OTHER_ISSUER, "user-1", NOW, "Tanaka");
+        store.get(jwt);
+        store.get(otherIssuer);
+
+        store.update(ISSUER, "user-1",
+                UserProfile.of("testuser", "new@example.com", true, "Taro", "Suzuki", NOW.plusSeconds(10).toEpochMilli()));
+        store.remove(OTHER_ISSUER, "user-2");
+
+        assertThat(store.get(jwt).lastName()).isEqualTo("Suzuki");
+        assertThat(store.get(otherIssuer).lastName()).isEqualTo("Tanaka");
+        assertThat(changed).containsExactly(ISSUER + " user-1", OTHER_ISSUER + " user-2");
+        assertThat(store.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void store_isBoundedByMaxEntries() {
+        UserProfileStore store = new UserProfileStore(64);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.get(jwt("user-" + i, NOW, "Yamada"));
+        }
+
+        assertThat(store.stats().size()).isLessThanOrEqualTo(64);
+    }
+
+    private static Jwt jwt(String subject, Instant issuedAt, String familyName) {
+        return jwt(ISSUER, subject, issuedAt, familyName);
+    }
+
+    private static Jwt jwt(String issuer, String subject, Instant issuedAt, String familyName) {
+        return Jwt.withTokenValue("token-" + subject + "-" + issuedAt.toEpochMilli())
+                .header("alg", "RS256")
+                .issuer(issuer)
+                .subject(subject)
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(300))
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .claim("email_verified", true)
+                .claim("given_name", "Taro")
+                .claim("family_name", familyName)
+                .claim("name", "Taro " + familyName)
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+class CachingJwtDecoderTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-08-15T00:00:00Z"));
+    private JwtDecoder delegate;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        when(delegate.decode(anyString())).thenAnswer(invocation -> jwt(invocation.getArgument(0), "key-1"));
+    }
+
+    @Test
+    void decode_returnsCachedJwtForSameToken() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).decode("token-a");
+        assertThat(decoder.stats().hits()).isEqualTo(1);
+        assertThat(decoder.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void getIfPresent_returnsOnlyCachedJwtWithoutCallingDelegate() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+
+        assertThat(decoder.getIfPresent("token-a")).isNull();
+        Jwt decoded = decoder.decode("token-a");
+        assertThat(decoder.getIfPresent("token-a")).isSameAs(decoded);
+        clock.advanceSeconds(301);
+        assertThat(decoder.getIfPresent("token-a")).isNull();
+
+        verify(delegate, times(1)).decode("token-a");
+        assertThat(decoder.stats().hits()).isEqualTo(1);
+        assertThat(decoder.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void decode_doesNotServeEntryAfterExpiry() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+
+        decoder.decode("token-a");
+        clock.advanceSeconds(301);
+        decoder.decode("token-a");
+
+        verify(delegate, times(2)).decode("token-a");
+    }
+
+    @Test
+    void decode_boundsNumberOfEntries() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 2, 1_000_000, clock);
+
+        decoder.decode("token-a");
+        decoder.decode("token-b");
+        decoder.decode("token-c");
+
+        assertThat(decoder.stats().size()).isLessThanOrEqualTo(2);
+        assertThat(decoder.stats().evictions()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void decode_doesNotCacheFailures() {
+        when(delegate.decode("bad-token")).thenThrow(new BadJwtException("invalid"));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+
+        assertThatThrownBy(() -> decoder.decode("bad-token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("bad-token")).isInstanceOf(BadJwtException.class);
+
+        verify(delegate, times(2)).decode("bad-token");
+    }
+
+    @Test
+    void retainKeyIds_evictsEntriesSignedByRemovedKeys() {
+        when(delegate.decode("token-old")).thenReturn(jwt("token-old", "key-old"));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+        decoder.decode("token-old");
+        decoder.decode("token-a");
+
+        decoder.retainKeyIds(List.of("key-1"));
+        decoder.decode("token-old");
+        decoder.decode("token-a");
+
+        verify(delegate, times(2)).decode("token-old");
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    void retainKeyIds_forIssuerKeepsEntriesOfOtherIssuers() {
+        when(delegate.decode("token-b")).thenReturn(jwt("token-b", "key-1", "http://localhost/realms/brand-b"));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, 1_000_000, clock);
+        decoder.decode("token-a");
+        decoder.decode("token-b");
+
+        decoder.retainKeyIds("http://localhost/realms/brand-b", List.of());
+        decoder.decode("token-a");
+        decoder.decode("token-b");
+
+        verify(delegate, times(1)).decode("token-a");
+        verify(delegate, times(2)).decode("token-b");
+    }
+
+    private Jwt jwt(String token, String keyId) {
+        return jwt(token, keyId, "http://localhost/realms/one-account-realm");
+    }
+
+    private Jwt jwt(String token, String keyId, String issuer) {
+        Instant now = clock.instant();
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .header("kid", keyId)
+                .issuer(issuer)
+                .subject("user123")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(300))
+                .build();
+    }
+
+    /** テスト用に時刻を進められるClock */
+    static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CorsOriginMatcherTest {
+
+    @Test
+    void matches_exactOriginsIgnoringCaseAndTrailingSlash() {
+        CorsOriginMatcher matcher = CorsOriginMatcher.compile(List.of("http://localhost:3000", " https://App.example.com/ "));
+
+        assertThat(matcher.matches("http://localhost:3000")).isTrue();
+        assertThat(matcher.matches("https://app.example.com")).isTrue();
+        assertThat(matcher.matches("HTTPS://APP.EXAMPLE.COM")).isTrue();
+        assertThat(matcher.matches("http://localhost:3001")).isFalse();
+        assertThat(matcher.matches("http://app.example.com")).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+        assertThat(matcher.matches("")).isFalse();
+    }
+
+    @Test
+    void matches_subdomainWildcardWithSchemeAndPort() {
+        CorsOriginMatcher matcher = CorsOriginMatcher.compile(List.of(
+                "https://*.partner.example.com", "https://*.tenant.example.net:8443"));
+
+        assertThat(matcher.matches("https://a.partner.example.com")).isTrue();
+        assertThat(matcher.matches("https://a.b.partner.example.com")).isTrue();
+        assertThat(matcher.matches("https://a.tenant.example.net:8443")).isTrue();
+        // 親ドメイン自体、スキーム・ポートの異なるオリジン、名前の一部のみの一致は許可しない
+        assertThat(matcher.matches("https://partner.example.com")).isFalse();
+        assertThat(matcher.matches("http://a.partner.example.com")).isFalse();
+        assertThat(matcher.matches("https://a.partner.example.com:8443")).isFalse();
+        assertThat(matcher.matches("https://a.tenant.example.net")).isFalse();
+        assertThat(matcher.matches("https://evilpartner.example.com")).isFalse();
+        assertThat(matcher.matches("https://a.partner.example.com.evil.test")).isFalse();
+        assertThat(matcher.matches("https://.partner.example.com")).isFalse();
+    }
+
+    @Test
+    void matches_anyOrigin() {
+        CorsOriginMatcher matcher = CorsOriginMatcher.compile(List.of("*"));
+
+        assertThat(matcher.matchesAny()).isTrue();
+        assertThat(matcher.matches("https://anything.example.org")).isTrue();
+        // 他のオリジンと併記しても検出する（allow-credentialsとの併用の拒否に使用）
+        assertThat(CorsOriginMatcher.compile(List.of("http://localhost:3000", " * ")).matchesAny()).isTrue();
+        assertThat(CorsOriginMatcher.compile(List.of("https://*.partner.example.com")).matchesAny()).isFalse();
+    }
+
+    @Test
+    void compile_rejectsUnsupportedPatterns() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CorsOriginMatcher.compile(List.of("example.com")));
+        assertThatIllegalArgumentException().isThrownBy(() -> CorsOriginMatcher.compile(List.of("https://app.*.example.com")));
+        assertThatIllegalArgumentException().isThrownBy(() -> CorsOriginMatcher.compile(List.of("https://*.")));
+    }
+
+    @Test
+    void matches_largeOriginList() {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            patterns.add("https://partner-" + i + ".example.com");
+            patterns.add("https://*.tenant-" + i + ".example.net");
+        }
+        CorsOriginMatcher matcher = CorsOriginMatcher.compile(patterns);
+
+        assertThat(matcher.size()).isEqualTo(2000);
+        assertThat(matcher.matches("https://partner-999.example.com")).isTrue();
+        assertThat(matcher.matches("https://app.tenant-999.example.net")).isTrue();
+        assertThat(matcher.matches("https://partner-1000.example.com")).isFalse();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class ExpiresAtExpiryTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ExpiresAtExpiry<String, Instant> expiry =
+            new ExpiresAtExpiry<>(Function.identity(), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void expireAfterCreate_usesRemainingTimeUntilExpiresAt() {
+        assertThat(expiry.expireAfterCreate("key", NOW.plusSeconds(300), 0L))
+                .isEqualTo(Duration.ofSeconds(300).toNanos());
+        assertThat(expiry.expireAfterCreate("key", NOW.minusSeconds(1), 0L)).isZero();
+        assertThat(expiry.expireAfterCreate("key", Instant.MAX, 0L)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void expireAfterRead_doesNotExtendExpiration() {
+        assertThat(expiry.expireAfterRead("key", NOW.plusSeconds(300), 0L, 42L)).isEqualTo(42L);
+        assertThat(expiry.expireAfterUpdate("key", NOW.plusSeconds(60), 0L, 42L))
+                .isEqualTo(Duration.ofSeconds(60).toNanos());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.example.oneaccountsample.support.StubOidcIssuer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IssuerRoutingJwtDecoderTest {
+
+    private final OidcMetadataFetcher fetcher = new OidcMetadataFetcher(Duration.ofSeconds(1), Duration.ofSeconds(1),
+            new SimpleMeterRegistry());
+    private final AtomicLong nanos = new AtomicLong();
+    private final Map<String, Collection<String>> rotations = new ConcurrentHashMap<>();
+
+    private StubOidcIssuer primary;
+    private StubOidcIssuer brandA;
+    private StubOidcIssuer brandB;
+    private StubOidcIssuer untrusted;
+    private JwkSetManager primaryManager;
+    private IssuerRoutingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = StubOidcIssuer.start("one-account-realm");
+        brandA = StubOidcIssuer.start("brand-a-realm");
+        brandB = StubOidcIssuer.start("brand-b-realm");
+        untrusted = StubOidcIssuer.start("untrusted-realm");
+
+        decoder = new IssuerRoutingJwtDecoder(List.of(brandA.issuerUri(), brandB.issuerUri()), issuer -> {
+            JwkSetManager manager = new JwkSetManager(issuer, fetcher, null, Duration.ofMinutes(10),
+                    Duration.ofMinutes(2), Duration.ofSeconds(10), Duration.ofMinutes(5));
+            return new IssuerRoutingJwtDecoder.IssuerDecoder(NimbusJwtDecoders.create(issuer, manager), manager);
+        }, Duration.ofMinutes(30), 10, nanos::get);
+        decoder.addKeyRotationListener(rotations::put);
+
+        primaryManager = new JwkSetManager(primary.issuerUri(), fetcher, null, Duration.ofMinutes(10),
+                Duration.ofMinutes(2), Duration.ofSeconds(10), Duration.ofMinutes(5));
+        primaryManager.refresh();
+        decoder.registerIssuer(primary.issuerUri(), NimbusJwtDecoders.create(primary.issuerUri(), primaryManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        decoder.close();
+        primaryManager.close();
+        for (StubOidcIssuer issuer : List.of(primary, brandA, brandB, untrusted)) {
+            issuer.close();
+        }
+    }
+
+    @Test
+    void decode_buildsIssuerDecoderOnFirstUse() {
+        // 起動時には追加のissuerへの問い合わせは行わない
+        assertThat(brandA.jwksRequests()).isZero();
+        assertThat(brandB.jwksRequests()).isZero();
+        assertThat(decoder.stats().loaded()).isZero();
+
+        assertThat(decoder.decode(primary.mintToken("primary-user")).getSubject()).isEqualTo("primary-user");
+        assertThat(decoder.decode(brandA.mintToken("brand-a-user")).getSubject()).isEqualTo("brand-a-user");
+        assertThat(decoder.decode(brandA.mintToken("brand-a-user")).getSubject()).isEqualTo("brand-a-user");
+
+        assertThat(decoder.stats().builds()).isEqualTo(1);
+        assertThat(decoder.stats().loaded()).isEqualTo(1);
+        assertThat(brandB.jwksRequests()).isZero();
+    }
+
+    @Test
+    void decode_rejectsUntrustedIssuerWithoutFetching() {
+        assertThatThrownBy(() -> decoder.decode(untrusted.mintToken("user")))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.INVALID_CLAIMS));
+        assertThatThrownBy(() -> decoder.decode("not-a-jwt"))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.MALFORMED));
+
+        assertThat(untrusted.discoveryRequests()).isZero();
+        assertThat(decoder.stats().untrustedIssuers()).isEqualTo(1);
+        assertThat(decoder.stats().builds()).isZero();
+    }
+
+    @Test
+    void decode_rejectsTokenClaimingAnotherTrustedIssuer() {
+        // brandBの鍵で署名し、issだけをbrandAに偽ったトークン
+        String forged = StubOidcIssuer.sign(brandB.signingKey(),
+                brandB.keycloakClaims("user", claims -> claims.issuer(brandA.issuerUri())));
+
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void idleIssuerDecoderIsEvictedAndRebuilt() {
+        decoder.decode(brandA.mintToken("user"));
+        int fetches = brandA.jwksRequests();
+
+        nanos.addAndGet(Duration.ofMinutes(31).toNanos());
+
+        assertThat(decoder.stats().loaded()).isZero();
+        assertThat(decoder.stats().evictions()).isEqualTo(1);
+        assertThat(rotations).containsEntry(brandA.issuerUri(), List.of());
+
+        assertThat(decoder.decode(brandA.mintToken("user")).getSubject()).isEqualTo("user");
+        assertThat(decoder.stats().builds()).isEqualTo(2);
+        assertThat(brandA.jwksRequests()).isGreaterThan(fetches);
+    }
+
+    @Test
+    void concurrentFirstRequestsBuildDecoderOnce() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Jwt>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String token = brandB.mintToken("user-" + i);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return decoder.decode(token);
+                }));
+            }
+            start.countDown();
+            for (Future<Jwt> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS).getSubject()).startsWith("user-");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(decoder.stats().builds()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import com.example.oneaccountsample.support.StubOidcIssuer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwkSetManagerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final OidcMetadataFetcher fetcher = new OidcMetadataFetcher(Duration.ofSeconds(1), Duration.ofSeconds(1),
+            new SimpleMeterRegistry());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void refresh_loadsKeysAndWritesSnapshot() throws Exception {
+        Path snapshotPath = tempDir.resolve("snapshot.json");
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), snapshotPath, Duration.ofMinutes(5))) {
+            manager.refresh();
+
+            assertThat(select(manager, issuer.signingKey().getKeyID())).hasSize(1);
+            assertThat(manager.snapshot()).get().extracting(OidcProviderSnapshot::jwksUri).isEqualTo(issuer.jwksUri());
+            assertThat(Files.exists(snapshotPath)).isTrue();
+        }
+    }
+
+    @Test
+    void start_usesSnapshotWhenIssuerIsUnreachable() throws Exception {
+        Path snapshotPath = tempDir.resolve("snapshot.json");
+        String issuerUri;
+        String keyId;
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), snapshotPath, Duration.ofMinutes(5))) {
+            manager.refresh();
+            issuerUri = issuer.issuerUri();
+            keyId = issuer.signingKey().getKeyID();
+        }
+
+        // OIDCプロバイダー停止後でもスナップショットから即座に鍵を利用できる
+        try (JwkSetManager manager = newManager(issuerUri, snapshotPath, Duration.ofMinutes(5))) {
+            manager.start();
+
+            assertThat(select(manager, keyId)).hasSize(1);
+        }
+    }
+
+    @Test
+    void start_withoutSnapshotOrIssuerHasNoKeys() throws Exception {
+        try (JwkSetManager manager = newManager("http://127.0.0.1:1/realms/offline", tempDir.resolve("none.json"),
+                Duration.ofMinutes(5))) {
+            manager.start();
+
+            assertThat(manager.snapshot()).isEmpty();
+            assertThat(manager.stats().keyCount()).isZero();
+        }
+    }
+
+    @Test
+    void refreshThreadFactory_createsVirtualThreadsWhenEnabled() {
+        Thread virtual = JwkSetManager.refreshThreadFactory(true).newThread(() -> {
+        });
+        Thread platform = JwkSetManager.refreshThreadFactory(false).newThread(() -> {
+        });
+
+        assertThat(virtual.isVirtual()).isTrue();
+        assertThat(platform.isVirtual()).isFalse();
+        assertThat(platform.isDaemon()).isTrue();
+        assertThat(platform.getName()).isEqualTo("oidc-metadata-refresh");
+    }
+
+    @Test
+    void selectJWSKeys_knownKidDoesNotFetch() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ofMinutes(5))) {
+            manager.refresh();
+            int fetches = issuer.jwksRequests();
+
+            for (int i = 0; i < 10; i++) {
+                select(manager, issuer.signingKey().getKeyID());
+            }
+
+            assertThat(issuer.jwksRequests()).isEqualTo(fetches);
+        }
+    }
+
+    @Test
+    void selectJWSKeys_unknownKidRefetchesOnceWithinInterval() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ofMinutes(5))) {
+            manager.refresh();
+            int fetches = issuer.jwksRequests();
+
+            // テスト途中で鍵をローテーションする
+            RSAKey rotated = issuer.rotateKey();
+            assertThat(select(manager, rotated.getKeyID())).hasSize(1);
+            assertThat(issuer.jwksRequests()).isEqualTo(fetches + 1);
+
+            // 最小間隔内の未知のkidは再取得せずに拒否する
+            assertThat(select(manager, "unknown-kid")).isEmpty();
+            assertThat(select(manager, "unknown-kid")).isEmpty();
+            assertThat(issuer.jwksRequests()).isEqualTo(fetches + 1);
+            assertThat(manager.stats().unknownKeyIdRefetches()).isEqualTo(1);
+            assertThat(manager.stats().unknownKeyIdRejections()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void mayResolveKeyId_falseForUnknownKidWithinInterval() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ofMinutes(5))) {
+            manager.refresh();
+
+            assertThat(manager.mayResolveKeyId(issuer.signingKey().getKeyID())).isTrue();
+            assertThat(manager.mayResolveKeyId("unknown-kid")).isTrue();
+            assertThat(manager.mayResolveKeyId(null)).isFalse();
+
+            // 再取得後は最小間隔が経過するまで未知のkidを検証できる見込みがない
+            assertThat(select(manager, "unknown-kid")).isEmpty();
+            assertThat(manager.mayResolveKeyId("unknown-kid")).isFalse();
+            assertThat(manager.mayResolveKeyId(issuer.signingKey().getKeyID())).isTrue();
+        }
+    }
+
+    @Test
+    void refresh_notifiesListenersWhenKeyIsRetired() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ofMinutes(5))) {
+            List<Collection<String>> notifications = new ArrayList<>();
+            manager.addKeyRotationListener(notifications::add);
+            manager.refresh();
+            String oldKeyId = issuer.signingKey().getKeyID();
+            RSAKey rotated = issuer.rotateKey();
+
+            issuer.retireKey(oldKeyId);
+            manager.refresh();
+
+            assertThat(notifications).hasSize(1);
+            assertThat(notifications.get(0)).containsExactly(rotated.getKeyID());
+            assertThat(manager.hasKey(oldKeyId)).isFalse();
+        }
+    }
+
+    @Test
+    void cachedTokenIsRejectedAfterSigningKeyIsRetired() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ZERO)) {
+            manager.refresh();
+            CachingJwtDecoder decoder = new CachingJwtDecoder(
+                    NimbusJwtDecoders.create(issuer.issuerUri(), manager), 100, 1_000_000);
+            manager.addKeyRotationListener(decoder::retainKeyIds);
+            String token = issuer.mintToken("user123");
+            decoder.decode(token);
+
+            String oldKeyId = issuer.signingKey().getKeyID();
+            issuer.rotateKey();
+            issuer.retireKey(oldKeyId);
+            manager.refresh();
+
+            assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(BadJwtException.class);
+        }
+    }
+
+    @Test
+    void refresh_slowOlderFetchDoesNotOverwriteKeysFromUnknownKidRefetch() throws Exception {
+        CountDownLatch fetched = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // バックグラウンドの再取得を模したスレッドの取得のみ、JWKSの取得後に待機させる
+        OidcMetadataFetcher slowFetcher = new OidcMetadataFetcher(Duration.ofSeconds(1), Duration.ofSeconds(1),
+                new SimpleMeterRegistry()) {
+            @Override
+            public JWKSet fetchJwkSet(String jwksUri) {
+                JWKSet jwkSet = super.fetchJwkSet(jwksUri);
+                if ("slow-refresh".equals(Thread.currentThread().getName())) {
+                    fetched.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return jwkSet;
+            }
+        };
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = new JwkSetManager(issuer.issuerUri(), slowFetcher, null,
+                        Duration.ofMinutes(10), Duration.ofMinutes(2), Duration.ofMinutes(5), Duration.ofMinutes(5))) {
+            List<Collection<String>> notifications = new ArrayList<>();
+            manager.addKeyRotationListener(notifications::add);
+            manager.refresh();
+
+            CompletableFuture<OidcProviderSnapshot> slowRefresh = new CompletableFuture<>();
+            Thread.ofPlatform().name("slow-refresh").start(() -> slowRefresh.complete(manager.refresh()));
+            assertThat(fetched.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 古い取得の完了前に鍵がローテーションされ、未知のkidで再取得する
+            RSAKey rotated = issuer.rotateKey();
+            assertThat(select(manager, rotated.getKeyID())).hasSize(1);
+            release.countDown();
+            slowRefresh.get(5, TimeUnit.SECONDS);
+
+            assertThat(manager.hasKey(rotated.getKeyID())).isTrue();
+            assertThat(notifications).hasSize(1);
+        }
+    }
+
+    @Test
+    void decode_acceptsTokenSignedWithRotatedKey() throws Exception {
+        try (StubOidcIssuer issuer = StubOidcIssuer.start("test-realm");
+                JwkSetManager manager = newManager(issuer.issuerUri(), null, Duration.ofMinutes(5))) {
+            manager.refresh();
+            JwtDecoder decoder = NimbusJwtDecoders.create(issuer.issuerUri(), manager);
+
+            issuer.rotateKey();
+
+            assertThat(decoder.decode(issuer.mintToken("user123")).getSubject()).isEqualTo("user123");
+        }
+    }
+
+    private JwkSetManager newManager(String issuerUri, Path snapshotPath, Duration unknownKidRefetchInterval) {
+        OidcSnapshotStore store = snapshotPath == null ? null : new OidcSnapshotStore(snapshotPath, objectMapper);
+        return new JwkSetManager(issuerUri, fetcher, store, Duration.ofMinutes(10), Duration.ofMinutes(2),
+                Duration.ofMinutes(5), unknownKidRefetchInterval);
+    }
+
+    private static List<? extends Key> select(JwkSetManager manager, String keyId) {
+        return manager.selectJWSKeys(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keyId).build(), null);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+class KeycloakAuthoritiesConverterTest {
+
+    private static final String ISSUER = "http://localhost:8080/realms/one-account-realm";
+    private static final Instant NOW = Instant.parse("2025-08-15T00:00:00Z");
+
+    private static final Map<String, List<String>> REALM_ROLES = Map.of(
+            "default-roles-one-account-realm", List.of("ROLE_USER"),
+            "admin", List.of("ROLE_ADMIN", "PROFILE_WRITE"));
+    private static final Map<String, Map<String, List<String>>> CLIENT_ROLES = Map.of(
+            "account", Map.of("view-profile", List.of("PROFILE_READ"), "manage-account", List.of("PROFILE_WRITE")));
+
+    private final KeycloakAuthoritiesConverter converter = new KeycloakAuthoritiesConverter(REALM_ROLES, CLIENT_ROLES,
+            100, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void convert_mapsRealmAndClientRoles() {
+        Jwt jwt = jwt("jti-1", NOW.plusSeconds(300))
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm", "offline_access")))
+                .claim("resource_access", Map.of(
+                        "account", Map.of("roles", List.of("view-profile", "manage-account")),
+                        "other-client", Map.of("roles", List.of("view-profile"))))
+                .claim("scope", "openid email")
+                .build();
+
+        assertThat(names(converter.convert(jwt)))
+                .containsExactlyInAnyOrder("SCOPE_openid", "SCOPE_email", "ROLE_USER", "PROFILE_READ", "PROFILE_WRITE");
+    }
+
+    @Test
+    void convert_ignoresMissingOrMalformedRoleClaims() {
+        assertThat(converter.convert(jwt("jti-1", NOW.plusSeconds(300)).build())).isEmpty();
+        assertThat(converter.convert(jwt("jti-2", NOW.plusSeconds(300))
+                .claim("realm_access", "admin")
+                .claim("resource_access", Map.of("account", Map.of("roles", "view-profile")))
+                .build())).isEmpty();
+        assertThat(names(converter.convert(jwt("jti-3", NOW.plusSeconds(300))
+                .claim("realm_access", Map.of("roles", List.of(1, "admin")))
+                .build()))).containsExactlyInAnyOrder("ROLE_ADMIN", "PROFILE_WRITE");
+    }
+
+    @Test
+    void convert_reusesAuthoritiesForSameTokenUntilExpiry() {
+        Jwt jwt = jwt("jti-1", NOW.plusSeconds(300))
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm")))
+                .build();
+
+        Collection<GrantedAuthority> first = converter.convert(jwt);
+        Collection<GrantedAuthority> second = converter.convert(jwt);
+
+        assertThat(second).isSameAs(first);
+        assertThat(converter.stats().hits()).isEqualTo(1);
+        assertThat(converter.stats().misses()).isEqualTo(1);
+        assertThatThrownBy(() -> first.clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void convert_doesNotCacheTokensWithoutExpiryOrAlreadyExpired() {
+        converter.convert(jwt("jti-1", null).build());
+        converter.convert(jwt("jti-2", NOW.minusSeconds(1)).build());
+
+        assertThat(converter.stats().cachedTokens()).isZero();
+        assertThat(converter.stats().misses()).isZero();
+    }
+
+    @Test
+    void convert_withCacheDisabledMapsEveryTime() {
+        KeycloakAuthoritiesConverter uncached = new KeycloakAuthoritiesConverter(REALM_ROLES, CLIENT_ROLES, 0,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        Jwt jwt = jwt("jti-1", NOW.plusSeconds(300))
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm")))
+                .build();
+
+        assertThat(names(uncached.convert(jwt))).containsExactly("ROLE_USER");
+        assertThat(uncached.convert(jwt)).isNotSameAs(uncached.convert(jwt));
+        assertThat(uncached.stats().cachedTokens()).isZero();
+    }
+
+    private static Jwt.Builder jwt(String jti, Instant expiresAt) {
+        Jwt.Builder builder = Jwt.withTokenValue("token-" + jti)
+                .header("alg", "RS256")
+                .issuer(ISSUER)
+                .subject("user")
+                .jti(jti);
+        return expiresAt == null ? builder : builder.expiresAt(expiresAt);
+    }
+
+    private static List<String> names(Collection<GrantedAuthority> authorities) {
+        return AuthorityUtils.authorityListToSet(authorities).stream().toList();
+    }
+}
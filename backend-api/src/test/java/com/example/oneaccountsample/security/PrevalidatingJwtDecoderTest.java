@@ -0,0 +1,153 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PrevalidatingJwtDecoderTest {
+
+    private static final String ISSUER = "http://localhost:8080/realms/one-account-realm";
+    private static final Instant NOW = Instant.parse("2025-08-15T00:00:00Z");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Set<String> knownKeyIds = Set.of("key-1");
+    private JwtDecoder delegate;
+    private PrevalidatingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        when(delegate.decode(anyString())).thenAnswer(invocation -> Jwt.withTokenValue(invocation.getArgument(0))
+                .header("alg", "RS256")
+                .subject("user")
+                .build());
+        decoder = new PrevalidatingJwtDecoder(delegate, ISSUER, knownKeyIds::contains, Duration.ofSeconds(60), 8192,
+                100, Duration.ofMinutes(5), registry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void decode_delegatesValidToken() {
+        String token = token("RS256", "key-1", NOW.plusSeconds(300), ISSUER);
+
+        assertThat(decoder.decode(token).getTokenValue()).isEqualTo(token);
+        verify(delegate).decode(token);
+    }
+
+    @Test
+    void decode_rejectsStructurallyInvalidTokens() {
+        for (String token : new String[] { "not-a-jwt", "a.b", "a..c", ".b.c", "a.b.", "a.b.c.d", "!!!.b.c",
+                "x".repeat(8193) + ".b.c" }) {
+            assertThatThrownBy(() -> decoder.decode(token))
+                    .isInstanceOfSatisfying(RejectedJwtException.class,
+                            e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.MALFORMED));
+        }
+        verifyNoInteractions(delegate);
+        assertThat(rejections("malformed", "check")).isEqualTo(8);
+    }
+
+    @Test
+    void decode_rejectsUnsupportedAlgorithm() {
+        assertThatThrownBy(() -> decoder.decode(token("none", "key-1", NOW.plusSeconds(300), ISSUER)))
+                .isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(token("HS256", "key-1", NOW.plusSeconds(300), ISSUER)))
+                .isInstanceOf(BadJwtException.class);
+
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void decode_rejectsUnknownKeyIdWithoutCachingIt() {
+        String token = token("RS256", "key-2", NOW.plusSeconds(300), ISSUER);
+
+        assertThatThrownBy(() -> decoder.decode(token))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.UNKNOWN_KID));
+        verifyNoInteractions(delegate);
+        assertThat(decoder.negativeCacheSize()).isZero();
+        assertThat(rejections("unknown_kid", "check")).isEqualTo(1);
+    }
+
+    @Test
+    void decode_rejectsExpiredTokenBeyondClockSkew() {
+        String withinSkew = token("RS256", "key-1", NOW.minusSeconds(30), ISSUER);
+        String expired = token("RS256", "key-1", NOW.minusSeconds(61), ISSUER);
+
+        decoder.decode(withinSkew);
+        assertThatThrownBy(() -> decoder.decode(expired))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.EXPIRED));
+
+        verify(delegate).decode(withinSkew);
+        verify(delegate, never()).decode(expired);
+    }
+
+    @Test
+    void decode_rejectsWrongIssuer() {
+        assertThatThrownBy(() -> decoder.decode(token("RS256", "key-1", NOW.plusSeconds(300), "http://evil.example")))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.INVALID_CLAIMS));
+        assertThatThrownBy(() -> decoder.decode(token("RS256", "key-1", NOW.plusSeconds(300), null)))
+                .isInstanceOf(RejectedJwtException.class);
+
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void decode_rejectsRepeatedBadSignatureFromNegativeCache() {
+        String token = token("RS256", "key-1", NOW.plusSeconds(300), ISSUER);
+        when(delegate.decode(token)).thenThrow(new BadJwtException(
+                "An error occurred while attempting to decode the Jwt: Signed JWT rejected: Invalid signature"));
+
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(token))
+                .isInstanceOfSatisfying(RejectedJwtException.class,
+                        e -> assertThat(e.reason()).isEqualTo(AuthFailureReason.BAD_SIGNATURE));
+
+        verify(delegate, times(1)).decode(token);
+        assertThat(rejections("bad_signature", "negative_cache")).isEqualTo(1);
+    }
+
+    @Test
+    void decode_doesNotCacheTransientDelegateFailures() {
+        String token = token("RS256", "key-1", NOW.plusSeconds(300), ISSUER);
+        when(delegate.decode(token)).thenThrow(new JwtException("Couldn't retrieve remote JWK set"));
+
+        assertThatThrownBy(() -> decoder.decode(token)).isNotInstanceOf(RejectedJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(token)).isNotInstanceOf(RejectedJwtException.class);
+
+        verify(delegate, times(2)).decode(token);
+    }
+
+    private double rejections(String reason, String source) {
+        return registry.get("auth.prevalidation.rejections").tag("reason", reason).tag("source", source)
+                .counter().count();
+    }
+
+    private static String token(String algorithm, String keyId, Instant expiresAt, String issuer) {
+        String header = "{\"alg\":\"" + algorithm + "\",\"kid\":\"" + keyId + "\",\"typ\":\"JWT\"}";
+        String payload = "{\"sub\":\"user\",\"exp\":" + expiresAt.getEpochSecond()
+                + (issuer == null ? "" : ",\"iss\":\"" + issuer + "\"") + "}";
+        return encode(header) + "." + encode(payload) + ".c2lnbmF0dXJl";
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
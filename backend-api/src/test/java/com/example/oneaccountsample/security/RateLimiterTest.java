@@ -0,0 +1,147 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private RateLimiter rateLimiter(Map<String, RateLimiter.Limit> limits, long maxKeys) {
+        return new RateLimiter(limits, maxKeys, Duration.ofMinutes(10), 4, nanos::get);
+    }
+
+    @Test
+    void tryAcquire_allowsBurstThenRejectsUntilRefilled() {
+        RateLimiter limiter = rateLimiter(Map.of("/api/user", new RateLimiter.Limit(10, 3)), 100);
+        RateLimiter.Endpoint endpoint = limiter.endpoint("/api/user");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(endpoint, "user-1")).isZero();
+        }
+        // 1秒あたり10件の補充のため、次の1件は100ms後に許可される
+        assertThat(limiter.tryAcquire(endpoint, "user-1")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire(endpoint, "user-1")).isZero();
+        assertThat(limiter.tryAcquire(endpoint, "user-1")).isPositive();
+
+        // 十分な時間が経過してもバケットの容量（burst）を超えては貯まらない
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(endpoint, "user-1")).isZero();
+        }
+        assertThat(limiter.tryAcquire(endpoint, "user-1")).isPositive();
+        assertThat(endpoint.stats().allowed()).isEqualTo(7);
+        assertThat(endpoint.stats().rejected()).isEqualTo(3);
+    }
+
+    @Test
+    void tryAcquire_limitsEachClientAndEndpointIndependently() {
+        Map<String, RateLimiter.Limit> limits = new LinkedHashMap<>();
+        limits.put("/api/user", new RateLimiter.Limit(1, 1));
+        limits.put("/api/profile", new RateLimiter.Limit(1, 1));
+        RateLimiter limiter = rateLimiter(limits, 100);
+
+        assertThat(limiter.tryAcquire(limiter.endpoint("/api/user"), "user-1")).isZero();
+        assertThat(limiter.tryAcquire(limiter.endpoint("/api/user"), "user-1")).isPositive();
+        assertThat(limiter.tryAcquire(limiter.endpoint("/api/user"), "user-2")).isZero();
+        assertThat(limiter.tryAcquire(limiter.endpoint("/api/profile"), "user-1")).isZero();
+    }
+
+    @Test
+    void endpoint_prefersExactMatchThenLongestPrefix() {
+        Map<String, RateLimiter.Limit> limits = new LinkedHashMap<>();
+        limits.put("/api/**", new RateLimiter.Limit(1, 1));
+        limits.put("/api/health/**", new RateLimiter.Limit(1, 1));
+        limits.put("/api/user", new RateLimiter.Limit(1, 1));
+        RateLimiter limiter = rateLimiter(limits, 100);
+
+        assertThat(limiter.endpoint("/api/user").pattern()).isEqualTo("/api/user");
+        assertThat(limiter.endpoint("/api/health").pattern()).isEqualTo("/api/health/**");
+        assertThat(limiter.endpoint("/api/health/ready").pattern()).isEqualTo("/api/health/**");
+        assertThat(limiter.endpoint("/api/healthz").pattern()).isEqualTo("/api/**");
+        assertThat(limiter.endpoint("/api/user/extra").pattern()).isEqualTo("/api/**");
+        assertThat(limiter.endpoint("/actuator/health")).isNull();
+    }
+
+    @Test
+    void buckets_areBoundedAndEvictedWhenIdle() {
+        RateLimiter limiter = new RateLimiter(Map.of("/api/user", new RateLimiter.Limit(1, 1)), 64,
+                Duration.ofMinutes(1), 4, nanos::get);
+        RateLimiter.Endpoint endpoint = limiter.endpoint("/api/user");
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire(endpoint, "user-" + i);
+        }
+        assertThat(endpoint.stats().keys()).isLessThanOrEqualTo(64);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        for (int i = 0; i < 4; i++) {
+            // 追加時の保守処理で期限切れのバケットを破棄する
+            limiter.tryAcquire(endpoint, "active-" + i);
+        }
+        assertThat(endpoint.stats().keys()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void tryAcquire_neverAllowsMoreThanBurstUnderContention() throws Exception {
+        RateLimiter limiter = rateLimiter(Map.of("/api/user", new RateLimiter.Limit(0.001, 1_000)), 100);
+        RateLimiter.Endpoint endpoint = limiter.endpoint("/api/user");
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        if (limiter.tryAcquire(endpoint, "hot-user") == 0) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(allowed).isEqualTo(1_000);
+            assertThat(endpoint.stats().rejected()).isEqualTo(threads * 10_000L - 1_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void disabled_limitsNothing() {
+        RateLimiter limiter = RateLimiter.disabled();
+
+        assertThat(limiter.isEnabled()).isFalse();
+        assertThat(limiter.endpoint("/api/user")).isNull();
+    }
+
+    @Test
+    void retryAfterSeconds_roundsUpToWholeSeconds() {
+        assertThat(RateLimiter.retryAfterSeconds(1)).isEqualTo(1);
+        assertThat(RateLimiter.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1))).isEqualTo(1);
+        assertThat(RateLimiter.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(1_001))).isEqualTo(2);
+    }
+}
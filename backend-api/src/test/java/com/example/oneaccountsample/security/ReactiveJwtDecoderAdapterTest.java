@@ -0,0 +1,67 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+class ReactiveJwtDecoderAdapterTest {
+
+    private final Scheduler scheduler = Schedulers.newSingle("jwt-decode");
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void decode_servesCacheHitOnCallingThreadAndOffloadsMiss() {
+        AtomicReference<String> decodeThread = new AtomicReference<>();
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode(anyString())).thenAnswer(invocation -> {
+            decodeThread.set(Thread.currentThread().getName());
+            return Jwt.withTokenValue(invocation.getArgument(0))
+                    .header("alg", "RS256")
+                    .subject("user123")
+                    .expiresAt(Instant.now().plusSeconds(300))
+                    .build();
+        });
+        CachingJwtDecoder cache = new CachingJwtDecoder(delegate, 100, 1_000_000);
+        ReactiveJwtDecoderAdapter adapter = new ReactiveJwtDecoderAdapter(cache, scheduler);
+
+        Jwt miss = adapter.decode("token-a").block();
+        assertThat(decodeThread.get()).startsWith("jwt-decode");
+
+        AtomicReference<String> hitThread = new AtomicReference<>();
+        Jwt hit = adapter.decode("token-a")
+                .doOnNext(jwt -> hitThread.set(Thread.currentThread().getName()))
+                .block();
+
+        assertThat(hit).isSameAs(miss);
+        assertThat(hitThread.get()).isEqualTo(Thread.currentThread().getName());
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    void decode_offloadsWhenDelegateHasNoCache() {
+        AtomicReference<String> decodeThread = new AtomicReference<>();
+        JwtDecoder delegate = token -> {
+            decodeThread.set(Thread.currentThread().getName());
+            return Jwt.withTokenValue(token).header("alg", "RS256").subject("user123").build();
+        };
+        ReactiveJwtDecoderAdapter adapter = new ReactiveJwtDecoderAdapter(delegate, scheduler);
+
+        assertThat(adapter.decode("token-a").block().getSubject()).isEqualTo("user123");
+        assertThat(decodeThread.get()).startsWith("jwt-decode");
+    }
+}
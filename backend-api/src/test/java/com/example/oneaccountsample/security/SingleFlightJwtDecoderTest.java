@@ -0,0 +1,119 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+class SingleFlightJwtDecoderTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void decode_concurrentCallersShareOneVerification() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Jwt jwt = Jwt.withTokenValue("token-a")
+                .header("alg", "RS256")
+                .subject("user123")
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode("token-a")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return jwt;
+        });
+        SingleFlightJwtDecoder decoder = new SingleFlightJwtDecoder(delegate);
+
+        List<Future<Jwt>> results = runConcurrently(decoder, release);
+
+        for (Future<Jwt> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(jwt);
+        }
+        verify(delegate, times(1)).decode("token-a");
+        assertThat(decoder.stats().leaders()).isEqualTo(1);
+        assertThat(decoder.stats().coalesced()).isEqualTo(CALLERS - 1);
+        assertThat(decoder.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void decode_concurrentCallersShareFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode("token-a")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new BadJwtException("invalid signature");
+        });
+        SingleFlightJwtDecoder decoder = new SingleFlightJwtDecoder(delegate);
+
+        List<Future<Jwt>> results = runConcurrently(decoder, release);
+
+        for (Future<Jwt> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(BadJwtException.class);
+        }
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    void decode_errorInLeaderReleasesWaitingFollowers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode("token-a")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+        SingleFlightJwtDecoder decoder = new SingleFlightJwtDecoder(delegate);
+
+        List<Future<Jwt>> results = runConcurrently(decoder, release);
+
+        for (Future<Jwt> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        }
+        verify(delegate, times(1)).decode("token-a");
+        assertThat(decoder.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void decode_sequentialCallsAreNotCoalesced() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        SingleFlightJwtDecoder decoder = new SingleFlightJwtDecoder(delegate);
+
+        decoder.decode("token-a");
+        decoder.decode("token-a");
+
+        verify(delegate, times(2)).decode("token-a");
+        assertThat(decoder.stats().leaders()).isEqualTo(2);
+        assertThat(decoder.stats().coalesced()).isZero();
+    }
+
+    private List<Future<Jwt>> runConcurrently(SingleFlightJwtDecoder decoder, CountDownLatch release)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Jwt>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> decoder.decode("token-a")));
+            }
+            // 全員がリーダーの検証待ちに入るまで待ってから検証を完了させる
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (decoder.stats().coalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TimedJwtDecoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AuthFailureMetrics failureMetrics = new AuthFailureMetrics(registry);
+
+    @Test
+    void decode_recordsSuccess() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user")
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        TimedJwtDecoder decoder = new TimedJwtDecoder(token -> jwt, registry, failureMetrics);
+
+        assertThat(decoder.decode("token")).isSameAs(jwt);
+        assertThat(registry.get("auth.jwt.decode").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.jwt.decode").tag("outcome", "failure").timer().count()).isZero();
+    }
+
+    @Test
+    void decode_recordsFailureReason() {
+        TimedJwtDecoder decoder = new TimedJwtDecoder(token -> {
+            throw new BadJwtException("An error occurred while attempting to decode the Jwt: Signed JWT rejected: Invalid signature");
+        }, registry, failureMetrics);
+
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        assertThat(registry.get("auth.jwt.decode").tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.failures").tag("reason", "bad_signature").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getIfPresent_recordsCacheHitOnly() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user")
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        CachingJwtDecoder cache = new CachingJwtDecoder(token -> jwt, 100, 1_000_000);
+        TimedJwtDecoder decoder = new TimedJwtDecoder(cache, registry, failureMetrics);
+
+        assertThat(decoder.getIfPresent("token")).isNull();
+        decoder.decode("token");
+        assertThat(decoder.getIfPresent("token")).isSameAs(jwt);
+        assertThat(registry.get("auth.jwt.decode").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(new TimedJwtDecoder(token -> jwt, registry, failureMetrics).getIfPresent("token")).isNull();
+    }
+
+    @Test
+    void reason_classifiesDecoderExceptions() {
+        assertThat(AuthFailureReason.of(new JwtValidationException("expired",
+                List.of(new OAuth2Error("invalid_token", "Jwt expired at 2025-01-01T00:00:00Z", null)))))
+                .isEqualTo(AuthFailureReason.EXPIRED);
+        assertThat(AuthFailureReason.of(new JwtValidationException("issuer",
+                List.of(new OAuth2Error("invalid_token", "The iss claim is not valid", null)))))
+                .isEqualTo(AuthFailureReason.INVALID_CLAIMS);
+        assertThat(AuthFailureReason.of(new BadJwtException(
+                "An error occurred while attempting to decode the Jwt: Signed JWT rejected: Another algorithm expected, or no matching key(s) found")))
+                .isEqualTo(AuthFailureReason.UNKNOWN_KID);
+        assertThat(AuthFailureReason.of(new BadJwtException("An error occurred while attempting to decode the Jwt: Malformed token")))
+                .isEqualTo(AuthFailureReason.MALFORMED);
+        assertThat(AuthFailureReason.of(new RejectedJwtException(AuthFailureReason.UNKNOWN_KID, "No matching key for kid")))
+                .isEqualTo(AuthFailureReason.UNKNOWN_KID);
+        assertThat(AuthFailureReason.of(new JwtException("Couldn't retrieve remote JWK set")))
+                .isEqualTo(AuthFailureReason.OTHER);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.oneaccountsample.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.oneaccountsample.support.StubOidcIssuer;
+import com.example.oneaccountsample.support.StubTokenEndpoint;
+
+class TokenRefresherTest {
+
+    private static final int CALLERS = 16;
+
+    private final AtomicLong nanos = new AtomicLong();
+    /** 設定した場合、保持期間の計測（結果の格納時等）で送出する */
+    private final AtomicReference<Error> tickerError = new AtomicReference<>();
+    private StubOidcIssuer issuer;
+    private StubTokenEndpoint tokenEndpoint;
+    private TokenRefresher refresher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        issuer = StubOidcIssuer.start("refresh-realm");
+        tokenEndpoint = StubTokenEndpoint.attach(issuer);
+        refresher = new TokenRefresher(issuer.issuerUri() + "/protocol/openid-connect/token",
+                StubTokenEndpoint.CLIENT_ID, StubTokenEndpoint.CLIENT_SECRET, Duration.ofSeconds(10), 100,
+                Duration.ofSeconds(2), Duration.ofSeconds(15), this::tick);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenEndpoint.release();
+        issuer.close();
+    }
+
+    @Test
+    void refresh_concurrentCallersShareOneExchange() throws Exception {
+        String refreshToken = tokenEndpoint.login("user123");
+        tokenEndpoint.hold();
+
+        List<Future<TokenRefresher.Tokens>> results = runConcurrently(refreshToken);
+
+        TokenRefresher.Tokens first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<TokenRefresher.Tokens> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(first.refreshToken()).isNotEqualTo(refreshToken);
+        assertThat(first.expiresIn()).isEqualTo(300);
+        assertThat(first.refreshExpiresIn()).isEqualTo(1800);
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(1);
+        // 1回のみ使用したため、ローテーションの再使用の検知でセッションが無効になっていない
+        assertThat(tokenEndpoint.isSessionActive(first.refreshToken())).isTrue();
+        assertThat(refresher.stats().exchanges()).isEqualTo(1);
+        assertThat(refresher.stats().coalesced()).isEqualTo(CALLERS - 1);
+        assertThat(refresher.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void refresh_returnsRecentResultToLateCallers() {
+        String refreshToken = tokenEndpoint.login("user123");
+
+        TokenRefresher.Tokens tokens = refresher.refresh(refreshToken);
+        nanos.addAndGet(Duration.ofSeconds(9).toNanos());
+
+        assertThat(refresher.refresh(refreshToken)).isSameAs(tokens);
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(1);
+        assertThat(refresher.stats().cached()).isEqualTo(1);
+
+        // 保持期間の経過後はKeycloakに送信され、使用済みのため拒否される
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThatThrownBy(() -> refresher.refresh(refreshToken))
+                .isInstanceOfSatisfying(TokenRefreshException.class, e -> assertThat(e.rejected()).isTrue());
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void refresh_rotatedTokenCanBeUsedAgain() {
+        String refreshToken = tokenEndpoint.login("user123");
+
+        TokenRefresher.Tokens first = refresher.refresh(refreshToken);
+        TokenRefresher.Tokens second = refresher.refresh(first.refreshToken());
+
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        assertThat(second.accessToken()).isNotEqualTo(first.accessToken());
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void refresh_rejectionIsSharedAndRemembered() throws Exception {
+        tokenEndpoint.hold();
+
+        List<Future<TokenRefresher.Tokens>> results = runConcurrently("unknown-refresh-token");
+
+        for (Future<TokenRefresher.Tokens> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(TokenRefreshException.class);
+        }
+        assertThatThrownBy(() -> refresher.refresh("unknown-refresh-token"))
+                .isInstanceOfSatisfying(TokenRefreshException.class, e -> assertThat(e.rejected()).isTrue());
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(1);
+        assertThat(refresher.stats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_unavailableIsNotRemembered() {
+        String refreshToken = tokenEndpoint.login("user123");
+        tokenEndpoint.setUnavailable(true);
+
+        assertThatThrownBy(() -> refresher.refresh(refreshToken))
+                .isInstanceOfSatisfying(TokenRefreshException.class, e -> assertThat(e.rejected()).isFalse());
+
+        tokenEndpoint.setUnavailable(false);
+        assertThat(refresher.refresh(refreshToken).accessToken()).isNotEmpty();
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(2);
+        assertThat(refresher.stats().failures()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_wrongClientCredentialsAreNotTreatedAsRejection() {
+        TokenRefresher misconfigured = new TokenRefresher(issuer.issuerUri() + "/protocol/openid-connect/token",
+                StubTokenEndpoint.CLIENT_ID, "wrong-secret", Duration.ofSeconds(10), 100,
+                Duration.ofSeconds(2), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> misconfigured.refresh(tokenEndpoint.login("user123")))
+                .isInstanceOfSatisfying(TokenRefreshException.class, e -> assertThat(e.rejected()).isFalse());
+    }
+
+    @Test
+    void refresh_errorInLeaderReleasesWaitingFollowers() throws Exception {
+        String refreshToken = tokenEndpoint.login("user123");
+        tokenEndpoint.hold();
+
+        // 全員が待機に入った後、リーダーが結果を格納する時点でErrorを発生させる
+        List<Future<TokenRefresher.Tokens>> results = runConcurrently(refreshToken,
+                () -> tickerError.set(new StackOverflowError()));
+
+        for (Future<TokenRefresher.Tokens> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        }
+        assertThat(tokenEndpoint.refreshRequests()).isEqualTo(1);
+        assertThat(refresher.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void disabled_doesNotRefresh() {
+        TokenRefresher disabled = TokenRefresher.disabled();
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThatIllegalStateException().isThrownBy(() -> disabled.refresh("refresh-token"));
+    }
+
+    private List<Future<TokenRefresher.Tokens>> runConcurrently(String refreshToken) throws InterruptedException {
+        return runConcurrently(refreshToken, () -> {
+        });
+    }
+
+    private List<Future<TokenRefresher.Tokens>> runConcurrently(String refreshToken, Runnable beforeRelease)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<TokenRefresher.Tokens>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> refresher.refresh(refreshToken)));
+            }
+            // 全員がリーダーの交換待ちに入るまで待ってから応答させる
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (refresher.stats().coalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            beforeRelease.run();
+            tokenEndpoint.release();
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private long tick() {
+        Error error = tickerError.get();
+        if (error != null) {
+            throw error;
+        }
+        return nanos.get();
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.oneaccountsample.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * テスト用のKeycloakの管理API（ユーザーとイベントの参照のみ）。
+ * <p>
+ * {@link StubOidcIssuer} に次のエンドポイントを追加します。
+ * <ul>
+ *   <li>トークンエンドポイント（client_credentials）</li>
+ *   <li>管理イベント（admin-events）・ユーザーイベント（events）の一覧（Keycloakと同じく新しい順、first/maxでページング）</li>
+ *   <li>ユーザーの取得（users/&lt;id&gt;、削除済みの場合は404）</li>
+ * </ul>
+ * 管理APIはトークンエンドポイントで最後に発行したトークンのみ受け付けます。
+ */
+public class StubKeycloakAdmin {
+
+    public static final String CLIENT_ID = "backend-api";
+    public static final String CLIENT_SECRET = "backend-api-secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Map<String, Object>> users = new ConcurrentHashMap<>();
+    private final List<Map<String, Object>> adminEvents = new CopyOnWriteArrayList<>();
+    private final List<Map<String, Object>> userEvents = new CopyOnWriteArrayList<>();
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicInteger userRequests = new AtomicInteger();
+    private volatile String accessToken;
+    private volatile boolean adminEventsDetails = true;
+
+    private StubKeycloakAdmin(StubOidcIssuer issuer) {
+        issuer.addHandler("/protocol/openid-connect/token", this::token);
+        issuer.addAdminHandler("/admin-events", exchange -> events(exchange, adminEvents));
+        issuer.addAdminHandler("/events", exchange -> events(exchange, userEvents));
+        issuer.addAdminHandler("/users/", this::user);
+    }
+
+    /**
+     * OIDCプロバイダーに管理APIを追加します。
+     *
+     * @param issuer 追加先のOIDCプロバイダー
+     * @return 管理API
+     */
+    public static StubKeycloakAdmin attach(StubOidcIssuer issuer) {
+        return new StubKeycloakAdmin(issuer);
+    }
+
+    /**
+     * 管理イベントにユーザーの内容（representation）を含めるかを設定します（Keycloakの adminEventsDetailsEnabled）。
+     *
+     * @param enabled 含める場合true
+     */
+    public void setAdminEventsDetails(boolean enabled) {
+        this.adminEventsDetails = enabled;
+    }
+
+    /**
+     * イベントを発生させずにユーザーを登録します（フィードの開始前から存在するユーザー）。
+     *
+     * @param id        ユーザーID
+     * @param username  ユーザー名
+     * @param email     メールアドレス
+     * @param firstName 名
+     * @param lastName  姓
+     */
+    public void putUser(String id, String username, String email, String firstName, String lastName) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", id);
+        user.put("username", username);
+        user.put("email", email);
+        user.put("emailVerified", true);
+        user.put("firstName", firstName);
+        user.put("lastName", lastName);
+        users.put(id, user);
+    }
+
+    /**
+     * 管理コンソールからユーザーを更新します（管理イベント UPDATE）。
+     *
+     * @param id        ユーザーID
+     * @param time      イベントの時刻（エポックミリ秒）
+     * @param firstName 名
+     * @param lastName  姓
+     * @param email     メールアドレス
+     */
+    public void updateUserByAdmin(String id, long time, String firstName, String lastName, String email) {
+        Map<String, Object> user = update(id, firstName, lastName, email);
+        Map<String, Object> event = adminEvent(time, "UPDATE", "users/" + id);
+        if (adminEventsDetails) {
+            event.put("representation", toJson(user));
+        }
+        adminEvents.add(event);
+    }
+
+    /**
+     * アカウントコンソールから本人がプロフィールを更新します（ユーザーイベント UPDATE_PROFILE）。
+     *
+     * @param id        ユーザーID
+     * @param time      イベントの時刻（エポックミリ秒）
+     * @param firstName 名
+     * @param lastName  姓
+     * @param email     メールアドレス
+     */
+    public void updateProfile(String id, long time, String firstName, String lastName, String email) {
+        update(id, firstName, lastName, email);
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("time", time);
+        event.put("type", "UPDATE_PROFILE");
+        event.put("userId", id);
+        event.put("clientId", "account-console");
+        userEvents.add(event);
+    }
+
+    /**
+     * 管理コンソールからユーザーを削除します（管理イベント DELETE）。
+     *
+     * @param id   ユーザーID
+     * @param time イベントの時刻（エポックミリ秒）
+     */
+    public void deleteUser(String id, long time) {
+        users.remove(id);
+        adminEvents.add(adminEvent(time, "DELETE", "users/" + id));
+    }
+
+    /**
+     * ユーザーにロールを割り当てます（プロフィールに影響しない管理イベント）。
+     *
+     * @param id   ユーザーID
+     * @param time イベントの時刻（エポックミリ秒）
+     */
+    public void addRoleMapping(String id, long time) {
+        adminEvents.add(adminEvent(time, "CREATE", "users/" + id + "/role-mappings/realm"));
+    }
+
+    /**
+     * 発行済みのトークンを無効にします（以降の管理APIの呼び出しは401）。
+     */
+    public void revokeTokens() {
+        accessToken = null;
+    }
+
+    public int tokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public int userRequests() {
+        return userRequests.get();
+    }
+
+    private Map<String, Object> update(String id, String firstName, String lastName, String email) {
+        Map<String, Object> user = users.get(id);
+        if (user == null) {
+            throw new IllegalArgumentException("Unknown user: " + id);
+        }
+        user.put("firstName", firstName);
+        user.put("lastName", lastName);
+        user.put("email", email);
+        return user;
+    }
+
+    private static Map<String, Object> adminEvent(long time, String operationType, String resourcePath) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("time", time);
+        event.put("operationType", operationType);
+        event.put("resourceType", "USER");
+        event.put("resourcePath", resourcePath);
+        return event;
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        tokenRequests.incrementAndGet();
+        Map<String, String> form = parseQuery(new String(exchange.getRequestBody().readAllBytes(),
+                StandardCharsets.UTF_8));
+        if (!"client_credentials".equals(form.get("grant_type")) || !CLIENT_ID.equals(form.get("client_id"))
+                || !CLIENT_SECRET.equals(form.get("client_secret"))) {
+            respond(exchange, 401, toJson(Map.of("error", "unauthorized_client")));
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        accessToken = token;
+        respond(exchange, 200, toJson(Map.of("access_token", token, "token_type", "Bearer", "expires_in", 300)));
+    }
+
+    private void events(HttpExchange exchange, List<Map<String, Object>> source) throws IOException {
+        if (!authorized(exchange)) {
+            respond(exchange, 401, "{}");
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", "100"));
+        List<Map<String, Object>> events = new ArrayList<>(source);
+        events.sort(Comparator.comparingLong((Map<String, Object> event) -> (Long) event.get("time")).reversed());
+        List<Map<String, Object>> page = first < events.size()
+                ? events.subList(first, Math.min(events.size(), first + max)) : List.of();
+        respond(exchange, 200, toJson(page));
+    }
+
+    private void user(HttpExchange exchange) throws IOException {
+        if (!authorized(exchange)) {
+            respond(exchange, 401, "{}");
+            return;
+        }
+        userRequests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, Object> user = users.get(path.substring(path.lastIndexOf('/') + 1));
+        if (user == null) {
+            respond(exchange, 404, toJson(Map.of("error", "User not found")));
+            return;
+        }
+        respond(exchange, 200, toJson(user));
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String token = accessToken;
+        return token != null && ("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                params.putIfAbsent(URLDecoder.decode(pair.substring(0, index), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
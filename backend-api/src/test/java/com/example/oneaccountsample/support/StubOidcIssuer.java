@@ -0,0 +1,316 @@
+package com.example.oneaccountsample.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * テスト用のOIDCプロバイダー（Keycloakの代替）。
+ * <p>
+ * ローカルのランダムポートでディスカバリー文書とJWKSを返し、
+ * Keycloakと同等のクレームを持つ署名済みトークンを発行します。
+ * 署名鍵のローテーションや失効をテスト中に行うことができます。
+ */
+public class StubOidcIssuer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final String issuerUri;
+    private final List<RSAKey> keys = new CopyOnWriteArrayList<>();
+    private final AtomicInteger discoveryRequests = new AtomicInteger();
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private volatile Duration jwksDelay = Duration.ZERO;
+
+    private StubOidcIssuer(String realm, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.issuerUri = "http://127.0.0.1:" + server.getAddress().getPort() + "/realms/" + realm;
+        this.keys.add(newSigningKey());
+
+        String realmPath = "/realms/" + realm;
+        server.createContext(realmPath + "/.well-known/openid-configuration", exchange -> {
+            discoveryRequests.incrementAndGet();
+            respond(exchange, JSONObjectUtils.toJSONString(discovery()));
+        });
+        server.createContext(realmPath + "/protocol/openid-connect/certs", exchange -> {
+            jwksRequests.incrementAndGet();
+            delay(jwksDelay);
+            respond(exchange, publishedKeys().toString());
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * 指定したレルム名でOIDCプロバイダーを起動します。
+     *
+     * @param realm レルム名
+     * @return 起動したOIDCプロバイダー
+     * @throws IOException ポートを確保できない場合
+     */
+    public static StubOidcIssuer start(String realm) throws IOException {
+        return new StubOidcIssuer(realm, 0);
+    }
+
+    /**
+     * 指定したレルム名・ポートでOIDCプロバイダーを起動します（別プロセスのアプリケーションから参照する場合）。
+     *
+     * @param realm レルム名
+     * @param port  ポート（0の場合はランダム）
+     * @return 起動したOIDCプロバイダー
+     * @throws IOException ポートを確保できない場合
+     */
+    public static StubOidcIssuer start(String realm, int port) throws IOException {
+        return new StubOidcIssuer(realm, port);
+    }
+
+    /**
+     * 対象のHTTPパスにハンドラーを追加します（トークンエンドポイント等のテスト用）。
+     *
+     * @param path    パス（issuer URIからの相対パス）
+     * @param handler ハンドラー
+     */
+    public void addHandler(String path, HttpHandler handler) {
+        server.createContext(issuerPath() + path, handler);
+    }
+
+    /**
+     * レルムの管理APIのHTTPパスにハンドラーを追加します（Keycloakの /admin/realms/&lt;レルム&gt; の代替）。
+     *
+     * @param path    パス（管理APIのURIからの相対パス）
+     * @param handler ハンドラー
+     */
+    public void addAdminHandler(String path, HttpHandler handler) {
+        server.createContext("/admin" + issuerPath() + path, handler);
+    }
+
+    /** レルムの管理APIのURI（Keycloakの /admin/realms/&lt;レルム&gt; に相当） */
+    public String adminUri() {
+        return issuerUri.substring(0, issuerUri.indexOf("/realms/")) + "/admin" + issuerPath();
+    }
+
+    public String issuerUri() {
+        return issuerUri;
+    }
+
+    public String jwksUri() {
+        return issuerUri + "/protocol/openid-connect/certs";
+    }
+
+    /** 現在の署名鍵（最後に追加された鍵） */
+    public RSAKey signingKey() {
+        return keys.get(keys.size() - 1);
+    }
+
+    /** JWKSとして公開中の鍵 */
+    public JWKSet publishedKeys() {
+        List<JWK> publicKeys = new ArrayList<>();
+        for (RSAKey key : keys) {
+            publicKeys.add(key.toPublicJWK());
+        }
+        return new JWKSet(publicKeys);
+    }
+
+    /**
+     * 新しい署名鍵を追加し、以降のトークンはその鍵で署名します。
+     * 旧鍵はJWKSに残ります。
+     *
+     * @return 新しい署名鍵
+     */
+    public RSAKey rotateKey() {
+        RSAKey key = newSigningKey();
+        keys.add(key);
+        return key;
+    }
+
+    /**
+     * 事前に生成した鍵をJWKSに追加し、以降のトークンはその鍵で署名します。
+     *
+     * @param key 追加する鍵（{@link #newSigningKey()} で生成したもの）
+     */
+    public void publishKey(RSAKey key) {
+        keys.add(key);
+    }
+
+    /**
+     * JWKSの応答を遅延させます（低速なIDプロバイダーの再現用）。
+     *
+     * @param delay 遅延時間
+     */
+    public void setJwksDelay(Duration delay) {
+        this.jwksDelay = delay;
+    }
+
+    /**
+     * 指定したkidの鍵をJWKSから取り除きます。
+     *
+     * @param keyId 取り除く鍵のkid
+     */
+    public void retireKey(String keyId) {
+        keys.removeIf(key -> keyId.equals(key.getKeyID()));
+    }
+
+    public int discoveryRequests() {
+        return discoveryRequests.get();
+    }
+
+    public int jwksRequests() {
+        return jwksRequests.get();
+    }
+
+    /**
+     * Keycloakのアクセストークンと同等のクレームを持つトークンを発行します。
+     *
+     * @param subject sub クレーム
+     * @return 署名済みトークン
+     */
+    public String mintToken(String subject) {
+        return mintToken(subject, claims -> {
+        });
+    }
+
+    /**
+     * クレームをカスタマイズしてトークンを発行します。
+     *
+     * @param subject    sub クレーム
+     * @param customizer クレームのカスタマイズ
+     * @return 署名済みトークン
+     */
+    public String mintToken(String subject, Consumer<JWTClaimsSet.Builder> customizer) {
+        return sign(signingKey(), keycloakClaims(subject, customizer));
+    }
+
+    /**
+     * 指定した鍵でトークンに署名します（鍵ローテーションのテスト用）。
+     *
+     * @param key    署名鍵
+     * @param claims クレーム
+     * @return 署名済みトークン
+     */
+    public static String sign(RSAKey key, JWTClaimsSet claims) {
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                    .keyID(key.getKeyID())
+                    .type(JOSEObjectType.JWT)
+                    .build(), claims);
+            jwt.sign(new RSASSASigner(key));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keycloakのアクセストークンと同等のクレームを生成します。
+     *
+     * @param subject    sub クレーム
+     * @param customizer クレームのカスタマイズ
+     * @return クレーム
+     */
+    public JWTClaimsSet keycloakClaims(String subject, Consumer<JWTClaimsSet.Builder> customizer) {
+        Instant now = Instant.now();
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
+                .issuer(issuerUri)
+                .subject(subject)
+                .audience("gmo-coin-client")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(300)))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("typ", "Bearer")
+                .claim("azp", "gmo-coin-client")
+                .claim("scope", "openid email profile")
+                .claim("preferred_username", "testuser")
+                .claim("email", "test@example.com")
+                .claim("email_verified", true)
+                .claim("given_name", "Taro")
+                .claim("family_name", "Yamada")
+                .claim("name", "Taro Yamada")
+                .claim("realm_access", Map.of("roles", List.of("default-roles-one-account-realm")))
+                .claim("resource_access", Map.of("account", Map.of("roles", List.of("view-profile", "manage-account"))));
+        customizer.accept(builder);
+        return builder.build();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String issuerPath() {
+        return issuerUri.substring(issuerUri.indexOf("/realms/"));
+    }
+
+    private Map<String, Object> discovery() {
+        Map<String, Object> discovery = new LinkedHashMap<>();
+        discovery.put("issuer", issuerUri);
+        discovery.put("jwks_uri", jwksUri());
+        discovery.put("authorization_endpoint", issuerUri + "/protocol/openid-connect/auth");
+        discovery.put("token_endpoint", issuerUri + "/protocol/openid-connect/token");
+        discovery.put("userinfo_endpoint", issuerUri + "/protocol/openid-connect/userinfo");
+        discovery.put("id_token_signing_alg_values_supported", List.of("RS256"));
+        return discovery;
+    }
+
+    /**
+     * 署名鍵を生成します（JWKSには追加しません）。
+     *
+     * @return RSA 2048bitの署名鍵
+     */
+    public static RSAKey newSigningKey() {
+        try {
+            return new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void delay(Duration delay) {
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.oneaccountsample.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * テスト用のKeycloakのトークンエンドポイント（refresh_tokenグラントのみ）。
+ * <p>
+ * {@link StubOidcIssuer} にトークンエンドポイントを追加し、Keycloakのリフレッシュトークンのローテーション
+ * （revokeRefreshToken=true・refreshTokenMaxReuse=0）と同じく動作します。
+ * <ul>
+ *   <li>リフレッシュトークンは1回のみ使用でき、使用するたびに新しいリフレッシュトークンを発行する</li>
+ *   <li>使用済みのリフレッシュトークンが再度使用された場合は invalid_grant を返し、セッションを無効にする</li>
+ * </ul>
+ * 応答の保留（同時の要求の再現用）と、503の応答（Keycloakの停止の再現用）をテスト中に切り替えられます。
+ */
+public class StubTokenEndpoint {
+
+    public static final String CLIENT_ID = "gmo-coin-client";
+    public static final String CLIENT_SECRET = "gmo-coin-secret";
+
+    private final StubOidcIssuer issuer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Session> refreshTokens = new ConcurrentHashMap<>();
+    private final AtomicInteger refreshRequests = new AtomicInteger();
+    private volatile CountDownLatch gate;
+    private volatile boolean unavailable;
+
+    private StubTokenEndpoint(StubOidcIssuer issuer) {
+        this.issuer = issuer;
+        issuer.addHandler("/protocol/openid-connect/token", this::token);
+    }
+
+    /**
+     * OIDCプロバイダーにトークンエンドポイントを追加します。
+     *
+     * @param issuer 追加先のOIDCプロバイダー
+     * @return トークンエンドポイント
+     */
+    public static StubTokenEndpoint attach(StubOidcIssuer issuer) {
+        return new StubTokenEndpoint(issuer);
+    }
+
+    /**
+     * ログイン済みのセッションを作成し、最初のリフレッシュトークンを返します。
+     *
+     * @param subject ユーザーID（sub）
+     * @return リフレッシュトークン
+     */
+    public String login(String subject) {
+        Session session = new Session(subject);
+        return session.rotate(this);
+    }
+
+    /**
+     * 以降の要求への応答を {@link #release()} まで保留します。
+     */
+    public void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    /**
+     * 保留中の応答を返します。
+     */
+    public void release() {
+        CountDownLatch current = gate;
+        gate = null;
+        if (current != null) {
+            current.countDown();
+        }
+    }
+
+    /**
+     * 以降の要求に503を返すかを設定します。
+     *
+     * @param unavailable 503を返す場合true
+     */
+    public void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    /** refresh_tokenグラントの要求の件数 */
+    public int refreshRequests() {
+        return refreshRequests.get();
+    }
+
+    /**
+     * セッションが有効か（使用済みのリフレッシュトークンの再使用で無効になっていないか）を返します。
+     *
+     * @param refreshToken セッションで発行したいずれかのリフレッシュトークン
+     * @return 有効な場合true
+     */
+    public boolean isSessionActive(String refreshToken) {
+        Session session = refreshTokens.get(refreshToken);
+        return session != null && !session.revoked;
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseQuery(new String(exchange.getRequestBody().readAllBytes(),
+                StandardCharsets.UTF_8));
+        if (!"refresh_token".equals(form.get("grant_type"))) {
+            respond(exchange, 400, toJson(Map.of("error", "unsupported_grant_type")));
+            return;
+        }
+        refreshRequests.incrementAndGet();
+        await(gate);
+        if (unavailable) {
+            respond(exchange, 503, "{}");
+            return;
+        }
+        if (!CLIENT_ID.equals(form.get("client_id")) || !CLIENT_SECRET.equals(form.get("client_secret"))) {
+            respond(exchange, 401, toJson(Map.of("error", "unauthorized_client")));
+            return;
+        }
+        String refreshToken = form.get("refresh_token");
+        Session session = refreshToken == null ? null : refreshTokens.get(refreshToken);
+        String next = session == null ? null : session.use(refreshToken, this);
+        if (next == null) {
+            respond(exchange, 400, toJson(Map.of("error", "invalid_grant", "error_description", "Invalid refresh token")));
+            return;
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("access_token", issuer.mintToken(session.subject));
+        body.put("expires_in", 300);
+        body.put("refresh_token", next);
+        body.put("refresh_expires_in", 1800);
+        body.put("token_type", "Bearer");
+        respond(exchange, 200, toJson(body));
+    }
+
+    private static void await(CountDownLatch latch) {
+        if (latch == null) {
+            return;
+        }
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                params.putIfAbsent(URLDecoder.decode(pair.substring(0, index), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * ログインのセッション。最後に発行したリフレッシュトークンのみ有効です。
+     */
+    private static final class Session {
+
+        private final String subject;
+        private String current;
+        private volatile boolean revoked;
+
+        Session(String subject) {
+            this.subject = subject;
+        }
+
+        synchronized String rotate(StubTokenEndpoint endpoint) {
+            current = UUID.randomUUID().toString();
+            endpoint.refreshTokens.put(current, this);
+            return current;
+        }
+
+        /**
+         * リフレッシュトークンを使用し、新しいリフレッシュトークンを返します。
+         * 使用済みのトークンの場合はセッションを無効にしてnullを返します。
+         */
+        synchronized String use(String refreshToken, StubTokenEndpoint endpoint) {
+            if (revoked) {
+                return null;
+            }
+            if (!refreshToken.equals(current)) {
+                revoked = true;
+                return null;
+            }
+            return rotate(endpoint);
+        }
+    }
+}
@@ -97,6 +97,16 @@ export async function GET(request: NextRequest) {
       path: '/',
       maxAge: tokens.expires_in 
     });
+    // アクセストークンの期限切れ後にバックエンドの /api/auth/refresh で更新するためのリフレッシュトークン
+    if (tokens.refresh_token) {
+      response.cookies.set('refresh_token', tokens.refresh_token, { 
+        httpOnly: true, 
+        secure: false, 
+        sameSite: 'lax',
+        path: '/',
+        maxAge: tokens.refresh_expires_in || undefined 
+      });
+    }
     response.cookies.set('user_info', JSON.stringify(userInfo), { 
       httpOnly: true, 
       secure: false, 
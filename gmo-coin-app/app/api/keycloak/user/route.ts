@@ -41,6 +41,7 @@ export async function DELETE(request: NextRequest) {
   const response = NextResponse.json({ message: 'Logged out successfully' });
   // 認証関連クッキー削除
   response.cookies.delete('access_token');
+  response.cookies.delete('refresh_token');
   response.cookies.delete('user_info');
   
   return response;
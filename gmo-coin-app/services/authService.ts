@@ -4,7 +4,8 @@ import { KeycloakUserInfo } from '../types/auth';
 const API_ENDPOINTS = {
   AUTH: '/api/keycloak/auth',
   USER: '/api/keycloak/user',
-  BACKEND_USER: 'http://localhost:8081/api/user'
+  BACKEND_USER: 'http://localhost:8081/api/user',
+  BACKEND_REFRESH: 'http://localhost:8081/api/auth/refresh'
 };
 
 /**
@@ -61,16 +62,41 @@ export const authService = {
     }
   },
 
+  /**
+   * バックエンドAPIでトークンを更新する（新しいトークンはCookieで返される）
+   * 同時に複数の呼び出しがあってもバックエンドがKeycloakへの1回の呼び出しにまとめる
+   * @returns {Promise<boolean>} 更新に成功したかどうか
+   */
+  async refreshTokens() {
+    try {
+      const response = await fetch(API_ENDPOINTS.BACKEND_REFRESH, {
+        method: 'POST',
+        credentials: 'include'
+      });
+      return response.ok;
+    } catch (error) {
+      console.error('Token refresh failed:', error);
+      return false;
+    }
+  },
+
   /**
    * バックエンドAPIからユーザー情報を取得する
    * @returns {Promise<any>} バックエンドのユーザー情報
    */
   async fetchBackendUserInfo() {
     try {
-      const response = await fetch(API_ENDPOINTS.BACKEND_USER, {
+      let response = await fetch(API_ENDPOINTS.BACKEND_USER, {
         credentials: 'include'
       });
 
+      // アクセストークンの期限切れ時はCookieのリフレッシュトークンで更新して1回だけ再試行する
+      if (response.status === 401 && await authService.refreshTokens()) {
+        response = await fetch(API_ENDPOINTS.BACKEND_USER, {
+          credentials: 'include'
+        });
+      }
+
       if (response.ok) {
         return await response.json();
       } else {